@@ -24,7 +24,10 @@ import com.adobe.datum.common.function.DatumCallback;
 import com.adobe.datum.common.function.DatumSupplier;
 import com.adobe.datum.common.function.DatumUnifiedCallback;
 import com.adobe.datum.common.function.UncaughtErrorReporterCallback;
+import com.adobe.datum.common.handler.DatumChannelDownloadHandler;
 import com.adobe.datum.common.serialize.SerializationContext;
+import com.google.common.base.Preconditions;
+import io.netty.channel.Channel;
 import org.spockframework.util.CollectionUtil;
 import java.util.Collection;
 import java.util.Iterator;
@@ -33,6 +36,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import static com.adobe.datum.common.function.DatumCallbackUtil.merge;
 
 /**
@@ -42,6 +46,9 @@ public final class BlockingDatumClient {
 
   private static final int DEFAULT_TIMEOUT_SECONDS = 5;
 
+  // items the iterator of a download lets pile up before reading from the channel is suspended
+  private static final int DEFAULT_ITERATOR_CAPACITY = 1024;
+
   private final DatumClient datumClient;
 
   public BlockingDatumClient() {
@@ -90,6 +97,55 @@ public final class BlockingDatumClient {
     return result;
   }
 
+  /**
+   * Iterates a download as it comes in, without holding much more than 1024 items at a time. The timeout applies to
+   * each item, not to the whole download; running into it fails the iterator with a {@code WrappedRuntimeException},
+   * as does a failed stream. Closing the iterator before the end cancels the stream.
+   */
+  public <T> CloseableIterator<T> iterateDownload(Object request, Class<T> responsePrototype)
+      throws DatumClientException {
+    return iterateDownload(request, responsePrototype, DEFAULT_TIMEOUT_SECONDS);
+  }
+
+  public <T> CloseableIterator<T> iterateDownload(Object request, Class<T> responsePrototype, int idleTimeout)
+      throws DatumClientException {
+    return iterateDownload(request, responsePrototype, idleTimeout, DEFAULT_ITERATOR_CAPACITY);
+  }
+
+  public <T> CloseableIterator<T> iterateDownload(Object request,
+                                                  Class<T> responsePrototype,
+                                                  int idleTimeout,
+                                                  int capacity)
+      throws DatumClientException {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive: %s", capacity);
+    Channel channel = datumClient.newChannel();
+    // a multiplexed stream cannot suspend reading, but it always comes with credit, which the iterator then grants
+    boolean grantsCredit = datumClient.getConnectionSettings().getCreditWindow() > 0;
+    DownloadIterator<T> iterator =
+        new DownloadIterator<>(channel, capacity, grantsCredit, idleTimeout, TimeUnit.SECONDS);
+    // the iterator is a consumer queue of its own
+    if (grantsCredit) {
+      datumClient.sendDownloadRequest(channel, request, responsePrototype, iterator, capacity,
+                                      DatumChannelDownloadHandler.NO_OFFLOAD);
+    } else {
+      datumClient.sendDownloadRequest(channel, request, responsePrototype, iterator, DatumCallback.NO_OP, null,
+                                      DatumChannelDownloadHandler.NO_OFFLOAD);
+    }
+    return iterator;
+  }
+
+  /**
+   * Same as {@link #iterateDownload(Object, Class)}, as a stream to be closed once done with.
+   */
+  public <T> Stream<T> streamDownload(Object request, Class<T> responsePrototype) throws DatumClientException {
+    return iterateDownload(request, responsePrototype).stream();
+  }
+
+  public <T> Stream<T> streamDownload(Object request, Class<T> responsePrototype, int idleTimeout)
+      throws DatumClientException {
+    return iterateDownload(request, responsePrototype, idleTimeout).stream();
+  }
+
   public <T> void sendUploadRequest(Object request, Collection<T> collection) throws DatumClientException {
     sendUploadRequest(request, collection, DEFAULT_TIMEOUT_SECONDS);
   }
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import com.adobe.datum.common.channel.ConnectionSettings;
+import com.adobe.datum.common.handler.ChannelReuse;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connections to the server of a client kept open between requests. A connection goes back to the pool as soon as its
+ * pipeline has been reset after a stream (see {@link ChannelReuse}); the most recently used one is handed out first,
+ * as it is the most likely to be warm. No more than {@link ConnectionSettings#getConnectionPoolSize()} connections are
+ * kept idle, each for no longer than {@link ConnectionSettings#getConnectionIdleTimeoutMillis()}.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class DatumChannelPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DatumChannelPool.class);
+
+  private final Connector          connector;
+  private final ConnectionSettings settings;
+  private final ChannelHandler     releaseHandler = new ReleaseHandler();
+
+  private final Deque<IdleChannel> idleChannels = new ArrayDeque<>();
+
+  DatumChannelPool(EventLoopGroup workerGroup, ConnectionSettings settings) {
+    this(() -> DatumClientBootstrap.getInstance().connect(workerGroup, settings), settings);
+  }
+
+  DatumChannelPool(Connector connector, ConnectionSettings settings) {
+    this.connector = connector;
+    this.settings = settings;
+  }
+
+  /**
+   * @return an idle connection, or a new one once it is connected; nothing blocks on the way
+   */
+  CompletableFuture<Channel> acquire() {
+    synchronized (this) {
+      IdleChannel idleChannel;
+      while ((idleChannel = idleChannels.pollLast()) != null) {
+        if (idleChannel.channel.isActive()) {
+          return CompletableFuture.completedFuture(idleChannel.channel);
+        }
+      }
+    }
+
+    CompletableFuture<Channel> acquired = new CompletableFuture<>();
+    connector.connect().addListener((ChannelFutureListener) future -> {
+      if (!future.isSuccess()) {
+        acquired.completeExceptionally(future.cause());
+        return;
+      }
+      Channel channel = future.channel();
+      channel.pipeline().addLast(releaseHandler);
+      ChannelReuse.keepAlive(channel);
+      acquired.complete(channel);
+    });
+    return acquired;
+  }
+
+  private synchronized void release(Channel channel) {
+    if (!channel.isActive()) {
+      return;
+    }
+    if (idleChannels.size() >= settings.getConnectionPoolSize()) {
+      channel.close();
+      return;
+    }
+
+    IdleChannel idleChannel = new IdleChannel(channel);
+    idleChannels.addLast(idleChannel);
+    channel.eventLoop().schedule(() -> evict(idleChannel),
+                                 settings.getConnectionIdleTimeoutMillis(),
+                                 TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void evict(IdleChannel idleChannel) {
+    if (idleChannels.remove(idleChannel)) {
+      LOG.debug("closing connection idle for {}ms: {}", settings.getConnectionIdleTimeoutMillis(), idleChannel.channel);
+      idleChannel.channel.close();
+    }
+  }
+
+  /**
+   * Opens a new connection to the server.
+   */
+  interface Connector {
+
+    ChannelFuture connect();
+  }
+
+  /**
+   * Stays in the pipeline of a pooled connection for its whole life, so a reset never removes it.
+   */
+  @ChannelHandler.Sharable
+  private final class ReleaseHandler extends ChannelInboundHandlerAdapter {
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext context, Object event) throws Exception {
+      if (event == ChannelReuse.STREAM_RESET) {
+        release(context.channel());
+      }
+      super.userEventTriggered(context, event);
+    }
+  }
+
+  // compared by identity, as the same channel is pooled again after every request
+  private static final class IdleChannel {
+
+    private final Channel channel;
+
+    private IdleChannel(Channel channel) {
+      this.channel = channel;
+    }
+  }
+}
@@ -20,8 +20,10 @@
 package com.adobe.datum.client;
 
 import com.adobe.datum.client.handler.StreamStartHandler;
+import com.adobe.datum.client.handler.UploadCommitHandler;
 import com.adobe.datum.common.channel.ChannelUtil;
 import com.adobe.datum.common.channel.ConnectionSettings;
+import com.adobe.datum.common.function.AsyncDatumSupplier;
 import com.adobe.datum.common.function.DatumCallback;
 import com.adobe.datum.common.function.DatumConsumer;
 import com.adobe.datum.common.function.DatumSupplier;
@@ -29,16 +31,21 @@ import com.adobe.datum.common.function.UncaughtErrorReporterCallback;
 import com.adobe.datum.common.handler.ChannelHandlers;
 import com.adobe.datum.common.handler.DatumChannelDownloadHandler;
 import com.adobe.datum.common.handler.DatumChannelUploadHandler;
-import com.adobe.datum.common.handler.DatumMessageEncoder;
+import com.adobe.datum.common.handler.DatumStreamMultiplexer;
 import com.adobe.datum.common.serialize.DatumDeserializer;
 import com.adobe.datum.common.serialize.DatumSerializer;
 import com.adobe.datum.common.serialize.SerializationContext;
 import com.adobe.datum.common.serialize.SerializerProvider;
+import com.adobe.datum.common.util.ExecutorUtil;
 import com.adobe.datum.common.util.Nullables;
 import com.adobe.datum.common.util.ReflectionUtil;
+import com.google.common.base.Preconditions;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoopGroup;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.Arrays;
@@ -46,6 +53,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto;
 import static com.adobe.datum.common.api.DatumProto.DatumRequestProto.RequestType;
 
 /**
@@ -58,10 +71,17 @@ public final class DatumClient {
 
   private final ConnectionSettings connectionSettings;
   private final SerializerProvider serializerProvider;
+  private final DatumChannelPool   channelPool;
 
   private final EventLoopGroup workerGroup = ChannelUtil.newEventLoopGroup();
   private final String         clientId    = String.format("%08x", RANDOM.nextInt());
 
+  // shared by all streams when multiplexing, opened on first use and again whenever it has been closed or retired
+  private ChannelFuture connection;
+
+  // runs download consumers when the settings give them a queue depth
+  private volatile Executor consumerExecutor = ExecutorUtil.offloadExecutor();
+
   public DatumClient() {
     this(new SerializationContext());
   }
@@ -77,6 +97,7 @@ public final class DatumClient {
   public DatumClient(ConnectionSettings connectionSettings, SerializationContext serializationContext) {
     this.connectionSettings = connectionSettings;
     serializerProvider = new SerializerProvider(serializationContext);
+    channelPool = new DatumChannelPool(workerGroup, connectionSettings);
     LOG.info("datum client started [id: 0x{}]", clientId);
   }
 
@@ -85,20 +106,155 @@ public final class DatumClient {
     sendDownloadRequest(request, payloadType, consumer, new UncaughtErrorReporterCallback(getClass()));
   }
 
-  @SuppressWarnings("unchecked")
   public <R, P> void sendDownloadRequest(R request,
                                          Class<P> payloadClass,
                                          DatumConsumer<P> consumer,
                                          DatumCallback callback)
       throws DatumClientException {
+    sendDownloadRequest(request, payloadClass, consumer, callback, null);
+  }
+
+  /**
+   * Sends a download request that the server checkpoints as it goes, if its handler is resumable. The checkpoint
+   * follows the stream; should the stream fail, sending the request again with the same checkpoint picks the download
+   * up after it instead of starting over.
+   */
+  public <R, P> void sendDownloadRequest(R request,
+                                         Class<P> payloadClass,
+                                         DatumConsumer<P> consumer,
+                                         DatumCallback callback,
+                                         DownloadCheckpoint checkpoint)
+      throws DatumClientException {
+    sendDownloadRequest(newChannel(), request, payloadClass, consumer, callback, checkpoint,
+                        connectionSettings.getConsumerQueueDepth());
+  }
+
+  /**
+   * Sends a download request on a channel the caller holds on to, e.g. to pace or cancel the stream. A consumer that
+   * hands items over to a thread of its own, and suspends reading by itself, takes no queue depth; the channel then
+   * has a single owner of its auto-read flag.
+   */
+  @SuppressWarnings("unchecked")
+  <R, P> void sendDownloadRequest(Channel channel,
+                                  R request,
+                                  Class<P> payloadClass,
+                                  DatumConsumer<P> consumer,
+                                  DatumCallback callback,
+                                  DownloadCheckpoint checkpoint,
+                                  int consumerQueueDepth)
+      throws DatumClientException {
     DatumSerializer<R> serializer = serializerProvider.getSerializer((Class<R>) request.getClass());
-    Channel channel = newChannel();
-    sendRequest(channel, request, serializer, payloadClass, RequestType.DOWNLOAD, new DatumCallback() {
+    Callable<DatumRequestProto> datumRequest = checkpoint != null
+        ? () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.DOWNLOAD,
+                                                  connectionSettings, checkpoint)
+        : () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.DOWNLOAD,
+                                                  connectionSettings);
+    Consumer<byte[]> checkpointListener = checkpoint != null ? checkpoint::update : null;
+    DatumChannelDownloadHandler<P> handler = DatumChannelDownloadHandler.of(payloadClass,
+                                                                            consumer,
+                                                                            callback,
+                                                                            connectionSettings.getCreditWindow(),
+                                                                            consumerExecutor,
+                                                                            consumerQueueDepth,
+                                                                            checkpointListener);
+    startDownload(channel, datumRequest, payloadClass, handler, callback);
+  }
+
+  /**
+   * Sends a download request without any callback to hand: the future completes once the stream ended, with its
+   * statistics, or exceptionally with whatever failed it. Nothing blocks, not even the connection.
+   */
+  public <R, P> CompletableFuture<StreamResult> sendDownloadRequestAsync(R request,
+                                                                         Class<P> payloadClass,
+                                                                         DatumConsumer<P> consumer) {
+    return openChannel().thenCompose(channel -> sendDownloadRequestAsync(channel, request, payloadClass, consumer));
+  }
+
+  @SuppressWarnings("unchecked")
+  <R, P> CompletableFuture<StreamResult> sendDownloadRequestAsync(Channel channel,
+                                                                  R request,
+                                                                  Class<P> payloadClass,
+                                                                  DatumConsumer<P> consumer) {
+    StreamCompletion completion = StreamCompletion.download();
+    try {
+      DatumSerializer<R> serializer = serializerProvider.getSerializer((Class<R>) request.getClass());
+      Callable<DatumRequestProto> datumRequest =
+          () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.DOWNLOAD,
+                                                  connectionSettings);
+      DatumChannelDownloadHandler<P> handler =
+          DatumChannelDownloadHandler.of(payloadClass,
+                                         consumer,
+                                         completion,
+                                         connectionSettings.getCreditWindow(),
+                                         consumerExecutor,
+                                         connectionSettings.getConsumerQueueDepth());
+      completion.countItems(handler::getReadCount);
+      channel.pipeline().addFirst(completion.getByteCounter());
+      startDownload(channel, datumRequest, payloadClass, handler, completion);
+    } catch (Throwable e) {
+      channel.close();
+      completion.onError(e);
+    }
+    return completion.getFuture();
+  }
+
+  /**
+   * Returns the download as a publisher. Each subscription sends the request anew, and its demand is granted to the
+   * server as credit: the server never sends more than the subscriber requested, and nothing piles up in between.
+   */
+  public <R, P> Publisher<P> publishDownload(R request, Class<P> payloadClass) {
+    return new DownloadPublisher<>(this, request, payloadClass);
+  }
+
+  /**
+   * Sends a download request for which the caller grants credit itself, starting with {@code initialCredit} items or
+   * none at all for an unbounded stream; no credit is granted as the consumer makes progress.
+   */
+  <R, P> void sendDownloadRequest(Channel channel,
+                                  R request,
+                                  Class<P> payloadClass,
+                                  DatumConsumer<P> consumer,
+                                  int initialCredit)
+      throws DatumClientException {
+    sendDownloadRequest(channel, request, payloadClass, consumer, initialCredit,
+                        connectionSettings.getConsumerQueueDepth());
+  }
+
+  @SuppressWarnings("unchecked")
+  <R, P> void sendDownloadRequest(Channel channel,
+                                  R request,
+                                  Class<P> payloadClass,
+                                  DatumConsumer<P> consumer,
+                                  int initialCredit,
+                                  int consumerQueueDepth)
+      throws DatumClientException {
+    DatumSerializer<R> serializer = serializerProvider.getSerializer((Class<R>) request.getClass());
+    Callable<DatumRequestProto> datumRequest =
+        () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.DOWNLOAD,
+                                                connectionSettings)
+                             .toBuilder()
+                             .setInitialCredit(initialCredit)
+                             .build();
+    DatumChannelDownloadHandler<P> handler = DatumChannelDownloadHandler.of(payloadClass,
+                                                                            consumer,
+                                                                            DatumCallback.NO_OP,
+                                                                            DatumChannelDownloadHandler.NO_CREDIT,
+                                                                            consumerExecutor,
+                                                                            consumerQueueDepth);
+    startDownload(channel, datumRequest, payloadClass, handler, consumer);
+  }
+
+  private <P> void startDownload(Channel channel,
+                                 Callable<DatumRequestProto> datumRequest,
+                                 Class<P> payloadClass,
+                                 DatumChannelDownloadHandler<P> handler,
+                                 DatumCallback callback)
+      throws DatumClientException {
+    sendRequest(channel, datumRequest, payloadClass, RequestType.DOWNLOAD, new DatumCallback() {
       @Override
       public void onComplete() {
-        DatumChannelDownloadHandler<P> handler = new DatumChannelDownloadHandler<>(payloadClass, consumer, callback);
         DatumDeserializer<P> payloadDeserializer = serializerProvider.getDeserializer(payloadClass);
-        Arrays.asList(ChannelHandlers.inboundHandlers(payloadClass, payloadDeserializer, handler))
+        Arrays.asList(ChannelHandlers.inboundHandlers(payloadClass, payloadDeserializer, handler, connectionSettings))
               .forEach(channel.pipeline()::addLast);
       }
 
@@ -122,14 +278,105 @@ public final class DatumClient {
       throws DatumClientException {
     DatumSerializer<R> serializer = serializerProvider.getSerializer((Class<R>) request.getClass());
     Channel channel = newChannel();
-    sendRequest(channel, request, serializer, payloadClass, RequestType.UPLOAD, new DatumCallback() {
+    Callable<DatumRequestProto> datumRequest =
+        () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.UPLOAD,
+                                                connectionSettings);
+    DatumChannelUploadHandler<P> messageHandler = DatumChannelUploadHandler.of(supplier, callback, connectionSettings);
+    startUpload(channel, datumRequest, payloadClass, messageHandler, callback);
+  }
+
+  /**
+   * Uploads the items of a publisher, asking it for items only as fast as the channel takes them: as long as it stays
+   * writable and credit granted by the server lasts.
+   */
+  @SuppressWarnings("unchecked")
+  public <R, P> void sendUploadRequest(R request,
+                                       Class<P> payloadClass,
+                                       Publisher<P> publisher,
+                                       DatumCallback callback)
+      throws DatumClientException {
+    DatumSerializer<R> serializer = serializerProvider.getSerializer((Class<R>) request.getClass());
+    Channel channel = newChannel();
+    Callable<DatumRequestProto> datumRequest =
+        () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.UPLOAD,
+                                                connectionSettings);
+    AsyncDatumSupplier<Optional<P>> supplier = AsyncDatumSupplier.of(publisher);
+    DatumChannelUploadHandler<P> messageHandler = DatumChannelUploadHandler.of(supplier, callback, connectionSettings);
+    startUpload(channel, datumRequest, payloadClass, messageHandler, callback);
+  }
+
+  /**
+   * Sends an upload request without any callback to hand: the future completes once the stream ended, with its
+   * statistics, or exceptionally with whatever failed it. Nothing blocks, not even the connection.
+   */
+  public <R, P> CompletableFuture<StreamResult> sendUploadRequestAsync(R request,
+                                                                       Class<P> payloadClass,
+                                                                       DatumSupplier<Optional<P>> supplier) {
+    return openChannel().thenCompose(channel -> sendUploadRequestAsync(channel, request, payloadClass, supplier));
+  }
+
+  @SuppressWarnings("unchecked")
+  <R, P> CompletableFuture<StreamResult> sendUploadRequestAsync(Channel channel,
+                                                                R request,
+                                                                Class<P> payloadClass,
+                                                                DatumSupplier<Optional<P>> supplier) {
+    StreamCompletion completion = StreamCompletion.upload();
+    try {
+      DatumSerializer<R> serializer = serializerProvider.getSerializer((Class<R>) request.getClass());
+      Callable<DatumRequestProto> datumRequest =
+          () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.UPLOAD,
+                                                  connectionSettings);
+      DatumChannelUploadHandler<P> messageHandler =
+          DatumChannelUploadHandler.of(supplier, completion, connectionSettings);
+      completion.countItems(messageHandler::getWriteCount);
+      channel.pipeline().addFirst(completion.getByteCounter());
+      startUpload(channel, datumRequest, payloadClass, messageHandler, completion);
+    } catch (Throwable e) {
+      channel.close();
+      completion.onError(e);
+    }
+    return completion.getFuture();
+  }
+
+  /**
+   * Sends an upload request that the server commits as it goes, if its handler is resumable. The commit holds on to
+   * the items not committed yet; should the stream fail, sending the request again with the same commit sends only
+   * the items after the last one committed instead of starting over.
+   */
+  @SuppressWarnings("unchecked")
+  public <R, P> void sendUploadRequest(R request,
+                                       Class<P> payloadClass,
+                                       UploadCommit<P> commit,
+                                       DatumCallback callback)
+      throws DatumClientException {
+    DatumSerializer<R> serializer = serializerProvider.getSerializer((Class<R>) request.getClass());
+    Channel channel = newChannel();
+    DatumSupplier<Optional<P>> supplier = commit.attempt();
+    long resumeOffset = commit.getCommitted();
+    Callable<DatumRequestProto> datumRequest =
+        () -> DatumClientUtil.buildDatumRequest(request, serializer, payloadClass, RequestType.UPLOAD,
+                                                connectionSettings, resumeOffset);
+    // the server commits the offset it resumes from before it starts the stream
+    channel.pipeline().addLast(new UploadCommitHandler(commit::commit));
+    DatumChannelUploadHandler<P> messageHandler = DatumChannelUploadHandler.of(supplier, callback, connectionSettings);
+    startUpload(channel, datumRequest, payloadClass, messageHandler, callback);
+  }
+
+  private <P> void startUpload(Channel channel,
+                               Callable<DatumRequestProto> datumRequest,
+                               Class<P> payloadClass,
+                               DatumChannelUploadHandler<P> messageHandler,
+                               DatumCallback callback)
+      throws DatumClientException {
+    sendRequest(channel, datumRequest, payloadClass, RequestType.UPLOAD, new DatumCallback() {
       @Override
       public void onComplete() {
-        DatumChannelUploadHandler messageHandler = new DatumChannelUploadHandler<>(supplier, callback);
         DatumSerializer<P> payloadSerializer = serializerProvider.getSerializer(payloadClass);
+        ChannelHandlers.addCompressionEncoder(channel.pipeline(), connectionSettings);
         channel.pipeline()
-               .addLast(DatumMessageEncoder.of(payloadClass, payloadSerializer))
-               .addLast(messageHandler);
+               .addLast(ChannelHandlers.frameEncoder(payloadClass, payloadSerializer, connectionSettings))
+               .addLast(messageHandler)
+               .addLast(ChannelHandlers.streamEndHandler());
       }
 
       @Override
@@ -139,16 +386,16 @@ public final class DatumClient {
     });
   }
 
-  private <R, P> void sendRequest(Channel channel,
-                                  R request,
-                                  DatumSerializer<R> requestSerializer,
-                                  Class<P> payloadType,
-                                  RequestType type,
-                                  DatumCallback callback)
+  private <P> void sendRequest(Channel channel,
+                               Callable<DatumRequestProto> datumRequest,
+                               Class<P> payloadType,
+                               RequestType type,
+                               DatumCallback callback)
       throws DatumClientException {
     try {
+      // listen before writing: a listener added to an already completed promise from outside the event loop runs
+      // as a separate task, by which time the stream start message may have been read and dropped
       ChannelPromise promise = channel.newPromise();
-      channel.writeAndFlush(DatumClientUtil.buildDatumRequest(request, requestSerializer, payloadType, type), promise);
       promise.addListener(future -> {
         if (future.isSuccess()) {
           LOG.info("{} request for {} sent successfully", type.name().toLowerCase(), payloadType);
@@ -159,6 +406,7 @@ public final class DatumClient {
           callback.onError(future.cause());
         }
       });
+      channel.writeAndFlush(datumRequest.call(), promise);
     } catch (Throwable e) {
       channel.close();
       throw new DatumClientException("unable to send datum request", e);
@@ -169,12 +417,80 @@ public final class DatumClient {
     channel.pipeline().addLast(new StreamStartHandler(callback));
   }
 
-  private Channel newChannel() throws DatumClientException {
+  Channel newChannel() throws DatumClientException {
     try {
-      return DatumClientBootstrap.getInstance().bootstrap(workerGroup, connectionSettings);
+      return openChannel().get();
     } catch (InterruptedException e) {
       throw new DatumClientException("unable to get communication channel", e);
+    } catch (ExecutionException e) {
+      throw new DatumClientException("unable to get communication channel", e.getCause());
+    }
+  }
+
+  /**
+   * Same as {@link #newChannel()}, without blocking: the future completes once the channel is ready for a request.
+   */
+  ConnectionSettings getConnectionSettings() {
+    return connectionSettings;
+  }
+
+  CompletableFuture<Channel> openChannel() {
+    if (connectionSettings.isConnectionPooling()) {
+      return channelPool.acquire();
+    }
+    if (!connectionSettings.isMultiplexing()) {
+      return toCompletableFuture(DatumClientBootstrap.getInstance().connect(workerGroup, connectionSettings));
+    }
+    DatumClientInitializer initializer = new DatumClientInitializer(connectionSettings);
+    CompletableFuture<Channel> stream = new CompletableFuture<>();
+    getConnection().addListener((ChannelFutureListener) connected -> {
+      if (!connected.isSuccess()) {
+        stream.completeExceptionally(connected.cause());
+        return;
+      }
+      DatumStreamMultiplexer.openStream(connected.channel(), initializer::initStream)
+                            .addListener((ChannelFutureListener) opened -> {
+                              if (opened.isSuccess()) {
+                                stream.complete(opened.channel());
+                              } else {
+                                stream.completeExceptionally(new DatumClientException("unable to open stream",
+                                                                                      opened.cause()));
+                              }
+                            });
+    });
+    return stream;
+  }
+
+  private synchronized ChannelFuture getConnection() {
+    if (connection == null || connection.isDone() && !isUsable(connection.channel())) {
+      // a retired connection runs out of stream ids soon, and closes by itself once its streams are over
+      connection = DatumClientBootstrap.getInstance().connect(workerGroup, connectionSettings);
     }
+    return connection;
+  }
+
+  private static boolean isUsable(Channel connection) {
+    return connection.isActive() && DatumStreamMultiplexer.takesNewStreams(connection);
+  }
+
+  private static CompletableFuture<Channel> toCompletableFuture(ChannelFuture future) {
+    CompletableFuture<Channel> channel = new CompletableFuture<>();
+    future.addListener((ChannelFutureListener) done -> {
+      if (done.isSuccess()) {
+        channel.complete(done.channel());
+      } else {
+        channel.completeExceptionally(done.cause());
+      }
+    });
+    return channel;
+  }
+
+  /**
+   * Executor that download consumers run on when {@link ConnectionSettings#getConsumerQueueDepth()} is set.
+   */
+  public DatumClient setConsumerExecutor(Executor consumerExecutor) {
+    this.consumerExecutor = Preconditions.checkNotNull(consumerExecutor, "executor cannot be null");
+    return this;
   }
 
   public <T> DatumClient addSerializer(DatumSerializer<T> serializer) {
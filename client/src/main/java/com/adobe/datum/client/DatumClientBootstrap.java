@@ -23,6 +23,7 @@ import com.adobe.datum.common.channel.ChannelUtil;
 import com.adobe.datum.common.channel.ConnectionSettings;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 
@@ -40,6 +41,13 @@ final class DatumClientBootstrap {
   }
 
   public Channel bootstrap(EventLoopGroup workerGroup, ConnectionSettings settings) throws InterruptedException {
+    return connect(workerGroup, settings).sync().channel();
+  }
+
+  /**
+   * Same as {@link #bootstrap(EventLoopGroup, ConnectionSettings)}, without waiting for the connection.
+   */
+  public ChannelFuture connect(EventLoopGroup workerGroup, ConnectionSettings settings) {
     ChannelUtil.validateSettings(settings);
     Bootstrap bootstrap = new Bootstrap();
     bootstrap.group(workerGroup)
@@ -50,6 +58,6 @@ final class DatumClientBootstrap {
              .option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, settings.getWriteBufferHighWaterMark())
              .handler(new DatumClientInitializer(settings));
 
-    return bootstrap.connect(settings.getHost(), settings.getPort()).sync().channel();
+    return bootstrap.connect(settings.getHost(), settings.getPort());
   }
 }
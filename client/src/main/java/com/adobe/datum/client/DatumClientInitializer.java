@@ -23,6 +23,7 @@ import com.adobe.datum.client.handler.AutoShutdownHandler;
 import com.adobe.datum.common.channel.ConnectionSettings;
 import com.adobe.datum.common.handler.ChannelHandlers;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
 
 /**
@@ -41,10 +42,24 @@ public final class DatumClientInitializer extends ChannelInitializer<SocketChann
     channel.pipeline()
            .addLast(AutoShutdownHandler.getInstance())
            .addLast(ChannelHandlers.loggingHandler())
-           .addLast(ChannelHandlers.trafficShapingHandlers(settings))
-           .addLast(ChannelHandlers.metadataEncoder())
-           .addLast(ChannelHandlers.frameEncoder())
-           .addLast(ChannelHandlers.frameDecoder())
-           .addLast(ChannelHandlers.requestEncoder());
+           .addLast(ChannelHandlers.trafficShapingHandlers(settings));
+    if (settings.isAdaptiveWaterMarks()) {
+      channel.pipeline().addLast(ChannelHandlers.adaptiveWaterMarkHandler(settings));
+    }
+    if (settings.isMultiplexing()) {
+      channel.pipeline().addLast(ChannelHandlers.streamMultiplexer());
+    } else {
+      initStream(channel.pipeline());
+    }
+  }
+
+  /**
+   * Sets up the handlers of one stream, which is either a connection of its own or a stream of a multiplexed one.
+   */
+  void initStream(ChannelPipeline pipeline) {
+    pipeline.addLast(ChannelHandlers.metadataEncoder())
+            .addLast(ChannelHandlers.frameDecoder(settings))
+            .addLast(ChannelHandlers.creditHandler())
+            .addLast(ChannelHandlers.requestEncoder());
   }
 }
@@ -19,6 +19,8 @@
 
 package com.adobe.datum.client;
 
+import com.adobe.datum.common.channel.ConnectionSettings;
+import com.adobe.datum.common.compress.DatumCompression;
 import com.adobe.datum.common.serialize.DatumSerializer;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
@@ -37,18 +39,68 @@ public final class DatumClientUtil {
                                                            Class<P> payloadClass,
                                                            RequestType requestType)
       throws IOException {
-    return buildDatumRequestProto(requestType, request.getClass(), payloadClass, requestSerializer.serialize(request));
+    return buildDatumRequestProto(requestType, request.getClass(), payloadClass, requestSerializer.serialize(request))
+        .build();
   }
 
-  private static DatumRequestProto buildDatumRequestProto(RequestType requestType,
-                                                          Class requestClass,
-                                                          Class payloadType,
-                                                          byte[] body) {
+  /**
+   * Also lets the server know which codecs and how much credit the client is set up for, and whether it reuses the
+   * connection afterwards.
+   */
+  public static <R, P> DatumRequestProto buildDatumRequest(R request,
+                                                           DatumSerializer<R> requestSerializer,
+                                                           Class<P> payloadClass,
+                                                           RequestType requestType,
+                                                           ConnectionSettings settings)
+      throws IOException {
+    return buildDatumRequestProto(requestType, request.getClass(), payloadClass, requestSerializer.serialize(request))
+        .addAllAcceptedCompression(DatumCompression.advertise(settings.getCompression()))
+        .setInitialCredit(settings.getCreditWindow())
+        .setKeepAlive(settings.isConnectionPooling())
+        .build();
+  }
+
+  /**
+   * Also has the server checkpoint the download, and resume it after the position of the checkpoint if it has one.
+   */
+  public static <R, P> DatumRequestProto buildDatumRequest(R request,
+                                                           DatumSerializer<R> requestSerializer,
+                                                           Class<P> payloadClass,
+                                                           RequestType requestType,
+                                                           ConnectionSettings settings,
+                                                           DownloadCheckpoint checkpoint)
+      throws IOException {
+    ByteString position = checkpoint.getPosition().map(ByteString::copyFrom).orElse(ByteString.EMPTY);
+    return buildDatumRequest(request, requestSerializer, payloadClass, requestType, settings)
+        .toBuilder()
+        .setResumeCheckpoint(position)
+        .build();
+  }
+
+  /**
+   * Also has the server commit the upload as it goes, and resume it after the items committed so far.
+   */
+  public static <R, P> DatumRequestProto buildDatumRequest(R request,
+                                                           DatumSerializer<R> requestSerializer,
+                                                           Class<P> payloadClass,
+                                                           RequestType requestType,
+                                                           ConnectionSettings settings,
+                                                           long resumeOffset)
+      throws IOException {
+    return buildDatumRequest(request, requestSerializer, payloadClass, requestType, settings)
+        .toBuilder()
+        .setResumeOffset(resumeOffset)
+        .build();
+  }
+
+  private static DatumRequestProto.Builder buildDatumRequestProto(RequestType requestType,
+                                                                  Class requestClass,
+                                                                  Class payloadType,
+                                                                  byte[] body) {
     return DatumRequestProto.newBuilder()
                             .setType(requestType)
                             .setParameterType(requestClass.getName())
                             .setParameterBody(ByteString.copyFrom(body))
-                            .setPrototypeName(payloadType.getName())
-                            .build();
+                            .setPrototypeName(payloadType.getName());
   }
 }
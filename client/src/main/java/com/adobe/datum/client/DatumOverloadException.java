@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import com.adobe.datum.common.channel.metadata.DatumOverloadMessage;
+
+/**
+ * The server turned a request down because it is over capacity; nothing of the stream was sent or received.
+ *
+ * @author Adobe Systems Inc.
+ */
+public class DatumOverloadException extends DatumClientException {
+
+  private final DatumOverloadMessage.Reason reason;
+
+  public DatumOverloadException(DatumOverloadMessage.Reason reason) {
+    super("server is overloaded: " + reason);
+    this.reason = reason;
+  }
+
+  public DatumOverloadMessage.Reason getReason() {
+    return reason;
+  }
+}
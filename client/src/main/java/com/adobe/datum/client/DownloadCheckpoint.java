@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import java.util.Optional;
+
+/**
+ * Where a download stands, as of the last checkpoint acknowledged to the server. Handed to a download request, it is
+ * kept up to date as the stream goes on; sending the same request again with it after the stream failed resumes the
+ * download after the checkpoint, provided the handler on the server is resumable.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class DownloadCheckpoint {
+
+  private volatile byte[] position;
+
+  private DownloadCheckpoint(byte[] position) {
+    this.position = position;
+  }
+
+  /**
+   * @return a checkpoint for a download that starts from the beginning
+   */
+  public static DownloadCheckpoint start() {
+    return new DownloadCheckpoint(null);
+  }
+
+  /**
+   * @return a checkpoint at a position kept from an earlier attempt, e.g. across restarts of the client
+   */
+  public static DownloadCheckpoint of(byte[] position) {
+    return new DownloadCheckpoint(position);
+  }
+
+  public Optional<byte[]> getPosition() {
+    return Optional.ofNullable(position);
+  }
+
+  void update(byte[] position) {
+    this.position = position;
+  }
+}
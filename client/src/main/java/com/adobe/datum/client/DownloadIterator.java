@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage;
+import com.adobe.datum.common.function.DatumConsumer;
+import com.adobe.datum.common.function.WrappedRuntimeException;
+import io.netty.channel.Channel;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands the items of a download over to the thread iterating them. Once {@code capacity} items are waiting, reading
+ * from the channel is suspended until the iterator has worked them down to half; the items read meanwhile still
+ * queue up. The iterator is the only one to suspend reading, as its stream has no consumer queue of its own, and
+ * reading is resumed whenever the stream ends, so that a pooled channel goes back with it on. Waiting for an item
+ * longer than the idle timeout, like closing the iterator early, closes the channel and with it the stream.
+ *
+ * <p>
+ * A multiplexed stream cannot suspend reading, as the connection is read for all of its streams. An iterator that
+ * grants credit bounds the queue by credit instead: the sender is granted {@code capacity} items up front, and more
+ * each time the iterator has taken half of that, so no more than {@code capacity} items ever queue up.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type of the payload.
+ */
+final class DownloadIterator<T> implements CloseableIterator<T>, DatumConsumer<T> {
+
+  // queued after the last item, or in its stead when the stream failed
+  private static final Object STREAM_FINISHED = new Object();
+
+  private final Channel channel;
+  private final int     capacity;
+  private final boolean grantsCredit;
+  private final long    idleTimeoutMillis;
+
+  private final BlockingQueue<Object> queue         = new LinkedBlockingQueue<>();
+  private final AtomicBoolean         readSuspended = new AtomicBoolean();
+
+  private volatile Throwable failure;
+  private volatile boolean   streamEnded;
+  private volatile boolean   closed;
+
+  // only touched by the iterating thread
+  private Object  next;
+  private boolean finished;
+  private int     takenSinceGrant;
+
+  DownloadIterator(Channel channel, int capacity, long idleTimeout, TimeUnit unit) {
+    this(channel, capacity, false, idleTimeout, unit);
+  }
+
+  DownloadIterator(Channel channel, int capacity, boolean grantsCredit, long idleTimeout, TimeUnit unit) {
+    this.channel = channel;
+    this.capacity = capacity;
+    this.grantsCredit = grantsCredit;
+    this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+  }
+
+  @Override
+  public void accept(T item) {
+    if (closed) {
+      return;
+    }
+    queue.add(item);
+    if (!grantsCredit && queue.size() >= capacity && readSuspended.compareAndSet(false, true)) {
+      channel.config().setAutoRead(false);
+      // the iterator may have worked the queue down before it could see the suspension
+      if (queue.size() <= capacity / 2 && readSuspended.compareAndSet(true, false)) {
+        channel.config().setAutoRead(true);
+      }
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    streamEnded = true;
+    queue.add(STREAM_FINISHED);
+    resumeReading();
+  }
+
+  @Override
+  public void onError(Throwable cause) {
+    failure = cause;
+    streamEnded = true;
+    queue.add(STREAM_FINISHED);
+    resumeReading();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && !finished) {
+      next = take();
+    }
+    return !finished;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T item = (T) next;
+    next = null;
+    return item;
+  }
+
+  private Object take() {
+    // unless an item turns up, iterating ends here, failure or not
+    finished = true;
+    if (closed) {
+      return STREAM_FINISHED;
+    }
+    Object entry;
+    try {
+      entry = queue.poll(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new WrappedRuntimeException("interrupted while waiting for the next item", e);
+    }
+    if (entry == null) {
+      close();
+      throw new WrappedRuntimeException("download failed",
+                                        new DatumClientException("no item received in " + idleTimeoutMillis + "ms"));
+    }
+    if (entry == STREAM_FINISHED) {
+      if (failure != null) {
+        throw new WrappedRuntimeException("download failed", failure);
+      }
+      return entry;
+    }
+    finished = false;
+    if (grantsCredit) {
+      grantCredit();
+    } else if (queue.size() <= capacity / 2) {
+      resumeReading();
+    }
+    return entry;
+  }
+
+  private void grantCredit() {
+    if (++takenSinceGrant >= Math.max(1, capacity / 2) && !streamEnded) {
+      channel.writeAndFlush(DatumCreditMessage.of(takenSinceGrant));
+      takenSinceGrant = 0;
+    }
+  }
+
+  private void resumeReading() {
+    if (readSuspended.compareAndSet(true, false)) {
+      channel.eventLoop().execute(() -> channel.config().setAutoRead(true));
+    }
+  }
+
+  /**
+   * Cancels the stream unless it already ended; the items still queued are dropped.
+   */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      if (!streamEnded) {
+        channel.close();
+      }
+      queue.clear();
+      resumeReading();
+    }
+  }
+}
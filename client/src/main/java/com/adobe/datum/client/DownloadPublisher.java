@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage;
+import com.adobe.datum.common.function.DatumConsumer;
+import com.adobe.datum.common.handler.DatumChannelDownloadHandler;
+import com.google.common.base.Preconditions;
+import io.netty.channel.Channel;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Download as a cold {@link Publisher}: every subscriber gets a stream of its own, sent for once it first requests
+ * items. The demand of the subscriber becomes credit of the stream, so the server sends no more than was requested;
+ * demand of {@link Long#MAX_VALUE} up front leaves the stream without credit limits altogether. Requesting items never
+ * blocks: the channel is opened in the background, and demand signalled meanwhile adds to the initial credit.
+ *
+ * @author Adobe Systems Inc.
+ * @param <R> Request message type
+ * @param <P> Payload type
+ */
+final class DownloadPublisher<R, P> implements Publisher<P> {
+
+  private final DatumClient                          client;
+  private final Supplier<CompletableFuture<Channel>> channelFactory;
+  private final R                                    request;
+  private final Class<P>                             payloadClass;
+
+  DownloadPublisher(DatumClient client, R request, Class<P> payloadClass) {
+    this(client, client::openChannel, request, payloadClass);
+  }
+
+  DownloadPublisher(DatumClient client,
+                    Supplier<CompletableFuture<Channel>> channelFactory,
+                    R request,
+                    Class<P> payloadClass) {
+    this.client = client;
+    this.channelFactory = channelFactory;
+    this.request = request;
+    this.payloadClass = payloadClass;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super P> subscriber) {
+    Preconditions.checkNotNull(subscriber, "subscriber cannot be null");
+    subscriber.onSubscribe(new DownloadSubscription(subscriber));
+  }
+
+  private final class DownloadSubscription implements Subscription, DatumConsumer<P> {
+
+    private final Subscriber<? super P> subscriber;
+
+    // guarded by this; credit messages must follow the request that carried the initial credit
+    private Channel channel;
+    private boolean requested;
+    private boolean unbounded;
+    private int     initialCredit;
+
+    private volatile boolean terminated;
+
+    private DownloadSubscription(Subscriber<? super P> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long items) {
+      if (terminated) {
+        return;
+      }
+      if (items <= 0) {
+        cancel();
+        subscriber.onError(new IllegalArgumentException("requested items must be positive: " + items));
+        return;
+      }
+      int credit = (int) Math.min(items, Integer.MAX_VALUE);
+      synchronized (this) {
+        if (!requested) {
+          requested = true;
+          unbounded = items == Long.MAX_VALUE;
+          initialCredit = credit;
+          channelFactory.get().whenComplete(this::send);
+        } else if (unbounded) {
+          return;
+        } else if (channel == null) {
+          initialCredit = (int) Math.min((long) initialCredit + credit, Integer.MAX_VALUE);
+        } else {
+          channel.writeAndFlush(DatumCreditMessage.of(credit));
+        }
+      }
+    }
+
+    private void send(Channel opened, Throwable cause) {
+      if (cause != null) {
+        onError(cause);
+        return;
+      }
+      try {
+        synchronized (this) {
+          if (terminated) {
+            opened.close();
+            return;
+          }
+          client.sendDownloadRequest(opened, request, payloadClass, this,
+                                     unbounded ? DatumChannelDownloadHandler.NO_CREDIT : initialCredit);
+          channel = opened;
+        }
+      } catch (DatumClientException e) {
+        onError(e);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      if (terminated) {
+        return;
+      }
+      terminated = true;
+      synchronized (this) {
+        if (channel != null) {
+          channel.close();
+        }
+      }
+    }
+
+    @Override
+    public void accept(P item) {
+      if (!terminated) {
+        subscriber.onNext(item);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      if (!terminated) {
+        terminated = true;
+        subscriber.onComplete();
+      }
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+      if (!terminated) {
+        terminated = true;
+        subscriber.onError(cause);
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import com.adobe.datum.client.handler.ByteCountingHandler;
+import com.adobe.datum.common.function.DatumCallback;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Completes a future with the {@link StreamResult} of a stream once it ended, or with whatever failed it.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class StreamCompletion implements DatumCallback {
+
+  private final CompletableFuture<StreamResult> future         = new CompletableFuture<>();
+  private final ByteCountingHandler             byteCounter    = new ByteCountingHandler();
+  private final long                            startTimestamp = System.currentTimeMillis();
+
+  private final boolean download;
+
+  // set before the request goes out, so before the stream can end
+  private LongSupplier items = () -> 0;
+
+  private StreamCompletion(boolean download) {
+    this.download = download;
+  }
+
+  static StreamCompletion download() {
+    return new StreamCompletion(true);
+  }
+
+  static StreamCompletion upload() {
+    return new StreamCompletion(false);
+  }
+
+  void countItems(LongSupplier items) {
+    this.items = items;
+  }
+
+  ByteCountingHandler getByteCounter() {
+    return byteCounter;
+  }
+
+  CompletableFuture<StreamResult> getFuture() {
+    return future;
+  }
+
+  @Override
+  public void onComplete() {
+    long bytes = download ? byteCounter.getBytesRead() : byteCounter.getBytesWritten();
+    future.complete(StreamResult.of(items.getAsLong(), bytes, System.currentTimeMillis() - startTimestamp));
+  }
+
+  @Override
+  public void onError(Throwable cause) {
+    future.completeExceptionally(cause);
+  }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Statistics of a stream that ended: the items it carried, the bytes they took on the wire, compression and framing
+ * included, and the time from sending the request to the end of the stream.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class StreamResult {
+
+  private final long items;
+  private final long bytes;
+  private final long durationMillis;
+
+  private StreamResult(long items, long bytes, long durationMillis) {
+    this.items = items;
+    this.bytes = bytes;
+    this.durationMillis = durationMillis;
+  }
+
+  public static StreamResult of(long items, long bytes, long durationMillis) {
+    return new StreamResult(items, bytes, durationMillis);
+  }
+}
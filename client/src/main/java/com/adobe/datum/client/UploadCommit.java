@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client;
+
+import com.adobe.datum.common.function.DatumSupplier;
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where an upload stands, as of the last commit of the server. Holds the supplier of the upload along with every item
+ * already drawn from it but not committed yet; sending the same request again with it after the stream failed skips
+ * the committed items and sends the rest, provided the handler on the server is resumable.
+ *
+ * <p>
+ * Items are only held on to while the server commits them, which it lets the client know of before the stream
+ * starts; against any other handler nothing is kept. One attempt at the upload runs at a time. The supplier is
+ * completed along with the attempt that drew its last item, but not told of failed attempts, which the next one
+ * carries on from.
+ *
+ * @author Adobe Systems Inc.
+ * @param <P> Payload type
+ */
+public final class UploadCommit<P> {
+
+  private final DatumSupplier<Optional<P>> supplier;
+
+  private final Deque<P> uncommitted = new ArrayDeque<>();
+  private long           committed;
+  private boolean        committing;
+
+  private UploadCommit(DatumSupplier<Optional<P>> supplier, long committed) {
+    this.supplier = Preconditions.checkNotNull(supplier, "supplier cannot be null");
+    this.committed = committed;
+  }
+
+  /**
+   * @return a commit for an upload that starts from the beginning
+   */
+  public static <P> UploadCommit<P> start(DatumSupplier<Optional<P>> supplier) {
+    return of(supplier, 0);
+  }
+
+  /**
+   * @param supplier of the items after the committed ones
+   * @param committed items committed by an earlier attempt, e.g. across restarts of the client
+   */
+  public static <P> UploadCommit<P> of(DatumSupplier<Optional<P>> supplier, long committed) {
+    Preconditions.checkArgument(committed >= 0, "committed items cannot be negative: %s", committed);
+    return new UploadCommit<>(supplier, committed);
+  }
+
+  /**
+   * Number of items the server committed, which no attempt sends again.
+   */
+  public synchronized long getCommitted() {
+    return committed;
+  }
+
+  /**
+   * Number of items drawn from the supplier and held on to until the server commits them.
+   */
+  public synchronized int getUncommitted() {
+    return uncommitted.size();
+  }
+
+  /**
+   * Supplier for the next attempt: the items held on to come first, then whatever the supplier has left.
+   */
+  synchronized DatumSupplier<Optional<P>> attempt() {
+    committing = false;
+    return new Attempt(new ArrayList<>(uncommitted));
+  }
+
+  synchronized void commit(long items) {
+    committing = true;
+    while (committed < items && !uncommitted.isEmpty()) {
+      uncommitted.removeFirst();
+      committed++;
+    }
+    committed = Math.max(committed, items);
+  }
+
+  private synchronized void retain(P item) {
+    if (committing) {
+      uncommitted.addLast(item);
+    }
+  }
+
+  private final class Attempt implements DatumSupplier<Optional<P>> {
+
+    private final Iterator<P> replay;
+
+    private Attempt(List<P> replay) {
+      this.replay = replay.iterator();
+    }
+
+    @Override
+    public Optional<P> get() throws Exception {
+      if (replay.hasNext()) {
+        return Optional.of(replay.next());
+      }
+      Optional<P> item = supplier.get();
+      item.ifPresent(UploadCommit.this::retain);
+      return item;
+    }
+
+    @Override
+    public void onComplete() {
+      supplier.onComplete();
+    }
+  }
+}
@@ -19,7 +19,12 @@
 
 package com.adobe.datum.client.handler;
 
+import com.adobe.datum.client.DatumClientException;
+import com.adobe.datum.client.DatumOverloadException;
+import com.adobe.datum.common.channel.metadata.ChannelMetadata;
 import com.adobe.datum.common.channel.metadata.DatumMetadataMessage;
+import com.adobe.datum.common.channel.metadata.DatumOverloadMessage;
+import com.adobe.datum.common.channel.metadata.DatumRequestFailedMessage;
 import com.adobe.datum.common.function.DatumCallback;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -27,6 +32,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Waits for the server to start the stream, or to turn the request down as overloaded or failed.
+ *
  * @author Adobe Systems Inc.
  */
 public final class StreamStartHandler extends SimpleChannelInboundHandler<DatumMetadataMessage> {
@@ -46,8 +53,30 @@ public final class StreamStartHandler extends SimpleChannelInboundHandler<DatumM
     baseName = context.name();
   }
 
+  @Override
+  public boolean acceptInboundMessage(Object message) {
+    return ChannelMetadata.streamStartMessage().equals(message)
+           || message instanceof DatumOverloadMessage
+           || message instanceof DatumRequestFailedMessage;
+  }
+
   @Override
   protected void channelRead0(ChannelHandlerContext context, DatumMetadataMessage metadataMessage) {
+    if (metadataMessage instanceof DatumOverloadMessage) {
+      DatumOverloadMessage.Reason reason = ((DatumOverloadMessage) metadataMessage).getReason();
+      LOG.info("request turned down by an overloaded server [{}]", reason);
+      // the server closes the stream as well; nothing of it can be reused
+      context.close();
+      callback.onError(new DatumOverloadException(reason));
+      return;
+    }
+    if (metadataMessage instanceof DatumRequestFailedMessage) {
+      LOG.info("request failed on the server");
+      context.close();
+      callback.onError(new DatumClientException("server failed to handle the request"));
+      return;
+    }
+
     if (LOG.isDebugEnabled()) {
       LOG.debug("stream start message received [{}]", metadataMessage.getMessageCode());
     }
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client.handler;
+
+import com.adobe.datum.common.channel.metadata.DatumCommitMessage;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.function.LongConsumer;
+
+/**
+ * Hands the items committed by the server for an upload to a listener. Added before the request is sent: the server
+ * commits the offset it resumes the upload from ahead of starting the stream.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class UploadCommitHandler extends SimpleChannelInboundHandler<DatumCommitMessage> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UploadCommitHandler.class);
+
+  private final LongConsumer listener;
+
+  public UploadCommitHandler(LongConsumer listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext context, DatumCommitMessage commit) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("server committed {} items", commit.getItems());
+    }
+    listener.accept(commit.getItems());
+  }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client
+
+import com.adobe.datum.common.channel.ConnectionSettings
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.handler.ChannelHandlers
+import com.adobe.datum.common.handler.ChannelReuse
+import io.netty.channel.Channel
+import io.netty.channel.ChannelInboundHandlerAdapter
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+import java.util.concurrent.CompletionException
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumChannelPoolSpec extends Specification {
+
+  def connected = []
+  def settings = new ConnectionSettings(connectionPoolSize: 2, connectionIdleTimeoutMillis: 60000)
+
+  def 'should connect when no connection is idle'() {
+    given:
+      def pool = pool()
+
+    when:
+      def channel = pool.acquire().join()
+
+    then:
+      connected == [channel]
+      ChannelReuse.isKeptAlive(channel)
+  }
+
+  def 'should hand out the most recently released connection first'() {
+    given:
+      def pool = pool()
+      def first = pool.acquire().join()
+      def second = pool.acquire().join()
+
+    when:
+      endStream(first)
+      endStream(second)
+
+    then:
+      pool.acquire().join() == second
+      pool.acquire().join() == first
+      connected.size() == 2
+  }
+
+  def 'should put a released connection back to its baseline pipeline'() {
+    given:
+      def pool = pool()
+      def channel = pool.acquire().join()
+      def baseline = channel.pipeline().toMap().values().toList()
+
+    when:
+      endStream(channel)
+
+    then:
+      channel.open
+      pool.acquire().join() == channel
+      channel.pipeline().toMap().values().toList() == baseline
+  }
+
+  def 'should close a released connection once the pool is full'() {
+    given:
+      def pool = pool()
+      def channels = (0..2).collect { pool.acquire().join() }
+
+    when:
+      channels.each { endStream(it) }
+
+    then:
+      channels.take(2).every { it.open }
+      !channels.last().open
+  }
+
+  def 'should fail the acquisition when the connection cannot be made'() {
+    given:
+      def cause = new ConnectException()
+      def channel = new EmbeddedChannel()
+      def pool = new DatumChannelPool({ -> channel.newFailedFuture(cause) } as DatumChannelPool.Connector, settings)
+
+    when:
+      pool.acquire().join()
+
+    then:
+      def e = thrown(CompletionException)
+      e.cause.is(cause)
+  }
+
+  def 'should skip idle connections that have been closed'() {
+    given:
+      def pool = pool()
+      def channel = pool.acquire().join()
+      endStream(channel)
+
+    when:
+      channel.close()
+      def acquired = pool.acquire().join()
+
+    then:
+      acquired != channel
+      connected == [channel, acquired]
+  }
+
+  def 'should close a connection idle for longer than the timeout'() {
+    given:
+      settings.connectionIdleTimeoutMillis = 0
+      def pool = pool()
+      def channel = pool.acquire().join()
+      endStream(channel)
+
+    when:
+      channel.runPendingTasks()
+
+    then:
+      !channel.open
+      pool.acquire().join() != channel
+  }
+
+  private DatumChannelPool pool() {
+    new DatumChannelPool({ ->
+      def channel = new EmbeddedChannel(ChannelHandlers.creditHandler())
+      connected << channel
+      channel.newSucceededFuture()
+    } as DatumChannelPool.Connector, settings)
+  }
+
+  // what a download adds to the pipeline, up to the stream end that resets it
+  private static void endStream(Channel channel) {
+    def previous = channel.pipeline().context(ChannelHandlers.creditHandler()).name()
+    channel.pipeline().addAfter(previous, 'stream', new ChannelInboundHandlerAdapter())
+    channel.pipeline().addAfter('stream', 'streamEnd', ChannelHandlers.streamEndHandler())
+    channel.writeInbound(ChannelMetadata.streamEndMessage())
+  }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client
+
+import com.adobe.datum.common.channel.ConnectionSettings
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.function.DatumSupplier
+import com.adobe.datum.common.handler.ChannelHandlers
+import com.adobe.datum.common.serialize.SerializableSerializer
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.ExecutionException
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumClientSpec extends Specification {
+
+  def client = new DatumClient()
+
+  def cleanup() {
+    client.shutdown()
+  }
+
+  def 'should complete an asynchronous download with its statistics once the stream ends'() {
+    given:
+      def channel = clientChannel()
+      def received = []
+      def server = new EmbeddedChannel(ChannelHandlers.metadataEncoder(),
+                                       ChannelHandlers.frameEncoder(Integer, SerializableSerializer.instance))
+
+    when:
+      def future = client.sendDownloadRequestAsync(channel, 'numbers', Integer, received.&add)
+      server.writeOutbound(ChannelMetadata.streamStartMessage(), 0, 1, 2, ChannelMetadata.streamEndMessage())
+      server.outboundMessages().each { channel.writeInbound(it) }
+
+    then:
+      received == [0, 1, 2]
+      future.get().items == 3
+      !channel.open
+  }
+
+  @Unroll
+  def 'should fail the future of an asynchronous #type that cannot be sent and close its channel'() {
+    given:
+      def channel = clientChannel()
+
+    when:
+      send(client, channel).get()
+
+    then:
+      def e = thrown(ExecutionException)
+      e.cause instanceof NullPointerException
+      !channel.open
+
+    where:
+      type       | send
+      'download' | { DatumClient datumClient, channel ->
+                     datumClient.sendDownloadRequestAsync(channel, null, Integer, {})
+                   }
+      'upload'   | { DatumClient datumClient, channel ->
+                     datumClient.sendUploadRequestAsync(channel, null, Integer, DatumSupplier.of([1]))
+                   }
+  }
+
+  // the stream pipeline of a plain connection; the handlers of a stream are added at its end, where the embedded
+  // channel would otherwise keep what it reads to itself
+  private static EmbeddedChannel clientChannel() {
+    def channel = new EmbeddedChannel()
+    channel.pipeline().removeLast()
+    new DatumClientInitializer(ConnectionSettings.getDefaultSettings()).initStream(channel.pipeline())
+    channel
+  }
+}
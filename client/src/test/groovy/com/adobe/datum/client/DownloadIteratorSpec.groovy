@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client
+
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage
+import com.adobe.datum.common.function.WrappedRuntimeException
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DownloadIteratorSpec extends Specification {
+
+  def 'should suspend reading at capacity and resume at half of it'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def iterator = new DownloadIterator<Integer>(channel, 4, 1, TimeUnit.SECONDS)
+
+    when:
+      (0..3).each { iterator.accept(it) }
+
+    then:
+      !channel.config().autoRead
+
+    when:
+      def taken = [iterator.next(), iterator.next()]
+      channel.runPendingTasks()
+
+    then:
+      taken == [0, 1]
+      channel.config().autoRead
+  }
+
+  def 'should grant credit as it takes items instead of suspending reading'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def iterator = new DownloadIterator<Integer>(channel, 4, true, 1, TimeUnit.SECONDS)
+
+    when:
+      (0..3).each { iterator.accept(it) }
+
+    then:
+      channel.config().autoRead
+      channel.readOutbound() == null
+
+    when:
+      def taken = [iterator.next(), iterator.next(), iterator.next()]
+
+    then:
+      taken == [0, 1, 2]
+      channel.readOutbound() == DatumCreditMessage.of(2)
+      channel.readOutbound() == null
+  }
+
+  def 'should resume reading when the stream ends with reading suspended'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def iterator = new DownloadIterator<Integer>(channel, 4, 1, TimeUnit.SECONDS)
+
+    when:
+      (0..3).each { iterator.accept(it) }
+      iterator.onComplete()
+      channel.runPendingTasks()
+
+    then:
+      channel.config().autoRead
+      iterator.stream().collect() == [0, 1, 2, 3]
+  }
+
+  def 'should end with the stream'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def iterator = new DownloadIterator<Integer>(channel, 4, 1, TimeUnit.SECONDS)
+
+    when:
+      (0..2).each { iterator.accept(it) }
+      iterator.onComplete()
+
+    then:
+      iterator.stream().collect() == [0, 1, 2]
+      channel.open
+  }
+
+  def 'should fail with the stream'() {
+    given:
+      def iterator = new DownloadIterator<Integer>(new EmbeddedChannel(), 4, 1, TimeUnit.SECONDS)
+      def cause = new IOException()
+
+    when:
+      iterator.accept(0)
+      iterator.onError(cause)
+      iterator.next()
+      iterator.hasNext()
+
+    then:
+      def e = thrown(WrappedRuntimeException)
+      e.cause.is(cause)
+  }
+
+  def 'should cancel the stream when no item comes in time'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def iterator = new DownloadIterator<Integer>(channel, 4, 10, TimeUnit.MILLISECONDS)
+
+    when:
+      iterator.hasNext()
+
+    then:
+      def e = thrown(WrappedRuntimeException)
+      e.cause instanceof DatumClientException
+      !channel.open
+  }
+
+  def 'should cancel the stream when closed early'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def iterator = new DownloadIterator<Integer>(channel, 4, 1, TimeUnit.SECONDS)
+
+    when:
+      iterator.accept(0)
+      iterator.close()
+
+    then:
+      !channel.open
+      !iterator.hasNext()
+  }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client
+
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage
+import com.adobe.datum.common.handler.ChannelHandlers
+import com.adobe.datum.common.handler.DatumChannelDownloadHandler
+import io.netty.buffer.ByteBuf
+import io.netty.channel.Channel
+import io.netty.channel.embedded.EmbeddedChannel
+import org.reactivestreams.Subscriber
+import org.reactivestreams.Subscription
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DownloadPublisherSpec extends Specification {
+
+  def client = new DatumClient()
+  def channel = new EmbeddedChannel(ChannelHandlers.requestEncoder())
+  def opened = new CompletableFuture<Channel>()
+  def publisher = new DownloadPublisher<String, Integer>(client, { -> opened }, 'numbers', Integer)
+
+  Subscription subscription
+
+  def setup() {
+    publisher.subscribe(Stub(Subscriber) {
+      onSubscribe(_) >> { Subscription given -> subscription = given }
+    })
+  }
+
+  def cleanup() {
+    client.shutdown()
+  }
+
+  def 'should send the first demand as the initial credit of the request'() {
+    when:
+      subscription.request(16)
+
+    then:
+      channel.outboundMessages().isEmpty()
+
+    when:
+      opened.complete(channel)
+
+    then:
+      sentRequest().initialCredit == 16
+      channel.outboundMessages().isEmpty()
+  }
+
+  def 'should add demand signalled while the channel opens to the initial credit'() {
+    when:
+      subscription.request(16)
+      subscription.request(4)
+      opened.complete(channel)
+
+    then:
+      sentRequest().initialCredit == 20
+      channel.outboundMessages().isEmpty()
+  }
+
+  def 'should grant further demand as credit'() {
+    given:
+      subscription.request(16)
+      opened.complete(channel)
+      sentRequest()
+
+    when:
+      subscription.request(8)
+      subscription.request(Long.MAX_VALUE)
+
+    then:
+      channel.outboundMessages().toList() == [DatumCreditMessage.of(8), DatumCreditMessage.of(Integer.MAX_VALUE)]
+  }
+
+  def 'should leave the stream without credit limits on unbounded demand'() {
+    when:
+      subscription.request(Long.MAX_VALUE)
+      opened.complete(channel)
+      subscription.request(8)
+
+    then:
+      sentRequest().initialCredit == DatumChannelDownloadHandler.NO_CREDIT
+      channel.outboundMessages().isEmpty()
+  }
+
+  def 'should close the channel on cancel'() {
+    given:
+      subscription.request(16)
+      opened.complete(channel)
+
+    when:
+      subscription.cancel()
+
+    then:
+      !channel.open
+  }
+
+  def 'should close a channel opened after cancel without sending the request'() {
+    given:
+      subscription.request(16)
+
+    when:
+      subscription.cancel()
+      opened.complete(channel)
+
+    then:
+      !channel.open
+      channel.outboundMessages().isEmpty()
+  }
+
+  private DatumRequestProto sentRequest() {
+    ByteBuf encoded = channel.readOutbound()
+    def decoder = new EmbeddedChannel(ChannelHandlers.frameDecoder(), ChannelHandlers.requestDecoder())
+    decoder.writeInbound(encoded)
+    decoder.readInbound()
+  }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client
+
+import io.netty.buffer.Unpooled
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class StreamCompletionSpec extends Specification {
+
+  def 'should complete with the items and the bytes read by a download'() {
+    given:
+      def completion = StreamCompletion.download()
+      def channel = new EmbeddedChannel(completion.byteCounter)
+      completion.countItems({ 3L })
+
+    when:
+      channel.writeInbound(Unpooled.wrappedBuffer(new byte[10]), Unpooled.wrappedBuffer(new byte[5]))
+      channel.writeOutbound(Unpooled.wrappedBuffer(new byte[7]))
+      completion.onComplete()
+
+    then:
+      def result = completion.future.join()
+      result.items == 3
+      result.bytes == 15
+      result.durationMillis >= 0
+  }
+
+  def 'should complete with the bytes written by an upload'() {
+    given:
+      def completion = StreamCompletion.upload()
+      def channel = new EmbeddedChannel(completion.byteCounter)
+
+    when:
+      channel.writeOutbound(Unpooled.wrappedBuffer(new byte[7]))
+      completion.onComplete()
+
+    then:
+      completion.future.join().bytes == 7
+  }
+
+  def 'should fail with the stream'() {
+    given:
+      def completion = StreamCompletion.upload()
+      def cause = new IOException()
+
+    when:
+      completion.onError(cause)
+
+    then:
+      completion.future.completedExceptionally
+  }
+}
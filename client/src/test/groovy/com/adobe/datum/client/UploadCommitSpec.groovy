@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.client
+
+import com.adobe.datum.common.function.DatumSupplier
+import spock.lang.Specification
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class UploadCommitSpec extends Specification {
+
+  def 'should replay the items not committed before drawing from the supplier'() {
+    given:
+      def commit = UploadCommit.start(DatumSupplier.of(0..9))
+
+    when:
+      def first = commit.attempt()
+      commit.commit(0)
+      def sent = (0..4).collect { first.get().get() }
+      commit.commit(3)
+
+    then:
+      sent == [0, 1, 2, 3, 4]
+      commit.committed == 3
+      commit.uncommitted == 2
+
+    when:
+      def second = commit.attempt()
+      commit.commit(3)
+      def rest = []
+      for (def item = second.get(); item.present; item = second.get()) {
+        rest << item.get()
+      }
+
+    then:
+      rest == [3, 4, 5, 6, 7, 8, 9]
+  }
+
+  def 'should hold on to nothing when the server does not commit'() {
+    given:
+      def commit = UploadCommit.start(DatumSupplier.of(0..9))
+
+    when:
+      def attempt = commit.attempt()
+      3.times { attempt.get() }
+
+    then:
+      commit.uncommitted == 0
+      commit.committed == 0
+  }
+}
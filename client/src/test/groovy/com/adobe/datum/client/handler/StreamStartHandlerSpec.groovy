@@ -19,8 +19,10 @@
 
 package com.adobe.datum.client.handler
 
+import com.adobe.datum.client.DatumOverloadException
 import com.adobe.datum.client.fixture.SerializableFixture
 import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.channel.metadata.DatumOverloadMessage
 import com.adobe.datum.common.function.DatumCallback
 import com.adobe.datum.common.handler.ChannelHandlers
 import com.adobe.datum.common.handler.DatumFrameDecoder
@@ -72,6 +74,24 @@ class StreamStartHandlerSpec extends Specification {
       channel.readInbound() == fixture2
   }
 
+  def 'an overloaded server should fail the request and close the channel'() {
+    given:
+      def callback = Mock(DatumCallback)
+      def channel = new EmbeddedChannel(ChannelHandlers.frameDecoder(), new StreamStartHandler(callback))
+      def buffer = Unpooled.buffer()
+      ChannelMetadata.writeControlMessage(DatumOverloadMessage.of(DatumOverloadMessage.Reason.HANDLER_LIMIT), buffer)
+
+    when:
+      channel.writeInbound(buffer)
+
+    then:
+      1 * callback.onError({
+        it instanceof DatumOverloadException && it.reason == DatumOverloadMessage.Reason.HANDLER_LIMIT
+      })
+      0 * callback.onComplete()
+      !channel.open
+  }
+
   private static ByteBuf serializeFixtures(SerializableFixture... fixtures) {
     ByteBuf buffer = Unpooled.buffer()
     ChannelMetadata.writeMetadataMessage(ChannelMetadata.streamStartMessage(), buffer)
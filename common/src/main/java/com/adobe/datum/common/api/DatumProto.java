@@ -8,6 +8,97 @@ public final class DatumProto {
   public static void registerAllExtensions(
       com.google.protobuf.ExtensionRegistry registry) {
   }
+  /**
+   * Protobuf enum {@code datum.api.Compression}
+   */
+  public enum Compression
+      implements com.google.protobuf.ProtocolMessageEnum {
+    /**
+     * <code>NONE = 0;</code>
+     */
+    NONE(0, 0),
+    /**
+     * <code>DEFLATE = 1;</code>
+     */
+    DEFLATE(1, 1),
+    /**
+     * <code>SNAPPY = 2;</code>
+     */
+    SNAPPY(2, 2),
+    ;
+
+    /**
+     * <code>NONE = 0;</code>
+     */
+    public static final int NONE_VALUE = 0;
+    /**
+     * <code>DEFLATE = 1;</code>
+     */
+    public static final int DEFLATE_VALUE = 1;
+    /**
+     * <code>SNAPPY = 2;</code>
+     */
+    public static final int SNAPPY_VALUE = 2;
+
+
+    public final int getNumber() { return value; }
+
+    public static Compression valueOf(int value) {
+      switch (value) {
+        case 0: return NONE;
+        case 1: return DEFLATE;
+        case 2: return SNAPPY;
+        default: return null;
+      }
+    }
+
+    public static com.google.protobuf.Internal.EnumLiteMap<Compression>
+        internalGetValueMap() {
+      return internalValueMap;
+    }
+    private static com.google.protobuf.Internal.EnumLiteMap<Compression>
+        internalValueMap =
+          new com.google.protobuf.Internal.EnumLiteMap<Compression>() {
+            public Compression findValueByNumber(int number) {
+              return Compression.valueOf(number);
+            }
+          };
+
+    public final com.google.protobuf.Descriptors.EnumValueDescriptor
+        getValueDescriptor() {
+      return getDescriptor().getValues().get(index);
+    }
+    public final com.google.protobuf.Descriptors.EnumDescriptor
+        getDescriptorForType() {
+      return getDescriptor();
+    }
+    public static final com.google.protobuf.Descriptors.EnumDescriptor
+        getDescriptor() {
+      return com.adobe.datum.common.api.DatumProto.getDescriptor().getEnumTypes().get(0);
+    }
+
+    private static final Compression[] VALUES = values();
+
+    public static Compression valueOf(
+        com.google.protobuf.Descriptors.EnumValueDescriptor desc) {
+      if (desc.getType() != getDescriptor()) {
+        throw new java.lang.IllegalArgumentException(
+          "EnumValueDescriptor is not for this type.");
+      }
+      return VALUES[desc.getIndex()];
+    }
+
+    private final int index;
+    private final int value;
+
+    private Compression(int index, int value) {
+      this.index = index;
+      this.value = value;
+    }
+
+    // @@protoc_insertion_point(enum_scope:datum.api.Compression)
+  }
+
   public interface DatumRequestProtoOrBuilder
       extends com.google.protobuf.MessageOrBuilder {
 
@@ -60,6 +151,110 @@ public final class DatumProto {
      */
     com.google.protobuf.ByteString
         getPrototypeNameBytes();
+
+    // repeated .datum.api.Compression accepted_compression = 5;
+    /**
+     * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+     *
+     * <pre>
+     * codecs the client is able to decode, in order of preference; the server picks one or none
+     * </pre>
+     */
+    java.util.List<com.adobe.datum.common.api.DatumProto.Compression> getAcceptedCompressionList();
+    /**
+     * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+     *
+     * <pre>
+     * codecs the client is able to decode, in order of preference; the server picks one or none
+     * </pre>
+     */
+    int getAcceptedCompressionCount();
+    /**
+     * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+     *
+     * <pre>
+     * codecs the client is able to decode, in order of preference; the server picks one or none
+     * </pre>
+     */
+    com.adobe.datum.common.api.DatumProto.Compression getAcceptedCompression(int index);
+
+    // optional int32 initial_credit = 6;
+    /**
+     * <code>optional int32 initial_credit = 6;</code>
+     *
+     * <pre>
+     * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+     * credit control frames, which the server then uses in both directions
+     * </pre>
+     */
+    boolean hasInitialCredit();
+    /**
+     * <code>optional int32 initial_credit = 6;</code>
+     *
+     * <pre>
+     * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+     * credit control frames, which the server then uses in both directions
+     * </pre>
+     */
+    int getInitialCredit();
+
+    // optional bool keep_alive = 7;
+    /**
+     * <code>optional bool keep_alive = 7;</code>
+     *
+     * <pre>
+     * the client reuses the connection for further requests once the stream ends, so neither end closes it
+     * </pre>
+     */
+    boolean hasKeepAlive();
+    /**
+     * <code>optional bool keep_alive = 7;</code>
+     *
+     * <pre>
+     * the client reuses the connection for further requests once the stream ends, so neither end closes it
+     * </pre>
+     */
+    boolean getKeepAlive();
+
+    // optional bytes resume_checkpoint = 8;
+    /**
+     * <code>optional bytes resume_checkpoint = 8;</code>
+     *
+     * <pre>
+     * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+     * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+     * </pre>
+     */
+    boolean hasResumeCheckpoint();
+    /**
+     * <code>optional bytes resume_checkpoint = 8;</code>
+     *
+     * <pre>
+     * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+     * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+     * </pre>
+     */
+    com.google.protobuf.ByteString getResumeCheckpoint();
+
+    // optional int64 resume_offset = 9;
+    /**
+     * <code>optional int64 resume_offset = 9;</code>
+     *
+     * <pre>
+     * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+     * by clients that keep the items not committed yet for commit control frames, which the server then sends
+     * </pre>
+     */
+    boolean hasResumeOffset();
+    /**
+     * <code>optional int64 resume_offset = 9;</code>
+     *
+     * <pre>
+     * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+     * by clients that keep the items not committed yet for commit control frames, which the server then sends
+     * </pre>
+     */
+    long getResumeOffset();
   }
   /**
    * Protobuf type {@code datum.api.DatumRequestProto}
@@ -138,6 +333,59 @@ public final class DatumProto {
               prototypeName_ = input.readBytes();
               break;
             }
+            case 40: {
+              int rawValue = input.readEnum();
+              com.adobe.datum.common.api.DatumProto.Compression value = com.adobe.datum.common.api.DatumProto.Compression.valueOf(rawValue);
+              if (value == null) {
+                unknownFields.mergeVarintField(5, rawValue);
+              } else {
+                if (!((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                  acceptedCompression_ = new java.util.ArrayList<com.adobe.datum.common.api.DatumProto.Compression>();
+                  mutable_bitField0_ |= 0x00000010;
+                }
+                acceptedCompression_.add(value);
+              }
+              break;
+            }
+            case 42: {
+              int length = input.readRawVarint32();
+              int oldLimit = input.pushLimit(length);
+              while(input.getBytesUntilLimit() > 0) {
+                int rawValue = input.readEnum();
+                com.adobe.datum.common.api.DatumProto.Compression value = com.adobe.datum.common.api.DatumProto.Compression.valueOf(rawValue);
+                if (value == null) {
+                  unknownFields.mergeVarintField(5, rawValue);
+                } else {
+                  if (!((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                    acceptedCompression_ = new java.util.ArrayList<com.adobe.datum.common.api.DatumProto.Compression>();
+                    mutable_bitField0_ |= 0x00000010;
+                  }
+                  acceptedCompression_.add(value);
+                }
+              }
+              input.popLimit(oldLimit);
+              break;
+            }
+            case 48: {
+              bitField0_ |= 0x00000010;
+              initialCredit_ = input.readInt32();
+              break;
+            }
+            case 56: {
+              bitField0_ |= 0x00000020;
+              keepAlive_ = input.readBool();
+              break;
+            }
+            case 66: {
+              bitField0_ |= 0x00000040;
+              resumeCheckpoint_ = input.readBytes();
+              break;
+            }
+            case 72: {
+              bitField0_ |= 0x00000080;
+              resumeOffset_ = input.readInt64();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -146,6 +394,9 @@ public final class DatumProto {
         throw new com.google.protobuf.InvalidProtocolBufferException(
             e.getMessage()).setUnfinishedMessage(this);
       } finally {
+        if (((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+          acceptedCompression_ = java.util.Collections.unmodifiableList(acceptedCompression_);
+        }
         this.unknownFields = unknownFields.build();
         makeExtensionsImmutable();
       }
@@ -378,11 +629,152 @@ public final class DatumProto {
       }
     }
 
+    // repeated .datum.api.Compression accepted_compression = 5;
+    public static final int ACCEPTED_COMPRESSION_FIELD_NUMBER = 5;
+    private java.util.List<com.adobe.datum.common.api.DatumProto.Compression> acceptedCompression_;
+    /**
+     * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+     *
+     * <pre>
+     * codecs the client is able to decode, in order of preference; the server picks one or none
+     * </pre>
+     */
+    public java.util.List<com.adobe.datum.common.api.DatumProto.Compression> getAcceptedCompressionList() {
+      return acceptedCompression_;
+    }
+    /**
+     * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+     *
+     * <pre>
+     * codecs the client is able to decode, in order of preference; the server picks one or none
+     * </pre>
+     */
+    public int getAcceptedCompressionCount() {
+      return acceptedCompression_.size();
+    }
+    /**
+     * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+     *
+     * <pre>
+     * codecs the client is able to decode, in order of preference; the server picks one or none
+     * </pre>
+     */
+    public com.adobe.datum.common.api.DatumProto.Compression getAcceptedCompression(int index) {
+      return acceptedCompression_.get(index);
+    }
+
+    // optional int32 initial_credit = 6;
+    public static final int INITIAL_CREDIT_FIELD_NUMBER = 6;
+    private int initialCredit_;
+    /**
+     * <code>optional int32 initial_credit = 6;</code>
+     *
+     * <pre>
+     * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+     * credit control frames, which the server then uses in both directions
+     * </pre>
+     */
+    public boolean hasInitialCredit() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional int32 initial_credit = 6;</code>
+     *
+     * <pre>
+     * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+     * credit control frames, which the server then uses in both directions
+     * </pre>
+     */
+    public int getInitialCredit() {
+      return initialCredit_;
+    }
+
+    // optional bool keep_alive = 7;
+    public static final int KEEP_ALIVE_FIELD_NUMBER = 7;
+    private boolean keepAlive_;
+    /**
+     * <code>optional bool keep_alive = 7;</code>
+     *
+     * <pre>
+     * the client reuses the connection for further requests once the stream ends, so neither end closes it
+     * </pre>
+     */
+    public boolean hasKeepAlive() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+    /**
+     * <code>optional bool keep_alive = 7;</code>
+     *
+     * <pre>
+     * the client reuses the connection for further requests once the stream ends, so neither end closes it
+     * </pre>
+     */
+    public boolean getKeepAlive() {
+      return keepAlive_;
+    }
+
+    // optional bytes resume_checkpoint = 8;
+    public static final int RESUME_CHECKPOINT_FIELD_NUMBER = 8;
+    private com.google.protobuf.ByteString resumeCheckpoint_;
+    /**
+     * <code>optional bytes resume_checkpoint = 8;</code>
+     *
+     * <pre>
+     * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+     * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+     * </pre>
+     */
+    public boolean hasResumeCheckpoint() {
+      return ((bitField0_ & 0x00000040) == 0x00000040);
+    }
+    /**
+     * <code>optional bytes resume_checkpoint = 8;</code>
+     *
+     * <pre>
+     * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+     * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+     * </pre>
+     */
+    public com.google.protobuf.ByteString getResumeCheckpoint() {
+      return resumeCheckpoint_;
+    }
+
+    // optional int64 resume_offset = 9;
+    public static final int RESUME_OFFSET_FIELD_NUMBER = 9;
+    private long resumeOffset_;
+    /**
+     * <code>optional int64 resume_offset = 9;</code>
+     *
+     * <pre>
+     * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+     * by clients that keep the items not committed yet for commit control frames, which the server then sends
+     * </pre>
+     */
+    public boolean hasResumeOffset() {
+      return ((bitField0_ & 0x00000080) == 0x00000080);
+    }
+    /**
+     * <code>optional int64 resume_offset = 9;</code>
+     *
+     * <pre>
+     * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+     * by clients that keep the items not committed yet for commit control frames, which the server then sends
+     * </pre>
+     */
+    public long getResumeOffset() {
+      return resumeOffset_;
+    }
+
     private void initFields() {
       type_ = com.adobe.datum.common.api.DatumProto.DatumRequestProto.RequestType.DOWNLOAD;
       parameterType_ = "";
       parameterBody_ = com.google.protobuf.ByteString.EMPTY;
       prototypeName_ = "";
+      acceptedCompression_ = java.util.Collections.emptyList();
+      initialCredit_ = 0;
+      keepAlive_ = false;
+      resumeCheckpoint_ = com.google.protobuf.ByteString.EMPTY;
+      resumeOffset_ = 0L;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -424,6 +816,21 @@ public final class DatumProto {
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
         output.writeBytes(4, getPrototypeNameBytes());
       }
+      for (int i = 0; i < acceptedCompression_.size(); i++) {
+        output.writeEnum(5, acceptedCompression_.get(i).getNumber());
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeInt32(6, initialCredit_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeBool(7, keepAlive_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        output.writeBytes(8, resumeCheckpoint_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        output.writeInt64(9, resumeOffset_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -449,6 +856,31 @@ public final class DatumProto {
         size += com.google.protobuf.CodedOutputStream
           .computeBytesSize(4, getPrototypeNameBytes());
       }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < acceptedCompression_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeEnumSizeNoTag(acceptedCompression_.get(i).getNumber());
+        }
+        size += dataSize;
+        size += 1 * acceptedCompression_.size();
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(6, initialCredit_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(7, keepAlive_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(8, resumeCheckpoint_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(9, resumeOffset_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -573,6 +1005,16 @@ public final class DatumProto {
         bitField0_ = (bitField0_ & ~0x00000004);
         prototypeName_ = "";
         bitField0_ = (bitField0_ & ~0x00000008);
+        acceptedCompression_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000010);
+        initialCredit_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000020);
+        keepAlive_ = false;
+        bitField0_ = (bitField0_ & ~0x00000040);
+        resumeCheckpoint_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000080);
+        resumeOffset_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000100);
         return this;
       }
 
@@ -617,6 +1059,27 @@ public final class DatumProto {
           to_bitField0_ |= 0x00000008;
         }
         result.prototypeName_ = prototypeName_;
+        if (((bitField0_ & 0x00000010) == 0x00000010)) {
+          acceptedCompression_ = java.util.Collections.unmodifiableList(acceptedCompression_);
+          bitField0_ = (bitField0_ & ~0x00000010);
+        }
+        result.acceptedCompression_ = acceptedCompression_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.initialCredit_ = initialCredit_;
+        if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        result.keepAlive_ = keepAlive_;
+        if (((from_bitField0_ & 0x00000080) == 0x00000080)) {
+          to_bitField0_ |= 0x00000040;
+        }
+        result.resumeCheckpoint_ = resumeCheckpoint_;
+        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+          to_bitField0_ |= 0x00000080;
+        }
+        result.resumeOffset_ = resumeOffset_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -649,6 +1112,28 @@ public final class DatumProto {
           prototypeName_ = other.prototypeName_;
           onChanged();
         }
+        if (!other.acceptedCompression_.isEmpty()) {
+          if (acceptedCompression_.isEmpty()) {
+            acceptedCompression_ = other.acceptedCompression_;
+            bitField0_ = (bitField0_ & ~0x00000010);
+          } else {
+            ensureAcceptedCompressionIsMutable();
+            acceptedCompression_.addAll(other.acceptedCompression_);
+          }
+          onChanged();
+        }
+        if (other.hasInitialCredit()) {
+          setInitialCredit(other.getInitialCredit());
+        }
+        if (other.hasKeepAlive()) {
+          setKeepAlive(other.getKeepAlive());
+        }
+        if (other.hasResumeCheckpoint()) {
+          setResumeCheckpoint(other.getResumeCheckpoint());
+        }
+        if (other.hasResumeOffset()) {
+          setResumeOffset(other.getResumeOffset());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -912,6 +1397,317 @@ public final class DatumProto {
         return this;
       }
 
+      // repeated .datum.api.Compression accepted_compression = 5;
+      private java.util.List<com.adobe.datum.common.api.DatumProto.Compression> acceptedCompression_ =
+        java.util.Collections.emptyList();
+      private void ensureAcceptedCompressionIsMutable() {
+        if (!((bitField0_ & 0x00000010) == 0x00000010)) {
+          acceptedCompression_ = new java.util.ArrayList<com.adobe.datum.common.api.DatumProto.Compression>(acceptedCompression_);
+          bitField0_ |= 0x00000010;
+        }
+      }
+      /**
+       * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+       *
+       * <pre>
+       * codecs the client is able to decode, in order of preference; the server picks one or none
+       * </pre>
+       */
+      public java.util.List<com.adobe.datum.common.api.DatumProto.Compression> getAcceptedCompressionList() {
+        return java.util.Collections.unmodifiableList(acceptedCompression_);
+      }
+      /**
+       * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+       *
+       * <pre>
+       * codecs the client is able to decode, in order of preference; the server picks one or none
+       * </pre>
+       */
+      public int getAcceptedCompressionCount() {
+        return acceptedCompression_.size();
+      }
+      /**
+       * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+       *
+       * <pre>
+       * codecs the client is able to decode, in order of preference; the server picks one or none
+       * </pre>
+       */
+      public com.adobe.datum.common.api.DatumProto.Compression getAcceptedCompression(int index) {
+        return acceptedCompression_.get(index);
+      }
+      /**
+       * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+       *
+       * <pre>
+       * codecs the client is able to decode, in order of preference; the server picks one or none
+       * </pre>
+       */
+      public Builder setAcceptedCompression(
+          int index, com.adobe.datum.common.api.DatumProto.Compression value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        ensureAcceptedCompressionIsMutable();
+        acceptedCompression_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+       *
+       * <pre>
+       * codecs the client is able to decode, in order of preference; the server picks one or none
+       * </pre>
+       */
+      public Builder addAcceptedCompression(com.adobe.datum.common.api.DatumProto.Compression value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        ensureAcceptedCompressionIsMutable();
+        acceptedCompression_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+       *
+       * <pre>
+       * codecs the client is able to decode, in order of preference; the server picks one or none
+       * </pre>
+       */
+      public Builder addAllAcceptedCompression(
+          java.lang.Iterable<? extends com.adobe.datum.common.api.DatumProto.Compression> values) {
+        ensureAcceptedCompressionIsMutable();
+        super.addAll(values, acceptedCompression_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated .datum.api.Compression accepted_compression = 5;</code>
+       *
+       * <pre>
+       * codecs the client is able to decode, in order of preference; the server picks one or none
+       * </pre>
+       */
+      public Builder clearAcceptedCompression() {
+        acceptedCompression_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000010);
+        onChanged();
+        return this;
+      }
+
+      // optional int32 initial_credit = 6;
+      private int initialCredit_ ;
+      /**
+       * <code>optional int32 initial_credit = 6;</code>
+       *
+       * <pre>
+       * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+       * credit control frames, which the server then uses in both directions
+       * </pre>
+       */
+      public boolean hasInitialCredit() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+      /**
+       * <code>optional int32 initial_credit = 6;</code>
+       *
+       * <pre>
+       * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+       * credit control frames, which the server then uses in both directions
+       * </pre>
+       */
+      public int getInitialCredit() {
+        return initialCredit_;
+      }
+      /**
+       * <code>optional int32 initial_credit = 6;</code>
+       *
+       * <pre>
+       * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+       * credit control frames, which the server then uses in both directions
+       * </pre>
+       */
+      public Builder setInitialCredit(int value) {
+        bitField0_ |= 0x00000020;
+        initialCredit_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional int32 initial_credit = 6;</code>
+       *
+       * <pre>
+       * items the client is ready to receive before it grants more, 0 for no limit; only set by clients that understand
+       * credit control frames, which the server then uses in both directions
+       * </pre>
+       */
+      public Builder clearInitialCredit() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        initialCredit_ = 0;
+        onChanged();
+        return this;
+      }
+
+      // optional bool keep_alive = 7;
+      private boolean keepAlive_ ;
+      /**
+       * <code>optional bool keep_alive = 7;</code>
+       *
+       * <pre>
+       * the client reuses the connection for further requests once the stream ends, so neither end closes it
+       * </pre>
+       */
+      public boolean hasKeepAlive() {
+        return ((bitField0_ & 0x00000040) == 0x00000040);
+      }
+      /**
+       * <code>optional bool keep_alive = 7;</code>
+       *
+       * <pre>
+       * the client reuses the connection for further requests once the stream ends, so neither end closes it
+       * </pre>
+       */
+      public boolean getKeepAlive() {
+        return keepAlive_;
+      }
+      /**
+       * <code>optional bool keep_alive = 7;</code>
+       *
+       * <pre>
+       * the client reuses the connection for further requests once the stream ends, so neither end closes it
+       * </pre>
+       */
+      public Builder setKeepAlive(boolean value) {
+        bitField0_ |= 0x00000040;
+        keepAlive_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bool keep_alive = 7;</code>
+       *
+       * <pre>
+       * the client reuses the connection for further requests once the stream ends, so neither end closes it
+       * </pre>
+       */
+      public Builder clearKeepAlive() {
+        bitField0_ = (bitField0_ & ~0x00000040);
+        keepAlive_ = false;
+        onChanged();
+        return this;
+      }
+
+      // optional bytes resume_checkpoint = 8;
+      private com.google.protobuf.ByteString resumeCheckpoint_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>optional bytes resume_checkpoint = 8;</code>
+       *
+       * <pre>
+       * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+       * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+       * </pre>
+       */
+      public boolean hasResumeCheckpoint() {
+        return ((bitField0_ & 0x00000080) == 0x00000080);
+      }
+      /**
+       * <code>optional bytes resume_checkpoint = 8;</code>
+       *
+       * <pre>
+       * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+       * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+       * </pre>
+       */
+      public com.google.protobuf.ByteString getResumeCheckpoint() {
+        return resumeCheckpoint_;
+      }
+      /**
+       * <code>optional bytes resume_checkpoint = 8;</code>
+       *
+       * <pre>
+       * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+       * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+       * </pre>
+       */
+      public Builder setResumeCheckpoint(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000080;
+        resumeCheckpoint_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bytes resume_checkpoint = 8;</code>
+       *
+       * <pre>
+       * position of the last checkpoint the client acknowledged in an earlier attempt at this download, empty to start
+       * from the beginning; only set by clients that acknowledge checkpoint control frames, which the server then sends
+       * </pre>
+       */
+      public Builder clearResumeCheckpoint() {
+        bitField0_ = (bitField0_ & ~0x00000080);
+        resumeCheckpoint_ = getDefaultInstance().getResumeCheckpoint();
+        onChanged();
+        return this;
+      }
+
+      // optional int64 resume_offset = 9;
+      private long resumeOffset_ ;
+      /**
+       * <code>optional int64 resume_offset = 9;</code>
+       *
+       * <pre>
+       * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+       * by clients that keep the items not committed yet for commit control frames, which the server then sends
+       * </pre>
+       */
+      public boolean hasResumeOffset() {
+        return ((bitField0_ & 0x00000100) == 0x00000100);
+      }
+      /**
+       * <code>optional int64 resume_offset = 9;</code>
+       *
+       * <pre>
+       * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+       * by clients that keep the items not committed yet for commit control frames, which the server then sends
+       * </pre>
+       */
+      public long getResumeOffset() {
+        return resumeOffset_;
+      }
+      /**
+       * <code>optional int64 resume_offset = 9;</code>
+       *
+       * <pre>
+       * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+       * by clients that keep the items not committed yet for commit control frames, which the server then sends
+       * </pre>
+       */
+      public Builder setResumeOffset(long value) {
+        bitField0_ |= 0x00000100;
+        resumeOffset_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional int64 resume_offset = 9;</code>
+       *
+       * <pre>
+       * items of this upload the server committed in an earlier attempt, which the client does not send again; only set
+       * by clients that keep the items not committed yet for commit control frames, which the server then sends
+       * </pre>
+       */
+      public Builder clearResumeOffset() {
+        bitField0_ = (bitField0_ & ~0x00000100);
+        resumeOffset_ = 0L;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:datum.api.DatumRequestProto)
     }
 
@@ -937,13 +1733,18 @@ public final class DatumProto {
       descriptor;
   static {
     java.lang.String[] descriptorData = {
-      "\n\013datum.proto\022\tdatum.api\"\274\001\n\021DatumReques" +
+      "\n\013datum.proto\022\tdatum.api\"\320\002\n\021DatumReques" +
       "tProto\0226\n\004type\030\001 \002(\0162(.datum.api.DatumRe" +
       "questProto.RequestType\022\026\n\016parameter_type" +
       "\030\002 \002(\t\022\026\n\016parameter_body\030\003 \002(\014\022\026\n\016protot" +
-      "ype_name\030\004 \002(\t\"\'\n\013RequestType\022\014\n\010DOWNLOA" +
-      "D\020\000\022\n\n\006UPLOAD\020\001B*\n\032com.adobe.datum.commo" +
-      "n.apiB\nDatumProtoH\001"
+      "ype_name\030\004 \002(\t\0224\n\024accepted_compression\030\005" +
+      " \003(\0162\026.datum.api.Compression\022\026\n\016initial_" +
+      "credit\030\006 \001(\005\022\022\n\nkeep_alive\030\007 \001(\010\022\031\n\021resu" +
+      "me_checkpoint\030\010 \001(\014\022\025\n\rresume_offset\030\t \001" +
+      "(\003\"\'\n\013RequestType\022\014\n\010DOWNLOAD\020\000\022\n\n\006UPLOA" +
+      "D\020\001*0\n\013Compression\022\010\n\004NONE\020\000\022\013\n\007DEFLATE\020",
+      "\001\022\n\n\006SNAPPY\020\002B*\n\032com.adobe.datum.common." +
+      "apiB\nDatumProtoH\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -955,7 +1756,7 @@ public final class DatumProto {
           internal_static_datum_api_DatumRequestProto_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_datum_api_DatumRequestProto_descriptor,
-              new java.lang.String[] { "Type", "ParameterType", "ParameterBody", "PrototypeName", });
+              new java.lang.String[] { "Type", "ParameterType", "ParameterBody", "PrototypeName", "AcceptedCompression", "InitialCredit", "KeepAlive", "ResumeCheckpoint", "ResumeOffset", });
           return null;
         }
       };
@@ -52,6 +52,14 @@ public final class ChannelUtil {
     return SystemUtils.IS_OS_LINUX ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
   }
 
+  /**
+   * Whether several server sockets may listen on the same port, each with its own acceptor thread; takes the epoll
+   * transport, and so Linux.
+   */
+  public static boolean isReusePortSupported() {
+    return SystemUtils.IS_OS_LINUX;
+  }
+
   public static Class<? extends Channel> getClientChannel() {
     return SystemUtils.IS_OS_LINUX ? EpollSocketChannel.class : NioSocketChannel.class;
   }
@@ -63,5 +71,8 @@ public final class ChannelUtil {
   public static void validateSettings(ConnectionSettings settings) {
     Preconditions.checkArgument(settings.getConnectTimeoutMillis() > settings.getBandwidthWaitDelay(),
                                 "bandwidthWaitDelay should be less than connection timeout");
+    // streams of a connection are read all together, only credit holds back one of them
+    Preconditions.checkArgument(!settings.isMultiplexing() || settings.getCreditWindow() > 0,
+                                "multiplexing takes a creditWindow");
   }
 }
@@ -19,6 +19,7 @@
 
 package com.adobe.datum.common.channel;
 
+import com.adobe.datum.common.compress.DatumCompression;
 import com.adobe.datum.common.io.DataReader;
 import com.adobe.datum.common.io.DataWriter;
 import com.adobe.datum.common.io.DatumExternalizable;
@@ -44,20 +45,78 @@ public class ConnectionSettings implements DatumExternalizable {
   private static final int    DEFAULT_CONNECT_TIMEOUT_MILLIS       = (int) TimeUnit.SECONDS.toMillis(10);
   private static final int    DEFAULT_WRITE_BUFFER_LOW_WATER_MARK  = 16 * 1024; // 16 KB
   private static final int    DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024; // 64 KB
+  private static final int    DEFAULT_MAX_WRITE_BUFFER_WATER_MARK  = 16 * 1024 * 1024; // 16 MB
   private static final int    DEFAULT_WRITE_BANDWIDTH              = 1024 * 1024; // 1 MB/s
   private static final int    DEFAULT_READ_BANDWIDTH               = 1024 * 1024; // 1 MB/s
+  private static final int    DEFAULT_GLOBAL_WRITE_BANDWIDTH       = 0; // per-connection shaping only
+  private static final int    DEFAULT_GLOBAL_READ_BANDWIDTH        = 0;
+  private static final int    DEFAULT_CLIENT_WRITE_BANDWIDTH       = 0; // no per-client cap
+  private static final int    DEFAULT_CLIENT_READ_BANDWIDTH        = 0;
   private static final int    DEFAULT_BANDWIDTH_CHECK_INTERVAL     = (int) TimeUnit.SECONDS.toMillis(5);
   private static final int    DEFAULT_BANDWIDTH_WAIT_DELAY         = (int) TimeUnit.SECONDS.toMillis(5);
+  private static final int    DEFAULT_BATCH_MAX_ITEMS              = 1; // no batching
+  private static final int    DEFAULT_BATCH_MAX_BYTES              = 16 * 1024; // 16 KB
+  private static final int    DEFAULT_MAX_FRAME_SIZE               = 64 * 1024 * 1024; // 64 MB
+  private static final int    DEFAULT_CHUNK_SIZE                   = 0; // no chunking
+  private static final int    DEFAULT_CREDIT_WINDOW                = 0; // no credit-based flow control
+  private static final int    DEFAULT_CONNECTION_POOL_SIZE         = 0; // one connection per request
+  private static final int    DEFAULT_CONNECTION_IDLE_TIMEOUT      = (int) TimeUnit.SECONDS.toMillis(60);
+  private static final int    DEFAULT_CONSUMER_QUEUE_DEPTH         = 0; // consumers run on the event loop
+  private static final int    DEFAULT_FLUSH_MAX_ITEMS              = 0; // flush at the end of each write turn
+  private static final int    DEFAULT_FLUSH_MAX_BYTES              = 0;
+  private static final int    DEFAULT_FLUSH_MAX_LATENCY_MILLIS     = 0;
+  private static final int    DEFAULT_WRITE_QUANTUM_ITEMS          = 0; // write until unwritable or out of credit
+  private static final int    DEFAULT_WRITE_QUANTUM_BYTES          = 0;
+  private static final int    DEFAULT_MAX_ACTIVE_STREAMS           = 0; // no admission control
+  private static final int    DEFAULT_BOSS_THREADS                 = 1;
+  private static final int    DEFAULT_WORKER_THREADS               = 0; // twice the number of cores
+  private static final int    DEFAULT_ACCEPTORS                    = 1; // a single listening socket
+  private static final int    DEFAULT_STREAM_CACHE_MAX_BYTES       = 0; // no caching of download streams
+  private static final int    DEFAULT_STREAM_CACHE_TTL_MILLIS      = (int) TimeUnit.MINUTES.toMillis(1);
+  private static final int    DEFAULT_COALESCING_MAX_BYTES         = 1024 * 1024; // 1 MB
+
+  private static final DatumCompression DEFAULT_COMPRESSION          = DatumCompression.NONE;
+  private static final boolean          DEFAULT_MULTIPLEXING         = false; // one connection per stream
+  private static final boolean          DEFAULT_ADAPTIVE_WATER_MARKS = false; // fixed water marks
 
   private String host;
   private int    port;
   private int    connectTimeoutMillis;
   private int    writeBufferLowWaterMark;
   private int    writeBufferHighWaterMark;
+  private int    maxWriteBufferWaterMark;
   private int    writeBandwidth;
   private int    readBandwidth;
+  private int    globalWriteBandwidth;
+  private int    globalReadBandwidth;
+  private int    clientWriteBandwidth;
+  private int    clientReadBandwidth;
   private int    bandwidthCheckInterval;
   private int    bandwidthWaitDelay;
+  private int    batchMaxItems;
+  private int    batchMaxBytes;
+  private int    maxFrameSize;
+  private int    chunkSize;
+  private int    creditWindow;
+  private int    connectionPoolSize;
+  private int    connectionIdleTimeoutMillis;
+  private int    consumerQueueDepth;
+  private int    flushMaxItems;
+  private int    flushMaxBytes;
+  private int    flushMaxLatencyMillis;
+  private int    writeQuantumItems;
+  private int    writeQuantumBytes;
+  private int    maxActiveStreams;
+  private int    bossThreads;
+  private int    workerThreads;
+  private int    acceptors;
+  private int    streamCacheMaxBytes;
+  private int    streamCacheTtlMillis;
+  private int    coalescingMaxBytes;
+
+  private DatumCompression compression;
+  private boolean          multiplexing;
+  private boolean          adaptiveWaterMarks;
 
   public ConnectionSettings() {
     host = DEFAULT_HOST;
@@ -69,6 +128,49 @@ public class ConnectionSettings implements DatumExternalizable {
     readBandwidth = DEFAULT_READ_BANDWIDTH;
     bandwidthCheckInterval = DEFAULT_BANDWIDTH_CHECK_INTERVAL;
     bandwidthWaitDelay = DEFAULT_BANDWIDTH_WAIT_DELAY;
+    batchMaxItems = DEFAULT_BATCH_MAX_ITEMS;
+    batchMaxBytes = DEFAULT_BATCH_MAX_BYTES;
+    maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    chunkSize = DEFAULT_CHUNK_SIZE;
+    creditWindow = DEFAULT_CREDIT_WINDOW;
+    connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+    connectionIdleTimeoutMillis = DEFAULT_CONNECTION_IDLE_TIMEOUT;
+    consumerQueueDepth = DEFAULT_CONSUMER_QUEUE_DEPTH;
+    flushMaxItems = DEFAULT_FLUSH_MAX_ITEMS;
+    flushMaxBytes = DEFAULT_FLUSH_MAX_BYTES;
+    flushMaxLatencyMillis = DEFAULT_FLUSH_MAX_LATENCY_MILLIS;
+    writeQuantumItems = DEFAULT_WRITE_QUANTUM_ITEMS;
+    writeQuantumBytes = DEFAULT_WRITE_QUANTUM_BYTES;
+    globalWriteBandwidth = DEFAULT_GLOBAL_WRITE_BANDWIDTH;
+    globalReadBandwidth = DEFAULT_GLOBAL_READ_BANDWIDTH;
+    clientWriteBandwidth = DEFAULT_CLIENT_WRITE_BANDWIDTH;
+    clientReadBandwidth = DEFAULT_CLIENT_READ_BANDWIDTH;
+    maxWriteBufferWaterMark = DEFAULT_MAX_WRITE_BUFFER_WATER_MARK;
+    maxActiveStreams = DEFAULT_MAX_ACTIVE_STREAMS;
+    bossThreads = DEFAULT_BOSS_THREADS;
+    workerThreads = DEFAULT_WORKER_THREADS;
+    acceptors = DEFAULT_ACCEPTORS;
+    streamCacheMaxBytes = DEFAULT_STREAM_CACHE_MAX_BYTES;
+    streamCacheTtlMillis = DEFAULT_STREAM_CACHE_TTL_MILLIS;
+    coalescingMaxBytes = DEFAULT_COALESCING_MAX_BYTES;
+    multiplexing = DEFAULT_MULTIPLEXING;
+    adaptiveWaterMarks = DEFAULT_ADAPTIVE_WATER_MARKS;
+    compression = DEFAULT_COMPRESSION;
+  }
+
+  /**
+   * Whether idle connections are kept for later requests; multiplexed streams share their connection anyway.
+   */
+  public boolean isConnectionPooling() {
+    return connectionPoolSize > 0 && !multiplexing;
+  }
+
+  /**
+   * Whether a server shapes traffic against budgets shared by all its connections, or by all connections of a client,
+   * rather than per connection.
+   */
+  public boolean isGlobalTrafficShaping() {
+    return globalWriteBandwidth > 0 || globalReadBandwidth > 0 || clientWriteBandwidth > 0 || clientReadBandwidth > 0;
   }
 
   public static ConnectionSettings getDefaultSettings() {
@@ -86,6 +188,34 @@ public class ConnectionSettings implements DatumExternalizable {
     writer.write(readBandwidth);
     writer.write(bandwidthCheckInterval);
     writer.write(bandwidthWaitDelay);
+    writer.write(batchMaxItems);
+    writer.write(batchMaxBytes);
+    writer.write(maxFrameSize);
+    writer.write(chunkSize);
+    writer.write(creditWindow);
+    writer.write(connectionPoolSize);
+    writer.write(connectionIdleTimeoutMillis);
+    writer.write(consumerQueueDepth);
+    writer.write(flushMaxItems);
+    writer.write(flushMaxBytes);
+    writer.write(flushMaxLatencyMillis);
+    writer.write(writeQuantumItems);
+    writer.write(writeQuantumBytes);
+    writer.write(globalWriteBandwidth);
+    writer.write(globalReadBandwidth);
+    writer.write(clientWriteBandwidth);
+    writer.write(clientReadBandwidth);
+    writer.write(compression.name());
+    writer.write(multiplexing);
+    writer.write(maxWriteBufferWaterMark);
+    writer.write(adaptiveWaterMarks);
+    writer.write(maxActiveStreams);
+    writer.write(bossThreads);
+    writer.write(workerThreads);
+    writer.write(acceptors);
+    writer.write(streamCacheMaxBytes);
+    writer.write(streamCacheTtlMillis);
+    writer.write(coalescingMaxBytes);
     return this;
   }
 
@@ -100,6 +230,34 @@ public class ConnectionSettings implements DatumExternalizable {
     readBandwidth = reader.readInteger();
     bandwidthCheckInterval = reader.readInteger();
     bandwidthWaitDelay = reader.readInteger();
+    batchMaxItems = reader.readInteger();
+    batchMaxBytes = reader.readInteger();
+    maxFrameSize = reader.readInteger();
+    chunkSize = reader.readInteger();
+    creditWindow = reader.readInteger();
+    connectionPoolSize = reader.readInteger();
+    connectionIdleTimeoutMillis = reader.readInteger();
+    consumerQueueDepth = reader.readInteger();
+    flushMaxItems = reader.readInteger();
+    flushMaxBytes = reader.readInteger();
+    flushMaxLatencyMillis = reader.readInteger();
+    writeQuantumItems = reader.readInteger();
+    writeQuantumBytes = reader.readInteger();
+    globalWriteBandwidth = reader.readInteger();
+    globalReadBandwidth = reader.readInteger();
+    clientWriteBandwidth = reader.readInteger();
+    clientReadBandwidth = reader.readInteger();
+    compression = DatumCompression.valueOf(reader.readString());
+    multiplexing = reader.readBoolean();
+    maxWriteBufferWaterMark = reader.readInteger();
+    adaptiveWaterMarks = reader.readBoolean();
+    maxActiveStreams = reader.readInteger();
+    bossThreads = reader.readInteger();
+    workerThreads = reader.readInteger();
+    acceptors = reader.readInteger();
+    streamCacheMaxBytes = reader.readInteger();
+    streamCacheTtlMillis = reader.readInteger();
+    coalescingMaxBytes = reader.readInteger();
     return this;
   }
 }
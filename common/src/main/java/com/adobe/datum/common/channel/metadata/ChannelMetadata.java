@@ -19,12 +19,10 @@
 
 package com.adobe.datum.common.channel.metadata;
 
+import com.adobe.datum.common.util.ProtoUtil;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.protobuf.CodedOutputStream;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
-import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,9 +33,26 @@ public final class ChannelMetadata {
 
   private static final DatumMetadataMessage STREAM_START_MESSAGE = new DatumMetadataMessage(Integer.MAX_VALUE);
   private static final DatumMetadataMessage STREAM_END_MESSAGE   = new DatumMetadataMessage(Integer.MAX_VALUE - 1);
+  private static final DatumMetadataMessage BATCH_MESSAGE        = new DatumMetadataMessage(Integer.MAX_VALUE - 2);
+  private static final DatumMetadataMessage CHUNK_MESSAGE        = new DatumMetadataMessage(Integer.MAX_VALUE - 3);
+  private static final DatumMetadataMessage LAST_CHUNK_MESSAGE   = new DatumMetadataMessage(Integer.MAX_VALUE - 4);
+  private static final DatumMetadataMessage COMPRESSION_MESSAGE  = new DatumMetadataMessage(Integer.MAX_VALUE - 5);
+  private static final DatumMetadataMessage COMPRESSED_MESSAGE   = new DatumMetadataMessage(Integer.MAX_VALUE - 6);
+  private static final DatumMetadataMessage CONTROL_MESSAGE      = new DatumMetadataMessage(Integer.MAX_VALUE - 7);
+  private static final DatumMetadataMessage STREAM_DATA_MESSAGE  = new DatumMetadataMessage(Integer.MAX_VALUE - 8);
+  private static final DatumMetadataMessage STREAM_CLOSE_MESSAGE = new DatumMetadataMessage(Integer.MAX_VALUE - 9);
 
+  // ordered by descending message code; the last one marks the lower bound of the metadata range
   private static final List<DatumMetadataMessage> METADATA_MESSAGES = ImmutableList.of(streamStartMessage(),
-                                                                                       streamEndMessage());
+                                                                                       streamEndMessage(),
+                                                                                       batchMessage(),
+                                                                                       chunkMessage(),
+                                                                                       lastChunkMessage(),
+                                                                                       compressionMessage(),
+                                                                                       compressedMessage(),
+                                                                                       controlMessage(),
+                                                                                       streamDataMessage(),
+                                                                                       streamCloseMessage());
 
   private ChannelMetadata() { }
 
@@ -49,6 +64,67 @@ public final class ChannelMetadata {
     return STREAM_END_MESSAGE;
   }
 
+  /**
+   * Header of a batch frame: the message code is followed by the varint length of the batch and then by the
+   * length-prefixed frames it carries. Never travels through the pipeline as a message of its own.
+   */
+  public static DatumMetadataMessage batchMessage() {
+    return BATCH_MESSAGE;
+  }
+
+  /**
+   * Header of a chunk frame: the message code is followed by the varint length of the chunk and its bytes. A payload
+   * split into chunks is sent as any number of chunk frames followed by exactly one last chunk frame.
+   */
+  public static DatumMetadataMessage chunkMessage() {
+    return CHUNK_MESSAGE;
+  }
+
+  public static DatumMetadataMessage lastChunkMessage() {
+    return LAST_CHUNK_MESSAGE;
+  }
+
+  /**
+   * Announces the codec chosen for the stream: the message code is followed by the varint code of a
+   * {@link com.adobe.datum.common.compress.DatumCompression}. Sent by the server ahead of the stream start.
+   */
+  public static DatumMetadataMessage compressionMessage() {
+    return COMPRESSION_MESSAGE;
+  }
+
+  /**
+   * Header of a compressed block: the message code is followed by the varint codec, the varint length of the block
+   * and its bytes. A block inflates to any number of whole or partial frames, which continue in the next block.
+   */
+  public static DatumMetadataMessage compressedMessage() {
+    return COMPRESSED_MESSAGE;
+  }
+
+  /**
+   * Header of a control frame (see {@link DatumControlMessage}): the message code is followed by the varint code of its
+   * {@link ControlMessageType}, the varint length of its body and the body itself. Control frames of an unknown type
+   * are skipped by the reader.
+   */
+  public static DatumMetadataMessage controlMessage() {
+    return CONTROL_MESSAGE;
+  }
+
+  /**
+   * Header of a stream data frame on a multiplexed connection: the message code is followed by the varint id of the
+   * stream, the varint length of the data and the data itself, which continues the byte stream of that stream.
+   */
+  public static DatumMetadataMessage streamDataMessage() {
+    return STREAM_DATA_MESSAGE;
+  }
+
+  /**
+   * Tells the other end of a multiplexed connection that a stream is closed: the message code is followed by the
+   * varint id of the stream.
+   */
+  public static DatumMetadataMessage streamCloseMessage() {
+    return STREAM_CLOSE_MESSAGE;
+  }
+
   public static Optional<DatumMetadataMessage> fromMessageCode(int messageCode) {
     if (messageCode < Iterables.getLast(METADATA_MESSAGES).getMessageCode()) {
       return Optional.empty();
@@ -58,11 +134,46 @@ public final class ChannelMetadata {
                             .findAny();
   }
 
-  public static void writeMetadataMessage(DatumMetadataMessage metadataMessage, ByteBuf buffer) throws IOException {
-    int messageCodeLength = CodedOutputStream.computeRawVarint32Size(metadataMessage.getMessageCode());
-    buffer.ensureWritable(messageCodeLength);
-    CodedOutputStream outputStream = CodedOutputStream.newInstance(new ByteBufOutputStream(buffer), messageCodeLength);
-    outputStream.writeRawVarint32(metadataMessage.getMessageCode());
-    outputStream.flush();
+  public static void writeMetadataMessage(DatumMetadataMessage metadataMessage, ByteBuf buffer) {
+    ProtoUtil.writeRawVarint32(buffer, metadataMessage.getMessageCode());
+  }
+
+  public static void writeBatchHeader(int batchLength, ByteBuf buffer) {
+    writeMetadataMessage(batchMessage(), buffer);
+    ProtoUtil.writeRawVarint32(buffer, batchLength);
+  }
+
+  public static void writeChunkHeader(boolean last, int chunkLength, ByteBuf buffer) {
+    writeMetadataMessage(last ? lastChunkMessage() : chunkMessage(), buffer);
+    ProtoUtil.writeRawVarint32(buffer, chunkLength);
+  }
+
+  public static void writeCompressionAnnouncement(int codec, ByteBuf buffer) {
+    writeMetadataMessage(compressionMessage(), buffer);
+    ProtoUtil.writeRawVarint32(buffer, codec);
+  }
+
+  public static void writeCompressedHeader(int codec, int blockLength, ByteBuf buffer) {
+    writeMetadataMessage(compressedMessage(), buffer);
+    ProtoUtil.writeRawVarint32(buffer, codec);
+    ProtoUtil.writeRawVarint32(buffer, blockLength);
+  }
+
+  public static void writeControlMessage(DatumControlMessage controlMessage, ByteBuf buffer) {
+    writeMetadataMessage(controlMessage(), buffer);
+    ProtoUtil.writeRawVarint32(buffer, controlMessage.getType().getCode());
+    ProtoUtil.writeRawVarint32(buffer, controlMessage.getBodySize());
+    controlMessage.writeBody(buffer);
+  }
+
+  public static void writeStreamDataHeader(int streamId, int dataLength, ByteBuf buffer) {
+    writeMetadataMessage(streamDataMessage(), buffer);
+    ProtoUtil.writeRawVarint32(buffer, streamId);
+    ProtoUtil.writeRawVarint32(buffer, dataLength);
+  }
+
+  public static void writeStreamClose(int streamId, ByteBuf buffer) {
+    writeMetadataMessage(streamCloseMessage(), buffer);
+    ProtoUtil.writeRawVarint32(buffer, streamId);
   }
 }
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.channel.metadata;
+
+import io.netty.buffer.ByteBuf;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Types of {@link DatumControlMessage}, each with the code it is sent under and the means to read its body back.
+ *
+ * @author Adobe Systems Inc.
+ */
+public enum ControlMessageType {
+
+  CREDIT(1, DatumCreditMessage::read),
+  OVERLOAD(2, DatumOverloadMessage::read),
+  CHECKPOINT(3, DatumCheckpointMessage::read),
+  CHECKPOINT_ACK(4, DatumCheckpointAckMessage::read),
+  COMMIT(5, DatumCommitMessage::read),
+  REQUEST_FAILED(6, DatumRequestFailedMessage::read);
+
+  private final int                                   code;
+  private final Function<ByteBuf, DatumControlMessage> reader;
+
+  ControlMessageType(int code, Function<ByteBuf, DatumControlMessage> reader) {
+    this.code = code;
+    this.reader = reader;
+  }
+
+  public int getCode() {
+    return code;
+  }
+
+  public DatumControlMessage read(ByteBuf body) {
+    return reader.apply(body);
+  }
+
+  public static Optional<ControlMessageType> fromCode(int code) {
+    return Stream.of(values())
+                 .filter(type -> type.code == code)
+                 .findAny();
+  }
+}
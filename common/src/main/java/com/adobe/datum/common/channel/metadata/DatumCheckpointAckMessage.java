@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.channel.metadata;
+
+import com.adobe.datum.common.util.ProtoUtil;
+import io.netty.buffer.ByteBuf;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Acknowledges the checkpoint of that sequence number, and all earlier ones: the receiver is done with every item
+ * written before it.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString
+public final class DatumCheckpointAckMessage extends DatumControlMessage {
+
+  private final int sequence;
+
+  private DatumCheckpointAckMessage(int sequence) {
+    this.sequence = sequence;
+  }
+
+  public static DatumCheckpointAckMessage of(int sequence) {
+    return new DatumCheckpointAckMessage(sequence);
+  }
+
+  static DatumCheckpointAckMessage read(ByteBuf body) {
+    return of(ProtoUtil.readRawVarint32(body));
+  }
+
+  @Override
+  public ControlMessageType getType() {
+    return ControlMessageType.CHECKPOINT_ACK;
+  }
+
+  @Override
+  public int getBodySize() {
+    return ProtoUtil.computeRawVarint32Size(sequence);
+  }
+
+  @Override
+  public void writeBody(ByteBuf buffer) {
+    ProtoUtil.writeRawVarint32(buffer, sequence);
+  }
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.channel.metadata;
+
+import com.adobe.datum.common.util.ProtoUtil;
+import io.netty.buffer.ByteBuf;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Marks a point in a download stream that the server can resume it from: every item written before the marker is
+ * covered by its position, none written after it is. The position is opaque to the client, which acknowledges the
+ * marker once its consumer has taken all of those items (see {@link DatumCheckpointAckMessage}).
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString
+public final class DatumCheckpointMessage extends DatumControlMessage {
+
+  private final int    sequence;
+  private final byte[] position;
+
+  private DatumCheckpointMessage(int sequence, byte[] position) {
+    this.sequence = sequence;
+    this.position = position;
+  }
+
+  public static DatumCheckpointMessage of(int sequence, byte[] position) {
+    return new DatumCheckpointMessage(sequence, position);
+  }
+
+  static DatumCheckpointMessage read(ByteBuf body) {
+    int sequence = ProtoUtil.readRawVarint32(body);
+    byte[] position = new byte[body.readableBytes()];
+    body.readBytes(position);
+    return of(sequence, position);
+  }
+
+  @Override
+  public ControlMessageType getType() {
+    return ControlMessageType.CHECKPOINT;
+  }
+
+  @Override
+  public int getBodySize() {
+    return ProtoUtil.computeRawVarint32Size(sequence) + position.length;
+  }
+
+  @Override
+  public void writeBody(ByteBuf buffer) {
+    ProtoUtil.writeRawVarint32(buffer, sequence);
+    buffer.writeBytes(position);
+  }
+}
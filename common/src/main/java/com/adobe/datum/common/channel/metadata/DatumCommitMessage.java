@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.channel.metadata;
+
+import com.adobe.datum.common.util.ProtoUtil;
+import io.netty.buffer.ByteBuf;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Tells the sender of an upload that the receiver's consumer has durably handled that many items, counted from the
+ * start of the upload across every attempt at it. Commits never go back; each one supersedes the last.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString
+public final class DatumCommitMessage extends DatumControlMessage {
+
+  private final long items;
+
+  private DatumCommitMessage(long items) {
+    this.items = items;
+  }
+
+  public static DatumCommitMessage of(long items) {
+    return new DatumCommitMessage(items);
+  }
+
+  static DatumCommitMessage read(ByteBuf body) {
+    return of(ProtoUtil.readRawVarint64(body));
+  }
+
+  @Override
+  public ControlMessageType getType() {
+    return ControlMessageType.COMMIT;
+  }
+
+  @Override
+  public int getBodySize() {
+    return ProtoUtil.computeRawVarint64Size(items);
+  }
+
+  @Override
+  public void writeBody(ByteBuf buffer) {
+    ProtoUtil.writeRawVarint64(buffer, items);
+  }
+}
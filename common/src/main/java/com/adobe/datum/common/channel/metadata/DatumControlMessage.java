@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.channel.metadata;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Metadata message that carries a body. Control messages travel in the opposite direction of the payload stream as
+ * well as along with it, and are told apart by their {@link ControlMessageType}.
+ *
+ * @author Adobe Systems Inc.
+ */
+public abstract class DatumControlMessage extends DatumMetadataMessage {
+
+  protected DatumControlMessage() {
+    super(ChannelMetadata.controlMessage().getMessageCode());
+  }
+
+  public abstract ControlMessageType getType();
+
+  public abstract int getBodySize();
+
+  public abstract void writeBody(ByteBuf buffer);
+
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.channel.metadata;
+
+import com.adobe.datum.common.util.ProtoUtil;
+import io.netty.buffer.ByteBuf;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import java.util.stream.Stream;
+
+/**
+ * Turns a request down because the server is over capacity, in place of the stream start. The server closes the
+ * stream right after, so the client can fail the request at once and retry later or elsewhere.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString
+public final class DatumOverloadMessage extends DatumControlMessage {
+
+  /**
+   * Which capacity the request exceeded.
+   */
+  public enum Reason {
+    /** Sent by a newer server for a reason this end does not know of. */
+    UNKNOWN(0),
+    /** The server already serves as many streams as it may. */
+    SERVER_LIMIT(1),
+    /** The handler of the request already serves as many streams as it may. */
+    HANDLER_LIMIT(2),
+    /** The executor that runs request handlers does not take any more work. */
+    EXECUTOR_SATURATED(3);
+
+    private final int code;
+
+    Reason(int code) {
+      this.code = code;
+    }
+
+    public int getCode() {
+      return code;
+    }
+
+    public static Reason fromCode(int code) {
+      return Stream.of(values())
+                   .filter(reason -> reason.code == code)
+                   .findAny()
+                   .orElse(UNKNOWN);
+    }
+  }
+
+  private final Reason reason;
+
+  private DatumOverloadMessage(Reason reason) {
+    this.reason = reason;
+  }
+
+  public static DatumOverloadMessage of(Reason reason) {
+    return new DatumOverloadMessage(reason);
+  }
+
+  static DatumOverloadMessage read(ByteBuf body) {
+    return of(Reason.fromCode(ProtoUtil.readRawVarint32(body)));
+  }
+
+  @Override
+  public ControlMessageType getType() {
+    return ControlMessageType.OVERLOAD;
+  }
+
+  @Override
+  public int getBodySize() {
+    return ProtoUtil.computeRawVarint32Size(reason.getCode());
+  }
+
+  @Override
+  public void writeBody(ByteBuf buffer) {
+    ProtoUtil.writeRawVarint32(buffer, reason.getCode());
+  }
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.channel.metadata;
+
+import io.netty.buffer.ByteBuf;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Fails a request the server took on but could not handle, such as one it could not deserialize, in place of the stream
+ * start or of the rest of the stream. The server closes the stream right after; what went wrong stays on the server.
+ *
+ * @author Adobe Systems Inc.
+ */
+@EqualsAndHashCode(callSuper = true)
+@ToString
+public final class DatumRequestFailedMessage extends DatumControlMessage {
+
+  private static final DatumRequestFailedMessage INSTANCE = new DatumRequestFailedMessage();
+
+  private DatumRequestFailedMessage() { }
+
+  public static DatumRequestFailedMessage of() {
+    return INSTANCE;
+  }
+
+  static DatumRequestFailedMessage read(ByteBuf body) {
+    return of();
+  }
+
+  @Override
+  public ControlMessageType getType() {
+    return ControlMessageType.REQUEST_FAILED;
+  }
+
+  @Override
+  public int getBodySize() {
+    return 0;
+  }
+
+  @Override
+  public void writeBody(ByteBuf buffer) { }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import com.adobe.datum.common.api.DatumProto.Compression;
+import com.google.common.collect.ImmutableList;
+import io.netty.util.AttributeKey;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Codecs a stream can be compressed with. The client advertises the ones it accepts in its request and the server
+ * chooses which one, if any, is used for the stream.
+ *
+ * @author Adobe Systems Inc.
+ */
+public enum DatumCompression {
+
+  NONE(Compression.NONE, null, null),
+  DEFLATE(Compression.DEFLATE, DeflateCompressor::new, DeflateDecompressor::new),
+  SNAPPY(Compression.SNAPPY, SnappyCompressor::new, SnappyDecompressor::new);
+
+  /**
+   * Codec the local end of a channel compresses its outbound stream with, once negotiated.
+   */
+  public static final AttributeKey<DatumCompression> CHANNEL_ATTRIBUTE = AttributeKey.valueOf("datumCompression");
+
+  private final Compression                 proto;
+  private final Supplier<DatumCompressor>   compressorFactory;
+  private final Supplier<DatumDecompressor> decompressorFactory;
+
+  DatumCompression(Compression proto,
+                   Supplier<DatumCompressor> compressorFactory,
+                   Supplier<DatumDecompressor> decompressorFactory) {
+    this.proto = proto;
+    this.compressorFactory = compressorFactory;
+    this.decompressorFactory = decompressorFactory;
+  }
+
+  /**
+   * @return a new compressor for a stream, unless this is {@link #NONE}
+   */
+  public Optional<DatumCompressor> newCompressor() {
+    return Optional.ofNullable(compressorFactory).map(Supplier::get);
+  }
+
+  /**
+   * @return a new decompressor for a stream, unless this is {@link #NONE}
+   */
+  public Optional<DatumDecompressor> newDecompressor() {
+    return Optional.ofNullable(decompressorFactory).map(Supplier::get);
+  }
+
+  public int getCode() {
+    return proto.getNumber();
+  }
+
+  public Compression toProto() {
+    return proto;
+  }
+
+  public static DatumCompression fromCode(int code) {
+    return Stream.of(values())
+                  .filter(compression -> compression.getCode() == code)
+                  .findAny()
+                  .orElseThrow(() -> new IllegalArgumentException("unknown compression code: " + code));
+  }
+
+  /**
+   * Codecs a client with the given preference advertises: the preferred one first, followed by every other codec it
+   * is able to decode. Nothing is advertised if the client does not want compressed streams.
+   */
+  public static List<Compression> advertise(DatumCompression preferred) {
+    if (preferred == NONE) {
+      return ImmutableList.of();
+    }
+    return Stream.concat(Stream.of(preferred), Stream.of(values()))
+                 .filter(compression -> compression != NONE)
+                 .distinct()
+                 .map(DatumCompression::toProto)
+                 .collect(Collectors.toList());
+  }
+
+  /**
+   * Server side of the negotiation: the first codec the client accepts, unless compression is disabled here.
+   */
+  public static DatumCompression negotiate(List<Compression> accepted, DatumCompression configured) {
+    if (configured == NONE) {
+      return NONE;
+    }
+    return accepted.stream()
+                   .map(compression -> fromCode(compression.getNumber()))
+                   .filter(compression -> compression != NONE)
+                   .findFirst()
+                   .orElse(NONE);
+  }
+}
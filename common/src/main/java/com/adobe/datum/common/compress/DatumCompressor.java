@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Compresses consecutive blocks of one stream. Every block must be decodable as soon as it has been received, given
+ * the blocks before it, so implementations flush all pending output at the end of each call.
+ *
+ * @author Adobe Systems Inc.
+ */
+public interface DatumCompressor {
+
+  /**
+   * Compresses the readable bytes of {@code in} and appends the result to {@code out}, which must be a
+   * heap buffer.
+   */
+  void compress(ByteBuf in, ByteBuf out);
+
+  /**
+   * Releases any native or pooled resources held by the compressor.
+   */
+  void close();
+}
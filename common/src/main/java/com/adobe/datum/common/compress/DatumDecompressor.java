@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Counterpart of {@link DatumCompressor}: decompresses the blocks of one stream in the order they were compressed.
+ *
+ * @author Adobe Systems Inc.
+ */
+public interface DatumDecompressor {
+
+  /**
+   * Decompresses the readable bytes of {@code in} and appends the result to {@code out}, which must be a
+   * heap buffer.
+   *
+   * @throws io.netty.handler.codec.TooLongFrameException if the block inflates to more than {@code maxLength} bytes
+   */
+  void decompress(ByteBuf in, ByteBuf out, int maxLength);
+
+  /**
+   * Releases any native or pooled resources held by the decompressor.
+   */
+  void close();
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import io.netty.buffer.ByteBuf;
+import java.util.zip.Deflater;
+
+/**
+ * Raw deflate over the whole stream: the dictionary is kept between blocks and every block ends with a sync flush.
+ *
+ * @author Adobe Systems Inc.
+ */
+class DeflateCompressor implements DatumCompressor {
+
+  private static final int LEVEL = 6;
+
+  private final Deflater deflater = new Deflater(LEVEL, true);
+
+  @Override
+  public void compress(ByteBuf in, ByteBuf out) {
+    int length = in.readableBytes();
+    if (in.hasArray()) {
+      deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+    } else {
+      byte[] input = new byte[length];
+      in.getBytes(in.readerIndex(), input);
+      deflater.setInput(input);
+    }
+    in.skipBytes(length);
+
+    // worst case of raw deflate is a few bytes per 16 KB stored block, plus the sync marker
+    out.ensureWritable(length + (length >> 12) + 16);
+    int written;
+    do {
+      if (!out.isWritable()) {
+        out.ensureWritable(length >> 3 | 64);
+      }
+      written = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes(),
+                                 Deflater.SYNC_FLUSH);
+      out.writerIndex(out.writerIndex() + written);
+    } while (!out.isWritable() || !deflater.needsInput());
+  }
+
+  @Override
+  public void close() {
+    deflater.end();
+  }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates blocks written by {@link DeflateCompressor}.
+ *
+ * @author Adobe Systems Inc.
+ */
+class DeflateDecompressor implements DatumDecompressor {
+
+  private final Inflater inflater = new Inflater(true);
+
+  @Override
+  public void decompress(ByteBuf in, ByteBuf out, int maxLength) {
+    int length = in.readableBytes();
+    if (in.hasArray()) {
+      inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+    } else {
+      byte[] input = new byte[length];
+      in.getBytes(in.readerIndex(), input);
+      inflater.setInput(input);
+    }
+    in.skipBytes(length);
+
+    int inflated = 0;
+    try {
+      boolean full;
+      do {
+        out.ensureWritable(Math.max(length << 1, 256));
+        int writable = out.writableBytes();
+        int written = inflater.inflate(out.array(), out.arrayOffset() + out.writerIndex(), writable);
+        out.writerIndex(out.writerIndex() + written);
+        inflated += written;
+        if (inflated > maxLength) {
+          throw new TooLongFrameException("compressed block inflates to more than " + maxLength + " bytes");
+        }
+        if (inflater.needsDictionary() || inflater.finished()) {
+          throw new CorruptedFrameException("unexpected end of deflate stream");
+        }
+        full = written == writable;
+      } while (full || !inflater.needsInput());
+    } catch (DataFormatException e) {
+      throw new CorruptedFrameException("invalid deflate block", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    inflater.end();
+  }
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.SnappyFramedEncoder;
+
+/**
+ * Snappy through netty's framed codec, which is the only public entry point to its snappy implementation. The codec
+ * runs in an embedded channel so that its framing state carries over from one block to the next.
+ *
+ * @author Adobe Systems Inc.
+ */
+class SnappyCompressor implements DatumCompressor {
+
+  private final EmbeddedChannel channel = new EmbeddedChannel(new SnappyFramedEncoder());
+
+  @Override
+  public void compress(ByteBuf in, ByteBuf out) {
+    channel.writeOutbound(in.retain());
+    SnappyUtil.drain(channel.outboundMessages(), out);
+  }
+
+  @Override
+  public void close() {
+    SnappyUtil.close(channel);
+  }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import com.adobe.datum.common.util.ProtoUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.compression.SnappyFramedDecoder;
+
+/**
+ * Decodes the output of {@link SnappyCompressor}, verifying the checksum of every snappy chunk. The compressor writes
+ * whole chunks into every block, and snappy puts the length of the uncompressed data in front of it, so a block that
+ * would inflate to too much is turned down before any of it is decoded.
+ *
+ * @author Adobe Systems Inc.
+ */
+class SnappyDecompressor implements DatumDecompressor {
+
+  // chunk type followed by a 24-bit little-endian length; data chunks then start with a checksum
+  private static final int CHUNK_HEADER_SIZE = 4;
+  private static final int CHECKSUM_SIZE     = 4;
+
+  private static final int COMPRESSED_DATA   = 0x00;
+  private static final int UNCOMPRESSED_DATA = 0x01;
+
+  private final EmbeddedChannel channel = new EmbeddedChannel(new SnappyFramedDecoder(true));
+
+  @Override
+  public void decompress(ByteBuf in, ByteBuf out, int maxLength) {
+    if (getUncompressedLength(in) > maxLength) {
+      throw new TooLongFrameException("compressed block inflates to more than " + maxLength + " bytes");
+    }
+    int start = out.writerIndex();
+    channel.writeInbound(in.retain());
+    channel.checkException();
+    SnappyUtil.drain(channel.inboundMessages(), out);
+    if (out.writerIndex() - start > maxLength) {
+      throw new TooLongFrameException("compressed block inflates to more than " + maxLength + " bytes");
+    }
+  }
+
+  private static long getUncompressedLength(ByteBuf in) {
+    long length = 0;
+    int index = in.readerIndex();
+    while (index < in.writerIndex()) {
+      if (in.writerIndex() - index < CHUNK_HEADER_SIZE) {
+        throw new CorruptedFrameException("compressed block ends within a snappy chunk header");
+      }
+      int type = in.getUnsignedByte(index);
+      int chunkLength = in.getUnsignedByte(index + 1)
+                        | in.getUnsignedByte(index + 2) << 8
+                        | in.getUnsignedByte(index + 3) << 16;
+      int body = index + CHUNK_HEADER_SIZE;
+      if (in.writerIndex() - body < chunkLength) {
+        throw new CorruptedFrameException("compressed block ends within a snappy chunk");
+      }
+      if ((type == COMPRESSED_DATA || type == UNCOMPRESSED_DATA) && chunkLength < CHECKSUM_SIZE) {
+        throw new CorruptedFrameException("snappy chunk too short for its checksum: " + chunkLength);
+      }
+      if (type == COMPRESSED_DATA) {
+        length += getPreamble(in.slice(body + CHECKSUM_SIZE, chunkLength - CHECKSUM_SIZE));
+      } else if (type == UNCOMPRESSED_DATA) {
+        length += chunkLength - CHECKSUM_SIZE;
+      }
+      index = body + chunkLength;
+    }
+    return length;
+  }
+
+  private static long getPreamble(ByteBuf data) {
+    try {
+      return ProtoUtil.readRawVarint32(data) & 0xFFFFFFFFL;
+    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new CorruptedFrameException("invalid snappy preamble", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    SnappyUtil.close(channel);
+  }
+}
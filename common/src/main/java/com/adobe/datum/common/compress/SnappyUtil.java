@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import java.util.Queue;
+
+/**
+ * @author Adobe Systems Inc.
+ */
+final class SnappyUtil {
+
+  private SnappyUtil() { }
+
+  static void drain(Queue<Object> messages, ByteBuf out) {
+    for (Object message = messages.poll(); message != null; message = messages.poll()) {
+      ByteBuf buf = (ByteBuf) message;
+      try {
+        out.writeBytes(buf);
+      } finally {
+        buf.release();
+      }
+    }
+  }
+
+  static void close(EmbeddedChannel channel) {
+    channel.finish();
+    for (Object message = channel.readInbound(); message != null; message = channel.readInbound()) {
+      ReferenceCountUtil.release(message);
+    }
+    for (Object message = channel.readOutbound(); message != null; message = channel.readOutbound()) {
+      ReferenceCountUtil.release(message);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import org.reactivestreams.Publisher;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking variant of {@link DatumSupplier}. {@link #get()} is called on the netty event loop and must return
+ * right away; the item is handed over once the returned future completes. Only one future is outstanding at a time, so
+ * implementations never see overlapping calls.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type that this supplier can provide.
+ */
+public interface AsyncDatumSupplier<T> extends DatumCallback {
+
+  CompletableFuture<T> get();
+
+  /**
+   * Runs every call to the blocking {@code supplier} on the given executor.
+   */
+  static <T> AsyncDatumSupplier<T> of(DatumSupplier<T> supplier, Executor executor) {
+    return DatumSupplierUtil.toAsync(supplier, executor);
+  }
+
+  /**
+   * Takes the items of the {@code publisher}, asking for no more than {@link PublisherDatumSupplier#DEFAULT_PREFETCH}
+   * at a time.
+   */
+  static <T> AsyncDatumSupplier<Optional<T>> of(Publisher<T> publisher) {
+    return PublisherDatumSupplier.of(publisher);
+  }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import com.google.common.base.Preconditions;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Bounds of a batch handed to a {@link DatumBatchConsumer}: a batch is passed on as soon as it holds
+ * {@code maxItems} items or {@code maxBytes} bytes, or its first item has waited {@code lingerMillis}. A bound of
+ * {@link #NO_LIMIT} is not applied, but at least one of them has to be; the stream ending passes on a batch too.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class BatchPolicy {
+
+  public static final int NO_LIMIT = 0;
+
+  private final int  maxItems;
+  private final long maxBytes;
+  private final long lingerMillis;
+
+  private BatchPolicy(int maxItems, long maxBytes, long lingerMillis) {
+    Preconditions.checkArgument(maxItems >= 0, "batch size cannot be negative: %s", maxItems);
+    Preconditions.checkArgument(maxBytes >= 0, "batch bytes cannot be negative: %s", maxBytes);
+    Preconditions.checkArgument(lingerMillis >= 0, "linger time cannot be negative: %s", lingerMillis);
+    Preconditions.checkArgument(maxItems != NO_LIMIT || maxBytes != NO_LIMIT || lingerMillis != NO_LIMIT,
+                                "a batch needs at least one bound");
+    this.maxItems = maxItems;
+    this.maxBytes = maxBytes;
+    this.lingerMillis = lingerMillis;
+  }
+
+  public static BatchPolicy of(int maxItems) {
+    return of(maxItems, NO_LIMIT, NO_LIMIT);
+  }
+
+  public static BatchPolicy of(int maxItems, long maxBytes, long lingerMillis) {
+    return new BatchPolicy(maxItems, maxBytes, lingerMillis);
+  }
+}
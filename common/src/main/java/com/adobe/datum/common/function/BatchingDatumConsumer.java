@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates items for a {@link DatumBatchConsumer} and passes them on once the batch reaches the bounds of its
+ * {@link BatchPolicy}. A partial batch is passed on when the stream completes or fails. Not thread-safe: calls must
+ * come from one thread at a time, which is how the download handler calls its consumer.
+ *
+ * <p>
+ * The linger bound needs a clock, so it is applied by whoever drives the consumer (see
+ * {@code DatumChannelDownloadHandler}), through {@link #getBatchNumber()} and {@link #flush(long)}.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type that this consumer accepts.
+ */
+public final class BatchingDatumConsumer<T> implements DatumConsumer<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchingDatumConsumer.class);
+
+  // a batch list is presized to its item bound, but never beyond this
+  private static final int MAX_INITIAL_CAPACITY = 1024;
+
+  private final DatumBatchConsumer<T> delegate;
+  private final BatchPolicy           policy;
+
+  private List<T> batch;
+  private long    batchBytes;
+  private long    batchNumber;
+
+  BatchingDatumConsumer(DatumBatchConsumer<T> delegate, BatchPolicy policy) {
+    this.delegate = delegate;
+    this.policy = policy;
+    this.batch = newBatch();
+  }
+
+  @Override
+  public void accept(T item) throws Exception {
+    batch.add(item);
+    batchBytes += delegate.sizeOf(item);
+    if (policy.getMaxItems() != BatchPolicy.NO_LIMIT && batch.size() >= policy.getMaxItems()
+        || policy.getMaxBytes() != BatchPolicy.NO_LIMIT && batchBytes >= policy.getMaxBytes()) {
+      flush();
+    }
+  }
+
+  public BatchPolicy getPolicy() {
+    return policy;
+  }
+
+  public int size() {
+    return batch.size();
+  }
+
+  /**
+   * Identifies the batch being accumulated; it changes every time a batch is passed on.
+   */
+  public long getBatchNumber() {
+    return batchNumber;
+  }
+
+  /**
+   * Passes on the given batch if it is still being accumulated, i.e. its linger time ran out before it filled up.
+   */
+  public void flush(long batchNumber) throws Exception {
+    if (batchNumber == this.batchNumber) {
+      flush();
+    }
+  }
+
+  public void flush() throws Exception {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<T> items = batch;
+    batch = newBatch();
+    batchBytes = 0;
+    batchNumber++;
+    delegate.accept(items);
+  }
+
+  private List<T> newBatch() {
+    int maxItems = policy.getMaxItems();
+    if (maxItems == BatchPolicy.NO_LIMIT) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(Math.min(maxItems, MAX_INITIAL_CAPACITY));
+  }
+
+  @Override
+  public void onComplete() {
+    try {
+      flush();
+    } catch (Exception e) {
+      delegate.onError(e);
+      return;
+    }
+    delegate.onComplete();
+  }
+
+  @Override
+  public void onError(Throwable cause) {
+    try {
+      flush();
+    } catch (Exception e) {
+      LOG.warn("unable to pass on the last batch of a failed stream", e);
+    }
+    delegate.onError(cause);
+  }
+}
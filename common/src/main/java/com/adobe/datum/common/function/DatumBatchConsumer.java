@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import java.util.List;
+
+/**
+ * Receives items in batches, so that each call can be committed as a unit. Turned into a {@link DatumConsumer} with
+ * {@link #batched(BatchPolicy)}, which does the accumulation and can be used anywhere a consumer is expected.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type that this consumer accepts.
+ */
+public interface DatumBatchConsumer<T> extends DatumCallback {
+
+  void accept(List<T> items) throws Exception;
+
+  /**
+   * Size that an item counts against {@link BatchPolicy#getMaxBytes()}; items weigh nothing by default.
+   */
+  default int sizeOf(T item) {
+    return 0;
+  }
+
+  default BatchingDatumConsumer<T> batched(BatchPolicy policy) {
+    return new BatchingDatumConsumer<>(this, policy);
+  }
+}
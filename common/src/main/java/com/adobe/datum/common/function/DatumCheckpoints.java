@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import java.util.Optional;
+
+/**
+ * Checkpoints of a stream, for a supplier to implement alongside {@link DatumSupplier}. After every item, the upload
+ * handler asks for a checkpoint reached with it and sends the receiver a marker for it right after the item; the
+ * receiver acknowledges the marker once it is done with the items before it.
+ *
+ * @author Adobe Systems Inc.
+ */
+public interface DatumCheckpoints {
+
+  /**
+   * @return the position of the checkpoint reached with the last item supplied, if that item completes one
+   */
+  Optional<byte[]> takeCheckpoint();
+
+  /**
+   * Called once the receiver is done with every item before the checkpoint at this position.
+   */
+  default void onCheckpointAcknowledged(byte[] position) { }
+
+}
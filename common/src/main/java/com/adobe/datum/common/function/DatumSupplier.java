@@ -19,10 +19,12 @@
 
 package com.adobe.datum.common.function;
 
+import com.adobe.datum.common.util.ExecutorUtil;
 import com.google.common.collect.Iterators;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -39,6 +41,23 @@ public interface DatumSupplier<T> extends DatumCallback {
     return DatumSupplierUtil.toJavaSupplier(this);
   }
 
+  default AsyncDatumSupplier<T> toAsync(Executor executor) {
+    return DatumSupplierUtil.toAsync(this, executor);
+  }
+
+  static <T> AsyncDatumSupplier<Optional<T>> readAhead(DatumSupplier<Optional<T>> supplier, int depth) {
+    return readAhead(supplier, depth, ExecutorUtil.offloadExecutor());
+  }
+
+  /**
+   * Reads up to {@code depth} items ahead of the consumer on {@code executor}, for suppliers that block.
+   */
+  static <T> AsyncDatumSupplier<Optional<T>> readAhead(DatumSupplier<Optional<T>> supplier,
+                                                       int depth,
+                                                       Executor executor) {
+    return DatumSupplierUtil.readAhead(supplier, depth, executor);
+  }
+
   default <U> DatumSupplier<U> transform(Function<T, U> transformer) {
     return DatumSupplierUtil.transform(this, transformer);
   }
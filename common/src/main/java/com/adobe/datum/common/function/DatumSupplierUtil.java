@@ -22,6 +22,8 @@ package com.adobe.datum.common.function;
 import com.google.common.base.Preconditions;
 import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -38,6 +40,17 @@ public final class DatumSupplierUtil {
     return new JavaSupplier<>(datumSupplier);
   }
 
+  public static <T> AsyncDatumSupplier<T> toAsync(DatumSupplier<T> datumSupplier, Executor executor) {
+    Preconditions.checkNotNull(executor, "executor cannot be null");
+    return new ExecutorDatumSupplier<>(datumSupplier, executor);
+  }
+
+  public static <T> AsyncDatumSupplier<Optional<T>> readAhead(DatumSupplier<Optional<T>> datumSupplier,
+                                                             int depth,
+                                                             Executor executor) {
+    return new ReadAheadDatumSupplier<>(datumSupplier, depth, executor);
+  }
+
   public static <T, U> DatumSupplier<U> transform(DatumSupplier<T> datumSupplier, Function<T, U> transformer) {
     Preconditions.checkNotNull(transformer, "transformer cannot be null");
     return new TransformingDatumSupplier<>(datumSupplier, transformer);
@@ -93,6 +106,23 @@ public final class DatumSupplierUtil {
     }
   }
 
+  private static final class ExecutorDatumSupplier<T> extends DatumCallbackWrapper implements AsyncDatumSupplier<T> {
+
+    private final DatumSupplier<T> delegate;
+    private final Executor         executor;
+
+    private ExecutorDatumSupplier(DatumSupplier<T> delegate, Executor executor) {
+      super(delegate);
+      this.delegate = delegate;
+      this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<T> get() {
+      return CompletableFuture.supplyAsync(new JavaSupplier<>(delegate), executor);
+    }
+  }
+
   private static final class TransformingDatumSupplier<T, U> extends DatumCallbackWrapper implements DatumSupplier<U> {
 
     private final DatumSupplier<T> delegate;
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import com.google.common.base.Preconditions;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes items from a {@link Publisher} as they are asked for. The publisher is subscribed to on the first call to
+ * {@link #get()} and asked for {@code prefetch} items; every time half of them has been taken, it is asked for that
+ * many more. So no more than {@code prefetch} items are ever held here, and items are only asked for as fast as they
+ * are taken, which for an upload is as fast as the channel stays writable and credit lasts.
+ *
+ * <p>
+ * The subscription is cancelled when the stream fails.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type that this supplier can provide.
+ */
+public final class PublisherDatumSupplier<T> implements AsyncDatumSupplier<Optional<T>> {
+
+  public static final int DEFAULT_PREFETCH = 64;
+
+  private final Publisher<T> publisher;
+  private final int          prefetch;
+  private final int          replenishAt;
+
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private final Queue<T>      buffer     = new ArrayDeque<>();
+
+  // all guarded by this
+  private Subscription                   subscription;
+  private CompletableFuture<Optional<T>> waiting;
+  private int                            takenSinceRequest;
+  private boolean                        completed;
+  private Throwable                      failure;
+
+  private PublisherDatumSupplier(Publisher<T> publisher, int prefetch) {
+    Preconditions.checkArgument(prefetch > 0, "prefetch must be positive: %s", prefetch);
+    this.publisher = Preconditions.checkNotNull(publisher, "publisher cannot be null");
+    this.prefetch = prefetch;
+    this.replenishAt = Math.max(1, prefetch / 2);
+  }
+
+  public static <T> PublisherDatumSupplier<T> of(Publisher<T> publisher) {
+    return of(publisher, DEFAULT_PREFETCH);
+  }
+
+  public static <T> PublisherDatumSupplier<T> of(Publisher<T> publisher, int prefetch) {
+    return new PublisherDatumSupplier<>(publisher, prefetch);
+  }
+
+  @Override
+  public CompletableFuture<Optional<T>> get() {
+    if (subscribed.compareAndSet(false, true)) {
+      publisher.subscribe(new ItemSubscriber());
+    }
+    CompletableFuture<Optional<T>> future;
+    synchronized (this) {
+      T item = buffer.poll();
+      if (item != null) {
+        future = CompletableFuture.completedFuture(Optional.of(item));
+      } else if (failure != null) {
+        future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+      } else if (completed) {
+        return CompletableFuture.completedFuture(Optional.empty());
+      } else {
+        waiting = new CompletableFuture<>();
+        return waiting;
+      }
+    }
+    itemTaken();
+    return future;
+  }
+
+  // never called while holding the lock: the publisher may well deliver the next items right away
+  private void itemTaken() {
+    Subscription toRequest;
+    int items;
+    synchronized (this) {
+      if (++takenSinceRequest < replenishAt) {
+        return;
+      }
+      toRequest = subscription;
+      items = takenSinceRequest;
+      takenSinceRequest = 0;
+    }
+    toRequest.request(items);
+  }
+
+  @Override
+  public void onError(Throwable cause) {
+    Subscription toCancel;
+    synchronized (this) {
+      toCancel = completed || failure != null ? null : subscription;
+    }
+    if (toCancel != null) {
+      toCancel.cancel();
+    }
+  }
+
+  private final class ItemSubscriber implements Subscriber<T> {
+
+    @Override
+    public void onSubscribe(Subscription newSubscription) {
+      synchronized (PublisherDatumSupplier.this) {
+        if (subscription != null) {
+          newSubscription.cancel();
+          return;
+        }
+        subscription = newSubscription;
+      }
+      newSubscription.request(prefetch);
+    }
+
+    @Override
+    public void onNext(T item) {
+      CompletableFuture<Optional<T>> future;
+      synchronized (PublisherDatumSupplier.this) {
+        future = waiting;
+        waiting = null;
+        if (future == null) {
+          buffer.add(item);
+          return;
+        }
+      }
+      future.complete(Optional.of(item));
+      itemTaken();
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+      CompletableFuture<Optional<T>> future;
+      synchronized (PublisherDatumSupplier.this) {
+        failure = cause;
+        future = waiting;
+        waiting = null;
+      }
+      if (future != null) {
+        future.completeExceptionally(cause);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      CompletableFuture<Optional<T>> future;
+      synchronized (PublisherDatumSupplier.this) {
+        completed = true;
+        future = waiting;
+        waiting = null;
+      }
+      if (future != null) {
+        future.complete(Optional.empty());
+      }
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import com.adobe.datum.common.util.SpscRingBuffer;
+import com.google.common.base.Preconditions;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Pulls items from a blocking supplier on a producer task into a {@link SpscRingBuffer}, so the event loop only ever
+ * drains the buffer. The producer runs on the given executor while the buffer has room and stops when it is full;
+ * draining the buffer schedules it again.
+ *
+ * <p>
+ * A consumer that finds the buffer empty parks on a future, which the producer completes with the next item directly.
+ * Only one future is outstanding at a time (see {@link AsyncDatumSupplier}), so whoever claims the parked future is the
+ * sole consumer of the buffer until it completes; that is the only case in which the producer task polls it.
+ *
+ * <p>
+ * {@link #onComplete()} and {@link #onError(Throwable)} reach the delegate only once the producer has stopped, so
+ * the delegate never sees a callback while one of its {@code get()} calls is still running.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type that this supplier can provide.
+ */
+final class ReadAheadDatumSupplier<T> implements AsyncDatumSupplier<Optional<T>> {
+
+  private static final Object END = new Object();
+
+  private final DatumSupplier<Optional<T>> delegate;
+  private final Executor                   executor;
+  private final SpscRingBuffer<Object>     buffer;
+
+  // true while a producer task is scheduled or running
+  private final AtomicBoolean producing = new AtomicBoolean();
+  private final AtomicBoolean closed    = new AtomicBoolean();
+
+  private final AtomicReference<CompletableFuture<Optional<T>>> waiting = new AtomicReference<>();
+
+  private volatile Consumer<DatumCallback> closeAction;
+  private volatile boolean                 finished;
+
+  private boolean started;
+  // item fetched by the producer that did not fit in the buffer yet
+  private Object  fetched;
+
+  ReadAheadDatumSupplier(DatumSupplier<Optional<T>> delegate, int depth, Executor executor) {
+    this.delegate = Preconditions.checkNotNull(delegate, "supplier cannot be null");
+    this.executor = Preconditions.checkNotNull(executor, "executor cannot be null");
+    this.buffer = SpscRingBuffer.of(depth);
+  }
+
+  @Override
+  public CompletableFuture<Optional<T>> get() {
+    if (!started) {
+      started = true;
+      wakeProducer();
+    }
+    Object entry = buffer.poll();
+    if (entry != null) {
+      wakeProducer();
+      return toFuture(entry);
+    }
+    CompletableFuture<Optional<T>> future = new CompletableFuture<>();
+    waiting.set(future);
+    // the producer may have filled the buffer before it could see the future; whoever claims it polls
+    if (!buffer.isEmpty() && waiting.compareAndSet(future, null)) {
+      complete(future, buffer.poll());
+      wakeProducer();
+    }
+    return future;
+  }
+
+  @Override
+  public void onComplete() {
+    close(DatumCallback::onComplete);
+  }
+
+  @Override
+  public void onError(Throwable cause) {
+    close(callback -> callback.onError(cause));
+  }
+
+  private void close(Consumer<DatumCallback> action) {
+    if (closeAction == null) {
+      closeAction = action;
+    }
+    if (producing.compareAndSet(false, true)) {
+      runCloseAction();
+    }
+  }
+
+  private void wakeProducer() {
+    if (!finished && producing.compareAndSet(false, true)) {
+      executor.execute(this::produce);
+    }
+  }
+
+  private void produce() {
+    do {
+      while (closeAction == null && (fetched != null || !finished)) {
+        if (fetched == null) {
+          fetched = fetch();
+        }
+        // only this task fills the buffer, so it stays empty until the item is handed over
+        CompletableFuture<Optional<T>> parked = buffer.isEmpty() ? waiting.getAndSet(null) : null;
+        if (parked == null && !buffer.offer(fetched)) {
+          break;
+        }
+        Object item = fetched;
+        finished = item == END;
+        fetched = null;
+        if (parked != null) {
+          complete(parked, item);
+          continue;
+        }
+        // the consumer parked between the check and the offer; claiming its future makes this task the consumer
+        parked = waiting.getAndSet(null);
+        if (parked != null) {
+          complete(parked, buffer.poll());
+        }
+      }
+      if (closeAction != null) {
+        runCloseAction();
+        return;
+      }
+      producing.set(false);
+      // the consumer may have drained the buffer or closed after the last check without seeing a producer
+    } while ((closeAction != null || !buffer.isFull() && (fetched != null || !finished))
+             && producing.compareAndSet(false, true));
+  }
+
+  private Object fetch() {
+    try {
+      Optional<T> item = delegate.get();
+      return item.isPresent() ? item.get() : END;
+    } catch (Throwable cause) {
+      return new Failure(cause);
+    }
+  }
+
+  private void runCloseAction() {
+    if (closed.compareAndSet(false, true)) {
+      closeAction.accept(delegate);
+    }
+  }
+
+  private void complete(CompletableFuture<Optional<T>> future, Object entry) {
+    if (entry instanceof Failure) {
+      future.completeExceptionally(((Failure) entry).cause);
+    } else {
+      future.complete(toItem(entry));
+    }
+  }
+
+  private CompletableFuture<Optional<T>> toFuture(Object entry) {
+    if (entry instanceof Failure) {
+      CompletableFuture<Optional<T>> future = new CompletableFuture<>();
+      future.completeExceptionally(((Failure) entry).cause);
+      return future;
+    }
+    return CompletableFuture.completedFuture(toItem(entry));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Optional<T> toItem(Object entry) {
+    return entry == END ? Optional.empty() : Optional.of((T) entry);
+  }
+
+  private static final class Failure {
+
+    private final Throwable cause;
+
+    private Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function;
+
+import java.util.Optional;
+
+/**
+ * Supplier of a stream that can be picked up again after an interruption. {@link #getPosition()} tells where the
+ * stream stands; a new supplier for the same request, started from that position, goes on with the item after the
+ * last one this supplier handed out.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type that this supplier can provide.
+ */
+public interface ResumableDatumSupplier<T> extends DatumSupplier<Optional<T>> {
+
+  /**
+   * @return an opaque token for the position right after the last item supplied
+   */
+  byte[] getPosition();
+
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.ConnectionSettings;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.handler.traffic.ChannelTrafficShapingHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunes the write buffer water marks of a connection toward its bandwidth-delay product, as measured from the bytes
+ * the connection wrote and, on epoll transports, the round trip time the kernel keeps for its socket. The high water
+ * mark is held at twice the product, within the bounds of the settings; while the buffer holds the connection back it
+ * grows further, since the measured throughput then understates what the link can carry. Without a round trip time
+ * the water marks only grow. A per-connection traffic shaper has its queue of delayed writes bounded alike.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class AdaptiveWaterMarkHandler extends ChannelDuplexHandler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveWaterMarkHandler.class);
+
+  static final int  MIN_HIGH_WATER_MARK = 8 * 1024; // 8 KB
+  static final long TUNING_INTERVAL_MILLIS = 250;
+
+  private final int maxHighWaterMark;
+
+  private ChannelHandlerContext context;
+  private ScheduledFuture<?>    tuning;
+  private long                  writtenBytes;
+  private long                  lastTuningNanos;
+  private boolean               pressured;
+
+  private AdaptiveWaterMarkHandler(int maxHighWaterMark) {
+    this.maxHighWaterMark = Math.max(maxHighWaterMark, MIN_HIGH_WATER_MARK);
+  }
+
+  public static AdaptiveWaterMarkHandler of(ConnectionSettings settings) {
+    return new AdaptiveWaterMarkHandler(settings.getMaxWriteBufferWaterMark());
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext context) {
+    this.context = context;
+    if (context.channel().isActive()) {
+      startTuning();
+    }
+  }
+
+  @Override
+  public void channelActive(ChannelHandlerContext context) throws Exception {
+    startTuning();
+    super.channelActive(context);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext context) throws Exception {
+    stopTuning();
+    super.channelInactive(context);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext context) {
+    stopTuning();
+  }
+
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext context) throws Exception {
+    if (!context.channel().isWritable()) {
+      pressured = true;
+    }
+    super.channelWritabilityChanged(context);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext context, Object message, ChannelPromise promise) throws Exception {
+    if (message instanceof ByteBuf) {
+      writtenBytes += ((ByteBuf) message).readableBytes();
+    } else if (message instanceof ByteBufHolder) {
+      writtenBytes += ((ByteBufHolder) message).content().readableBytes();
+    }
+    super.write(context, message, promise);
+  }
+
+  private void startTuning() {
+    if (tuning == null) {
+      lastTuningNanos = System.nanoTime();
+      tuning = context.executor().scheduleAtFixedRate(this::tune,
+                                                      TUNING_INTERVAL_MILLIS,
+                                                      TUNING_INTERVAL_MILLIS,
+                                                      TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void stopTuning() {
+    if (tuning != null) {
+      tuning.cancel(false);
+    }
+  }
+
+  private void tune() {
+    long now = System.nanoTime();
+    long elapsedMicros = Math.max(TimeUnit.NANOSECONDS.toMicros(now - lastTuningNanos), 1);
+    long bytesPerSecond = writtenBytes * TimeUnit.SECONDS.toMicros(1) / elapsedMicros;
+    boolean wasPressured = pressured || !context.channel().isWritable();
+    lastTuningNanos = now;
+    writtenBytes = 0;
+    pressured = false;
+    if (bytesPerSecond == 0) {
+      return;
+    }
+
+    ChannelConfig config = context.channel().config();
+    int highWaterMark = config.getWriteBufferHighWaterMark();
+    long rttMicros = rttMicros();
+    int tuned = nextHighWaterMark(highWaterMark, bytesPerSecond, rttMicros, wasPressured, maxHighWaterMark);
+    if (tuned != highWaterMark) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("{} bytes/s over {} us round trips, high water mark {} -> {}",
+                  bytesPerSecond, rttMicros, highWaterMark, tuned);
+      }
+      setWaterMarks(config, tuned);
+    }
+  }
+
+  /**
+   * @return the high water mark for the next interval, given the throughput and round trip time (negative if not
+   * known) of the last one and whether the water mark held the writer back during it
+   */
+  static int nextHighWaterMark(int highWaterMark,
+                               long bytesPerSecond,
+                               long rttMicros,
+                               boolean pressured,
+                               int maxHighWaterMark) {
+    long target = highWaterMark;
+    if (rttMicros > 0) {
+      target = 2 * bytesPerSecond * rttMicros / TimeUnit.SECONDS.toMicros(1);
+      if (target < highWaterMark) {
+        // shrink gradually; a single quiet interval should not undo what the busy ones found
+        target = (target + highWaterMark) / 2;
+      }
+    }
+    if (pressured && target <= highWaterMark) {
+      target = 2L * highWaterMark;
+    }
+    return (int) Math.max(MIN_HIGH_WATER_MARK, Math.min(maxHighWaterMark, target));
+  }
+
+  private long rttMicros() {
+    if (context.channel() instanceof EpollSocketChannel && context.channel().isOpen()) {
+      return ((EpollSocketChannel) context.channel()).tcpInfo().rtt();
+    }
+    return -1;
+  }
+
+  private void setWaterMarks(ChannelConfig config, int highWaterMark) {
+    // the low water mark may never exceed the high one, not even in between the two calls
+    if (highWaterMark > config.getWriteBufferHighWaterMark()) {
+      config.setWriteBufferHighWaterMark(highWaterMark);
+      config.setWriteBufferLowWaterMark(highWaterMark / 2);
+    } else {
+      config.setWriteBufferLowWaterMark(highWaterMark / 2);
+      config.setWriteBufferHighWaterMark(highWaterMark);
+    }
+
+    ChannelTrafficShapingHandler shaper = context.pipeline().get(ChannelTrafficShapingHandler.class);
+    if (shaper != null) {
+      shaper.setMaxWriteSize(highWaterMark);
+    }
+  }
+}
@@ -20,12 +20,15 @@
 package com.adobe.datum.common.handler;
 
 import com.adobe.datum.common.channel.ConnectionSettings;
+import com.adobe.datum.common.compress.DatumCompression;
 import com.adobe.datum.common.serialize.DatumDeserializer;
+import com.adobe.datum.common.serialize.DatumSerializer;
 import com.adobe.datum.common.serialize.ProtoDeserializer;
 import com.adobe.datum.common.serialize.ProtoSerializer;
 import io.netty.channel.ChannelHandler;
-import io.netty.handler.codec.protobuf.ProtobufVarint32LengthFieldPrepender;
+import io.netty.channel.ChannelPipeline;
 import io.netty.handler.traffic.ChannelTrafficShapingHandler;
+import java.util.function.Consumer;
 import static com.adobe.datum.common.api.DatumProto.DatumRequestProto;
 
 /**
@@ -34,17 +37,19 @@ import static com.adobe.datum.common.api.DatumProto.DatumRequestProto;
 public final class ChannelHandlers {
 
   private static final DatumLoggingHandler        LOGGING_HANDLER    = new DatumLoggingHandler();
-  private static final ChannelHandler             FRAME_ENCODER      = new ProtobufVarint32LengthFieldPrepender();
   private static final DatumStreamMetadataEncoder METADATA_ENCODER   = new DatumStreamMetadataEncoder();
   private static final StreamEndHandler           STREAM_END_HANDLER = new StreamEndHandler();
+  private static final CreditHandler              CREDIT_HANDLER     = new CreditHandler();
+
+  private static final String COMPRESSION_ENCODER_NAME = "compressionEncoder";
 
   @SuppressWarnings("unchecked")
   public static final DatumMessageDecoder<DatumRequestProto> REQUEST_DECODER =
       DatumMessageDecoder.of(DatumRequestProto.class, new ProtoDeserializer(DatumRequestProto.getDefaultInstance()));
 
   @SuppressWarnings("unchecked")
-  public static final DatumMessageEncoder<DatumRequestProto> REQUEST_ENCODER =
-      DatumMessageEncoder.of(DatumRequestProto.class, ProtoSerializer.getInstance());
+  public static final DatumFrameEncoder<DatumRequestProto> REQUEST_ENCODER =
+      DatumFrameEncoder.of(DatumRequestProto.class, ProtoSerializer.getInstance());
 
   private ChannelHandlers() { }
 
@@ -56,12 +61,41 @@ public final class ChannelHandlers {
     return METADATA_ENCODER;
   }
 
+  public static ChannelHandler creditHandler() {
+    return CREDIT_HANDLER;
+  }
+
   public static ChannelHandler frameDecoder() {
-    return new DatumFrameDecoder();
+    return frameDecoder(ConnectionSettings.getDefaultSettings());
+  }
+
+  public static ChannelHandler frameDecoder(ConnectionSettings settings) {
+    return new DatumFrameDecoder(settings.getMaxFrameSize());
   }
 
-  public static ChannelHandler frameEncoder() {
-    return FRAME_ENCODER;
+  public static <T> ChannelHandler frameEncoder(Class<T> payloadClass, DatumSerializer<T> serializer) {
+    return DatumFrameEncoder.of(payloadClass, serializer);
+  }
+
+  public static <T> ChannelHandler frameEncoder(Class<T> payloadClass,
+                                                DatumSerializer<T> serializer,
+                                                ConnectionSettings settings) {
+    return DatumFrameEncoder.of(payloadClass, serializer, settings.getBatchMaxBytes(), settings.getChunkSize());
+  }
+
+  /**
+   * Puts a compression stage in front of the metadata encoder if the channel negotiated a codec, so that everything
+   * written from then on, stream end included, is compressed.
+   */
+  public static void addCompressionEncoder(ChannelPipeline pipeline, ConnectionSettings settings) {
+    DatumCompression compression = pipeline.channel().attr(DatumCompression.CHANNEL_ATTRIBUTE).get();
+    if (compression != null && compression != DatumCompression.NONE) {
+      // blocks may grow a little when compressed and still have to fit in a frame on the other end
+      int blockSize = Math.min(DatumCompressionEncoder.DEFAULT_BLOCK_SIZE, settings.getMaxFrameSize() / 2);
+      pipeline.addBefore(pipeline.context(METADATA_ENCODER).name(),
+                         COMPRESSION_ENCODER_NAME,
+                         DatumCompressionEncoder.of(compression, blockSize));
+    }
   }
 
   public static ChannelHandler requestDecoder() {
@@ -79,13 +113,39 @@ public final class ChannelHandlers {
   public static <T> ChannelHandler[] inboundHandlers(Class<T> payloadClass,
                                                      DatumDeserializer<T> deserializer,
                                                      ChannelHandler inboundHandler) {
+    return inboundHandlers(payloadClass, deserializer, inboundHandler, ConnectionSettings.getDefaultSettings());
+  }
+
+  public static <T> ChannelHandler[] inboundHandlers(Class<T> payloadClass,
+                                                     DatumDeserializer<T> deserializer,
+                                                     ChannelHandler inboundHandler,
+                                                     ConnectionSettings settings) {
     return new ChannelHandler[] {
+        DatumChunkDecoder.of(deserializer, settings.getMaxFrameSize()),
         DatumMessageDecoder.of(payloadClass, deserializer),
         inboundHandler,
         streamEndHandler()
     };
   }
 
+  /**
+   * Handler that sets up the given stream pipeline on a plain connection, or on every stream of a multiplexed one.
+   */
+  public static ChannelHandler multiplexDetector(Consumer<ChannelPipeline> streamPipeline) {
+    return new DatumMultiplexDetector(streamPipeline);
+  }
+
+  public static ChannelHandler streamMultiplexer() {
+    return DatumStreamMultiplexer.of();
+  }
+
+  /**
+   * Handler that tunes the water marks of a connection to its bandwidth-delay product; goes after the traffic shapers.
+   */
+  public static ChannelHandler adaptiveWaterMarkHandler(ConnectionSettings settings) {
+    return AdaptiveWaterMarkHandler.of(settings);
+  }
+
   public static ChannelHandler[] trafficShapingHandlers(ConnectionSettings settings) {
     return new ChannelHandler[] {
         new ChannelTrafficShapingHandler(settings.getWriteBandwidth(),
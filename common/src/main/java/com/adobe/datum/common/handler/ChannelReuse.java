@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.compress.DatumCompression;
+import com.google.common.collect.ImmutableMap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.util.AttributeKey;
+import java.util.Map;
+
+/**
+ * Keeps a connection open for further requests once a stream ends, instead of closing it. A kept-alive channel
+ * remembers its pipeline as it was before the first request; when a stream ends, every handler added for the stream is
+ * removed, every handler the stream removed is put back and the per-stream state of the channel is cleared.
+ *
+ * <p>
+ * Both ends reset once they know that nothing more of the stream is on its way: the receiver echoes the stream end
+ * back to the sender before resetting, and the sender resets when it gets the echo, so that the credit the receiver
+ * granted meanwhile never leaks into the next stream. Handlers a stream removes from the pipeline must be sharable.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class ChannelReuse {
+
+  /**
+   * User event fired down the pipeline once it has been reset and the channel is ready for the next request.
+   */
+  public static final Object STREAM_RESET = "STREAM_RESET";
+
+  private static final AttributeKey<Map<String, ChannelHandler>> BASELINE = AttributeKey.valueOf("datumBaseline");
+
+  private ChannelReuse() { }
+
+  /**
+   * Keeps the channel open across streams, taking its pipeline as it is now as the state to reset to.
+   */
+  public static void keepAlive(Channel channel) {
+    channel.attr(BASELINE).setIfAbsent(ImmutableMap.copyOf(channel.pipeline().toMap()));
+  }
+
+  public static boolean isKeptAlive(Channel channel) {
+    return channel.attr(BASELINE).get() != null;
+  }
+
+  /**
+   * Puts the pipeline of a kept-alive channel back the way it was before the first request.
+   */
+  static void reset(Channel channel) {
+    Map<String, ChannelHandler> baseline = channel.attr(BASELINE).get();
+    ChannelPipeline pipeline = channel.pipeline();
+    // names are generated per pipeline, so a stream handler may well carry the name a removed one had
+    pipeline.toMap().forEach((name, handler) -> {
+      if (baseline.get(name) != handler) {
+        pipeline.remove(handler);
+      }
+    });
+
+    String previous = null;
+    for (Map.Entry<String, ChannelHandler> handler : baseline.entrySet()) {
+      if (pipeline.context(handler.getValue()) == null) {
+        if (previous == null) {
+          pipeline.addFirst(handler.getKey(), handler.getValue());
+        } else {
+          pipeline.addAfter(previous, handler.getKey(), handler.getValue());
+        }
+      }
+      previous = handler.getKey();
+    }
+
+    channel.attr(DatumCompression.CHANNEL_ATTRIBUTE).remove();
+    CreditWindow.reset(channel);
+    DatumFrameDecoder frameDecoder = pipeline.get(DatumFrameDecoder.class);
+    if (frameDecoder != null) {
+      frameDecoder.resetCompression();
+    }
+    pipeline.fireUserEventTriggered(STREAM_RESET);
+  }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.google.common.base.Preconditions;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * When {@link DatumChannelDownloadHandler} commits what its consumer took: every {@code interval} items, counting on
+ * from the {@code offset} items committed by earlier attempts at the same upload.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class CommitPolicy {
+
+  public static final int NO_COMMITS = 0;
+
+  /**
+   * Sends no commits at all.
+   */
+  public static final CommitPolicy NONE = of(NO_COMMITS, 0);
+
+  private final int  interval;
+  private final long offset;
+
+  private CommitPolicy(int interval, long offset) {
+    Preconditions.checkArgument(interval >= 0, "commit interval cannot be negative: %s", interval);
+    Preconditions.checkArgument(offset >= 0, "commit offset cannot be negative: %s", offset);
+    this.interval = interval;
+    this.offset = offset;
+  }
+
+  public static CommitPolicy of(int interval, long offset) {
+    return new CommitPolicy(interval, offset);
+  }
+
+  public boolean isEnabled() {
+    return interval != NO_COMMITS;
+  }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds the credit granted by the receiver to the {@link CreditWindow} of the channel. Lives in the pipeline from the
+ * start so that grants sent along with the stream start are not lost.
+ *
+ * @author Adobe Systems Inc.
+ */
+@ChannelHandler.Sharable
+public final class CreditHandler extends SimpleChannelInboundHandler<DatumCreditMessage> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CreditHandler.class);
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext context, DatumCreditMessage creditMessage) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("{} items of credit granted", creditMessage.getItems());
+    }
+
+    CreditWindow.grant(context.channel(), creditMessage.getItems());
+    context.fireUserEventTriggered(CreditWindow.CREDIT_GRANTED);
+  }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+/**
+ * Items the local end of a channel may still send, as granted by the receiver through
+ * {@link com.adobe.datum.common.channel.metadata.DatumCreditMessage}s. A channel only has a window once the receiver
+ * granted something; without one, the sender is held back by channel writability alone. Only ever touched from the
+ * event loop of its channel.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class CreditWindow {
+
+  /**
+   * User event fired down the pipeline whenever more credit has been granted.
+   */
+  public static final Object CREDIT_GRANTED = "CREDIT_GRANTED";
+
+  private static final AttributeKey<CreditWindow> ATTRIBUTE = AttributeKey.valueOf("datumCreditWindow");
+
+  private long available;
+
+  private CreditWindow() { }
+
+  public static void grant(Channel channel, int items) {
+    Attribute<CreditWindow> attribute = channel.attr(ATTRIBUTE);
+    attribute.setIfAbsent(new CreditWindow());
+    attribute.get().available += items;
+  }
+
+  /**
+   * @return number of items that may be sent right now; unbounded if the receiver never granted any credit
+   */
+  static long available(Channel channel) {
+    CreditWindow window = channel.attr(ATTRIBUTE).get();
+    return window == null ? Long.MAX_VALUE : window.available;
+  }
+
+  static void reset(Channel channel) {
+    channel.attr(ATTRIBUTE).remove();
+  }
+
+  static void consume(Channel channel, int items) {
+    CreditWindow window = channel.attr(ATTRIBUTE).get();
+    if (window != null) {
+      window.available -= items;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import java.util.List;
+
+/**
+ * Group of payloads written to the pipeline as a single message and encoded into one or more batch frames by
+ * {@link DatumFrameEncoder}.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type of the payload.
+ */
+@AllArgsConstructor(staticName = "of")
+@Getter
+final class DatumBatch<T> {
+
+  private final List<T> items;
+
+}
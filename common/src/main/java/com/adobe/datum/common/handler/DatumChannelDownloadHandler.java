@@ -19,14 +19,50 @@
 
 package com.adobe.datum.common.handler;
 
+import com.adobe.datum.common.channel.metadata.DatumCheckpointAckMessage;
+import com.adobe.datum.common.channel.metadata.DatumCheckpointMessage;
+import com.adobe.datum.common.channel.metadata.DatumCommitMessage;
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage;
+import com.adobe.datum.common.function.BatchPolicy;
+import com.adobe.datum.common.function.BatchingDatumConsumer;
 import com.adobe.datum.common.function.DatumCallback;
 import com.adobe.datum.common.function.DatumConsumer;
+import com.google.common.base.Preconditions;
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
+ * Hands every item read to the consumer. With a credit window, the sender was granted that many items up front and
+ * is granted more each time the consumer gets through half of the window, so no more than the window is ever in
+ * flight or buffered on this end.
+ *
+ * <p>
+ * Given an executor and a queue depth, the consumer runs on that executor instead of the event loop. Items are queued
+ * per stream and handed over in order; once the queue reaches its depth, reading from the channel is suspended until
+ * the consumer has worked it down to half. The consumer is completed only after it has taken every queued item.
+ *
+ * <p>
+ * A {@link BatchingDatumConsumer} gets its linger time applied here: each batch that has not filled up by then is
+ * passed on from a task scheduled on the event loop (or queued behind the items, when offloaded).
+ *
+ * <p>
+ * A {@link DatumCheckpointMessage} is acknowledged once the consumer has taken every item before it, partial batch
+ * included, and its position is handed to the checkpoint listener, if there is one.
+ *
+ * <p>
+ * With a {@link CommitPolicy}, a {@link DatumCommitMessage} goes back to the sender every interval items the consumer
+ * took, again once any partial batch has been passed on, so the sender can let go of everything up to it.
+ *
  * @author Adobe Systems Inc.
  * @param <T> Type of the payload.
  */
@@ -34,17 +70,101 @@ public final class DatumChannelDownloadHandler<T> extends SimpleChannelInboundHa
 
   private static final Logger LOG = LoggerFactory.getLogger(DatumChannelDownloadHandler.class);
 
-  private long readCount = 0;
+  public static final int NO_CREDIT = 0;
+  public static final int NO_OFFLOAD = 0;
+
+  // queued after the last item; completes the consumer once the queue has drained
+  private static final Object STREAM_FINISHED = new Object();
+
+  private long    readCount = 0;
+  private int     consumedSinceGrant;
+  private boolean finished;
 
   private final DatumConsumer<T> consumer;
   private final DatumCallback    callback;
+  private final int              creditWindow;
+  private final Executor         consumerExecutor;
+  private final int              queueDepth;
+  private final Consumer<byte[]> checkpointListener;
+  private final CommitPolicy     commitPolicy;
+
+  private final BatchingDatumConsumer<T> batchingConsumer;
+
+  private final Queue<Object> queue         = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued        = new AtomicInteger();
+  private final AtomicBoolean readSuspended = new AtomicBoolean();
+
+  // only touched by the drain task, which never runs concurrently with itself
+  private int     drainedSinceGrant;
+  private boolean consumerFailed;
+
+  // only touched by whichever thread the consumer runs on
+  private long committed;
+  private int  consumedSinceCommit;
 
   private final long startTimestamp = System.currentTimeMillis();
 
+  // where batches that have not filled up are given their linger time; the event loop unless replaced in tests
+  private LingerTimer lingerTimer =
+      (context, task, delayMillis) -> context.executor().schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+
   public DatumChannelDownloadHandler(Class<T> payloadType, DatumConsumer<T> consumer, DatumCallback callback) {
+    this(payloadType, consumer, callback, NO_CREDIT);
+  }
+
+  public DatumChannelDownloadHandler(Class<T> payloadType,
+                                     DatumConsumer<T> consumer,
+                                     DatumCallback callback,
+                                     int creditWindow) {
+    this(payloadType, consumer, callback, creditWindow, null, NO_OFFLOAD);
+  }
+
+  public DatumChannelDownloadHandler(Class<T> payloadType,
+                                     DatumConsumer<T> consumer,
+                                     DatumCallback callback,
+                                     int creditWindow,
+                                     Executor consumerExecutor,
+                                     int queueDepth) {
+    this(payloadType, consumer, callback, creditWindow, consumerExecutor, queueDepth, null);
+  }
+
+  /**
+   * @param checkpointListener takes the position of every checkpoint acknowledged, on the thread the consumer runs on;
+   *                           may be {@code null}
+   */
+  public DatumChannelDownloadHandler(Class<T> payloadType,
+                                     DatumConsumer<T> consumer,
+                                     DatumCallback callback,
+                                     int creditWindow,
+                                     Executor consumerExecutor,
+                                     int queueDepth,
+                                     Consumer<byte[]> checkpointListener) {
+    this(payloadType, consumer, callback, creditWindow, consumerExecutor, queueDepth, checkpointListener,
+         CommitPolicy.NONE);
+  }
+
+  @SuppressWarnings("unchecked")
+  public DatumChannelDownloadHandler(Class<T> payloadType,
+                                     DatumConsumer<T> consumer,
+                                     DatumCallback callback,
+                                     int creditWindow,
+                                     Executor consumerExecutor,
+                                     int queueDepth,
+                                     Consumer<byte[]> checkpointListener,
+                                     CommitPolicy commitPolicy) {
     super(payloadType);
+    Preconditions.checkNotNull(commitPolicy, "commit policy cannot be null");
+    Preconditions.checkArgument(queueDepth >= 0, "queue depth cannot be negative: %s", queueDepth);
+    Preconditions.checkArgument(queueDepth == NO_OFFLOAD || consumerExecutor != null, "executor cannot be null");
     this.consumer = consumer;
     this.callback = callback;
+    this.creditWindow = creditWindow;
+    this.consumerExecutor = consumerExecutor;
+    this.queueDepth = queueDepth;
+    this.checkpointListener = checkpointListener;
+    this.commitPolicy = commitPolicy;
+    this.committed = commitPolicy.getOffset();
+    this.batchingConsumer = consumer instanceof BatchingDatumConsumer ? (BatchingDatumConsumer<T>) consumer : null;
   }
 
   public static <T> DatumChannelDownloadHandler<T> of(Class<T> payloadType,
@@ -53,10 +173,197 @@ public final class DatumChannelDownloadHandler<T> extends SimpleChannelInboundHa
     return new DatumChannelDownloadHandler<>(payloadType, consumer, callback);
   }
 
+  public static <T> DatumChannelDownloadHandler<T> of(Class<T> payloadType,
+                                                      DatumConsumer<T> consumer,
+                                                      DatumCallback callback,
+                                                      int creditWindow) {
+    return new DatumChannelDownloadHandler<>(payloadType, consumer, callback, creditWindow);
+  }
+
+  public static <T> DatumChannelDownloadHandler<T> of(Class<T> payloadType,
+                                                      DatumConsumer<T> consumer,
+                                                      DatumCallback callback,
+                                                      int creditWindow,
+                                                      Executor consumerExecutor,
+                                                      int queueDepth) {
+    return new DatumChannelDownloadHandler<>(payloadType, consumer, callback, creditWindow, consumerExecutor,
+                                             queueDepth);
+  }
+
+  public static <T> DatumChannelDownloadHandler<T> of(Class<T> payloadType,
+                                                      DatumConsumer<T> consumer,
+                                                      DatumCallback callback,
+                                                      int creditWindow,
+                                                      Executor consumerExecutor,
+                                                      int queueDepth,
+                                                      Consumer<byte[]> checkpointListener) {
+    return new DatumChannelDownloadHandler<>(payloadType, consumer, callback, creditWindow, consumerExecutor,
+                                             queueDepth, checkpointListener);
+  }
+
+  public static <T> DatumChannelDownloadHandler<T> of(Class<T> payloadType,
+                                                      DatumConsumer<T> consumer,
+                                                      DatumCallback callback,
+                                                      int creditWindow,
+                                                      Executor consumerExecutor,
+                                                      int queueDepth,
+                                                      Consumer<byte[]> checkpointListener,
+                                                      CommitPolicy commitPolicy) {
+    return new DatumChannelDownloadHandler<>(payloadType, consumer, callback, creditWindow, consumerExecutor,
+                                             queueDepth, checkpointListener, commitPolicy);
+  }
+
+  void lingerWith(LingerTimer lingerTimer) {
+    this.lingerTimer = Preconditions.checkNotNull(lingerTimer, "linger timer cannot be null");
+  }
+
+  /**
+   * Number of items read from the stream so far; only up to date on the event loop, or once the stream ended.
+   */
+  public long getReadCount() {
+    return readCount;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext context, Object message) throws Exception {
+    if (!(message instanceof DatumCheckpointMessage)) {
+      super.channelRead(context, message);
+      return;
+    }
+    // the marker follows the items it covers, so it is queued behind them like one
+    if (queueDepth != NO_OFFLOAD) {
+      enqueue(context, message);
+      return;
+    }
+    checkpointReached(context, (DatumCheckpointMessage) message);
+  }
+
   @Override
   protected void channelRead0(ChannelHandlerContext context, T item) throws Exception {
-    consumer.accept(item);
     readCount++;
+    if (queueDepth != NO_OFFLOAD) {
+      enqueue(context, item);
+      return;
+    }
+    consumer.accept(item);
+    scheduleLinger(context);
+    commitIfDue(context);
+    if (creditWindow != NO_CREDIT && ++consumedSinceGrant >= Math.max(1, creditWindow / 2)) {
+      context.writeAndFlush(DatumCreditMessage.of(consumedSinceGrant));
+      consumedSinceGrant = 0;
+    }
+  }
+
+  private void enqueue(ChannelHandlerContext context, Object entry) {
+    queue.add(entry);
+    int size = queued.incrementAndGet();
+    if (size == 1) {
+      consumerExecutor.execute(() -> drain(context));
+    }
+    // checked on every item: something else (traffic shaping) may have turned reading back on meanwhile
+    ChannelConfig config = context.channel().config();
+    if (size >= queueDepth && config.isAutoRead()) {
+      readSuspended.set(true);
+      config.setAutoRead(false);
+      // the consumer may have worked the queue down before it could see the suspension
+      if (queued.get() <= queueDepth / 2 && readSuspended.compareAndSet(true, false)) {
+        config.setAutoRead(true);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void drain(ChannelHandlerContext context) {
+    int left;
+    do {
+      Object entry = queue.poll();
+      if (entry == STREAM_FINISHED) {
+        if (!consumerFailed) {
+          onComplete();
+        }
+      } else if (!consumerFailed) {
+        try {
+          if (entry instanceof LingerExpired) {
+            batchingConsumer.flush(((LingerExpired) entry).batchNumber);
+          } else if (entry instanceof DatumCheckpointMessage) {
+            checkpointReached(context, (DatumCheckpointMessage) entry);
+          } else {
+            consumer.accept((T) entry);
+            scheduleLinger(context);
+            commitIfDue(context);
+            grantCredit(context);
+          }
+        } catch (Throwable cause) {
+          consumerFailed = true;
+          exceptionCaught(context, cause);
+        }
+      }
+      left = queued.decrementAndGet();
+      if (left <= queueDepth / 2 && readSuspended.compareAndSet(true, false)) {
+        context.channel().eventLoop().execute(() -> resumeReading(context));
+      }
+    } while (left > 0);
+  }
+
+  private void scheduleLinger(ChannelHandlerContext context) {
+    if (batchingConsumer == null || batchingConsumer.size() != 1) {
+      return;
+    }
+    long lingerMillis = batchingConsumer.getPolicy().getLingerMillis();
+    if (lingerMillis != BatchPolicy.NO_LIMIT) {
+      long batchNumber = batchingConsumer.getBatchNumber();
+      lingerTimer.schedule(context, () -> lingerExpired(context, batchNumber), lingerMillis);
+    }
+  }
+
+  private void lingerExpired(ChannelHandlerContext context, long batchNumber) {
+    if (queueDepth != NO_OFFLOAD) {
+      enqueue(context, new LingerExpired(batchNumber));
+      return;
+    }
+    try {
+      batchingConsumer.flush(batchNumber);
+    } catch (Throwable cause) {
+      exceptionCaught(context, cause);
+    }
+  }
+
+  private void checkpointReached(ChannelHandlerContext context, DatumCheckpointMessage checkpoint) throws Exception {
+    // items still held back in a batch are not done with yet
+    if (batchingConsumer != null) {
+      batchingConsumer.flush();
+    }
+    context.writeAndFlush(DatumCheckpointAckMessage.of(checkpoint.getSequence()));
+    if (checkpointListener != null) {
+      checkpointListener.accept(checkpoint.getPosition());
+    }
+  }
+
+  private void commitIfDue(ChannelHandlerContext context) throws Exception {
+    if (!commitPolicy.isEnabled() || ++consumedSinceCommit < commitPolicy.getInterval()) {
+      return;
+    }
+    // items still held back in a batch are not committed yet
+    if (batchingConsumer != null) {
+      batchingConsumer.flush();
+    }
+    committed += consumedSinceCommit;
+    consumedSinceCommit = 0;
+    context.writeAndFlush(DatumCommitMessage.of(committed));
+  }
+
+  private void grantCredit(ChannelHandlerContext context) {
+    if (creditWindow != NO_CREDIT && ++drainedSinceGrant >= Math.max(1, creditWindow / 2)) {
+      context.writeAndFlush(DatumCreditMessage.of(drainedSinceGrant));
+      drainedSinceGrant = 0;
+    }
+  }
+
+  private void resumeReading(ChannelHandlerContext context) {
+    // reading was suspended again meanwhile; the consumer resumes it once more when it gets there
+    if (!readSuspended.get()) {
+      context.channel().config().setAutoRead(true);
+    }
   }
 
   @Override
@@ -69,9 +376,28 @@ public final class DatumChannelDownloadHandler<T> extends SimpleChannelInboundHa
 
   @Override
   public void channelUnregistered(ChannelHandlerContext context) throws Exception {
-    LOG.info("{} items successfully read in {}ms", readCount, System.currentTimeMillis() - startTimestamp);
     context.close();
-    context.executor().submit(this::onComplete);
+    streamFinished(context);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext context) {
+    // a kept-alive channel outlives the stream; its pipeline is reset without the channel going away
+    if (ChannelReuse.isKeptAlive(context.channel()) && context.channel().isActive()) {
+      streamFinished(context);
+    }
+  }
+
+  private void streamFinished(ChannelHandlerContext context) {
+    if (!finished) {
+      finished = true;
+      LOG.info("{} items successfully read in {}ms", readCount, System.currentTimeMillis() - startTimestamp);
+      if (queueDepth != NO_OFFLOAD) {
+        enqueue(context, STREAM_FINISHED);
+      } else {
+        context.executor().submit(this::onComplete);
+      }
+    }
   }
 
   private void onComplete() {
@@ -84,4 +410,21 @@ public final class DatumChannelDownloadHandler<T> extends SimpleChannelInboundHa
     callback.onError(cause);
   }
 
+  /**
+   * Runs a task once the given time has passed.
+   */
+  @FunctionalInterface
+  interface LingerTimer {
+
+    void schedule(ChannelHandlerContext context, Runnable task, long delayMillis);
+  }
+
+  private static final class LingerExpired {
+
+    private final long batchNumber;
+
+    private LingerExpired(long batchNumber) {
+      this.batchNumber = batchNumber;
+    }
+  }
 }
@@ -19,8 +19,13 @@
 
 package com.adobe.datum.common.handler;
 
+import com.adobe.datum.common.channel.ConnectionSettings;
 import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import com.adobe.datum.common.channel.metadata.DatumCheckpointAckMessage;
+import com.adobe.datum.common.channel.metadata.DatumCheckpointMessage;
+import com.adobe.datum.common.function.AsyncDatumSupplier;
 import com.adobe.datum.common.function.DatumCallback;
+import com.adobe.datum.common.function.DatumCheckpoints;
 import com.adobe.datum.common.function.DatumSupplier;
 import com.google.common.base.Preconditions;
 import io.netty.channel.ChannelHandlerContext;
@@ -29,12 +34,40 @@ import io.netty.channel.ChannelPromise;
 import io.netty.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import static java.lang.System.currentTimeMillis;
 
 /**
+ * Writes items from the supplier for as long as the channel stays writable. With a batch size larger than one, items
+ * are grouped into a {@link DatumBatch} that the {@link DatumFrameEncoder} turns into batch frames.
+ *
+ * <p>
+ * If the receiver grants credit, no more items than granted are written (see {@link CreditWindow}); writing stops
+ * when the credit runs out and picks up again with the next grant.
+ *
+ * <p>
+ * An {@link AsyncDatumSupplier} never blocks the event loop: while its future is pending, whatever was written so far
+ * is flushed and writing picks up again on the event loop once the future completes.
+ *
+ * <p>
+ * Within a turn, the {@link FlushPolicy} decides how often to flush; each flush is counted in {@link FlushMetrics}.
+ * A {@link WriteQuantum} ends the turn early, queueing the next one on the event loop so other channels get theirs.
+ *
+ * <p>
+ * A supplier that also implements {@link DatumCheckpoints} gets a {@link DatumCheckpointMessage} written right after
+ * each item that completes a checkpoint (a batch ends with such an item), and hears back once the receiver acknowledges
+ * it.
+ *
  * @author Adobe Systems Inc.
  * @param <T> Type of the payload.
  */
@@ -44,25 +77,134 @@ public class DatumChannelUploadHandler<T> extends ChannelInboundHandlerAdapter {
 
   private static final int MAX_SKIP_COUNT = 5;
 
-  private final DatumSupplier<Optional<T>> supplier;
-  private final DatumCallback              callback;
+  private final DatumSupplier<Optional<T>>      supplier;
+  private final AsyncDatumSupplier<Optional<T>> asyncSupplier;
+  private final DatumCallback                   callback;
+  private final int                             batchMaxItems;
+  private final FlushPolicy                     flushPolicy;
+  private final WriteQuantum                    writeQuantum;
+  private final DatumCheckpoints                checkpoints;
 
   private final long startTimestamp = currentTimeMillis();
 
   private final AtomicInteger writeCount    = new AtomicInteger(0);
   private final AtomicBoolean writeComplete = new AtomicBoolean(false);
 
+  private boolean supplierExhausted;
+
+  private ChannelHandlerContext          context;
+  private CompletableFuture<Optional<T>> pendingItem;
+  private int                            skipCount = MAX_SKIP_COUNT;
+
+  private final int[] flushCounts = new int[FlushMetrics.Cause.values().length];
+
+  private int     unflushedItems;
+  private long    unflushedBytes;
+  private long    firstUnflushedNanos;
+  private boolean flushedFirstItem;
+
+  // checkpoint reached with the last item collected, written right after the message that carries the item
+  private byte[] pendingCheckpoint;
+  private int    checkpointSequence;
+
+  private final Deque<SentCheckpoint> sentCheckpoints = new ArrayDeque<>();
+
   public DatumChannelUploadHandler(DatumSupplier<Optional<T>> supplier, DatumCallback callback) {
+    this(supplier, callback, 1);
+  }
+
+  public DatumChannelUploadHandler(DatumSupplier<Optional<T>> supplier, DatumCallback callback, int batchMaxItems) {
+    this(supplier, callback, batchMaxItems, FlushPolicy.END_OF_TURN);
+  }
+
+  public DatumChannelUploadHandler(DatumSupplier<Optional<T>> supplier,
+                                   DatumCallback callback,
+                                   int batchMaxItems,
+                                   FlushPolicy flushPolicy) {
+    this(supplier, callback, batchMaxItems, flushPolicy, WriteQuantum.UNLIMITED);
+  }
+
+  public DatumChannelUploadHandler(DatumSupplier<Optional<T>> supplier,
+                                   DatumCallback callback,
+                                   int batchMaxItems,
+                                   FlushPolicy flushPolicy,
+                                   WriteQuantum writeQuantum) {
+    this(Preconditions.checkNotNull(supplier, "supplier cannot be null"), null, callback, batchMaxItems, flushPolicy,
+         writeQuantum);
+  }
+
+  public DatumChannelUploadHandler(AsyncDatumSupplier<Optional<T>> asyncSupplier,
+                                   DatumCallback callback,
+                                   int batchMaxItems) {
+    this(asyncSupplier, callback, batchMaxItems, FlushPolicy.END_OF_TURN);
+  }
+
+  public DatumChannelUploadHandler(AsyncDatumSupplier<Optional<T>> asyncSupplier,
+                                   DatumCallback callback,
+                                   int batchMaxItems,
+                                   FlushPolicy flushPolicy) {
+    this(asyncSupplier, callback, batchMaxItems, flushPolicy, WriteQuantum.UNLIMITED);
+  }
+
+  public DatumChannelUploadHandler(AsyncDatumSupplier<Optional<T>> asyncSupplier,
+                                   DatumCallback callback,
+                                   int batchMaxItems,
+                                   FlushPolicy flushPolicy,
+                                   WriteQuantum writeQuantum) {
+    this(null, Preconditions.checkNotNull(asyncSupplier, "supplier cannot be null"), callback, batchMaxItems,
+         flushPolicy, writeQuantum);
+  }
+
+  private DatumChannelUploadHandler(DatumSupplier<Optional<T>> supplier,
+                                    AsyncDatumSupplier<Optional<T>> asyncSupplier,
+                                    DatumCallback callback,
+                                    int batchMaxItems,
+                                    FlushPolicy flushPolicy,
+                                    WriteQuantum writeQuantum) {
+    Preconditions.checkArgument(batchMaxItems > 0, "batch size must be positive: %s", batchMaxItems);
     this.supplier = supplier;
+    this.asyncSupplier = asyncSupplier;
     this.callback = callback;
+    this.batchMaxItems = batchMaxItems;
+    this.flushPolicy = Preconditions.checkNotNull(flushPolicy, "flush policy cannot be null");
+    this.writeQuantum = Preconditions.checkNotNull(writeQuantum, "write quantum cannot be null");
+    this.checkpoints = supplier instanceof DatumCheckpoints ? (DatumCheckpoints) supplier : null;
   }
 
   public static <T> DatumChannelUploadHandler<T> of(DatumSupplier<Optional<T>> supplier, DatumCallback callback) {
     return new DatumChannelUploadHandler<>(supplier, callback);
   }
 
+  public static <T> DatumChannelUploadHandler<T> of(DatumSupplier<Optional<T>> supplier,
+                                                    DatumCallback callback,
+                                                    ConnectionSettings settings) {
+    return new DatumChannelUploadHandler<>(supplier,
+                                           callback,
+                                           settings.getBatchMaxItems(),
+                                           FlushPolicy.of(settings),
+                                           WriteQuantum.of(settings));
+  }
+
+  public static <T> DatumChannelUploadHandler<T> of(AsyncDatumSupplier<Optional<T>> asyncSupplier,
+                                                    DatumCallback callback,
+                                                    ConnectionSettings settings) {
+    return new DatumChannelUploadHandler<>(asyncSupplier,
+                                           callback,
+                                           settings.getBatchMaxItems(),
+                                           FlushPolicy.of(settings),
+                                           WriteQuantum.of(settings));
+  }
+
+  /**
+   * Number of items written to the stream so far.
+   */
+  public int getWriteCount() {
+    return writeCount.get();
+  }
+
   @Override
   public void handlerAdded(ChannelHandlerContext context) {
+    this.context = context;
     startWriting(context);
   }
 
@@ -73,25 +215,125 @@ public class DatumChannelUploadHandler<T> extends ChannelInboundHandlerAdapter {
     }
   }
 
+  @Override
+  public void channelRead(ChannelHandlerContext context, Object message) throws Exception {
+    if (checkpoints != null && message instanceof DatumCheckpointAckMessage) {
+      checkpointAcknowledged(((DatumCheckpointAckMessage) message).getSequence());
+      return;
+    }
+    super.channelRead(context, message);
+  }
+
+  @Override
+  public void userEventTriggered(ChannelHandlerContext context, Object event) throws Exception {
+    if (event == CreditWindow.CREDIT_GRANTED && !writeComplete.get() && context.channel().isWritable()) {
+      startWriting(context);
+    }
+    super.userEventTriggered(context, event);
+  }
+
   private void startWriting(ChannelHandlerContext context) {
-    Optional item;
-    while ((item = getItem(MAX_SKIP_COUNT)).isPresent() && context.channel().isWritable()) {
-      context.write(item.get());
-      writeCount.incrementAndGet();
-    }
-    if (item.isPresent()) {
-      context.writeAndFlush(item.get());
-      writeCount.incrementAndGet();
-      writeComplete.set(false);
-    } else {
-      writeComplete.set(true);
-      sendStreamEndMessage(context);
+    int turnItems = 0;
+    long turnBytes = 0;
+    long credit;
+    while ((credit = CreditWindow.available(context.channel())) > 0) {
+      Optional message = nextMessage((int) Math.min(credit, batchMaxItems));
+      if (message == null) {
+        // waiting on the async supplier; writing resumes once its future completes
+        break;
+      }
+      if (!message.isPresent()) {
+        writeComplete.set(true);
+        sendStreamEndMessage(context);
+        return;
+      }
+      int items = message.get() instanceof DatumBatch ? ((DatumBatch) message.get()).getItems().size() : 1;
+      CreditWindow.consume(context.channel(), items);
+      turnBytes += write(context, message.get(), items);
+      turnItems += items;
+      writeCheckpoint(context);
+      if (!context.channel().isWritable()) {
+        flush(context, FlushMetrics.Cause.UNWRITABLE);
+        return;
+      }
+      if (writeQuantum.isUsedUp(turnItems, turnBytes)) {
+        flush(context, FlushMetrics.Cause.QUANTUM);
+        context.executor().execute(this::resumeWriting);
+        return;
+      }
+    }
+    // out of credit (or out of items for now); writing resumes once the receiver grants more
+    flush(context, FlushMetrics.Cause.END_OF_TURN);
+  }
+
+  private long write(ChannelHandlerContext context, Object message, int items) {
+    // encoding happens within write; counted as encoded, since compression may hold the frames back for a while
+    long encodedBytes = EncodedBytes.get(context.channel());
+    context.write(message);
+    long bytes = EncodedBytes.get(context.channel()) - encodedBytes;
+    unflushedBytes += bytes;
+    if (unflushedItems == 0) {
+      firstUnflushedNanos = System.nanoTime();
+    }
+    unflushedItems += items;
+
+    if (flushPolicy.getMaxItems() != FlushPolicy.NO_LIMIT && unflushedItems >= flushPolicy.getMaxItems()) {
+      flush(context, FlushMetrics.Cause.ITEMS);
+    } else if (flushPolicy.getMaxBytes() != FlushPolicy.NO_LIMIT && unflushedBytes >= flushPolicy.getMaxBytes()) {
+      flush(context, FlushMetrics.Cause.BYTES);
+    } else if (flushPolicy.getMaxLatencyMillis() != FlushPolicy.NO_LIMIT
+               && System.nanoTime() - firstUnflushedNanos
+                  >= TimeUnit.MILLISECONDS.toNanos(flushPolicy.getMaxLatencyMillis())) {
+      flush(context, FlushMetrics.Cause.LATENCY);
     }
+    return bytes;
+  }
+
+  private void writeCheckpoint(ChannelHandlerContext context) {
+    if (pendingCheckpoint == null) {
+      return;
+    }
+    int sequence = ++checkpointSequence;
+    sentCheckpoints.add(new SentCheckpoint(sequence, pendingCheckpoint));
+    context.write(DatumCheckpointMessage.of(sequence, pendingCheckpoint));
+    pendingCheckpoint = null;
+  }
+
+  private void checkpointAcknowledged(int sequence) {
+    // an acknowledgement covers all earlier checkpoints as well
+    SentCheckpoint acknowledged = null;
+    while (!sentCheckpoints.isEmpty() && sentCheckpoints.peek().sequence <= sequence) {
+      acknowledged = sentCheckpoints.poll();
+    }
+    if (acknowledged == null) {
+      return;
+    }
+    try {
+      checkpoints.onCheckpointAcknowledged(acknowledged.position);
+    } catch (RuntimeException e) {
+      LOG.warn("unable to handle the acknowledgement of checkpoint " + acknowledged.sequence, e);
+    }
+  }
+
+  private void flush(ChannelHandlerContext context, FlushMetrics.Cause cause) {
+    context.flush();
+    if (unflushedItems == 0) {
+      return;
+    }
+    flushCounts[cause.ordinal()]++;
+    FlushMetrics.global().recordFlush(cause, unflushedItems, unflushedBytes);
+    if (!flushedFirstItem) {
+      flushedFirstItem = true;
+      FlushMetrics.global().recordFirstFlush(currentTimeMillis() - startTimestamp);
+    }
+    unflushedItems = 0;
+    unflushedBytes = 0;
   }
 
   private void sendStreamEndMessage(ChannelHandlerContext context) {
     ChannelPromise promise = context.newPromise().addListener(this::streamEnded);
-    context.writeAndFlush(ChannelMetadata.streamEndMessage(), promise);
+    context.write(ChannelMetadata.streamEndMessage(), promise);
+    flush(context, FlushMetrics.Cause.STREAM_END);
   }
 
   private void streamEnded(Future future) {
@@ -100,6 +342,9 @@ public class DatumChannelUploadHandler<T> extends ChannelInboundHandlerAdapter {
     long timeSpent = currentTimeMillis() - startTimestamp;
     if (future.isSuccess()) {
       LOG.info("Wrote {} items to stream in {}ms.", writeCount.get(), timeSpent);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("flushes by cause: {}", flushCountsByCause());
+      }
       onComplete();
     } else {
       LOG.info("Error while writing to stream. Final write count: {}, time taken: {}ms.", writeCount.get(), timeSpent);
@@ -107,6 +352,97 @@ public class DatumChannelUploadHandler<T> extends ChannelInboundHandlerAdapter {
     }
   }
 
+  /**
+   * @return the next item or batch, empty once the supplier is exhausted, or {@code null} while an async item is
+   * pending and nothing has been collected yet.
+   */
+  private Optional nextMessage(int maxItems) {
+    if (maxItems == 1) {
+      Optional item = nextItem();
+      if (item != null && item.isPresent()) {
+        writeCount.incrementAndGet();
+      }
+      return item;
+    }
+
+    List<Object> items = new ArrayList<>(maxItems);
+    Optional item = null;
+    // a checkpoint ends the batch, so that its marker follows the item it was reached with
+    while (items.size() < maxItems && pendingCheckpoint == null && (item = nextItem()) != null && item.isPresent()) {
+      items.add(item.get());
+    }
+    writeCount.addAndGet(items.size());
+    if (items.isEmpty()) {
+      return item == null ? null : Optional.empty();
+    }
+    return Optional.of(DatumBatch.of(items));
+  }
+
+  private Optional nextItem() {
+    if (supplierExhausted) {
+      return Optional.empty();
+    }
+    Optional item = asyncSupplier == null ? getItem(MAX_SKIP_COUNT) : getAsyncItem();
+    supplierExhausted = item != null && !item.isPresent();
+    if (checkpoints != null && item != null && item.isPresent()) {
+      pendingCheckpoint = checkpoints.takeCheckpoint().orElse(null);
+    }
+    return item;
+  }
+
+  /**
+   * Consumes the outstanding future if it is done, otherwise requests a new one. Returns {@code null} if the item is
+   * not available yet; the future then restarts writing on the event loop when it completes.
+   */
+  private Optional getAsyncItem() {
+    while (true) {
+      if (pendingItem == null) {
+        pendingItem = requestItem();
+        if (!pendingItem.isDone()) {
+          pendingItem.whenComplete((item, cause) -> context.executor().execute(this::resumeWriting));
+        }
+      }
+      if (!pendingItem.isDone()) {
+        return null;
+      }
+      CompletableFuture<Optional<T>> future = pendingItem;
+      pendingItem = null;
+      try {
+        Optional item = future.join();
+        skipCount = MAX_SKIP_COUNT;
+        return item;
+      } catch (CompletionException | CancellationException e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (skipCount-- == 0) {
+          throw new IllegalStateException("unable to continue; skips expired", cause);
+        }
+        LOG.warn("skipping one item due to supplier error", cause);
+      }
+    }
+  }
+
+  private CompletableFuture<Optional<T>> requestItem() {
+    try {
+      CompletableFuture<Optional<T>> future = asyncSupplier.get();
+      return Preconditions.checkNotNull(future, "async supplier returned no future");
+    } catch (Throwable cause) {
+      CompletableFuture<Optional<T>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(cause);
+      return failed;
+    }
+  }
+
+  private void resumeWriting() {
+    if (context.isRemoved() || writeComplete.get() || !context.channel().isWritable()) {
+      return;
+    }
+    try {
+      startWriting(context);
+    } catch (Throwable cause) {
+      exceptionCaught(context, cause);
+    }
+  }
+
   private Optional getItem(int skipCount) {
     try {
       return supplier.get();
@@ -127,12 +463,35 @@ public class DatumChannelUploadHandler<T> extends ChannelInboundHandlerAdapter {
   }
 
   private void onComplete() {
-    supplier.onComplete();
+    supplierCallback().onComplete();
     callback.onComplete();
   }
 
   private void onError(Throwable cause) {
-    supplier.onError(cause);
+    supplierCallback().onError(cause);
     callback.onError(cause);
   }
+
+  private String flushCountsByCause() {
+    StringBuilder counts = new StringBuilder();
+    for (FlushMetrics.Cause cause : FlushMetrics.Cause.values()) {
+      counts.append(counts.length() == 0 ? "" : ", ").append(cause).append('=').append(flushCounts[cause.ordinal()]);
+    }
+    return counts.toString();
+  }
+
+  private DatumCallback supplierCallback() {
+    return asyncSupplier == null ? supplier : asyncSupplier;
+  }
+
+  private static final class SentCheckpoint {
+
+    private final int    sequence;
+    private final byte[] position;
+
+    private SentCheckpoint(int sequence, byte[] position) {
+      this.sequence = sequence;
+      this.position = position;
+    }
+  }
 }
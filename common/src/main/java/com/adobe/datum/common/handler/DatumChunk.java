@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * One piece of a payload that was split into chunk frames, as emitted by {@link DatumFrameDecoder}.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class DatumChunk extends DefaultByteBufHolder {
+
+  private final boolean last;
+
+  DatumChunk(ByteBuf content, boolean last) {
+    super(content);
+    this.last = last;
+  }
+
+  boolean isLast() {
+    return last;
+  }
+}
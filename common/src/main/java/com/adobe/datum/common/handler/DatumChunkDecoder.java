@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.serialize.DatumChunkReader;
+import com.adobe.datum.common.serialize.DatumDeserializer;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import java.util.List;
+
+/**
+ * Feeds chunk frames to a {@link DatumChunkReader} as they arrive and passes the payload on once the last chunk has
+ * been read. Keeps per-stream state, so a new instance is needed for every channel.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type object to deserialize the chunks into.
+ */
+public class DatumChunkDecoder<T> extends MessageToMessageDecoder<DatumChunk> {
+
+  private final DatumDeserializer<T> deserializer;
+  private final int                  maxLength;
+
+  private DatumChunkReader<T> reader;
+
+  public DatumChunkDecoder(DatumDeserializer<T> deserializer, int maxLength) {
+    this.deserializer = deserializer;
+    this.maxLength = maxLength;
+  }
+
+  public static <T> DatumChunkDecoder<T> of(DatumDeserializer<T> deserializer, int maxLength) {
+    return new DatumChunkDecoder<>(deserializer, maxLength);
+  }
+
+  @Override
+  protected void decode(ChannelHandlerContext context, DatumChunk chunk, List<Object> out) throws Exception {
+    if (reader == null) {
+      reader = deserializer.newChunkReader(maxLength);
+    }
+
+    try {
+      reader.read(chunk.content());
+      if (chunk.isLast()) {
+        DatumChunkReader<T> completed = reader;
+        reader = null;
+        out.add(completed.complete());
+      }
+    } catch (Throwable cause) {
+      abort();
+      throw cause;
+    }
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext context) {
+    abort();
+  }
+
+  private void abort() {
+    if (reader != null) {
+      reader.abort();
+      reader = null;
+    }
+  }
+}
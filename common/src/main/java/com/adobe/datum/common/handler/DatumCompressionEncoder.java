@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import com.adobe.datum.common.compress.DatumCompression;
+import com.adobe.datum.common.compress.DatumCompressor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Compresses the encoded outbound stream of a channel into blocks (see {@link ChannelMetadata#compressedMessage()}).
+ * Buffers are gathered until a block is full or the channel is flushed, so the codec sees more than one small frame at
+ * a time, and the promise of every write completes with the write of the block that holds its last byte.
+ *
+ * <p>
+ * The first {@link #SAMPLE_SIZE} bytes are used to decide whether the stream is worth compressing at all. If they do
+ * not shrink by at least {@link #MIN_SAVING_PERCENT}%, everything gathered so far is sent as a last block and any
+ * further buffers go out as they are.
+ *
+ * @author Adobe Systems Inc.
+ */
+public class DatumCompressionEncoder extends ChannelOutboundHandlerAdapter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DatumCompressionEncoder.class);
+
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024; // 64 KB
+
+  static final int SAMPLE_SIZE        = 256 * 1024; // 256 KB
+  static final int MIN_SAVING_PERCENT = 10;
+
+  private static final int MAX_HEADER_SIZE = 16;
+
+  private final DatumCompression    compression;
+  private final DatumCompressor     compressor;
+  private final int                 blockSize;
+  private final Queue<PendingWrite> pendingWrites = new ArrayDeque<>();
+
+  private CompositeByteBuf pending;
+  private long             bytesGathered;
+  private long             bytesCompressed;
+  private long             sampleOutput;
+  private boolean          sampled;
+  private boolean          passThrough;
+
+  public DatumCompressionEncoder(DatumCompression compression, int blockSize) {
+    this.compression = compression;
+    this.compressor = compression.newCompressor().orElseThrow(
+        () -> new IllegalArgumentException("nothing to compress with for " + compression));
+    this.blockSize = blockSize;
+  }
+
+  public static DatumCompressionEncoder of(DatumCompression compression, int blockSize) {
+    return new DatumCompressionEncoder(compression, blockSize);
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) {
+    pending = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    if (passThrough) {
+      ctx.write(msg, promise);
+      return;
+    }
+    if (!(msg instanceof ByteBuf)) {
+      // keep the stream in order around anything this handler does not compress
+      writePending(ctx);
+      ctx.write(msg, promise);
+      return;
+    }
+
+    ByteBuf buf = (ByteBuf) msg;
+    bytesGathered += buf.readableBytes();
+    pending.addComponent(buf);
+    pending.writerIndex(pending.writerIndex() + buf.readableBytes());
+    pendingWrites.add(new PendingWrite(promise, bytesGathered));
+    while (!passThrough && pending.readableBytes() >= blockSize) {
+      writeBlock(ctx, blockSize);
+    }
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) {
+    writePending(ctx);
+    ctx.flush();
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) {
+    release(new ClosedChannelException());
+  }
+
+  private void writePending(ChannelHandlerContext ctx) {
+    if (!passThrough && pending.isReadable()) {
+      writeBlock(ctx, pending.readableBytes());
+    }
+  }
+
+  private void writeBlock(ChannelHandlerContext ctx, int length) {
+    ByteBuf compressed = ctx.alloc().heapBuffer(length);
+    ByteBuf header = ctx.alloc().buffer(MAX_HEADER_SIZE);
+    try {
+      compressor.compress(pending.readSlice(length), compressed);
+      ChannelMetadata.writeCompressedHeader(compression.getCode(), compressed.readableBytes(), header);
+    } catch (Throwable t) {
+      compressed.release();
+      header.release();
+      throw t;
+    }
+    pending.discardReadComponents();
+    bytesCompressed += length;
+
+    CompositeByteBuf block = ctx.alloc().compositeBuffer(2).addComponents(header, compressed);
+    block.writerIndex(header.readableBytes() + compressed.readableBytes());
+    ChannelFuture future = ctx.write(block);
+    while (!pendingWrites.isEmpty() && pendingWrites.peek().end <= bytesCompressed) {
+      ChannelPromise promise = pendingWrites.poll().promise;
+      future.addListener(written -> {
+        if (written.isSuccess()) {
+          promise.trySuccess();
+        } else {
+          promise.tryFailure(written.cause());
+        }
+      });
+    }
+
+    if (!sampled) {
+      sampleOutput += compressed.readableBytes();
+      if (bytesCompressed >= SAMPLE_SIZE) {
+        sampled = true;
+        if (sampleOutput * 100 > bytesCompressed * (100 - MIN_SAVING_PERCENT)) {
+          stopCompressing(ctx);
+        }
+      }
+    }
+  }
+
+  /**
+   * Blocks always end where a gathered buffer ends, so once the pending bytes are out the peer can switch back to
+   * plain frames.
+   */
+  private void stopCompressing(ChannelHandlerContext ctx) {
+    LOG.debug("{} saves less than {}% on the first {} bytes, sending the rest of the stream uncompressed",
+              compression, MIN_SAVING_PERCENT, bytesCompressed);
+    writePending(ctx);
+    passThrough = true;
+    // every write went out with the last block, so this fails none of them
+    release(new IllegalStateException("stopped compressing"));
+  }
+
+  private void release(Throwable cause) {
+    if (pending == null) {
+      return;
+    }
+    for (PendingWrite write = pendingWrites.poll(); write != null; write = pendingWrites.poll()) {
+      write.promise.tryFailure(cause);
+    }
+    pending.release();
+    pending = null;
+    compressor.close();
+  }
+
+  @AllArgsConstructor
+  private static final class PendingWrite {
+
+    private final ChannelPromise promise;
+    private final long           end;
+
+  }
+}
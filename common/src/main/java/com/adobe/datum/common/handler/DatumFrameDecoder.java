@@ -20,12 +20,17 @@
 package com.adobe.datum.common.handler;
 
 import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import com.adobe.datum.common.channel.metadata.ControlMessageType;
 import com.adobe.datum.common.channel.metadata.DatumMetadataMessage;
-import com.google.protobuf.CodedInputStream;
+import com.adobe.datum.common.compress.DatumCompression;
+import com.adobe.datum.common.compress.DatumDecompressor;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,40 +38,262 @@ import java.util.Optional;
  * Based on {@link io.netty.handler.codec.protobuf.ProtobufVarint32FrameDecoder}.
  * Adds ability to decode special messages based on Integer.MAX_VALUE length.
  *
+ * <p>
+ * Batch frames (see {@link ChannelMetadata#batchMessage()}) are only emitted once they have been received completely
+ * and are split back into one buffer per payload, so handlers further up never see the batch itself. Chunk frames (see
+ * {@link ChannelMetadata#chunkMessage()}) are emitted one by one for {@link DatumChunkDecoder} to put back together.
+ * Control frames (see {@link ChannelMetadata#controlMessage()}) are emitted as the
+ * {@link com.adobe.datum.common.channel.metadata.DatumControlMessage} they carry.
+ *
+ * <p>
+ * No frame, batch or chunk longer than {@code maxFrameSize} is ever buffered; a {@link TooLongFrameException} is
+ * raised as soon as such a length is read, as the stream cannot be recovered from that point on.
+ *
+ * <p>
+ * Compressed blocks (see {@link ChannelMetadata#compressedMessage()}) are inflated into a second cumulation, from which
+ * frames are decoded exactly as above. A frame may span several blocks, but the stream only ever falls back to plain
+ * frames at a frame boundary. A compression announcement records the codec chosen by the peer as the
+ * {@link DatumCompression#CHANNEL_ATTRIBUTE} of the channel, so that this end can compress what it sends back.
+ *
  * @author Adobe Systems Inc.
  */
 public class DatumFrameDecoder extends ByteToMessageDecoder {
 
+  private static final Logger LOG = LoggerFactory.getLogger(DatumFrameDecoder.class);
+
+  static final int INCOMPLETE = -1;
+
+  private final int maxFrameSize;
+
+  private DatumCompression  compression;
+  private DatumDecompressor decompressor;
+  private ByteBuf           inflated;
+
+  public DatumFrameDecoder(int maxFrameSize) {
+    this.maxFrameSize = maxFrameSize;
+  }
+
   @Override
   protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
     in.markReaderIndex();
-    final byte[] buf = new byte[5];
-    for (int i = 0; i < buf.length; i ++) {
-      if (!in.isReadable()) {
-        in.resetReaderIndex();
+    int length = readRawVarint32(in);
+    if (length == INCOMPLETE) {
+      in.resetReaderIndex();
+      return;
+    }
+
+    if (ChannelMetadata.compressionMessage().getMessageCode() == length) {
+      decodeAnnouncement(ctx, in);
+    } else if (ChannelMetadata.compressedMessage().getMessageCode() == length) {
+      decodeCompressed(ctx, in, out);
+    } else {
+      if (inflated != null && inflated.isReadable()) {
+        throw new CorruptedFrameException("plain frame received within a compressed frame");
+      }
+      decodeFrame(in, length, out);
+    }
+  }
+
+  private void decodeFrame(ByteBuf in, int length, List<Object> out) {
+    Optional<DatumMetadataMessage> metadataMessage = ChannelMetadata.fromMessageCode(length);
+    if (metadataMessage.isPresent()) {
+      DatumMetadataMessage message = metadataMessage.get();
+      if (ChannelMetadata.batchMessage().equals(message)) {
+        decodeBatch(in, out);
+      } else if (ChannelMetadata.chunkMessage().equals(message) || ChannelMetadata.lastChunkMessage().equals(message)) {
+        decodeChunk(in, out, ChannelMetadata.lastChunkMessage().equals(message));
+      } else if (ChannelMetadata.controlMessage().equals(message)) {
+        decodeControl(in, out);
+      } else if (ChannelMetadata.compressionMessage().equals(message)
+                 || ChannelMetadata.compressedMessage().equals(message)) {
+        throw new CorruptedFrameException("compression frame nested in a compressed block");
+      } else if (ChannelMetadata.streamDataMessage().equals(message)
+                 || ChannelMetadata.streamCloseMessage().equals(message)) {
+        throw new CorruptedFrameException("stream frame received outside of a multiplexed connection");
+      } else {
+        out.add(message);
+      }
+      return;
+    }
+
+    checkFrameSize(length);
+    if (in.readableBytes() < length) {
+      in.resetReaderIndex();
+      return;
+    }
+    // hand out a view of the cumulation instead of copying the frame; released once deserialized
+    out.add(in.readSlice(length).retain());
+  }
+
+  private void decodeControl(ByteBuf in, List<Object> out) {
+    int type = readRawVarint32(in);
+    if (type == INCOMPLETE) {
+      in.resetReaderIndex();
+      return;
+    }
+    int bodyLength = readFrameLength(in);
+    if (bodyLength == INCOMPLETE) {
+      return;
+    }
+
+    ByteBuf body = in.readSlice(bodyLength);
+    Optional<ControlMessageType> controlType = ControlMessageType.fromCode(type);
+    if (!controlType.isPresent()) {
+      LOG.debug("skipping control frame of unknown type {}", type);
+      return;
+    }
+    try {
+      out.add(controlType.get().read(body));
+    } catch (RuntimeException e) {
+      throw new CorruptedFrameException("invalid " + controlType.get() + " control frame", e);
+    }
+  }
+
+  private void decodeAnnouncement(ChannelHandlerContext ctx, ByteBuf in) {
+    int codec = readRawVarint32(in);
+    if (codec == INCOMPLETE) {
+      in.resetReaderIndex();
+      return;
+    }
+    ctx.channel().attr(DatumCompression.CHANNEL_ATTRIBUTE).set(DatumCompression.fromCode(codec));
+  }
+
+  private void decodeCompressed(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+    int codec = readRawVarint32(in);
+    if (codec == INCOMPLETE) {
+      in.resetReaderIndex();
+      return;
+    }
+    int blockLength = readFrameLength(in);
+    if (blockLength == INCOMPLETE) {
+      return;
+    }
+
+    if (decompressor == null) {
+      compression = DatumCompression.fromCode(codec);
+      decompressor = compression.newDecompressor().orElseThrow(
+          () -> new CorruptedFrameException("compressed block of an uncompressed stream"));
+      inflated = ctx.alloc().heapBuffer();
+    } else if (compression.getCode() != codec) {
+      throw new CorruptedFrameException("compressed block switches from " + compression + " to codec " + codec);
+    }
+
+    prepareInflated(ctx);
+    decompressor.decompress(in.readSlice(blockLength), inflated, maxFrameSize);
+    while (inflated.isReadable()) {
+      int readerIndex = inflated.readerIndex();
+      inflated.markReaderIndex();
+      int length = readRawVarint32(inflated);
+      if (length == INCOMPLETE) {
+        inflated.resetReaderIndex();
         return;
       }
+      decodeFrame(inflated, length, out);
+      if (inflated.readerIndex() == readerIndex) {
+        return;
+      }
+    }
+  }
 
-      buf[i] = in.readByte();
-      if (buf[i] >= 0) {
-        int length = CodedInputStream.newInstance(buf, 0, i + 1).readRawVarint32();
-        if (length < 0) {
-          throw new CorruptedFrameException("negative length: " + length);
-        }
+  /**
+   * Makes room for the next block the way {@link ByteToMessageDecoder} treats its own cumulation: slices handed out
+   * from the inflated bytes keep them alive, so those are never moved or overwritten.
+   */
+  private void prepareInflated(ChannelHandlerContext ctx) {
+    if (inflated.refCnt() > 1) {
+      ByteBuf previous = inflated;
+      inflated = ctx.alloc().heapBuffer(Math.max(previous.readableBytes(), 256));
+      inflated.writeBytes(previous);
+      previous.release();
+    } else if (!inflated.isReadable()) {
+      inflated.clear();
+    } else {
+      inflated.discardSomeReadBytes();
+    }
+  }
 
-        Optional<DatumMetadataMessage> metadataMessage = ChannelMetadata.fromMessageCode(length);
-        if (metadataMessage.isPresent()) {
-          out.add(metadataMessage.get());
-          return;
-        }
+  @Override
+  protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+    resetCompression();
+  }
+
+  /**
+   * Forgets the codec of the current stream, as the next stream on the same channel starts a compressed one afresh.
+   */
+  void resetCompression() {
+    if (decompressor != null) {
+      decompressor.close();
+      decompressor = null;
+      compression = null;
+      inflated.release();
+      inflated = null;
+    }
+  }
+
+  private void decodeBatch(ByteBuf in, List<Object> out) {
+    int batchLength = readFrameLength(in);
+    if (batchLength == INCOMPLETE) {
+      return;
+    }
+
+    int batchEnd = in.readerIndex() + batchLength;
+    while (in.readerIndex() < batchEnd) {
+      int length = readRawVarint32(in);
+      if (length == INCOMPLETE || length > batchEnd - in.readerIndex()) {
+        throw new CorruptedFrameException("frame exceeds the boundary of its batch");
+      }
+      out.add(in.readSlice(length).retain());
+    }
+  }
+
+  private void decodeChunk(ByteBuf in, List<Object> out, boolean last) {
+    int chunkLength = readFrameLength(in);
+    if (chunkLength == INCOMPLETE) {
+      return;
+    }
+    out.add(new DatumChunk(in.readSlice(chunkLength).retain(), last));
+  }
+
+  /**
+   * Reads the length that follows a batch or chunk header.
+   *
+   * @return length of the frame, or {@link #INCOMPLETE} (with the reader index reset) if it has not fully arrived yet
+   */
+  private int readFrameLength(ByteBuf in) {
+    int length = readRawVarint32(in);
+    if (length != INCOMPLETE) {
+      checkFrameSize(length);
+      if (in.readableBytes() >= length) {
+        return length;
+      }
+    }
+    in.resetReaderIndex();
+    return INCOMPLETE;
+  }
+
+  private void checkFrameSize(int length) {
+    if (length > maxFrameSize) {
+      throw new TooLongFrameException("frame length " + length + " exceeds " + maxFrameSize);
+    }
+  }
+
+  /**
+   * @return decoded value, or {@link #INCOMPLETE} if the buffer ends before the varint does
+   */
+  static int readRawVarint32(ByteBuf in) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      if (!in.isReadable()) {
+        return INCOMPLETE;
+      }
 
-        if (in.readableBytes() < length) {
-          in.resetReaderIndex();
-          return;
-        } else {
-          out.add(in.readBytes(length));
-          return;
+      byte b = in.readByte();
+      result |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        if (result < 0) {
+          throw new CorruptedFrameException("negative length: " + result);
         }
+        return result;
       }
     }
 
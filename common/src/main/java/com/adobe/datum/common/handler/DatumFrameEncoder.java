@@ -0,0 +1,387 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.ChannelUtil;
+import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import com.adobe.datum.common.serialize.DatumSerializer;
+import com.adobe.datum.common.util.ProtoUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.internal.TypeParameterMatcher;
+import java.util.List;
+
+/**
+ * Serializes a payload straight into a pooled buffer together with its varint length prefix, so every frame is
+ * produced by a single allocation. Wire format is the same as
+ * {@link io.netty.handler.codec.protobuf.ProtobufVarint32LengthFieldPrepender}.
+ *
+ * <p>
+ * If the serializer cannot tell the size upfront, the widest possible prefix is reserved in front of the payload and
+ * the buffer's reader index is moved past the unused part of it once the actual length is known.
+ *
+ * <p>
+ * A {@link DatumBatch} is written as a sequence of batch frames of at most {@code maxBatchBytes} each (a single payload
+ * larger than that still gets a batch of its own). Payloads are framed exactly as above inside the batch.
+ *
+ * <p>
+ * Payloads larger than {@code chunkSize} are split into chunk frames of at most that many bytes, which bounds the size
+ * of every frame on the wire. The payload is still serialized whole before it is split; whether the receiving end
+ * holds it whole as well is up to its {@link com.adobe.datum.common.serialize.DatumChunkReader}. Chunking is off when
+ * {@code chunkSize} is not positive.
+ *
+ * <p>
+ * Payloads encoded ahead of time with {@link #encodeToBuffer(Object)} are written to the pipeline as buffers, which
+ * pass this encoder untouched; in a {@link DatumBatch}, they are copied into batch frames as they are.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Message type that can be serialized into bytes.
+ */
+@ChannelHandler.Sharable
+public final class DatumFrameEncoder<T> extends MessageToByteEncoder<Object> {
+
+  public static final int DEFAULT_MAX_BATCH_BYTES = 16 * 1024; // 16 KB
+  public static final int NO_CHUNKING             = 0;
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+  // batch and chunk headers: message code followed by a length
+  private static final int MAX_HEADER_SIZE = ProtoUtil.MAX_VARINT32_SIZE * 2;
+
+  private final TypeParameterMatcher matcher;
+  private final DatumSerializer<T>   serializer;
+  private final int                  maxBatchBytes;
+  private final int                  chunkSize;
+
+  public DatumFrameEncoder(Class<T> payloadClass, DatumSerializer<T> serializer, int maxBatchBytes, int chunkSize) {
+    this.matcher = TypeParameterMatcher.get(payloadClass);
+    this.serializer = serializer;
+    this.maxBatchBytes = maxBatchBytes;
+    this.chunkSize = chunkSize;
+  }
+
+  public static <T> DatumFrameEncoder<T> of(Class<T> clazz, DatumSerializer<T> serializer) {
+    return new DatumFrameEncoder<>(clazz, serializer, DEFAULT_MAX_BATCH_BYTES, NO_CHUNKING);
+  }
+
+  public static <T> DatumFrameEncoder<T> of(Class<T> clazz,
+                                            DatumSerializer<T> serializer,
+                                            int maxBatchBytes,
+                                            int chunkSize) {
+    return new DatumFrameEncoder<>(clazz, serializer, maxBatchBytes, chunkSize);
+  }
+
+  /**
+   * Encodes a single payload into a buffer of its own, exactly as it would be written to the channel. The caller owns
+   * the buffer.
+   */
+  public ByteBuf encodeToBuffer(T payload) throws Exception {
+    ByteBuf buffer = allocateBuffer(null, payload, true);
+    try {
+      encode(null, payload, buffer);
+      return buffer;
+    } catch (Exception e) {
+      buffer.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean acceptOutboundMessage(Object message) {
+    return message instanceof DatumBatch || matcher.match(message);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected ByteBuf allocateBuffer(ChannelHandlerContext context, Object message, boolean preferDirect) {
+    // payloads are sized only once, while they are encoded, which is when the buffer grows to fit them
+    int capacity = message instanceof DatumBatch && isEncoded(((DatumBatch<?>) message).getItems())
+                   ? estimateEncodedBatchSize(((DatumBatch<ByteBuf>) message).getItems())
+                   : DEFAULT_INITIAL_CAPACITY;
+    return ChannelUtil.getAllocator().ioBuffer(capacity);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext context, Object message, ChannelPromise promise) throws Exception {
+    if (message instanceof ByteBuf) {
+      // encoded ahead of time, goes through as it is
+      EncodedBytes.add(context.channel(), ((ByteBuf) message).readableBytes());
+    }
+    super.write(context, message, promise);
+  }
+
+  @Override
+  protected void encode(ChannelHandlerContext context, Object message, ByteBuf out) throws Exception {
+    encodeMessage(message, out);
+    if (context != null) {
+      EncodedBytes.add(context.channel(), out.readableBytes());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void encodeMessage(Object message, ByteBuf out) throws Exception {
+    if (message instanceof DatumBatch && isEncoded(((DatumBatch<?>) message).getItems())) {
+      encodeEncodedBatch(((DatumBatch<ByteBuf>) message).getItems(), out);
+      return;
+    }
+    if (message instanceof DatumBatch) {
+      encodeBatch(((DatumBatch<T>) message).getItems(), out);
+      return;
+    }
+
+    T payload = (T) message;
+    int size = serializer.getSerializedSize(payload);
+    if (size < 0) {
+      encodeUnknownSize(payload, out);
+    } else if (isOversized(size)) {
+      encodeChunked(payload, size, out);
+    } else {
+      out.ensureWritable(computeFrameSize(size));
+      encodeFrame(payload, size, out);
+    }
+  }
+
+  private void encodeFrame(T payload, int size, ByteBuf out) throws Exception {
+    ProtoUtil.writeRawVarint32(out, size);
+    serialize(payload, size, out);
+  }
+
+  private void encodeUnknownSize(T payload, ByteBuf out) throws Exception {
+    int prefixIndex = out.writerIndex();
+    out.ensureWritable(ProtoUtil.MAX_VARINT32_SIZE);
+    out.writerIndex(prefixIndex + ProtoUtil.MAX_VARINT32_SIZE);
+
+    int bodyIndex = out.writerIndex();
+    serializer.serialize(payload, out);
+    int length = out.writerIndex() - bodyIndex;
+
+    if (isOversized(length)) {
+      // too late to leave room for the chunk headers in place; move the payload aside and write it again in chunks
+      ByteBuf body = ChannelUtil.getAllocator().buffer(length);
+      try {
+        body.writeBytes(out, bodyIndex, length);
+        out.writerIndex(prefixIndex);
+        writeChunks(body, out);
+      } finally {
+        body.release();
+      }
+      return;
+    }
+
+    int frameIndex = bodyIndex - ProtoUtil.computeRawVarint32Size(length);
+    ProtoUtil.setRawVarint32(out, frameIndex, length);
+    out.readerIndex(frameIndex);
+  }
+
+  private void encodeChunked(T payload, int size, ByteBuf out) throws Exception {
+    ByteBuf body = ChannelUtil.getAllocator().buffer(size);
+    try {
+      serialize(payload, size, body);
+      writeChunks(body, out);
+    } finally {
+      body.release();
+    }
+  }
+
+  private void writeChunks(ByteBuf body, ByteBuf out) {
+    out.ensureWritable(estimateChunkedSize(body.readableBytes()));
+    while (body.isReadable()) {
+      int length = Math.min(chunkSize, body.readableBytes());
+      ChannelMetadata.writeChunkHeader(length == body.readableBytes(), length, out);
+      out.writeBytes(body, length);
+    }
+  }
+
+  private void encodeBatch(List<T> items, ByteBuf out) throws Exception {
+    if (items.isEmpty()) {
+      return;
+    }
+
+    int[] sizes = new int[items.size()];
+    for (int i = 0; i < sizes.length; i++) {
+      sizes[i] = serializer.getSerializedSize(items.get(i));
+    }
+    int index = 0;
+    if (sizes[0] < 0) {
+      while (index < items.size()) {
+        index = encodeUnsizedBatch(items, index, out);
+      }
+      return;
+    }
+
+    out.ensureWritable(estimateBatchSize(sizes));
+    while (index < items.size()) {
+      if (isOversized(sizes[index])) {
+        encodeChunked(items.get(index), sizes[index], out);
+        index++;
+      } else {
+        index = encodeSizedBatch(items, sizes, index, out);
+      }
+    }
+  }
+
+  /**
+   * Writes the batch header and then every payload in place, since the length of the batch is known upfront.
+   *
+   * @return index of the first item that did not fit into this batch
+   */
+  private int encodeSizedBatch(List<T> items, int[] sizes, int fromIndex, ByteBuf out) throws Exception {
+    int toIndex = fromIndex;
+    int batchLength = 0;
+    do {
+      int size = sizes[toIndex];
+      int frameLength = computeFrameSize(size);
+      if (toIndex > fromIndex && (isOversized(size) || batchLength + frameLength > maxBatchBytes)) {
+        break;
+      }
+      batchLength += frameLength;
+    } while (++toIndex < items.size());
+
+    ChannelMetadata.writeBatchHeader(batchLength, out);
+    for (int i = fromIndex; i < toIndex; i++) {
+      encodeFrame(items.get(i), sizes[i], out);
+    }
+    return toIndex;
+  }
+
+  /**
+   * Serializers that cannot size their payloads upfront are framed into a scratch buffer first, as the header has to
+   * go in front of the whole batch. An oversized payload ends the batch and is sent in chunks on its own.
+   *
+   * @return index of the first item that did not fit into this batch
+   */
+  private int encodeUnsizedBatch(List<T> items, int fromIndex, ByteBuf out) throws Exception {
+    ByteBuf frames = ChannelUtil.getAllocator().heapBuffer(Math.min(maxBatchBytes, DEFAULT_INITIAL_CAPACITY));
+    ByteBuf frame = ChannelUtil.getAllocator().heapBuffer(DEFAULT_INITIAL_CAPACITY);
+    try {
+      int toIndex = fromIndex;
+      do {
+        frame.clear();
+        serializer.serialize(items.get(toIndex), frame);
+        boolean oversized = isOversized(frame.readableBytes());
+        if (oversized && toIndex == fromIndex) {
+          writeChunks(frame, out);
+          return toIndex + 1;
+        }
+        int frameLength = computeFrameSize(frame.readableBytes());
+        if (toIndex > fromIndex && (oversized || frames.readableBytes() + frameLength > maxBatchBytes)) {
+          break;
+        }
+        ProtoUtil.writeRawVarint32(frames, frame.readableBytes());
+        frames.writeBytes(frame);
+      } while (++toIndex < items.size());
+
+      ChannelMetadata.writeBatchHeader(frames.readableBytes(), out);
+      out.writeBytes(frames);
+      return toIndex;
+    } finally {
+      frame.release();
+      frames.release();
+    }
+  }
+
+  /**
+   * Copies payloads encoded ahead of time into batch frames, releasing them as it goes. Chunked payloads go out on
+   * their own, in between batches.
+   */
+  private void encodeEncodedBatch(List<ByteBuf> frames, ByteBuf out) {
+    int index = 0;
+    try {
+      while (index < frames.size()) {
+        if (isChunked(frames.get(index))) {
+          out.writeBytes(frames.get(index++));
+          continue;
+        }
+
+        int toIndex = index;
+        int batchLength = 0;
+        do {
+          ByteBuf frame = frames.get(toIndex);
+          if (toIndex > index && (isChunked(frame) || batchLength + frame.readableBytes() > maxBatchBytes)) {
+            break;
+          }
+          batchLength += frame.readableBytes();
+        } while (++toIndex < frames.size());
+
+        ChannelMetadata.writeBatchHeader(batchLength, out);
+        for (; index < toIndex; index++) {
+          out.writeBytes(frames.get(index));
+        }
+      }
+    } finally {
+      frames.forEach(ByteBuf::release);
+    }
+  }
+
+  private static boolean isEncoded(List<?> items) {
+    return !items.isEmpty() && items.get(0) instanceof ByteBuf;
+  }
+
+  private static boolean isChunked(ByteBuf frame) {
+    int code = ProtoUtil.readRawVarint32(frame.duplicate());
+    return code == ChannelMetadata.chunkMessage().getMessageCode()
+           || code == ChannelMetadata.lastChunkMessage().getMessageCode();
+  }
+
+  private void serialize(T payload, int size, ByteBuf buffer) throws Exception {
+    int bodyIndex = buffer.writerIndex();
+    serializer.serialize(payload, buffer);
+    if (buffer.writerIndex() - bodyIndex != size) {
+      throw new EncoderException("serializer " + serializer + " wrote " + (buffer.writerIndex() - bodyIndex)
+                                     + " bytes but reported a size of " + size);
+    }
+  }
+
+  private boolean isOversized(int size) {
+    return chunkSize > 0 && size > chunkSize;
+  }
+
+  private int estimateFrameSize(int size) {
+    return isOversized(size) ? estimateChunkedSize(size) : computeFrameSize(size);
+  }
+
+  private int estimateChunkedSize(int size) {
+    return size + MAX_HEADER_SIZE * (1 + size / chunkSize);
+  }
+
+  private int estimateBatchSize(int[] sizes) {
+    int size = 0;
+    for (int itemSize : sizes) {
+      size += estimateFrameSize(itemSize);
+    }
+    return size + MAX_HEADER_SIZE * (1 + size / maxBatchBytes);
+  }
+
+  private int estimateEncodedBatchSize(List<ByteBuf> frames) {
+    int size = 0;
+    for (ByteBuf frame : frames) {
+      size += frame.readableBytes();
+    }
+    return size + MAX_HEADER_SIZE * (1 + size / maxBatchBytes);
+  }
+
+  private static int computeFrameSize(int size) {
+    return ProtoUtil.computeRawVarint32Size(size) + size;
+  }
+}
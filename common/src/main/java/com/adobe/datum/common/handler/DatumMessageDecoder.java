@@ -44,22 +44,10 @@ public class DatumMessageDecoder<T> extends MessageToMessageDecoder<ByteBuf> {
 
   @Override
   protected void decode(ChannelHandlerContext context, ByteBuf message, List<Object> out) throws Exception {
-    byte[] array;
-    int offset;
-    int length = message.readableBytes();
-    if (message.hasArray()) {
-      array = message.array();
-      offset = message.arrayOffset() + message.readerIndex();
+    if (message.isReadable()) {
+      out.add(deserializer.deserialize(message));
     } else {
-      array = new byte[length];
-      message.getBytes(message.readerIndex(), array, 0, length);
-      offset = 0;
-    }
-
-    if ((array.length - offset) == 0) {
       out.add(defaultInstance);
-    } else {
-      out.add(deserializer.deserialize(array, offset, length));
     }
   }
 
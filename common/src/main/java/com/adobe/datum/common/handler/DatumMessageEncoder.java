@@ -21,19 +21,25 @@ package com.adobe.datum.common.handler;
 
 import com.adobe.datum.common.serialize.DatumSerializer;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import java.util.List;
 
 /**
+ * Serializes each payload into a buffer of its own, without a length prefix; a frame encoder further down the pipeline
+ * has to frame it.
+ *
  * @author Adobe Systems Inc.
  * @param <T> Message type that can be serialized into bytes.
+ * @deprecated use {@link DatumFrameEncoder}, which writes the length prefix into the same buffer as the payload
  */
+@Deprecated
 @ChannelHandler.Sharable
 public final class DatumMessageEncoder<T> extends MessageToMessageEncoder<T> {
 
+  private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
   private final DatumSerializer<T> serializer;
 
   public DatumMessageEncoder(Class<T> payloadClass, DatumSerializer<T> serializer) {
@@ -43,7 +49,14 @@ public final class DatumMessageEncoder<T> extends MessageToMessageEncoder<T> {
 
   @Override
   protected void encode(ChannelHandlerContext context, T payload, List<Object> out) throws Exception {
-    ByteBuf content = Unpooled.wrappedBuffer(serializer.serialize(payload));
+    int size = serializer.getSerializedSize(payload);
+    ByteBuf content = context.alloc().ioBuffer(size < 0 ? DEFAULT_INITIAL_CAPACITY : size);
+    try {
+      serializer.serialize(payload, content);
+    } catch (Exception e) {
+      content.release();
+      throw e;
+    }
     out.add(content);
   }
 
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Tells multiplexed connections apart from plain ones by their first frame, which is a stream frame on the former and
+ * a request on the latter. A plain connection gets the stream pipeline set up on itself; a multiplexed one gets a
+ * {@link DatumStreamMultiplexer} that sets it up on each of its streams. Either way the detector then steps aside and
+ * hands over what it has read so far.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class DatumMultiplexDetector extends ByteToMessageDecoder {
+
+  private static final String MULTIPLEXER_NAME = "streamMultiplexer";
+
+  private final Consumer<ChannelPipeline> streamPipeline;
+
+  public DatumMultiplexDetector(Consumer<ChannelPipeline> streamPipeline) {
+    this.streamPipeline = streamPipeline;
+  }
+
+  @Override
+  protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+    int code = DatumFrameDecoder.readRawVarint32(in.duplicate());
+    if (code == DatumFrameDecoder.INCOMPLETE) {
+      return;
+    }
+
+    if (code == ChannelMetadata.streamDataMessage().getMessageCode()
+        || code == ChannelMetadata.streamCloseMessage().getMessageCode()) {
+      ctx.pipeline().addAfter(ctx.name(), MULTIPLEXER_NAME, DatumStreamMultiplexer.of(streamPipeline));
+    } else {
+      streamPipeline.accept(ctx.pipeline());
+    }
+    ctx.pipeline().remove(this);
+  }
+}
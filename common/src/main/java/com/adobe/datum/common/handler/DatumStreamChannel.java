@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.EventLoop;
+import io.netty.util.internal.StringUtil;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * One stream of a multiplexed connection, with a pipeline of its own that sees nothing but the bytes of its stream.
+ * Streams are registered with the event loop of their connection, are writable whenever the connection is, and hand
+ * every flushed buffer straight to the {@link DatumStreamMultiplexer}; a write completes once it has been handed over.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class DatumStreamChannel extends AbstractChannel {
+
+  private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+
+  private final DatumStreamMultiplexer multiplexer;
+  private final int                    streamId;
+  private final ChannelConfig          config;
+
+  private volatile boolean open = true;
+  private boolean          closedByPeer;
+
+  DatumStreamChannel(Channel connection, DatumStreamMultiplexer multiplexer, int streamId) {
+    super(connection);
+    this.multiplexer = multiplexer;
+    this.streamId = streamId;
+    config = new DefaultChannelConfig(this);
+    config.setAllocator(connection.config().getAllocator());
+  }
+
+  int getStreamId() {
+    return streamId;
+  }
+
+  void closeByPeer() {
+    closedByPeer = true;
+    close();
+  }
+
+  @Override
+  public boolean isWritable() {
+    return super.isWritable() && parent().isWritable();
+  }
+
+  @Override
+  public ChannelConfig config() {
+    return config;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public boolean isActive() {
+    return open;
+  }
+
+  @Override
+  public ChannelMetadata metadata() {
+    return METADATA;
+  }
+
+  @Override
+  protected AbstractUnsafe newUnsafe() {
+    return new AbstractUnsafe() {
+      @Override
+      public void connect(SocketAddress remoteAddress, SocketAddress localAddress, ChannelPromise promise) {
+        promise.setFailure(new UnsupportedOperationException("streams are opened through their connection"));
+      }
+    };
+  }
+
+  @Override
+  protected boolean isCompatible(EventLoop loop) {
+    return loop == parent().eventLoop();
+  }
+
+  @Override
+  protected SocketAddress localAddress0() {
+    return parent().localAddress();
+  }
+
+  @Override
+  protected SocketAddress remoteAddress0() {
+    return parent().remoteAddress();
+  }
+
+  @Override
+  protected void doRegister() throws Exception {
+    if (!parent().isActive()) {
+      throw new ClosedChannelException();
+    }
+    multiplexer.streamOpened(this);
+  }
+
+  @Override
+  protected void doBind(SocketAddress localAddress) throws Exception {
+    throw new UnsupportedOperationException("streams cannot be bound");
+  }
+
+  @Override
+  protected void doDisconnect() throws Exception {
+    doClose();
+  }
+
+  @Override
+  protected void doClose() throws Exception {
+    if (open) {
+      open = false;
+      multiplexer.streamClosed(this, closedByPeer);
+    }
+  }
+
+  @Override
+  protected void doBeginRead() {
+    // reads are pushed by the connection; the stream is held back by credit, which multiplexing requires
+  }
+
+  @Override
+  protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+    // flushing the connection can make it writable again, and whatever that prompts the pipeline to write and flush
+    // lands in this buffer while the flush of this channel is still in progress, so keep going until it is empty
+    while (!in.isEmpty()) {
+      for (Object message = in.current(); message != null; message = in.current()) {
+        if (message instanceof ByteBuf) {
+          ByteBuf data = (ByteBuf) message;
+          if (data.isReadable()) {
+            multiplexer.writeData(this, data.retain());
+          }
+          in.remove();
+        } else {
+          in.remove(new UnsupportedOperationException("unsupported message type: "
+                                                          + StringUtil.simpleClassName(message)));
+        }
+      }
+      multiplexer.flush();
+    }
+  }
+}
@@ -20,15 +20,16 @@
 package com.adobe.datum.common.handler;
 
 import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import com.adobe.datum.common.channel.metadata.DatumControlMessage;
 import com.adobe.datum.common.channel.metadata.DatumMetadataMessage;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
-import java.io.IOException;
 
 /**
- * Encodes stream metadata messages starting from Integer.MAX_VALUE and counting down.
+ * Encodes stream metadata messages starting from Integer.MAX_VALUE and counting down, along with the body of control
+ * messages.
  *
  * @author Adobe Systems Inc.
  */
@@ -36,8 +37,11 @@ import java.io.IOException;
 public class DatumStreamMetadataEncoder extends MessageToByteEncoder<DatumMetadataMessage> {
 
   @Override
-  protected void encode(ChannelHandlerContext context, DatumMetadataMessage metadataMessage, ByteBuf buffer)
-      throws IOException {
-    ChannelMetadata.writeMetadataMessage(metadataMessage, buffer);
+  protected void encode(ChannelHandlerContext context, DatumMetadataMessage metadataMessage, ByteBuf buffer) {
+    if (metadataMessage instanceof DatumControlMessage) {
+      ChannelMetadata.writeControlMessage((DatumControlMessage) metadataMessage, buffer);
+    } else {
+      ChannelMetadata.writeMetadataMessage(metadataMessage, buffer);
+    }
   }
 }
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Carries any number of streams over one connection. Every stream is a {@link DatumStreamChannel} with the same
+ * pipeline a connection of its own would have, so batching, chunking, compression and credit all work per stream.
+ * On the wire, the bytes of each stream travel in stream data frames of at most {@link #MAX_DATA_LENGTH} bytes (see
+ * {@link ChannelMetadata#streamDataMessage()}), which keeps one large frame from holding up the other streams.
+ *
+ * <p>
+ * Streams are opened by the client with {@link #openStream(Channel, Consumer)}; the server sets up a stream the first
+ * time it receives data for a new stream id. Closing a stream on either end closes it on the other.
+ *
+ * <p>
+ * Stream ids are handed out in order, but streams opened concurrently may well start writing out of order. The end
+ * that accepts streams therefore takes any id it has not seen yet: ids skipped over by a higher one stay open until
+ * their stream shows up or is closed before it wrote anything.
+ *
+ * <p>
+ * Ids are positive ints and never reused, so a long-lived connection eventually runs out of them. Once the end that
+ * opens streams hands out an id close to the last one, the connection is retired: it takes no new streams (see
+ * {@link #takesNewStreams(Channel)}), and closes once the streams on it are over.
+ *
+ * <p>
+ * Streams ignore {@code autoRead}: the connection is read on behalf of all of them, and holding it back for one would
+ * hold back the others too. A stream is held back by credit instead, which is why multiplexing takes a credit window.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class DatumStreamMultiplexer extends ByteToMessageDecoder {
+
+  public static final int MAX_DATA_LENGTH = 64 * 1024; // 64 KB
+
+  // data this small is copied next to its header rather than wrapped in a composite buffer
+  private static final int COPY_THRESHOLD  = 512;
+  private static final int MAX_HEADER_SIZE = 15;
+
+  // ids a peer may skip over before its first frame for them arrives; more than that is not concurrency but abuse
+  static final int MAX_SKIPPED_STREAM_IDS = 1024;
+
+  // ids left once a connection is retired, for the streams callers already decided to open on it
+  static final int RESERVED_STREAM_IDS = 1 << 16;
+
+  private final Consumer<ChannelPipeline>        remoteStreamPipeline;
+  private final Map<Integer, DatumStreamChannel> streams                = new HashMap<>();
+  private final Set<DatumStreamChannel>          readStreams            = new LinkedHashSet<>();
+  private final Set<Integer>                     skippedRemoteStreamIds = new HashSet<>();
+  private final AtomicInteger                    nextStreamId;
+  private final AtomicInteger                    registeringStreams     = new AtomicInteger();
+
+  private volatile boolean retired;
+
+  private ChannelHandlerContext context;
+  private int                   lastRemoteStreamId;
+
+  private DatumStreamMultiplexer(Consumer<ChannelPipeline> remoteStreamPipeline, int firstStreamId) {
+    this.remoteStreamPipeline = remoteStreamPipeline;
+    this.nextStreamId = new AtomicInteger(firstStreamId);
+  }
+
+  /**
+   * Multiplexer for the end that opens streams.
+   */
+  public static DatumStreamMultiplexer of() {
+    return of(1);
+  }
+
+  static DatumStreamMultiplexer of(int firstStreamId) {
+    return new DatumStreamMultiplexer(null, firstStreamId);
+  }
+
+  /**
+   * Multiplexer for the end that accepts streams, setting up the pipeline of each new one with the given function.
+   */
+  public static DatumStreamMultiplexer of(Consumer<ChannelPipeline> remoteStreamPipeline) {
+    return new DatumStreamMultiplexer(remoteStreamPipeline, 1);
+  }
+
+  /**
+   * Opens a new stream on a multiplexed connection.
+   *
+   * @return future completed with the stream channel once it is ready to be written to
+   */
+  public static ChannelFuture openStream(Channel connection, Consumer<ChannelPipeline> streamPipeline) {
+    DatumStreamMultiplexer multiplexer = connection.pipeline().get(DatumStreamMultiplexer.class);
+    if (multiplexer == null) {
+      throw new IllegalStateException("connection is not multiplexed: " + connection);
+    }
+    int streamId = multiplexer.nextStreamId.getAndIncrement();
+    if (streamId <= 0) {
+      return connection.newFailedFuture(new IllegalStateException("no stream ids left on " + connection));
+    }
+    if (streamId >= Integer.MAX_VALUE - RESERVED_STREAM_IDS) {
+      multiplexer.retired = true;
+    }
+    DatumStreamChannel stream = new DatumStreamChannel(connection, multiplexer, streamId);
+    // set up before registering, as the future completes before a channel initializer would have run
+    streamPipeline.accept(stream.pipeline());
+    multiplexer.registeringStreams.incrementAndGet();
+    return connection.eventLoop().register(stream).addListener(registered -> {
+      multiplexer.registeringStreams.decrementAndGet();
+      multiplexer.closeIfRetired();
+    });
+  }
+
+  /**
+   * Whether new streams may be opened on the connection, which is not the case once it is about to run out of stream
+   * ids; it then closes by itself after its last stream.
+   */
+  public static boolean takesNewStreams(Channel connection) {
+    DatumStreamMultiplexer multiplexer = connection.pipeline().get(DatumStreamMultiplexer.class);
+    return multiplexer != null && !multiplexer.retired;
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) {
+    context = ctx;
+  }
+
+  @Override
+  protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+    in.markReaderIndex();
+    int code = DatumFrameDecoder.readRawVarint32(in);
+    int streamId = code == DatumFrameDecoder.INCOMPLETE ? code : DatumFrameDecoder.readRawVarint32(in);
+    if (streamId == DatumFrameDecoder.INCOMPLETE) {
+      in.resetReaderIndex();
+      return;
+    }
+
+    if (code == ChannelMetadata.streamDataMessage().getMessageCode()) {
+      int length = DatumFrameDecoder.readRawVarint32(in);
+      if (length > MAX_DATA_LENGTH) {
+        throw new TooLongFrameException("stream data length " + length + " exceeds " + MAX_DATA_LENGTH);
+      }
+      if (length == DatumFrameDecoder.INCOMPLETE || in.readableBytes() < length) {
+        in.resetReaderIndex();
+        return;
+      }
+      deliver(ctx, streamId, in.readSlice(length).retain());
+    } else if (code == ChannelMetadata.streamCloseMessage().getMessageCode()) {
+      DatumStreamChannel stream = streams.get(streamId);
+      if (stream != null) {
+        stream.closeByPeer();
+      } else if (remoteStreamPipeline != null) {
+        // closed before it wrote anything; the id is used up all the same
+        isNewRemoteStream(streamId);
+      }
+    } else {
+      throw new CorruptedFrameException("expected a stream frame on a multiplexed connection, got " + code);
+    }
+  }
+
+  private void deliver(ChannelHandlerContext ctx, int streamId, ByteBuf data) {
+    DatumStreamChannel stream = streams.get(streamId);
+    if (stream == null && remoteStreamPipeline != null && isNewRemoteStream(streamId)) {
+      stream = new DatumStreamChannel(ctx.channel(), this, streamId);
+      remoteStreamPipeline.accept(stream.pipeline());
+      ctx.channel().eventLoop().register(stream);
+    }
+    if (stream == null || !stream.isOpen()) {
+      // data still in flight when the stream was closed on this end
+      data.release();
+      return;
+    }
+    stream.pipeline().fireChannelRead(data);
+    readStreams.add(stream);
+  }
+
+  /**
+   * Takes the id as seen, if it was not already.
+   */
+  private boolean isNewRemoteStream(int streamId) {
+    if (streamId <= lastRemoteStreamId) {
+      return skippedRemoteStreamIds.remove(streamId);
+    }
+    if ((long) streamId - lastRemoteStreamId - 1 + skippedRemoteStreamIds.size() > MAX_SKIPPED_STREAM_IDS) {
+      throw new CorruptedFrameException("stream id " + streamId + " skips too many ids after " + lastRemoteStreamId);
+    }
+    for (int skipped = lastRemoteStreamId + 1; skipped < streamId; skipped++) {
+      skippedRemoteStreamIds.add(skipped);
+    }
+    lastRemoteStreamId = streamId;
+    return true;
+  }
+
+  @Override
+  public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+    readStreams.forEach(stream -> stream.pipeline().fireChannelReadComplete());
+    readStreams.clear();
+    super.channelReadComplete(ctx);
+  }
+
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+    new ArrayList<>(streams.values()).forEach(stream -> stream.pipeline().fireChannelWritabilityChanged());
+    super.channelWritabilityChanged(ctx);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    closeStreams();
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+    closeStreams();
+  }
+
+  private void closeStreams() {
+    new ArrayList<>(streams.values()).forEach(DatumStreamChannel::closeByPeer);
+  }
+
+  void streamOpened(DatumStreamChannel stream) {
+    streams.put(stream.getStreamId(), stream);
+  }
+
+  void streamClosed(DatumStreamChannel stream, boolean closedByPeer) {
+    streams.remove(stream.getStreamId());
+    readStreams.remove(stream);
+    if (!closedByPeer && context.channel().isActive()) {
+      ByteBuf frame = context.alloc().buffer(MAX_HEADER_SIZE);
+      ChannelMetadata.writeStreamClose(stream.getStreamId(), frame);
+      context.writeAndFlush(frame);
+    }
+    closeIfRetired();
+  }
+
+  // on the event loop of the connection
+  private void closeIfRetired() {
+    if (retired && streams.isEmpty() && registeringStreams.get() == 0 && context.channel().isActive()) {
+      context.close();
+    }
+  }
+
+  void writeData(DatumStreamChannel stream, ByteBuf data) {
+    try {
+      while (data.isReadable()) {
+        int length = Math.min(data.readableBytes(), MAX_DATA_LENGTH);
+        ByteBuf header = context.alloc().buffer(MAX_HEADER_SIZE + (length <= COPY_THRESHOLD ? length : 0));
+        ChannelMetadata.writeStreamDataHeader(stream.getStreamId(), length, header);
+        ByteBuf frame;
+        if (length <= COPY_THRESHOLD) {
+          frame = header.writeBytes(data, length);
+        } else {
+          frame = context.alloc().compositeBuffer(2).addComponents(header, data.readSlice(length).retain());
+          frame.writerIndex(header.readableBytes() + length);
+        }
+        context.write(frame).addListener(future -> {
+          if (!future.isSuccess() && stream.isOpen()) {
+            stream.pipeline().fireExceptionCaught(future.cause());
+          }
+        });
+      }
+    } finally {
+      data.release();
+    }
+  }
+
+  void flush() {
+    context.flush();
+  }
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+/**
+ * Bytes of frames a channel encoded so far, counted as they leave the {@link DatumFrameEncoder}: before anything
+ * further down the pipeline, such as compression, holds them back or changes their size. Only ever touched from the
+ * event loop of its channel.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class EncodedBytes {
+
+  private static final AttributeKey<EncodedBytes> ATTRIBUTE = AttributeKey.valueOf("datumEncodedBytes");
+
+  private long count;
+
+  private EncodedBytes() { }
+
+  static void add(Channel channel, long bytes) {
+    Attribute<EncodedBytes> attribute = channel.attr(ATTRIBUTE);
+    attribute.setIfAbsent(new EncodedBytes());
+    attribute.get().count += bytes;
+  }
+
+  static long get(Channel channel) {
+    EncodedBytes encodedBytes = channel.attr(ATTRIBUTE).get();
+    return encodedBytes == null ? 0 : encodedBytes.count;
+  }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters of the flushes issued by upload handlers, by what triggered them, along with the items and
+ * bytes they carried and the time it took streams to flush their first item. Meant to be sampled to tune
+ * {@link FlushPolicy}.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class FlushMetrics {
+
+  /**
+   * What made an upload handler flush.
+   */
+  public enum Cause {
+    /** {@link FlushPolicy#getMaxItems()} reached. */
+    ITEMS,
+    /** {@link FlushPolicy#getMaxBytes()} reached. */
+    BYTES,
+    /** {@link FlushPolicy#getMaxLatencyMillis()} reached. */
+    LATENCY,
+    /** The channel became unwritable. */
+    UNWRITABLE,
+    /** End of a write turn: out of credit, or waiting on the supplier. */
+    END_OF_TURN,
+    /** The {@link WriteQuantum} of a turn was used up. */
+    QUANTUM,
+    /** The stream end was written. */
+    STREAM_END
+  }
+
+  private static final FlushMetrics GLOBAL = new FlushMetrics();
+
+  private final LongAdder[] flushes          = new LongAdder[Cause.values().length];
+  private final LongAdder   flushedItems     = new LongAdder();
+  private final LongAdder   flushedBytes     = new LongAdder();
+  private final LongAdder   firstFlushes     = new LongAdder();
+  private final LongAdder   firstFlushMillis = new LongAdder();
+
+  private FlushMetrics() {
+    for (int i = 0; i < flushes.length; i++) {
+      flushes[i] = new LongAdder();
+    }
+  }
+
+  public static FlushMetrics global() {
+    return GLOBAL;
+  }
+
+  void recordFlush(Cause cause, int items, long bytes) {
+    flushes[cause.ordinal()].increment();
+    flushedItems.add(items);
+    flushedBytes.add(bytes);
+  }
+
+  void recordFirstFlush(long millis) {
+    firstFlushes.increment();
+    firstFlushMillis.add(millis);
+  }
+
+  public long getFlushes(Cause cause) {
+    return flushes[cause.ordinal()].sum();
+  }
+
+  public long getFlushedItems() {
+    return flushedItems.sum();
+  }
+
+  public long getFlushedBytes() {
+    return flushedBytes.sum();
+  }
+
+  /**
+   * Mean time from a stream starting to write until its first item was flushed.
+   */
+  public double getMeanTimeToFirstFlushMillis() {
+    long count = firstFlushes.sum();
+    return count == 0 ? 0 : (double) firstFlushMillis.sum() / count;
+  }
+}
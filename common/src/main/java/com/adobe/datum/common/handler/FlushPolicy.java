@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.ConnectionSettings;
+import com.google.common.base.Preconditions;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * When {@link DatumChannelUploadHandler} flushes in the middle of a write turn: after {@code maxItems} items,
+ * {@code maxBytes} encoded bytes, or once the oldest unflushed item is {@code maxLatencyMillis} old, whichever comes
+ * first. Zero leaves a bound out. Independently of the policy, every turn ends with a flush, as does the channel
+ * becoming unwritable.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class FlushPolicy {
+
+  public static final int NO_LIMIT = 0;
+
+  /**
+   * Flushes only at the end of a turn or when the channel becomes unwritable: fewest syscalls.
+   */
+  public static final FlushPolicy END_OF_TURN = of(NO_LIMIT, NO_LIMIT, NO_LIMIT);
+
+  private final int  maxItems;
+  private final long maxBytes;
+  private final long maxLatencyMillis;
+
+  private FlushPolicy(int maxItems, long maxBytes, long maxLatencyMillis) {
+    Preconditions.checkArgument(maxItems >= 0, "flush items cannot be negative: %s", maxItems);
+    Preconditions.checkArgument(maxBytes >= 0, "flush bytes cannot be negative: %s", maxBytes);
+    Preconditions.checkArgument(maxLatencyMillis >= 0, "flush latency cannot be negative: %s", maxLatencyMillis);
+    this.maxItems = maxItems;
+    this.maxBytes = maxBytes;
+    this.maxLatencyMillis = maxLatencyMillis;
+  }
+
+  public static FlushPolicy of(int maxItems, long maxBytes, long maxLatencyMillis) {
+    return new FlushPolicy(maxItems, maxBytes, maxLatencyMillis);
+  }
+
+  public static FlushPolicy of(ConnectionSettings settings) {
+    return of(settings.getFlushMaxItems(), settings.getFlushMaxBytes(), settings.getFlushMaxLatencyMillis());
+  }
+}
@@ -19,6 +19,7 @@
 
 package com.adobe.datum.common.handler;
 
+import com.adobe.datum.common.channel.metadata.ChannelMetadata;
 import com.adobe.datum.common.channel.metadata.DatumMetadataMessage;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -27,6 +28,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Closes the channel once the stream ends, or resets its pipeline for the next request if it is kept alive (see
+ * {@link ChannelReuse}). On a kept-alive channel both ends have one: the receiver sees the stream end itself, the
+ * sender the echo of it.
+ *
  * @author Adobe Systems Inc.
  */
 @ChannelHandler.Sharable
@@ -34,6 +39,12 @@ public final class StreamEndHandler extends SimpleChannelInboundHandler<DatumMet
 
   private static final Logger LOG = LoggerFactory.getLogger(StreamEndHandler.class);
 
+  @Override
+  public boolean acceptInboundMessage(Object message) {
+    // control messages share the metadata range but do not end the stream
+    return ChannelMetadata.streamEndMessage().equals(message);
+  }
+
   @Override
   protected void channelRead0(ChannelHandlerContext context, DatumMetadataMessage metadataMessage) {
     if (LOG.isDebugEnabled()) {
@@ -41,6 +52,14 @@ public final class StreamEndHandler extends SimpleChannelInboundHandler<DatumMet
     }
 
     // TODO do request id verification and error handling
-    context.close();
+    if (!ChannelReuse.isKeptAlive(context.channel())) {
+      context.close();
+      return;
+    }
+    // the sender learns from the echo that the receiver is done with the stream
+    if (context.pipeline().get(DatumChannelUploadHandler.class) == null) {
+      context.writeAndFlush(ChannelMetadata.streamEndMessage());
+    }
+    ChannelReuse.reset(context.channel());
   }
 }
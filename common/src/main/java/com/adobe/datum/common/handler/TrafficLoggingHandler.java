@@ -22,13 +22,16 @@ package com.adobe.datum.common.handler;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
-import io.netty.handler.traffic.ChannelTrafficShapingHandler;
+import io.netty.handler.traffic.AbstractTrafficShapingHandler;
 import io.netty.handler.traffic.TrafficCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Logs the traffic counted by the first traffic shaper of the pipeline; with a shaper shared between connections,
+ * that is the shared traffic.
+ *
  * @author Adobe Systems Inc.
  */
 public class TrafficLoggingHandler extends ChannelDuplexHandler {
@@ -43,9 +46,9 @@ public class TrafficLoggingHandler extends ChannelDuplexHandler {
 
   @Override
   public void handlerAdded(ChannelHandlerContext context) {
-    ChannelTrafficShapingHandler trafficShapingHandler = context.channel()
-                                                                .pipeline()
-                                                                .get(ChannelTrafficShapingHandler.class);
+    AbstractTrafficShapingHandler trafficShapingHandler = context.channel()
+                                                                 .pipeline()
+                                                                 .get(AbstractTrafficShapingHandler.class);
     trafficCounter = trafficShapingHandler.trafficCounter();
   }
 
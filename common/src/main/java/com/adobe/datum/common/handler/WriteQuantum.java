@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler;
+
+import com.adobe.datum.common.channel.ConnectionSettings;
+import com.google.common.base.Preconditions;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How much {@link DatumChannelUploadHandler} may write in one turn on the event loop before it yields to the other
+ * channels on that loop: {@code maxItems} items or {@code maxBytes} encoded bytes, whichever comes first. Zero leaves
+ * a bound out. A stream that used up its quantum flushes and queues its next turn behind whatever else is pending on
+ * the loop, which gives streams sharing a loop round-robin turns.
+ *
+ * @author Adobe Systems Inc.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class WriteQuantum {
+
+  public static final int NO_LIMIT = 0;
+
+  /**
+   * Writes for as long as the channel is writable and credit lasts.
+   */
+  public static final WriteQuantum UNLIMITED = of(NO_LIMIT, NO_LIMIT);
+
+  private final int  maxItems;
+  private final long maxBytes;
+
+  private WriteQuantum(int maxItems, long maxBytes) {
+    Preconditions.checkArgument(maxItems >= 0, "quantum items cannot be negative: %s", maxItems);
+    Preconditions.checkArgument(maxBytes >= 0, "quantum bytes cannot be negative: %s", maxBytes);
+    this.maxItems = maxItems;
+    this.maxBytes = maxBytes;
+  }
+
+  public static WriteQuantum of(int maxItems, long maxBytes) {
+    return new WriteQuantum(maxItems, maxBytes);
+  }
+
+  public static WriteQuantum of(ConnectionSettings settings) {
+    return of(settings.getWriteQuantumItems(), settings.getWriteQuantumBytes());
+  }
+
+  boolean isUsedUp(int items, long bytes) {
+    return maxItems != NO_LIMIT && items >= maxItems || maxBytes != NO_LIMIT && bytes >= maxBytes;
+  }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.serialize;
+
+import com.adobe.datum.common.channel.ChannelUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.handler.codec.TooLongFrameException;
+import java.io.IOException;
+
+/**
+ * Default {@link DatumChunkReader}: keeps the chunks (without copying them) until the last one arrives and then hands
+ * the whole payload to {@link DatumDeserializer#deserialize(ByteBuf)}.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type of the payload being read.
+ */
+final class AccumulatingChunkReader<T> implements DatumChunkReader<T> {
+
+  private final DatumDeserializer<T> deserializer;
+  private final int                  maxLength;
+  private final CompositeByteBuf     payload = ChannelUtil.getAllocator().compositeBuffer(Integer.MAX_VALUE);
+
+  AccumulatingChunkReader(DatumDeserializer<T> deserializer, int maxLength) {
+    this.deserializer = deserializer;
+    this.maxLength = maxLength;
+  }
+
+  @Override
+  public void read(ByteBuf chunk) {
+    if (chunk.readableBytes() > maxLength - payload.readableBytes()) {
+      throw new TooLongFrameException("chunked payload exceeds " + maxLength + " bytes");
+    }
+    payload.addComponent(chunk.retain());
+    payload.writerIndex(payload.writerIndex() + chunk.readableBytes());
+  }
+
+  @Override
+  public T complete() throws IOException {
+    try {
+      return deserializer.deserialize(payload);
+    } finally {
+      payload.release();
+    }
+  }
+
+  @Override
+  public void abort() {
+    payload.release();
+  }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.serialize;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+
+/**
+ * Receives a payload that was split into chunk frames one chunk at a time, as the chunks come off the wire. Runs on
+ * the channel's event loop, so implementations must not block waiting for more data.
+ *
+ * @author Adobe Systems Inc.
+ * @param <T> Type of the payload being read.
+ */
+public interface DatumChunkReader<T> {
+
+  /**
+   * Consumes the readable bytes of the next chunk. The buffer is released once this returns; call
+   * {@link ByteBuf#retain()} to hold on to it any longer.
+   */
+  void read(ByteBuf chunk) throws IOException;
+
+  /**
+   * Called after the last chunk has been read.
+   */
+  T complete() throws IOException;
+
+  /**
+   * Called instead of {@link #complete()} if the stream fails or closes before the last chunk arrives.
+   */
+  default void abort() { }
+}
@@ -20,6 +20,7 @@
 package com.adobe.datum.common.serialize;
 
 import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
 import java.io.IOException;
 
 /**
@@ -33,4 +34,28 @@ public interface DatumDeserializer<T> {
   default T deserialize(ByteString byteString) throws IOException {
     return deserialize(byteString.toByteArray(), 0, byteString.size());
   }
+
+  /**
+   * Deserializes the readable bytes of a frame. Heap buffers are handed over without copying; deserializers that can
+   * read from off-heap memory directly should override this to avoid the fallback copy for direct buffers.
+   */
+  default T deserialize(ByteBuf buffer) throws IOException {
+    int length = buffer.readableBytes();
+    if (buffer.hasArray()) {
+      return deserialize(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length);
+    }
+    byte[] array = new byte[length];
+    buffer.getBytes(buffer.readerIndex(), array);
+    return deserialize(array, 0, length);
+  }
+
+  /**
+   * Reader for a payload that arrives as a sequence of chunk frames. By default the chunks are collected, up to
+   * {@code maxLength} bytes, and deserialized once complete, so the whole payload is held in memory. A deserializer
+   * that can read incrementally overrides this to keep no more than a chunk at a time, as
+   * {@link InputStreamDeserializer} does by streaming the chunks to disk.
+   */
+  default DatumChunkReader<T> newChunkReader(int maxLength) {
+    return new AccumulatingChunkReader<>(this, maxLength);
+  }
 }
@@ -19,6 +19,7 @@
 
 package com.adobe.datum.common.serialize;
 
+import io.netty.buffer.ByteBuf;
 import java.io.IOException;
 
 /**
@@ -27,6 +28,19 @@ import java.io.IOException;
  */
 public interface DatumSerializer<T> {
 
+  int UNKNOWN_SIZE = -1;
+
   byte[] serialize(T item) throws IOException;
 
+  /**
+   * Number of bytes {@link #serialize(Object, ByteBuf)} will write for this item, or {@link #UNKNOWN_SIZE} if it cannot
+   * be computed without serializing. A known size lets the frame encoder allocate the whole frame exactly once.
+   */
+  default int getSerializedSize(T item) {
+    return UNKNOWN_SIZE;
+  }
+
+  default void serialize(T item, ByteBuf buffer) throws IOException {
+    buffer.writeBytes(serialize(item));
+  }
 }
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.serialize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Hands the raw bytes of a payload over as a stream, e.g. for blobs sent with {@link InputStreamSerializer}. A payload
+ * that arrives as chunk frames is spilled to a temporary file chunk by chunk instead of being put back together in
+ * memory, so it is bounded by the disk rather than by {@code maxLength}. The file goes away once the stream is closed:
+ * consumers have to close every stream they are handed.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class InputStreamDeserializer implements DatumDeserializer<InputStream> {
+
+  private static final InputStreamDeserializer INSTANCE =
+      new InputStreamDeserializer(Paths.get(System.getProperty("java.io.tmpdir")));
+
+  private final Path directory;
+
+  private InputStreamDeserializer(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Deserializer that spills chunked payloads to the default temporary directory.
+   */
+  public static InputStreamDeserializer getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Deserializer that spills chunked payloads to the given directory.
+   */
+  public static InputStreamDeserializer of(Path directory) {
+    return new InputStreamDeserializer(directory);
+  }
+
+  @Override
+  public InputStream deserialize(byte[] array, int offset, int length) {
+    // the array belongs to the frame, which is released once this returns
+    return new ByteArrayInputStream(Arrays.copyOfRange(array, offset, offset + length));
+  }
+
+  @Override
+  public DatumChunkReader<InputStream> newChunkReader(int maxLength) {
+    return new SpillingChunkReader(directory);
+  }
+}
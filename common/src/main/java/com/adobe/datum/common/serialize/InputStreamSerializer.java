@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.serialize;
+
+import com.google.common.io.ByteStreams;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sends what is left of a stream as the raw bytes of a payload, closing the stream after it; the counterpart of
+ * {@link InputStreamDeserializer}.
+ *
+ * @author Adobe Systems Inc.
+ */
+public final class InputStreamSerializer implements DatumSerializer<InputStream> {
+
+  private static final int COPY_SIZE = 8192;
+
+  private static final InputStreamSerializer INSTANCE = new InputStreamSerializer();
+
+  private InputStreamSerializer() { }
+
+  public static InputStreamSerializer getInstance() {
+    return INSTANCE;
+  }
+
+  @Override
+  public byte[] serialize(InputStream item) throws IOException {
+    try (InputStream stream = item) {
+      return ByteStreams.toByteArray(stream);
+    }
+  }
+
+  @Override
+  public void serialize(InputStream item, ByteBuf buffer) throws IOException {
+    try (InputStream stream = item) {
+      while (buffer.writeBytes(stream, COPY_SIZE) != -1) {
+        // copied straight into the frame
+      }
+    }
+  }
+}
@@ -21,8 +21,11 @@ package com.adobe.datum.common.serialize;
 
 import com.adobe.datum.common.util.DatumUtil;
 import com.adobe.datum.common.util.ProtoUtil;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import java.io.IOException;
 
 /**
@@ -45,4 +48,23 @@ public final class ProtoDeserializer<T extends Message> implements DatumDeserial
   public T deserialize(byte[] array, int offset, int length) throws IOException {
     return parser.parseFrom(array, offset, length);
   }
+
+  @Override
+  public T deserialize(ByteBuf buffer) throws IOException {
+    int length = buffer.readableBytes();
+    if (buffer.hasArray()) {
+      return parser.parseFrom(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length);
+    }
+
+    // protobuf 2.5 cannot parse straight off-heap; small frames go through a reused scratch array (parsed messages
+    // never reference the input array) and larger ones are streamed so no frame sized array is ever allocated
+    if (length <= ProtoUtil.SCRATCH_BUFFER_SIZE) {
+      byte[] scratch = ProtoUtil.getScratchBuffer();
+      buffer.getBytes(buffer.readerIndex(), scratch, 0, length);
+      return parser.parseFrom(scratch, 0, length);
+    }
+    CodedInputStream inputStream = CodedInputStream.newInstance(new ByteBufInputStream(buffer));
+    inputStream.setSizeLimit(length);
+    return parser.parseFrom(inputStream);
+  }
 }
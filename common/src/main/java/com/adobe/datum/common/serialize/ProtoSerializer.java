@@ -19,7 +19,12 @@
 
 package com.adobe.datum.common.serialize;
 
+import com.adobe.datum.common.util.ProtoUtil;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import java.io.IOException;
 
 /**
  * @author Adobe Systems Inc.
@@ -39,4 +44,32 @@ public final class ProtoSerializer<T extends Message> implements DatumSerializer
   public byte[] serialize(T message) {
     return message.toByteArray();
   }
+
+  @Override
+  public int getSerializedSize(T message) {
+    return message.getSerializedSize();
+  }
+
+  @Override
+  public void serialize(T message, ByteBuf buffer) throws IOException {
+    int size = message.getSerializedSize();
+    buffer.ensureWritable(size);
+    if (buffer.hasArray()) {
+      writeTo(message, buffer.array(), buffer.arrayOffset() + buffer.writerIndex(), size);
+    } else if (size <= ProtoUtil.SCRATCH_BUFFER_SIZE) {
+      byte[] scratch = ProtoUtil.getScratchBuffer();
+      writeTo(message, scratch, 0, size);
+      buffer.setBytes(buffer.writerIndex(), scratch, 0, size);
+    } else {
+      message.writeTo(new ByteBufOutputStream(buffer));
+      return;
+    }
+    buffer.writerIndex(buffer.writerIndex() + size);
+  }
+
+  private static void writeTo(Message message, byte[] array, int offset, int size) throws IOException {
+    CodedOutputStream outputStream = CodedOutputStream.newInstance(array, offset, size);
+    message.writeTo(outputStream);
+    outputStream.checkNoSpaceLeft();
+  }
 }
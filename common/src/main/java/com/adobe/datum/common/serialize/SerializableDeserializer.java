@@ -19,6 +19,8 @@
 
 package com.adobe.datum.common.serialize;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import org.apache.commons.lang3.SerializationUtils;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -44,4 +46,10 @@ public final class SerializableDeserializer<T extends Serializable> implements D
     ByteArrayInputStream inputStream = new ByteArrayInputStream(array, offset, length);
     return (T) SerializationUtils.deserialize(inputStream);
   }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T deserialize(ByteBuf buffer) throws IOException {
+    return (T) SerializationUtils.deserialize(new ByteBufInputStream(buffer));
+  }
 }
@@ -19,6 +19,8 @@
 
 package com.adobe.datum.common.serialize;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import org.apache.commons.lang3.SerializationUtils;
 import java.io.Serializable;
 
@@ -40,4 +42,9 @@ public final class SerializableSerializer<T extends Serializable> implements Dat
   public byte[] serialize(T item) {
     return SerializationUtils.serialize(item);
   }
+
+  @Override
+  public void serialize(T item, ByteBuf buffer) {
+    SerializationUtils.serialize(item, new ByteBufOutputStream(buffer));
+  }
 }
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.serialize;
+
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link DatumChunkReader} that writes each chunk to a temporary file as it arrives, holding no more than the chunk
+ * being read in memory, and hands the payload over as a stream read back from that file. The file is deleted when the
+ * stream is closed, or when the payload is aborted.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class SpillingChunkReader implements DatumChunkReader<InputStream> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SpillingChunkReader.class);
+
+  private static final String FILE_PREFIX = "datum-chunks-";
+
+  private final Path directory;
+
+  // created with the first chunk
+  private Path        file;
+  private FileChannel channel;
+
+  SpillingChunkReader(Path directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public void read(ByteBuf chunk) throws IOException {
+    if (file == null) {
+      file = Files.createTempFile(directory, FILE_PREFIX, null);
+      channel = FileChannel.open(file, StandardOpenOption.WRITE);
+    }
+    while (chunk.isReadable()) {
+      chunk.readBytes(channel, chunk.readableBytes());
+    }
+  }
+
+  @Override
+  public InputStream complete() throws IOException {
+    if (file == null) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    try {
+      channel.close();
+      return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+    } catch (IOException e) {
+      // the decoder has let go of this reader already, nobody else would delete the file
+      abort();
+      throw e;
+    }
+  }
+
+  @Override
+  public void abort() {
+    if (file == null) {
+      return;
+    }
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.warn("could not delete chunk file {}", file, e);
+    }
+  }
+}
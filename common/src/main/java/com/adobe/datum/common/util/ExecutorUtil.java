@@ -19,9 +19,14 @@
 
 package com.adobe.datum.common.util;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -31,8 +36,32 @@ public final class ExecutorUtil {
 
   private static final Logger LOG = LoggerFactory.getLogger(ExecutorUtil.class);
 
+  private static final Executor OFFLOAD_EXECUTOR =
+      Executors.newCachedThreadPool(new DefaultThreadFactory("datum-offload", true));
+
   private ExecutorUtil() { }
 
+  /**
+   * Shared pool of daemon threads for suppliers and consumers that must not run on the event loop, used unless they
+   * are given an executor of their own.
+   */
+  public static Executor offloadExecutor() {
+    return OFFLOAD_EXECUTOR;
+  }
+
+  /**
+   * Pool of a fixed number of daemon threads that queues no more than the given number of tasks, and rejects the rest
+   * with a {@link java.util.concurrent.RejectedExecutionException}.
+   */
+  public static ExecutorService boundedExecutor(String name, int threads, int queueCapacity) {
+    return new ThreadPoolExecutor(threads,
+                                  threads,
+                                  0,
+                                  TimeUnit.MILLISECONDS,
+                                  new LinkedBlockingQueue<>(queueCapacity),
+                                  new DefaultThreadFactory(name, true));
+  }
+
   public static void shutdownGracefully(ExecutorService executorService) throws InterruptedException {
     LOG.info("shutting down executor");
     executorService.shutdown();
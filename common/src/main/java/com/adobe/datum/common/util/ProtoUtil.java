@@ -19,16 +19,31 @@
 
 package com.adobe.datum.common.util;
 
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
 
 /**
  * @author Adobe Systems Inc.
  */
 public final class ProtoUtil {
 
+  public static final int MAX_VARINT32_SIZE = 5;
+
+  // same as the internal buffer CodedInputStream and CodedOutputStream allocate when working with streams
+  public static final int SCRATCH_BUFFER_SIZE = 4096;
+
   private static final String PROTOTYPE_METHOD_NAME = "getDefaultInstance";
 
+  private static final FastThreadLocal<byte[]> SCRATCH_BUFFER = new FastThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[SCRATCH_BUFFER_SIZE];
+    }
+  };
+
   @SuppressWarnings("unchecked")
   public static <T> T getDefaultInstance(Class<T> clazz) throws Exception {
     return (T) clazz.getDeclaredMethod(PROTOTYPE_METHOD_NAME).invoke(clazz);
@@ -38,4 +53,85 @@ public final class ProtoUtil {
   public static <T extends Message> Parser<T> getParser(T defaultInstance) {
     return (Parser<T>) defaultInstance.getParserForType();
   }
+
+  /**
+   * Per-thread array of {@link #SCRATCH_BUFFER_SIZE} bytes used to move small messages between protobuf and off-heap
+   * buffers. Callers must be done with it before returning to the event loop.
+   */
+  public static byte[] getScratchBuffer() {
+    return SCRATCH_BUFFER.get();
+  }
+
+  public static int computeRawVarint32Size(int value) {
+    return CodedOutputStream.computeRawVarint32Size(value);
+  }
+
+  /**
+   * Reads a varint from a buffer known to hold all of it.
+   *
+   * @throws IllegalArgumentException if the varint is wider than 32 bits
+   */
+  public static int readRawVarint32(ByteBuf buffer) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.readByte();
+      result |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("varint wider than 32-bit");
+  }
+
+  public static int computeRawVarint64Size(long value) {
+    return CodedOutputStream.computeRawVarint64Size(value);
+  }
+
+  /**
+   * Reads a 64-bit varint from a buffer known to hold all of it.
+   *
+   * @throws IllegalArgumentException if the varint is wider than 64 bits
+   */
+  public static long readRawVarint64(ByteBuf buffer) {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.readByte();
+      result |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("varint wider than 64-bit");
+  }
+
+  public static void writeRawVarint64(ByteBuf buffer, long value) {
+    buffer.ensureWritable(computeRawVarint64Size(value));
+    long remaining = value;
+    while ((remaining & ~0x7FL) != 0) {
+      buffer.writeByte((int) (remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    buffer.writeByte((int) remaining);
+  }
+
+  public static void writeRawVarint32(ByteBuf buffer, int value) {
+    buffer.ensureWritable(computeRawVarint32Size(value));
+    buffer.writerIndex(setRawVarint32(buffer, buffer.writerIndex(), value));
+  }
+
+  /**
+   * Writes a varint at the given index without moving the writer index.
+   *
+   * @return index right after the last byte written
+   */
+  public static int setRawVarint32(ByteBuf buffer, int index, int value) {
+    int position = index;
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      buffer.setByte(position++, (remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    buffer.setByte(position++, remaining);
+    return position;
+  }
 }
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.util;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for exactly one producer and one consumer at a time. Each index is only ever written by its
+ * own side, so ordered (lazy) stores are enough to publish elements and free slots to the other side. Either side may
+ * move to another thread, as long as the move happens-before that thread's first call, e.g. through a volatile write
+ * or a completed future.
+ *
+ * @author Adobe Systems Inc.
+ * @param <E> Type of the elements.
+ */
+public final class SpscRingBuffer<E> {
+
+  private final AtomicReferenceArray<E> buffer;
+  private final int                     mask;
+  private final int                     capacity;
+
+  // next slot to poll; only written by the consumer
+  private final AtomicLong head = new AtomicLong();
+  // next slot to fill; only written by the producer
+  private final AtomicLong tail = new AtomicLong();
+
+  private SpscRingBuffer(int capacity) {
+    Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "invalid capacity: %s", capacity);
+    int size = Integer.highestOneBit(capacity);
+    size = size == capacity ? size : size << 1;
+    this.buffer = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.capacity = capacity;
+  }
+
+  public static <E> SpscRingBuffer<E> of(int capacity) {
+    return new SpscRingBuffer<>(capacity);
+  }
+
+  /**
+   * Producer side. Returns {@code false} without blocking if the buffer is full.
+   */
+  public boolean offer(E element) {
+    Preconditions.checkNotNull(element, "element cannot be null");
+    long currentTail = tail.get();
+    if (currentTail - head.get() >= capacity) {
+      return false;
+    }
+    buffer.lazySet((int) currentTail & mask, element);
+    tail.lazySet(currentTail + 1);
+    return true;
+  }
+
+  /**
+   * Consumer side. Returns {@code null} without blocking if the buffer is empty.
+   */
+  public E poll() {
+    long currentHead = head.get();
+    if (currentHead == tail.get()) {
+      return null;
+    }
+    int index = (int) currentHead & mask;
+    E element = buffer.get(index);
+    buffer.lazySet(index, null);
+    head.lazySet(currentHead + 1);
+    return element;
+  }
+
+  public int size() {
+    // head first: the tail read after it can only be further ahead, so the result is never negative
+    long currentHead = head.get();
+    return (int) (tail.get() - currentHead);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public boolean isFull() {
+    return size() >= capacity;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+}
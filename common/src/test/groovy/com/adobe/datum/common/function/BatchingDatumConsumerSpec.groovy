@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class BatchingDatumConsumerSpec extends Specification {
+
+  def batches = []
+
+  def 'should bound batches by bytes alone when items are not limited'() {
+    given:
+      def consumer = batchConsumer().batched(BatchPolicy.of(BatchPolicy.NO_LIMIT, 10, BatchPolicy.NO_LIMIT))
+
+    when:
+      (0..<7).each { consumer.accept(it) }
+      consumer.onComplete()
+
+    then:
+      batches == [[0, 1, 2], [3, 4, 5], [6]]
+  }
+
+  def 'should not allocate for a bound of Integer.MAX_VALUE items'() {
+    given:
+      def consumer = batchConsumer().batched(BatchPolicy.of(Integer.MAX_VALUE))
+
+    when:
+      (0..<3).each { consumer.accept(it) }
+      consumer.onComplete()
+
+    then:
+      batches == [[0, 1, 2]]
+  }
+
+  @Unroll
+  def 'should only accept a policy with at least one bound: #maxItems, #maxBytes, #lingerMillis'() {
+    when:
+      BatchPolicy.of(maxItems, maxBytes, lingerMillis)
+
+    then:
+      thrown(IllegalArgumentException)
+
+    where:
+      maxItems             | maxBytes             | lingerMillis
+      BatchPolicy.NO_LIMIT | BatchPolicy.NO_LIMIT | BatchPolicy.NO_LIMIT
+      -1                   | BatchPolicy.NO_LIMIT | 20
+  }
+
+  private DatumBatchConsumer<Integer> batchConsumer() {
+    return new DatumBatchConsumer<Integer>() {
+
+      @Override
+      void accept(List<Integer> items) {
+        batches << items
+      }
+
+      @Override
+      int sizeOf(Integer item) {
+        return 4
+      }
+    }
+  }
+}
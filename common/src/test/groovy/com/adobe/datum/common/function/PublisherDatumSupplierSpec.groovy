@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function
+
+import org.reactivestreams.Publisher
+import org.reactivestreams.Subscriber
+import org.reactivestreams.Subscription
+import spock.lang.Specification
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class PublisherDatumSupplierSpec extends Specification {
+
+  def 'should ask for no more than the prefetch and replenish as items are taken'() {
+    given:
+      def publisher = new ManualPublisher()
+      def supplier = PublisherDatumSupplier.of(publisher, 4)
+
+    when:
+      def first = supplier.get()
+
+    then:
+      publisher.requested == [4]
+      !first.done
+
+    when:
+      publisher.emit(0, 1, 2)
+      def second = supplier.get()
+
+    then:
+      first.join() == Optional.of(0)
+      second.join() == Optional.of(1)
+      publisher.requested == [4, 2]
+  }
+
+  def 'should hand out the buffered items before the end of the publisher'() {
+    given:
+      def publisher = new ManualPublisher()
+      def supplier = PublisherDatumSupplier.of(publisher, 4)
+
+    when:
+      supplier.get().join()
+      publisher.emit(0, 1)
+      publisher.subscriber.onComplete()
+
+    then:
+      supplier.get().join() == Optional.of(1)
+      supplier.get().join() == Optional.empty()
+  }
+
+  def 'should fail the pending item with the publisher and cancel it when the stream fails'() {
+    given:
+      def publisher = new ManualPublisher()
+      def supplier = PublisherDatumSupplier.of(publisher, 4)
+
+    when:
+      def pending = supplier.get()
+      publisher.subscriber.onError(new IOException())
+
+    then:
+      pending.completedExceptionally
+
+    when:
+      def other = new ManualPublisher()
+      def failing = PublisherDatumSupplier.of(other, 4)
+      failing.get()
+      failing.onError(new IOException())
+
+    then:
+      other.cancelled
+  }
+
+  static class ManualPublisher implements Publisher<Integer> {
+
+    Subscriber<? super Integer> subscriber
+    List<Long> requested = []
+    boolean cancelled
+
+    @Override
+    void subscribe(Subscriber<? super Integer> subscriber) {
+      this.subscriber = subscriber
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        void request(long items) {
+          requested << items
+        }
+
+        @Override
+        void cancel() {
+          cancelled = true
+        }
+      })
+    }
+
+    void emit(Integer... items) {
+      items.each { subscriber.onNext(it) }
+    }
+  }
+}
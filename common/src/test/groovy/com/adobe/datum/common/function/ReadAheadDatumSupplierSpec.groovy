@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.function
+
+import spock.lang.Specification
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class ReadAheadDatumSupplierSpec extends Specification {
+
+  def 'should hand out every item in order and complete the delegate once'() {
+    given:
+      def delegate = new CountingSupplier(source: DatumSupplier.of(0..<1000))
+      def executor = Executors.newSingleThreadExecutor()
+      def supplier = DatumSupplier.readAhead(delegate, 16, executor)
+
+    when:
+      def items = []
+      def item
+      while ((item = supplier.get().get(5, TimeUnit.SECONDS)).isPresent()) {
+        items << item.get()
+      }
+      supplier.onComplete()
+      executor.shutdown()
+      executor.awaitTermination(5, TimeUnit.SECONDS)
+
+    then:
+      items == (0..<1000).toList()
+      delegate.completions == 1
+  }
+
+  def 'should fail the item that the delegate could not supply and keep reading'() {
+    given:
+      def results = [{ throw new IOException() }, { Optional.of(1) }, { Optional.empty() }]
+      def delegate = { -> results.remove(0).call() } as DatumSupplier
+      def supplier = DatumSupplier.readAhead(delegate, 2, { it.run() } as Executor)
+
+    when:
+      def first = supplier.get()
+
+    then:
+      first.isCompletedExceptionally()
+      supplier.get().join() == Optional.of(1)
+      supplier.get().join() == Optional.empty()
+  }
+
+  static class CountingSupplier implements DatumSupplier<Optional<Integer>> {
+
+    DatumSupplier<Optional<Integer>> source
+    int completions
+
+    @Override
+    Optional<Integer> get() {
+      source.get()
+    }
+
+    @Override
+    void onComplete() {
+      completions++
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class AdaptiveWaterMarkHandlerSpec extends Specification {
+
+  static final int KB = 1024
+  static final int MB = 1024 * 1024
+
+  @Unroll
+  def 'should tune a #high byte high water mark to #tuned at #rate bytes/s over #rtt us round trips'() {
+    expect:
+      AdaptiveWaterMarkHandler.nextHighWaterMark(high, rate, rtt, pressured, 16 * MB) == tuned
+
+    where:
+      high    | rate       | rtt    | pressured || tuned
+      64 * KB | 100 * MB   | 50000  | false     || 10 * MB      // long fat link: twice the product
+      64 * KB | 1000 * MB  | 50000  | false     || 16 * MB      // capped by the settings
+      64 * KB | 100 * MB   | 50     | false     || 38010        // loopback: halfway down to the product
+      64 * KB | 100 * MB   | 50     | true      || 128 * KB     // held back by the buffer: probe further
+      8 * KB  | 1 * MB     | 50     | false     || 8 * KB       // never below the minimum
+      64 * KB | 100 * MB   | -1     | false     || 64 * KB      // no round trip time: keep
+      64 * KB | 100 * MB   | -1     | true      || 128 * KB     // no round trip time: grow only
+  }
+}
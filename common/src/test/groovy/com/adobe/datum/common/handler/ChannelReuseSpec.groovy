@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.function.DatumConsumer
+import com.adobe.datum.common.function.DatumSupplier
+import io.netty.channel.ChannelHandler
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class ChannelReuseSpec extends Specification {
+
+  def requestEncoder = ChannelHandlers.requestEncoder()
+  def channel = new EmbeddedChannel(ChannelHandlers.creditHandler(), requestEncoder)
+
+  def setup() {
+    ChannelReuse.keepAlive(channel)
+  }
+
+  def 'should echo the stream end and reset the pipeline once a stream has been received'() {
+    given:
+      def callback = Mock(DatumCallback)
+      channel.pipeline().remove(requestEncoder)
+      addStreamHandlers(DatumChannelDownloadHandler.of(Integer, Mock(DatumConsumer), callback),
+                        ChannelHandlers.streamEndHandler())
+
+    when:
+      channel.writeInbound(1, ChannelMetadata.streamEndMessage())
+      channel.runPendingTasks()
+
+    then:
+      channel.open
+      channel.outboundMessages().toList() == [ChannelMetadata.streamEndMessage()]
+      channel.pipeline().toMap().values().toList().take(2) == [ChannelHandlers.creditHandler(), requestEncoder]
+      channel.pipeline().get(DatumChannelDownloadHandler) == null
+      1 * callback.onComplete()
+  }
+
+  def 'should reset the sender only once the receiver echoes the stream end'() {
+    given:
+      CreditWindow.grant(channel, 1)
+      channel.pipeline().remove(requestEncoder)
+      addStreamHandlers(DatumChannelUploadHandler.of(DatumSupplier.of([1]), Mock(DatumCallback)),
+                        ChannelHandlers.streamEndHandler())
+
+    when:
+      channel.writeInbound(DatumCreditMessage.of(5))
+
+    then:
+      channel.outboundMessages().toList() == [1, ChannelMetadata.streamEndMessage()]
+      channel.pipeline().get(DatumChannelUploadHandler) != null
+
+    when:
+      channel.outboundMessages().clear()
+      channel.writeInbound(ChannelMetadata.streamEndMessage())
+
+    then:
+      channel.outboundMessages().isEmpty()
+      channel.pipeline().get(DatumChannelUploadHandler) == null
+      channel.pipeline().get(StreamEndHandler) == null
+      channel.pipeline().context(requestEncoder) != null
+      CreditWindow.available(channel) == Long.MAX_VALUE
+  }
+
+  // ahead of the handler that collects what the embedded channel reads, which is part of the baseline
+  def addStreamHandlers(ChannelHandler... handlers) {
+    def previous = channel.pipeline().context(ChannelHandlers.creditHandler()).name()
+    handlers.eachWithIndex { handler, index ->
+      channel.pipeline().addAfter(previous, "stream$index", handler)
+      previous = "stream$index"
+    }
+  }
+}
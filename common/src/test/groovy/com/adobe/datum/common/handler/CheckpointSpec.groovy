@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.channel.metadata.DatumCheckpointAckMessage
+import com.adobe.datum.common.channel.metadata.DatumCheckpointMessage
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.function.DatumCheckpoints
+import com.adobe.datum.common.function.DatumConsumer
+import com.adobe.datum.common.function.DatumSupplier
+import io.netty.buffer.ByteBuf
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class CheckpointSpec extends Specification {
+
+  def 'should mark a checkpoint right after the item it was reached with'() {
+    given:
+      def channel = new EmbeddedChannel()
+
+    when:
+      channel.pipeline().addLast(DatumChannelUploadHandler.of(new EveryThird(7), Mock(DatumCallback)))
+
+    then:
+      channel.outboundMessages().toList() == [0, 1, 2, checkpoint(1, 3), 3, 4, 5, checkpoint(2, 6), 6,
+                                              ChannelMetadata.streamEndMessage()]
+  }
+
+  def 'should end a batch with the item that completes a checkpoint'() {
+    given:
+      def channel = new EmbeddedChannel()
+
+    when:
+      channel.pipeline().addLast(new DatumChannelUploadHandler(new EveryThird(7), Mock(DatumCallback), 5))
+
+    then:
+      channel.outboundMessages().collect { it instanceof DatumBatch ? it.items : it } ==
+          [[0, 1, 2], checkpoint(1, 3), [3, 4, 5], checkpoint(2, 6), 6, ChannelMetadata.streamEndMessage()]
+  }
+
+  def 'should pass on the last of the checkpoints an acknowledgement covers'() {
+    given:
+      def supplier = new EveryThird(10)
+      def channel = new EmbeddedChannel(DatumChannelUploadHandler.of(supplier, Mock(DatumCallback)))
+
+    when:
+      channel.writeInbound(DatumCheckpointAckMessage.of(2))
+
+    then:
+      supplier.acknowledged == [[6] as byte[]]
+
+    when:
+      channel.writeInbound(DatumCheckpointAckMessage.of(2), DatumCheckpointAckMessage.of(3))
+
+    then:
+      supplier.acknowledged == [[6] as byte[], [9] as byte[]]
+  }
+
+  def 'should acknowledge a checkpoint once the consumer took the items before it'() {
+    given:
+      def consumer = Mock(DatumConsumer)
+      def positions = []
+      def handler = DatumChannelDownloadHandler.of(Integer, consumer, Mock(DatumCallback), 0, null, 0,
+                                                   { positions << it })
+      def channel = new EmbeddedChannel(handler)
+
+    when:
+      channel.writeInbound(0, 1, checkpoint(1, 2))
+
+    then:
+      2 * consumer.accept(_)
+
+    then:
+      channel.outboundMessages().toList() == [DatumCheckpointAckMessage.of(1)]
+      positions == [[2] as byte[]]
+  }
+
+  def 'should round trip checkpoint frames'() {
+    given:
+      def encoder = new EmbeddedChannel(new DatumStreamMetadataEncoder())
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(4096))
+
+    when:
+      encoder.writeOutbound(checkpoint(300, 7), DatumCheckpointMessage.of(1, new byte[0]),
+                            DatumCheckpointAckMessage.of(300))
+      encoder.outboundMessages().each { ByteBuf buf -> decoder.writeInbound(buf) }
+
+    then:
+      decoder.inboundMessages().toList() == [checkpoint(300, 7), DatumCheckpointMessage.of(1, new byte[0]),
+                                             DatumCheckpointAckMessage.of(300)]
+  }
+
+  private static DatumCheckpointMessage checkpoint(int sequence, int position) {
+    DatumCheckpointMessage.of(sequence, [position] as byte[])
+  }
+
+  /**
+   * Supplies the integers up to a bound, with a checkpoint at every third one; the position is the next integer.
+   */
+  static class EveryThird implements DatumSupplier<Optional<Integer>>, DatumCheckpoints {
+
+    int bound
+    int next
+    List<byte[]> acknowledged = []
+
+    EveryThird(int bound) {
+      this.bound = bound
+    }
+
+    @Override
+    Optional<Integer> get() {
+      next < bound ? Optional.of(next++) : Optional.empty()
+    }
+
+    @Override
+    Optional<byte[]> takeCheckpoint() {
+      next % 3 == 0 ? Optional.of([next] as byte[]) : Optional.empty()
+    }
+
+    @Override
+    void onCheckpointAcknowledged(byte[] position) {
+      acknowledged << position
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.DatumCommitMessage
+import com.adobe.datum.common.function.BatchPolicy
+import com.adobe.datum.common.function.DatumBatchConsumer
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.function.DatumConsumer
+import io.netty.buffer.ByteBuf
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class CommitSpec extends Specification {
+
+  def 'should commit every interval items, counting on from the offset'() {
+    given:
+      def consumer = Mock(DatumConsumer)
+      def handler = DatumChannelDownloadHandler.of(Integer, consumer, Mock(DatumCallback), 0, null, 0, null,
+                                                   CommitPolicy.of(2, 10))
+      def channel = new EmbeddedChannel(handler)
+
+    when:
+      channel.writeInbound(0, 1, 2, 3, 4)
+
+    then:
+      5 * consumer.accept(_)
+      channel.outboundMessages().toList() == [DatumCommitMessage.of(12), DatumCommitMessage.of(14)]
+  }
+
+  def 'should pass on a partial batch before committing'() {
+    given:
+      def batches = []
+      def consumer = ({ batches << it } as DatumBatchConsumer<Integer>).batched(BatchPolicy.of(10))
+      def handler = DatumChannelDownloadHandler.of(Integer, consumer, Mock(DatumCallback), 0, null, 0, null,
+                                                   CommitPolicy.of(3, 0))
+      def channel = new EmbeddedChannel(handler)
+
+    when:
+      channel.writeInbound(0, 1, 2, 3)
+
+    then:
+      batches == [[0, 1, 2]]
+      channel.outboundMessages().toList() == [DatumCommitMessage.of(3)]
+  }
+
+  def 'should not commit without a policy'() {
+    given:
+      def channel = new EmbeddedChannel(DatumChannelDownloadHandler.of(Integer, Mock(DatumConsumer),
+                                                                       Mock(DatumCallback)))
+
+    when:
+      channel.writeInbound(0, 1, 2)
+
+    then:
+      channel.outboundMessages().isEmpty()
+  }
+
+  def 'should round trip commit frames'() {
+    given:
+      def encoder = new EmbeddedChannel(new DatumStreamMetadataEncoder())
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(4096))
+
+    when:
+      encoder.writeOutbound(DatumCommitMessage.of(0), DatumCommitMessage.of(5_000_000_000L))
+      encoder.outboundMessages().each { ByteBuf buf -> decoder.writeInbound(buf) }
+
+    then:
+      decoder.inboundMessages().toList() == [DatumCommitMessage.of(0), DatumCommitMessage.of(5_000_000_000L)]
+  }
+}
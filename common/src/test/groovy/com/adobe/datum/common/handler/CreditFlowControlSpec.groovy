@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.function.DatumConsumer
+import com.adobe.datum.common.function.DatumSupplier
+import com.adobe.datum.common.util.ProtoUtil
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class CreditFlowControlSpec extends Specification {
+
+  def 'should write no more items than the receiver granted'() {
+    given:
+      def channel = new EmbeddedChannel(ChannelHandlers.creditHandler())
+      CreditWindow.grant(channel, 10)
+
+    when:
+      channel.pipeline().addLast(DatumChannelUploadHandler.of(DatumSupplier.of(0..<25), Mock(DatumCallback)))
+
+    then:
+      channel.outboundMessages().toList() == (0..<10).toList()
+
+    when:
+      channel.outboundMessages().clear()
+      channel.writeInbound(DatumCreditMessage.of(10))
+
+    then:
+      channel.outboundMessages().toList() == (10..<20).toList()
+
+    when:
+      channel.outboundMessages().clear()
+      channel.writeInbound(DatumCreditMessage.of(10))
+
+    then:
+      channel.outboundMessages().toList() == (20..<25).toList() + ChannelMetadata.streamEndMessage()
+  }
+
+  def 'should fit batches in the credit left'() {
+    given:
+      def channel = new EmbeddedChannel(ChannelHandlers.creditHandler())
+      CreditWindow.grant(channel, 5)
+
+    when:
+      channel.pipeline().addLast(new DatumChannelUploadHandler(DatumSupplier.of(0..<25), Mock(DatumCallback), 4))
+
+    then:
+      channel.outboundMessages().collect { it instanceof DatumBatch ? it.items : it } == [[0, 1, 2, 3], 4]
+  }
+
+  def 'should grant credit back as the consumer gets through half of the window'() {
+    given:
+      def handler = DatumChannelDownloadHandler.of(Integer, Mock(DatumConsumer), Mock(DatumCallback), 4)
+      def channel = new EmbeddedChannel(handler)
+
+    when:
+      (0..<9).each { channel.writeInbound(it) }
+
+    then:
+      channel.outboundMessages().toList() == [DatumCreditMessage.of(2)] * 4
+  }
+
+  def 'should round trip control frames and skip those of unknown type'() {
+    given:
+      def encoder = new EmbeddedChannel(new DatumStreamMetadataEncoder())
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(4096))
+      def unknown = Unpooled.buffer()
+      ChannelMetadata.writeMetadataMessage(ChannelMetadata.controlMessage(), unknown)
+      ProtoUtil.writeRawVarint32(unknown, 1000)
+      ProtoUtil.writeRawVarint32(unknown, 3)
+      unknown.writeBytes([1, 2, 3] as byte[])
+
+    when:
+      encoder.writeOutbound(DatumCreditMessage.of(300), ChannelMetadata.streamEndMessage())
+      decoder.writeInbound(unknown)
+      encoder.outboundMessages().each { ByteBuf buf -> decoder.writeInbound(buf) }
+
+    then:
+      decoder.inboundMessages().toList() == [DatumCreditMessage.of(300), ChannelMetadata.streamEndMessage()]
+  }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.function.BatchPolicy
+import com.adobe.datum.common.function.DatumBatchConsumer
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.function.DatumConsumer
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+import java.util.concurrent.Executor
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumChannelDownloadHandlerSpec extends Specification {
+
+  def 'should suspend reading while the offloaded queue is full and complete only once it drained'() {
+    given:
+      def tasks = []
+      def consumed = []
+      def consumer = Mock(DatumConsumer) { accept(_) >> { consumed << it[0] } }
+      def callback = Mock(DatumCallback)
+      def handler = DatumChannelDownloadHandler.of(Integer, consumer, callback, 0, { tasks << it } as Executor, 4)
+      def channel = new EmbeddedChannel(handler)
+
+    when:
+      (0..<4).each { channel.writeInbound(it) }
+
+    then:
+      consumed.isEmpty()
+      !channel.config().autoRead
+
+    when:
+      tasks.remove(0).run()
+      channel.runPendingTasks()
+
+    then:
+      consumed == (0..<4).toList()
+      channel.config().autoRead
+      0 * consumer.onComplete()
+
+    when:
+      channel.close()
+      tasks.remove(0).run()
+
+    then:
+      1 * consumer.onComplete()
+      1 * callback.onComplete()
+  }
+
+  def 'should pass on full batches right away and partial ones once they lingered'() {
+    given:
+      def batchConsumer = new RecordingBatchConsumer()
+      def consumer = batchConsumer.batched(BatchPolicy.of(3, BatchPolicy.NO_LIMIT, 20))
+      def lingering = []
+      def handler = DatumChannelDownloadHandler.of(Integer, consumer, Mock(DatumCallback))
+      handler.lingerWith({ context, task, delayMillis -> lingering << [task, delayMillis] }
+                             as DatumChannelDownloadHandler.LingerTimer)
+      def channel = new EmbeddedChannel(handler)
+
+    when:
+      (0..<4).each { channel.writeInbound(it) }
+
+    then:
+      batchConsumer.batches == [[0, 1, 2]]
+      lingering*.get(1) == [20L, 20L]
+
+    when: 'the linger time of both batches passes'
+      lingering*.get(0)*.run()
+      channel.writeInbound(4)
+      channel.close()
+
+    then:
+      batchConsumer.batches == [[0, 1, 2], [3], [4]]
+      batchConsumer.completed
+  }
+
+  static class RecordingBatchConsumer implements DatumBatchConsumer<Integer> {
+
+    List<List<Integer>> batches = []
+    boolean completed
+
+    @Override
+    void accept(List<Integer> items) {
+      batches << items
+    }
+
+    @Override
+    void onComplete() {
+      completed = true
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.compress.DatumCompression
+import com.adobe.datum.common.function.AsyncDatumSupplier
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.function.DatumSupplier
+import com.adobe.datum.common.serialize.SerializableSerializer
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+import java.util.concurrent.CompletableFuture
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumChannelUploadHandlerSpec extends Specification {
+
+  def 'should pause while the async supplier is pending and resume once it completes'() {
+    given:
+      def pending = [new CompletableFuture(), new CompletableFuture()]
+      def futures = [CompletableFuture.completedFuture(Optional.of(0))] + pending
+      def supplier = { -> futures.remove(0) } as AsyncDatumSupplier
+      def channel = new EmbeddedChannel()
+
+    when:
+      channel.pipeline().addLast(new DatumChannelUploadHandler(supplier, Mock(DatumCallback), 1))
+
+    then:
+      channel.outboundMessages().toList() == [0]
+
+    when:
+      pending[0].complete(Optional.of(1))
+      channel.runPendingTasks()
+
+    then:
+      channel.outboundMessages().toList() == [0, 1]
+
+    when:
+      pending[1].complete(Optional.empty())
+      channel.runPendingTasks()
+
+    then:
+      channel.outboundMessages().toList() == [0, 1, ChannelMetadata.streamEndMessage()]
+  }
+
+  def 'should skip items whose future failed'() {
+    given:
+      def failed = new CompletableFuture()
+      failed.completeExceptionally(new IOException())
+      def futures = [failed, CompletableFuture.completedFuture(Optional.of(1)),
+                     CompletableFuture.completedFuture(Optional.empty())]
+      def supplier = { -> futures.remove(0) } as AsyncDatumSupplier
+      def channel = new EmbeddedChannel()
+
+    when:
+      channel.pipeline().addLast(new DatumChannelUploadHandler(supplier, Mock(DatumCallback), 4))
+
+    then:
+      channel.outboundMessages().collect { it instanceof DatumBatch ? it.items : it } ==
+          [[1], ChannelMetadata.streamEndMessage()]
+  }
+
+  def 'should flush as often as the flush policy asks for within a turn'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def flushedBefore = []
+      def items = DatumSupplier.of(0..<7)
+      def supplier = { -> flushedBefore << channel.outboundMessages().size(); items.get() } as DatumSupplier
+      def metrics = FlushMetrics.global()
+      def itemFlushes = metrics.getFlushes(FlushMetrics.Cause.ITEMS)
+
+    when:
+      channel.pipeline().addLast(new DatumChannelUploadHandler(supplier, Mock(DatumCallback), 1, FlushPolicy.of(3, 0, 0)))
+
+    then:
+      flushedBefore == [0, 0, 0, 3, 3, 3, 6, 6]
+      channel.outboundMessages().size() == 8
+      metrics.getFlushes(FlushMetrics.Cause.ITEMS) - itemFlushes == 2
+  }
+
+  def 'should yield the event loop once the write quantum is used up'() {
+    given:
+      def channel = new EmbeddedChannel()
+      def handler = new DatumChannelUploadHandler(DatumSupplier.of(0..<7), Mock(DatumCallback), 1,
+                                                  FlushPolicy.END_OF_TURN, WriteQuantum.of(3, 0))
+
+    when:
+      channel.pipeline().addLast(handler)
+
+    then:
+      channel.outboundMessages().toList() == [0, 1, 2]
+
+    when:
+      // runs the turns queued by the turns it runs as well
+      channel.runPendingTasks()
+
+    then:
+      channel.outboundMessages().toList() == (0..<7).toList() + ChannelMetadata.streamEndMessage()
+  }
+
+  def 'should count the bytes compression holds back towards the flush policy and the write quantum'() {
+    given:
+      def channel = new EmbeddedChannel(DatumCompressionEncoder.of(DatumCompression.DEFLATE, DatumCompressionEncoder.DEFAULT_BLOCK_SIZE),
+                                        new DatumStreamMetadataEncoder(),
+                                        DatumFrameEncoder.of(String, SerializableSerializer.instance))
+      def metrics = FlushMetrics.global()
+      def byteFlushes = metrics.getFlushes(FlushMetrics.Cause.BYTES)
+      // every item encodes into a little more than 100 bytes, well short of a compressed block
+      def items = DatumSupplier.of((0..<100).collect { 'x' * 100 })
+      def handler = new DatumChannelUploadHandler(items, Mock(DatumCallback), 1, FlushPolicy.of(0, 1000, 0),
+                                                  WriteQuantum.of(0, 5000))
+
+    when:
+      channel.pipeline().addLast(handler)
+
+    then:
+      metrics.getFlushes(FlushMetrics.Cause.BYTES) - byteFlushes >= 4
+      handler.writeCount < 50
+
+    when:
+      channel.runPendingTasks()
+
+    then:
+      handler.writeCount == 100
+  }
+}
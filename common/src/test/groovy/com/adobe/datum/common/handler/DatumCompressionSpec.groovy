@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.compress.DatumCompression
+import com.adobe.datum.common.serialize.ProtoDeserializer
+import com.adobe.datum.common.serialize.ProtoSerializer
+import com.google.protobuf.ByteString
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import io.netty.channel.embedded.EmbeddedChannel
+import io.netty.handler.codec.TooLongFrameException
+import spock.lang.Specification
+import spock.lang.Unroll
+import static com.adobe.datum.common.api.DatumProto.Compression
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumCompressionSpec extends Specification {
+
+  static final int MAX_FRAME_SIZE = 4096
+  static final int BLOCK_SIZE     = 1024
+
+  @Unroll
+  def 'should decode a #compression stream read #readSize bytes at a time'() {
+    given:
+      def items = (0..<2000).collect { request(it, new byte[it % 64]) }
+
+    when:
+      def encoded = encode(compression, items + DatumBatch.of(items.take(10)))
+      def decoded = decode(encoded, readSize)
+
+    then:
+      encoded.readableBytes() < rawSize(items) / 2
+      decoded == items + items.take(10) + ChannelMetadata.streamEndMessage()
+
+    where:
+      compression              | readSize
+      DatumCompression.DEFLATE | 1
+      DatumCompression.DEFLATE | 333
+      DatumCompression.SNAPPY  | 1
+      DatumCompression.SNAPPY  | 333
+  }
+
+  def 'should fall back to plain frames when the stream does not compress'() {
+    given:
+      def random = new Random(42)
+      def items = (0..<200).collect { int id ->
+        byte[] body = new byte[3000]
+        random.nextBytes(body)
+        request(id, body)
+      }
+
+    when:
+      def encoded = encode(DatumCompression.DEFLATE, items)
+      def tail = new byte[items.last().serializedSize + 5]
+      encoded.getBytes(encoded.writerIndex() - tail.length, tail)
+      def decoded = decode(encoded, 4000)
+
+    then:
+      encoded.readableBytes() < rawSize(items) * 1.01
+      tail.toList().take(items.last().serializedSize) == items.last().toByteArray().toList()
+      decoded == items + ChannelMetadata.streamEndMessage()
+  }
+
+  def 'should reject a snappy block announcing too much before decoding any of it'() {
+    given:
+      def compressor = DatumCompression.SNAPPY.newCompressor().get()
+      def decompressor = DatumCompression.SNAPPY.newDecompressor().get()
+      def block = Unpooled.buffer()
+      def out = Unpooled.buffer()
+      compressor.compress(Unpooled.wrappedBuffer(new byte[BLOCK_SIZE * 4]), block)
+
+    when:
+      decompressor.decompress(block, out, BLOCK_SIZE)
+
+    then:
+      thrown(TooLongFrameException)
+      out.writerIndex() == 0
+
+    cleanup:
+      compressor.close()
+      decompressor.close()
+  }
+
+  def 'should not offer codecs for an uncompressed stream'() {
+    expect:
+      !DatumCompression.NONE.newCompressor().isPresent()
+      !DatumCompression.NONE.newDecompressor().isPresent()
+  }
+
+  def 'should record the announced codec on the channel'() {
+    given:
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(MAX_FRAME_SIZE))
+      def announcement = Unpooled.buffer()
+      ChannelMetadata.writeCompressionAnnouncement(DatumCompression.SNAPPY.code, announcement)
+
+    when:
+      decoder.writeInbound(announcement)
+
+    then:
+      decoder.attr(DatumCompression.CHANNEL_ATTRIBUTE).get() == DatumCompression.SNAPPY
+      decoder.inboundMessages().isEmpty()
+  }
+
+  def 'should pick the first codec accepted by the client unless compression is disabled'() {
+    expect:
+      DatumCompression.negotiate(DatumCompression.advertise(client), server) == negotiated
+
+    where:
+      client                   | server                   | negotiated
+      DatumCompression.NONE    | DatumCompression.DEFLATE | DatumCompression.NONE
+      DatumCompression.SNAPPY  | DatumCompression.NONE    | DatumCompression.NONE
+      DatumCompression.SNAPPY  | DatumCompression.DEFLATE | DatumCompression.SNAPPY
+      DatumCompression.DEFLATE | DatumCompression.SNAPPY  | DatumCompression.DEFLATE
+  }
+
+  def 'should advertise the preferred codec first'() {
+    expect:
+      DatumCompression.advertise(DatumCompression.SNAPPY) == [Compression.SNAPPY, Compression.DEFLATE]
+  }
+
+  private static ByteBuf encode(DatumCompression compression, List items) {
+    def encoder = new EmbeddedChannel(DatumCompressionEncoder.of(compression, BLOCK_SIZE),
+                                      new DatumStreamMetadataEncoder(),
+                                      DatumFrameEncoder.of(DatumRequestProto, ProtoSerializer.instance, 1024, 0))
+    items.each { encoder.write(it) }
+    encoder.writeAndFlush(ChannelMetadata.streamEndMessage())
+    def encoded = Unpooled.buffer()
+    encoder.outboundMessages().each { ByteBuf buf ->
+      encoded.writeBytes(buf)
+      buf.release()
+    }
+    encoded
+  }
+
+  private static List decode(ByteBuf encoded, int readSize) {
+    def decoder = new EmbeddedChannel(new DatumFrameDecoder(MAX_FRAME_SIZE))
+    def deserializer = new ProtoDeserializer(DatumRequestProto)
+    while (encoded.isReadable()) {
+      decoder.writeInbound(encoded.readSlice(Math.min(readSize, encoded.readableBytes())).retain())
+    }
+    encoded.release()
+    decoder.inboundMessages().collect { it instanceof ByteBuf ? deserializer.deserialize(it) : it }
+  }
+
+  private static long rawSize(List<DatumRequestProto> items) {
+    items.sum { it.serializedSize + 2 } as long
+  }
+
+  private static DatumRequestProto request(int id, byte[] body) {
+    DatumRequestProto.newBuilder()
+                     .setType(DatumRequestProto.RequestType.DOWNLOAD)
+                     .setParameterType("parameter-$id")
+                     .setParameterBody(ByteString.copyFrom(body))
+                     .setPrototypeName('test-prototype')
+                     .build()
+  }
+}
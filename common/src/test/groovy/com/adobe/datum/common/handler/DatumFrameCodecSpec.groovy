@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import com.adobe.datum.common.serialize.ProtoDeserializer
+import com.adobe.datum.common.serialize.ProtoSerializer
+import com.adobe.datum.common.serialize.SerializableDeserializer
+import com.adobe.datum.common.serialize.SerializableSerializer
+import com.adobe.datum.common.util.ProtoUtil
+import com.google.protobuf.ByteString
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import io.netty.channel.embedded.EmbeddedChannel
+import io.netty.handler.codec.TooLongFrameException
+import spock.lang.Specification
+import spock.lang.Unroll
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumFrameCodecSpec extends Specification {
+
+  static final int MAX_FRAME_SIZE = 4096
+
+  @Unroll
+  def 'should split a batch of #count #payloadType payloads back into items when read #chunkSize bytes at a time'() {
+    given:
+      def items = (0..<count).collect(generator)
+      def encoder = new EmbeddedChannel(DatumFrameEncoder.of(payloadClass, serializer, 1024, DatumFrameEncoder.NO_CHUNKING))
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(MAX_FRAME_SIZE),
+                                        DatumMessageDecoder.of(payloadClass, deserializer))
+
+    when:
+      encoder.writeOutbound(DatumBatch.of(items), ChannelMetadata.streamEndMessage())
+      ByteBuf encoded = encoder.readOutbound()
+      while (encoded.isReadable()) {
+        decoder.writeInbound(encoded.readSlice(Math.min(chunkSize, encoded.readableBytes())).retain())
+      }
+      encoded.release()
+
+    then:
+      decoder.inboundMessages().toList() == items
+
+    where:
+      payloadType    | payloadClass      | serializer                      | deserializer                              | generator                | count | chunkSize
+      'protobuf'     | DatumRequestProto | ProtoSerializer.instance        | new ProtoDeserializer(DatumRequestProto) | { request(it) }          | 100   | 1
+      'protobuf'     | DatumRequestProto | ProtoSerializer.instance        | new ProtoDeserializer(DatumRequestProto) | { request(it) }          | 1000  | 4096
+      'serializable' | String            | SerializableSerializer.instance | SerializableDeserializer.instance         | { "item-$it" as String } | 100   | 7
+  }
+
+  def 'should write a batch as batch frames of at most the maximum batch size'() {
+    given:
+      def items = (0..<40).collect { request(it) }
+      def encoder = new EmbeddedChannel(DatumFrameEncoder.of(DatumRequestProto, ProtoSerializer.instance, 256, 0))
+      def frames = items.collect { item ->
+        def frame = Unpooled.buffer()
+        ProtoUtil.writeRawVarint32(frame, item.serializedSize)
+        frame.writeBytes(item.toByteArray())
+      }
+      def batches = frames.inject([[]]) { List<List<ByteBuf>> batches, ByteBuf frame ->
+        if (batches.last() && batches.last().sum { it.readableBytes() } + frame.readableBytes() > 256) {
+          batches << []
+        }
+        batches.last() << frame
+        batches
+      }
+      def batchLengths = batches.collect { batch -> batch.sum { it.readableBytes() } as int }
+      def expected = Unpooled.buffer()
+      batches.eachWithIndex { batch, index ->
+        ChannelMetadata.writeBatchHeader(batchLengths[index], expected)
+        batch.each { expected.writeBytes(it) }
+      }
+
+    when:
+      encoder.writeOutbound(DatumBatch.of(items))
+      ByteBuf encoded = encoder.readOutbound()
+
+    then:
+      batchLengths.size() > 2
+      batchLengths.every { it <= 256 }
+      encoded == expected
+
+    cleanup:
+      encoded?.release()
+  }
+
+  def 'should leave payloads outside of batches untouched'() {
+    given:
+      def encoder = new EmbeddedChannel(DatumFrameEncoder.of(DatumRequestProto, ProtoSerializer.instance, 1024, 0),
+                                        new DatumStreamMetadataEncoder())
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(MAX_FRAME_SIZE))
+      def deserializer = new ProtoDeserializer(DatumRequestProto)
+
+    when:
+      encoder.writeOutbound(request(1), DatumBatch.of([request(2), request(3)]), ChannelMetadata.streamEndMessage())
+      encoder.outboundMessages().each { decoder.writeInbound(it) }
+      def messages = decoder.inboundMessages().toList()
+
+    then:
+      messages.size() == 4
+      messages.last() == ChannelMetadata.streamEndMessage()
+      messages.take(3).collect { deserializer.deserialize(it as ByteBuf) } == [request(1), request(2), request(3)]
+  }
+
+  @Unroll
+  def 'should reassemble #payloadType payloads split into chunks of #chunkSize bytes'() {
+    given:
+      def items = [generator(10), generator(10_000), generator(20), generator(100_000), generator(30)]
+      def encoder = new EmbeddedChannel(DatumFrameEncoder.of(payloadClass, serializer, 1024, chunkSize))
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(chunkSize),
+                                        DatumChunkDecoder.of(deserializer, 1024 * 1024),
+                                        DatumMessageDecoder.of(payloadClass, deserializer))
+
+    when:
+      encoder.writeOutbound(*items.take(2), DatumBatch.of(items.drop(2)))
+      encoder.outboundMessages().each { decoder.writeInbound(it) }
+
+    then:
+      decoder.inboundMessages().toList() == items
+
+    where:
+      payloadType    | payloadClass      | serializer                      | deserializer                              | generator       | chunkSize
+      'protobuf'     | DatumRequestProto | ProtoSerializer.instance        | new ProtoDeserializer(DatumRequestProto) | { request(it) } | 1000
+      'serializable' | String            | SerializableSerializer.instance | SerializableDeserializer.instance         | { 'x' * it }    | 1000
+  }
+
+  def 'should batch payloads encoded ahead of time exactly like the payloads themselves'() {
+    given:
+      def items = (0..<50).collect { request(it) }
+      def frameEncoder = DatumFrameEncoder.of(DatumRequestProto, ProtoSerializer.instance, 256, DatumFrameEncoder.NO_CHUNKING)
+      def frames = items.collect { frameEncoder.encodeToBuffer(it) }
+      def encoder = new EmbeddedChannel(frameEncoder)
+
+    when:
+      encoder.writeOutbound(DatumBatch.of(items))
+      ByteBuf expected = encoder.readOutbound()
+      encoder.writeOutbound(DatumBatch.of(frames))
+      ByteBuf encoded = encoder.readOutbound()
+
+    then:
+      encoded == expected
+      frames*.refCnt() == [0] * items.size()
+
+    cleanup:
+      expected?.release()
+      encoded?.release()
+  }
+
+  def 'should send chunked payloads encoded ahead of time in between batches'() {
+    given:
+      def items = [request(10), request(20), request(10_000), request(30)]
+      def frameEncoder = DatumFrameEncoder.of(DatumRequestProto, ProtoSerializer.instance, 1024, 1000)
+      def frames = items.collect { frameEncoder.encodeToBuffer(it) }
+      def deserializer = new ProtoDeserializer(DatumRequestProto)
+      def encoder = new EmbeddedChannel(frameEncoder)
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(1000),
+                                        DatumChunkDecoder.of(deserializer, 1024 * 1024),
+                                        DatumMessageDecoder.of(DatumRequestProto, deserializer))
+
+    when:
+      encoder.writeOutbound(DatumBatch.of(frames))
+      encoder.outboundMessages().each { decoder.writeInbound(it) }
+
+    then:
+      decoder.inboundMessages().toList() == items
+      frames*.refCnt() == [0] * items.size()
+  }
+
+  def 'should refuse frames longer than the maximum frame size before buffering them'() {
+    given:
+      def encoder = new EmbeddedChannel(DatumFrameEncoder.of(DatumRequestProto, ProtoSerializer.instance))
+      def decoder = new EmbeddedChannel(new DatumFrameDecoder(MAX_FRAME_SIZE))
+      encoder.writeOutbound(request(MAX_FRAME_SIZE))
+      ByteBuf encoded = encoder.readOutbound()
+
+    when:
+      decoder.writeInbound(encoded.readSlice(8))
+
+    then:
+      thrown(TooLongFrameException)
+
+    cleanup:
+      encoded.release()
+  }
+
+  private static DatumRequestProto request(int id) {
+    DatumRequestProto.newBuilder()
+                     .setType(DatumRequestProto.RequestType.DOWNLOAD)
+                     .setParameterType("parameter-$id")
+                     .setParameterBody(ByteString.copyFrom(new byte[id < 1000 ? id % 64 : id]))
+                     .setPrototypeName('test-prototype')
+                     .build()
+  }
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.handler
+
+import com.adobe.datum.common.channel.metadata.ChannelMetadata
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import io.netty.channel.ChannelHandlerContext
+import io.netty.channel.ChannelInboundHandlerAdapter
+import io.netty.channel.ChannelPipeline
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+import java.nio.charset.StandardCharsets
+import java.util.function.Consumer
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumStreamMultiplexerSpec extends Specification {
+
+  Map<Object, StringBuilder> received = [:]
+  List<Object> closed = []
+  List<Object> streams = []
+
+  def client = new EmbeddedChannel(DatumStreamMultiplexer.of())
+  def server = new EmbeddedChannel(new DatumMultiplexDetector({ ChannelPipeline pipeline ->
+    streams << pipeline.channel()
+    pipeline.addLast(new ChannelInboundHandlerAdapter() {
+      @Override
+      void channelRead(ChannelHandlerContext context, Object message) {
+        received.get(context.channel().streamId, new StringBuilder()).append(((ByteBuf) message).toString(StandardCharsets.US_ASCII))
+        ((ByteBuf) message).release()
+      }
+
+      @Override
+      void channelInactive(ChannelHandlerContext context) {
+        closed << context.channel().streamId
+      }
+    })
+  } as Consumer))
+
+  def 'should keep interleaved streams apart'() {
+    given:
+      def first = openStream()
+      def second = openStream()
+      def large = 'x' * (DatumStreamMultiplexer.MAX_DATA_LENGTH * 2 + 100)
+
+    when:
+      write(first, 'a1')
+      write(second, 'b1')
+      write(first, 'a2')
+      write(second, large)
+      transfer()
+
+    then:
+      received.collectEntries { id, data -> [id, data.toString()] } == [1: 'a1a2', 2: 'b1' + large]
+  }
+
+  def 'should close the stream on the other end'() {
+    given:
+      def stream = openStream()
+      write(stream, 'a')
+      transfer()
+
+    when:
+      stream.close()
+      transfer()
+
+    then:
+      streams*.streamId == [1]
+      closed == [1]
+  }
+
+  def 'should accept streams whose first frames arrive out of order'() {
+    given:
+      def first = openStream()
+      def second = openStream()
+      def third = openStream()
+
+    when:
+      write(third, 'c')
+      write(first, 'a')
+      third.close()
+      write(second, 'b')
+      transfer()
+
+    then:
+      received.collectEntries { id, data -> [id, data.toString()] } == [1: 'a', 2: 'b', 3: 'c']
+      streams*.streamId == [3, 1, 2]
+      closed == [3]
+  }
+
+  def 'should not reopen a stream that was closed before it wrote anything'() {
+    given:
+      def first = openStream()
+      def second = openStream()
+      write(second, 'b')
+      transfer()
+
+    when:
+      first.close()
+      transfer()
+      def late = Unpooled.buffer()
+      ChannelMetadata.writeStreamDataHeader(1, 1, late)
+      server.writeInbound(late.writeByte('a' as char))
+
+    then:
+      streams*.streamId == [2]
+      !received.containsKey(1)
+  }
+
+  def 'should set up plain connections as a single stream'() {
+    given:
+      def plainStreams = []
+      def plain = new EmbeddedChannel(new DatumMultiplexDetector({ ChannelPipeline pipeline ->
+        plainStreams << pipeline.channel()
+      } as Consumer))
+
+    when:
+      plain.writeInbound(Unpooled.copiedBuffer('plain', StandardCharsets.US_ASCII))
+
+    then:
+      plainStreams == [plain]
+      plain.pipeline().get(DatumMultiplexDetector) == null
+      plain.pipeline().get(DatumStreamMultiplexer) == null
+      ((ByteBuf) plain.readInbound()).toString(StandardCharsets.US_ASCII) == 'plain'
+  }
+
+  def 'should retire a connection that is about to run out of stream ids once its streams are over'() {
+    given:
+      client = new EmbeddedChannel(DatumStreamMultiplexer.of(Integer.MAX_VALUE - DatumStreamMultiplexer.RESERVED_STREAM_IDS))
+      def stream = openStream()
+
+    expect:
+      !DatumStreamMultiplexer.takesNewStreams(client)
+      client.active
+
+    when:
+      stream.close()
+      client.runPendingTasks()
+
+    then:
+      !client.active
+  }
+
+  def 'should not open a stream once the stream ids are used up'() {
+    given:
+      client = new EmbeddedChannel(DatumStreamMultiplexer.of(Integer.MAX_VALUE))
+      openStream()
+
+    when:
+      def future = DatumStreamMultiplexer.openStream(client, { } as Consumer)
+
+    then:
+      !future.success
+      future.cause() instanceof IllegalStateException
+  }
+
+  def openStream() {
+    DatumStreamMultiplexer.openStream(client, { } as Consumer).sync().channel()
+  }
+
+  def write(channel, String data) {
+    channel.writeAndFlush(Unpooled.copiedBuffer(data, StandardCharsets.US_ASCII))
+  }
+
+  def transfer() {
+    def message
+    while ((message = client.readOutbound()) != null) {
+      server.writeInbound(message)
+    }
+  }
+}
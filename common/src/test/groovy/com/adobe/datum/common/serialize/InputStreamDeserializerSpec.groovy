@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.serialize
+
+import io.netty.buffer.Unpooled
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class InputStreamDeserializerSpec extends Specification {
+
+  def directory = Files.createTempDirectory('datum-chunks')
+  def deserializer = InputStreamDeserializer.of(directory)
+
+  def cleanup() {
+    directory.toFile().deleteDir()
+  }
+
+  def 'should stream chunks to a file that goes away with the stream'() {
+    given:
+      def reader = deserializer.newChunkReader(4)
+      def chunks = ['first ', 'second ', 'third'].collect { Unpooled.copiedBuffer(it.bytes) }
+
+    when:
+      chunks.each {
+        reader.read(it)
+        it.release()
+      }
+      def stream = reader.complete()
+
+    then:
+      directory.toFile().list().length == 1
+
+    when:
+      def payload = new String(stream.bytes)
+      stream.close()
+
+    then:
+      payload == 'first second third'
+      directory.toFile().list().length == 0
+  }
+
+  def 'should delete the file of an aborted payload'() {
+    given:
+      def reader = deserializer.newChunkReader(4)
+      def chunk = Unpooled.copiedBuffer('first'.bytes)
+
+    when:
+      reader.read(chunk)
+      reader.abort()
+
+    then:
+      directory.toFile().list().length == 0
+
+    cleanup:
+      chunk.release()
+  }
+
+  def 'should hand a payload without chunks over as it is'() {
+    given:
+      def frame = Unpooled.copiedBuffer('prefix-payload'.bytes)
+      frame.readerIndex('prefix-'.length())
+
+    when:
+      def stream = deserializer.deserialize(frame)
+      frame.release()
+
+    then:
+      new String(stream.bytes) == 'payload'
+  }
+
+  def 'should send what is left of a stream and close it'() {
+    given:
+      def closed = false
+      def stream = new ByteArrayInputStream(('x' * 20000).bytes) {
+        @Override
+        void close() {
+          closed = true
+        }
+      }
+      def buffer = Unpooled.buffer()
+
+    when:
+      InputStreamSerializer.instance.serialize(stream, buffer)
+
+    then:
+      buffer.readableBytes() == 20000
+      closed
+
+    cleanup:
+      buffer.release()
+  }
+}
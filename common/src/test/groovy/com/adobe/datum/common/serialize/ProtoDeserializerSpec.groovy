@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.common.serialize
+
+import com.google.protobuf.ByteString
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import spock.lang.Specification
+import spock.lang.Unroll
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class ProtoDeserializerSpec extends Specification {
+
+  def deserializer = new ProtoDeserializer(DatumRequestProto)
+
+  @Unroll
+  def 'should deserialize #bodySize byte request from #bufferType buffer'() {
+    given:
+      def request = buildRequest(bodySize)
+      ByteBuf buffer = allocator(request.serializedSize)
+      buffer.writeBytes('prefix'.bytes)
+      buffer.writeBytes(request.toByteArray())
+      buffer.readerIndex('prefix'.length())
+
+    when:
+      def deserialized = deserializer.deserialize(buffer)
+
+    then:
+      deserialized == request
+
+    cleanup:
+      buffer.release()
+
+    where:
+      bufferType | bodySize  | allocator
+      'heap'     | 16        | { int size -> Unpooled.buffer(size + 8) }
+      'heap'     | 64 * 1024 | { int size -> Unpooled.buffer(size + 8) }
+      'direct'   | 16        | { int size -> Unpooled.directBuffer(size + 8) }
+      'direct'   | 64 * 1024 | { int size -> Unpooled.directBuffer(size + 8) }
+  }
+
+  private static DatumRequestProto buildRequest(int bodySize) {
+    DatumRequestProto.newBuilder()
+                     .setType(DatumRequestProto.RequestType.DOWNLOAD)
+                     .setParameterType('test-parameter')
+                     .setParameterBody(ByteString.copyFrom(new byte[bodySize]))
+                     .setPrototypeName('test-prototype')
+                     .build()
+  }
+}
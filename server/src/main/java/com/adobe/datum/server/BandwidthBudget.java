@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server;
+
+import com.adobe.datum.common.channel.ConnectionSettings;
+import com.google.common.collect.Lists;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.traffic.GlobalChannelTrafficShapingHandler;
+import io.netty.handler.traffic.GlobalTrafficShapingHandler;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Bandwidth shared by all connections of a server, instead of a fixed rate for each connection. One shaper holds the
+ * server-wide budget and spreads it over the active connections, slowing down those that get ahead of the others.
+ * Optionally, every client host gets a shaper of its own that caps all its connections together.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class BandwidthBudget {
+
+  private final ScheduledExecutorService           executor;
+  private final ConnectionSettings                 settings;
+  private final GlobalChannelTrafficShapingHandler serverShaper;
+
+  private final Map<InetAddress, ClientShaper> clientShapers = new ConcurrentHashMap<>();
+
+  private BandwidthBudget(ScheduledExecutorService executor, ConnectionSettings settings) {
+    this.executor = executor;
+    this.settings = settings;
+    this.serverShaper = new GlobalChannelTrafficShapingHandler(executor,
+                                                               settings.getGlobalWriteBandwidth(),
+                                                               settings.getGlobalReadBandwidth(),
+                                                               0,
+                                                               0,
+                                                               settings.getBandwidthCheckInterval(),
+                                                               settings.getBandwidthWaitDelay());
+  }
+
+  static BandwidthBudget of(ScheduledExecutorService executor, ConnectionSettings settings) {
+    return new BandwidthBudget(executor, settings);
+  }
+
+  /**
+   * Shapers for a new connection, outermost first. The client's shaper is released once its last connection closes.
+   */
+  ChannelHandler[] shapersFor(Channel channel) {
+    List<ChannelHandler> shapers = Lists.newArrayList(serverShaper);
+    if (settings.getClientWriteBandwidth() > 0 || settings.getClientReadBandwidth() > 0) {
+      InetAddress client = ((InetSocketAddress) channel.remoteAddress()).getAddress();
+      ClientShaper clientShaper = clientShapers.compute(client, (address, shaper) -> {
+        ClientShaper acquired = shaper == null ? new ClientShaper() : shaper;
+        acquired.connections++;
+        return acquired;
+      });
+      channel.closeFuture().addListener(future -> releaseClientShaper(client));
+      shapers.add(clientShaper.handler);
+    }
+    return shapers.toArray(new ChannelHandler[shapers.size()]);
+  }
+
+  /**
+   * Stops the traffic counters of every shaper, once the server shuts down.
+   */
+  void release() {
+    serverShaper.release();
+    clientShapers.values().forEach(shaper -> shaper.handler.release());
+    clientShapers.clear();
+  }
+
+  private void releaseClientShaper(InetAddress client) {
+    clientShapers.computeIfPresent(client, (address, shaper) -> {
+      if (--shaper.connections > 0) {
+        return shaper;
+      }
+      shaper.handler.release();
+      return null;
+    });
+  }
+
+  private final class ClientShaper {
+
+    private final GlobalTrafficShapingHandler handler = new GlobalTrafficShapingHandler(
+        executor,
+        settings.getClientWriteBandwidth(),
+        settings.getClientReadBandwidth(),
+        settings.getBandwidthCheckInterval(),
+        settings.getBandwidthWaitDelay());
+
+    // only changed within the map's compute functions
+    private int connections;
+  }
+}
@@ -28,16 +28,26 @@ import com.adobe.datum.common.serialize.DatumSerializer;
 import com.adobe.datum.common.serialize.SerializationContext;
 import com.adobe.datum.common.util.Nullables;
 import com.adobe.datum.common.util.ReflectionUtil;
+import com.adobe.datum.server.handler.AsyncDownloadHandler;
 import com.adobe.datum.server.handler.DatumServerHandler;
 import com.adobe.datum.server.handler.DatumServerHandlerBuilder;
 import com.adobe.datum.server.handler.DownloadHandler;
 import com.adobe.datum.server.handler.UploadHandler;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 /**
  * @author Adobe Systems Inc.
@@ -49,8 +59,20 @@ public final class DatumServer {
   private final DatumServerHandlerBuilder builder;
   private final SerializationContext serializationContext = new SerializationContext();
 
+  // how the boss and worker groups are made, and whether sockets may share a port; fixed in tests
+  private final IntFunction<EventLoopGroup> eventLoopGroups;
+  private final boolean                     reusePortSupported;
+
+  private volatile ChannelGroup listeners;
+
   public DatumServer(DatumCallback callback) {
-    builder = new DatumServerHandlerBuilder(callback);
+    this(callback, ChannelUtil::newEventLoopGroup, ChannelUtil.isReusePortSupported());
+  }
+
+  DatumServer(DatumCallback callback, IntFunction<EventLoopGroup> eventLoopGroups, boolean reusePortSupported) {
+    this.builder = new DatumServerHandlerBuilder(callback);
+    this.eventLoopGroups = eventLoopGroups;
+    this.reusePortSupported = reusePortSupported;
   }
 
   public DatumServer() {
@@ -61,22 +83,77 @@ public final class DatumServer {
     return start(settings, false);
   }
 
+  /**
+   * Starts listening on the port of the settings. With more than one acceptor, that many sockets listen on the port,
+   * each accepting on a boss thread of its own, and the kernel spreads new connections over them. This takes
+   * {@code SO_REUSEPORT}, so anywhere but on Linux a single socket listens instead. The server shuts down once any of
+   * its sockets is closed.
+   */
   public DatumServer start(ConnectionSettings settings, boolean synchronous) throws InterruptedException {
-    DatumServerHandler serverHandler = builder.build(serializationContext);
-    EventLoopGroup eventLoopGroup = ChannelUtil.newEventLoopGroup();
-    ChannelFuture channelFuture = DatumServerBootstrap.getInstance()
-                                                      .bootstrap(eventLoopGroup, settings, serverHandler)
-                                                      .bind(settings.getPort());
-    channelFuture.addListener(future -> LOG.info("datum server started on port {}", settings.getPort()));
-    ChannelFuture closeFuture = channelFuture.channel().closeFuture();
-    closeFuture.addListener(future -> LOG.info("datum server shutting down"))
-               .addListener(future -> eventLoopGroup.shutdownGracefully());
+    DatumServerHandler serverHandler = builder.build(serializationContext, settings);
+    int acceptors = getAcceptors(settings);
+    EventLoopGroup bossGroup = eventLoopGroups.apply(Math.max(settings.getBossThreads(), acceptors));
+    EventLoopGroup workerGroup = eventLoopGroups.apply(settings.getWorkerThreads());
+    DatumServerInitializer initializer = new DatumServerInitializer(serverHandler, settings, workerGroup);
+    ServerBootstrap bootstrap = DatumServerBootstrap.getInstance()
+                                                    .bootstrap(bossGroup, workerGroup, settings, initializer,
+                                                               reusePortSupported);
+
+    // every bind registers with the next boss event loop, so each listening socket gets an acceptor thread of its own
+    ChannelGroup listeners = new DefaultChannelGroup("datum-listeners", GlobalEventExecutor.INSTANCE);
+    this.listeners = listeners;
+    List<ChannelFuture> closeFutures = Lists.newArrayList();
+    for (int i = 0; i < acceptors; i++) {
+      ChannelFuture channelFuture = bootstrap.bind(settings.getPort());
+      channelFuture.addListener(future -> LOG.info("datum server started on port {}", settings.getPort()));
+      listeners.add(channelFuture.channel());
+      closeFutures.add(channelFuture.channel().closeFuture());
+    }
+
+    AtomicInteger open = new AtomicInteger(acceptors);
+    closeFutures.forEach(closeFuture -> closeFuture.addListener(future -> {
+      listeners.close();
+      if (open.decrementAndGet() == 0) {
+        LOG.info("datum server shutting down");
+        initializer.release();
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+      }
+    }));
     if (synchronous) {
-      closeFuture.sync();
+      for (ChannelFuture closeFuture : closeFutures) {
+        closeFuture.sync();
+      }
     }
     return this;
   }
 
+  /**
+   * Closes the listening sockets of the server, which then shuts down as it does when any of them is closed.
+   */
+  public void shutdown() {
+    Preconditions.checkState(listeners != null, "datum server was not started");
+    listeners.close();
+  }
+
+  private int getAcceptors(ConnectionSettings settings) {
+    if (settings.getAcceptors() > 1 && !reusePortSupported) {
+      LOG.warn("{} acceptors asked for, but SO_REUSEPORT is not available; listening on a single socket",
+               settings.getAcceptors());
+      return 1;
+    }
+    return Math.max(settings.getAcceptors(), 1);
+  }
+
+  /**
+   * Runs download and upload handlers on the given executor instead of the event loop, so that handlers may block.
+   * A bounded executor sheds load: a request it rejects is turned down as overloaded. Takes effect on start.
+   */
+  public DatumServer setRequestExecutor(Executor requestExecutor) {
+    builder.requestExecutor(requestExecutor);
+    return this;
+  }
+
   public <R, P> DatumServer addDownloadHandler(DownloadHandler<R, P> downloadHandler) {
     return addDownloadHandler(downloadHandler, new UncaughtErrorReporterCallback(downloadHandler.getClass()));
   }
@@ -86,6 +163,15 @@ public final class DatumServer {
     return this;
   }
 
+  public <R, P> DatumServer addDownloadHandler(AsyncDownloadHandler<R, P> downloadHandler) {
+    return addDownloadHandler(downloadHandler, new UncaughtErrorReporterCallback(downloadHandler.getClass()));
+  }
+
+  public <R, P> DatumServer addDownloadHandler(AsyncDownloadHandler<R, P> downloadHandler, DatumCallback callback) {
+    builder.addDownloadHandler(downloadHandler, callback);
+    return this;
+  }
+
   public <R, P> DatumServer addUploadHandler(UploadHandler<R, P> uploadHandler) {
     return addUploadHandler(uploadHandler, new UncaughtErrorReporterCallback(uploadHandler.getClass()));
   }
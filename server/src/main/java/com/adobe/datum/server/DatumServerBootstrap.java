@@ -25,6 +25,7 @@ import com.adobe.datum.server.handler.DatumServerHandler;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK;
@@ -45,14 +46,53 @@ public final class DatumServerBootstrap {
 
   public ServerBootstrap bootstrap(EventLoopGroup group, ConnectionSettings settings, DatumServerHandler serverHandler)
       throws InterruptedException {
+    return bootstrap(group, group, settings, serverHandler);
+  }
+
+  /**
+   * Accepts connections on the boss group and serves them on the worker group. Listening sockets bound from the
+   * returned bootstrap share their port if the settings ask for more than one acceptor (see
+   * {@link DatumServer#start(ConnectionSettings)}).
+   */
+  public ServerBootstrap bootstrap(EventLoopGroup bossGroup,
+                                   EventLoopGroup workerGroup,
+                                   ConnectionSettings settings,
+                                   DatumServerHandler serverHandler)
+      throws InterruptedException {
+    DatumServerInitializer initializer = new DatumServerInitializer(serverHandler, settings, workerGroup);
+    return bootstrap(bossGroup, workerGroup, settings, initializer);
+  }
+
+  /**
+   * Same as above, with an initializer of the caller's, which is to release it once the server shuts down.
+   */
+  public ServerBootstrap bootstrap(EventLoopGroup bossGroup,
+                                   EventLoopGroup workerGroup,
+                                   ConnectionSettings settings,
+                                   DatumServerInitializer initializer)
+      throws InterruptedException {
+    return bootstrap(bossGroup, workerGroup, settings, initializer, ChannelUtil.isReusePortSupported());
+  }
+
+  ServerBootstrap bootstrap(EventLoopGroup bossGroup,
+                            EventLoopGroup workerGroup,
+                            ConnectionSettings settings,
+                            DatumServerInitializer initializer,
+                            boolean reusePortSupported)
+      throws InterruptedException {
     ChannelUtil.validateSettings(settings);
-    return new ServerBootstrap().group(group, group)
-                                .channel(ChannelUtil.getServerChannel())
-                                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.getConnectTimeoutMillis())
-                                .handler(new LoggingHandler(LogLevel.INFO))
-                                .childOption(ChannelOption.ALLOCATOR, ChannelUtil.getAllocator())
-                                .childOption(WRITE_BUFFER_LOW_WATER_MARK, settings.getWriteBufferLowWaterMark())
-                                .childOption(WRITE_BUFFER_HIGH_WATER_MARK, settings.getWriteBufferHighWaterMark())
-                                .childHandler(new DatumServerInitializer(serverHandler, settings));
+    ServerBootstrap bootstrap =
+        new ServerBootstrap().group(bossGroup, workerGroup)
+                             .channel(ChannelUtil.getServerChannel())
+                             .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.getConnectTimeoutMillis())
+                             .handler(new LoggingHandler(LogLevel.INFO))
+                             .childOption(ChannelOption.ALLOCATOR, ChannelUtil.getAllocator())
+                             .childOption(WRITE_BUFFER_LOW_WATER_MARK, settings.getWriteBufferLowWaterMark())
+                             .childOption(WRITE_BUFFER_HIGH_WATER_MARK, settings.getWriteBufferHighWaterMark())
+                             .childHandler(initializer);
+    if (settings.getAcceptors() > 1 && reusePortSupported) {
+      bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+    }
+    return bootstrap;
   }
 }
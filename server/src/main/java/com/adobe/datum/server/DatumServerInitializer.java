@@ -21,9 +21,12 @@ package com.adobe.datum.server;
 
 import com.adobe.datum.common.channel.ConnectionSettings;
 import com.adobe.datum.common.handler.ChannelHandlers;
+import com.adobe.datum.common.handler.TrafficLoggingHandler;
 import com.adobe.datum.server.handler.DatumServerHandler;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * @author Adobe Systems Inc.
@@ -32,21 +35,59 @@ public class DatumServerInitializer extends ChannelInitializer<SocketChannel> {
 
   private final DatumServerHandler serverHandler;
   private final ConnectionSettings settings;
+  private final BandwidthBudget    bandwidthBudget;
 
   public DatumServerInitializer(DatumServerHandler serverHandler, ConnectionSettings settings) {
+    this(serverHandler, settings, null);
+  }
+
+  /**
+   * @param trafficExecutor runs the traffic counters of the server-wide bandwidth budget, if the settings ask for one.
+   */
+  public DatumServerInitializer(DatumServerHandler serverHandler,
+                                ConnectionSettings settings,
+                                ScheduledExecutorService trafficExecutor) {
     this.serverHandler = serverHandler;
     this.settings = settings;
+    this.bandwidthBudget = trafficExecutor != null && settings.isGlobalTrafficShaping()
+                           ? BandwidthBudget.of(trafficExecutor, settings) : null;
+  }
+
+  /**
+   * Lets go of the server-wide bandwidth budget, if there is one, once the server shuts down.
+   */
+  public void release() {
+    if (bandwidthBudget != null) {
+      bandwidthBudget.release();
+    }
   }
 
   @Override
   public void initChannel(SocketChannel channel) {
-    channel.pipeline()
-           .addLast(ChannelHandlers.loggingHandler())
-           .addLast(ChannelHandlers.trafficShapingHandlers(settings))
-           .addLast(ChannelHandlers.metadataEncoder())
-           .addLast(ChannelHandlers.frameDecoder())
-           .addLast(ChannelHandlers.frameEncoder())
-           .addLast(ChannelHandlers.requestDecoder())
-           .addLast(serverHandler);
+    channel.pipeline().addLast(ChannelHandlers.loggingHandler());
+    if (bandwidthBudget != null) {
+      channel.pipeline()
+             .addLast(bandwidthBudget.shapersFor(channel))
+             .addLast(new TrafficLoggingHandler());
+    } else {
+      channel.pipeline().addLast(ChannelHandlers.trafficShapingHandlers(settings));
+    }
+    if (settings.isAdaptiveWaterMarks()) {
+      channel.pipeline().addLast(ChannelHandlers.adaptiveWaterMarkHandler(settings));
+    }
+    // streams of a multiplexed connection are only held back by credit, so they are taken only with a credit window
+    if (settings.getCreditWindow() > 0) {
+      channel.pipeline().addLast(ChannelHandlers.multiplexDetector(this::initStream));
+    } else {
+      initStream(channel.pipeline());
+    }
+  }
+
+  private void initStream(ChannelPipeline pipeline) {
+    pipeline.addLast(ChannelHandlers.metadataEncoder())
+            .addLast(ChannelHandlers.frameDecoder(settings))
+            .addLast(ChannelHandlers.creditHandler())
+            .addLast(ChannelHandlers.requestDecoder())
+            .addLast(serverHandler);
   }
 }
@@ -19,14 +19,26 @@
 
 package com.adobe.datum.server.handler;
 
+import com.adobe.datum.common.channel.ConnectionSettings;
 import com.adobe.datum.common.channel.metadata.ChannelMetadata;
+import com.adobe.datum.common.channel.metadata.DatumCreditMessage;
+import com.adobe.datum.common.channel.metadata.DatumRequestFailedMessage;
+import com.adobe.datum.common.compress.DatumCompression;
 import com.adobe.datum.common.function.DatumCallback;
 import com.adobe.datum.common.handler.ChannelHandlers;
+import com.adobe.datum.common.handler.ChannelReuse;
+import com.adobe.datum.common.handler.CreditWindow;
+import com.adobe.datum.common.handler.DatumChannelDownloadHandler;
 import com.adobe.datum.common.serialize.DatumDeserializer;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.traffic.GlobalTrafficShapingHandler;
 import io.netty.util.concurrent.FutureListener;
+import java.util.concurrent.atomic.AtomicInteger;
 import static com.adobe.datum.common.api.DatumProto.DatumRequestProto;
 
 /**
@@ -38,41 +50,144 @@ public abstract class AbstractRequestHandler<R, P> implements RequestHandler {
 
   private final Class<P>             payloadClass;
   private final DatumDeserializer<R> requestDeserializer;
+  private final ConnectionSettings   settings;
   private final DatumCallback        callback;
+  private final AdmissionControl     admissionControl;
+  private final AtomicInteger        activeStreams = new AtomicInteger();
+
+  // caps all streams of this handler together; created with the first stream that needs it
+  private volatile GlobalTrafficShapingHandler streamShaper;
 
   protected AbstractRequestHandler(Class<P> payloadClass,
                                    DatumDeserializer<R> requestDeserializer,
-                                   DatumCallback callback) {
+                                   ConnectionSettings settings,
+                                   DatumCallback callback,
+                                   AdmissionControl admissionControl) {
     this.payloadClass = payloadClass;
     this.requestDeserializer = requestDeserializer;
+    this.settings = settings;
     this.callback = callback;
+    this.admissionControl = admissionControl;
   }
 
   @Override
   public final void handleRequest(ChannelHandlerContext context, DatumRequestProto datumRequest) {
-    try {
-      R request = requestDeserializer.deserialize(datumRequest.getParameterBody());
-      doRequest(context, request);
-    } catch (Throwable t) {
-      handleError(new RequestHandlerException("unable to deserialize request: " + datumRequest.getParameterBody()
-                                                  + " using " + requestDeserializer, t));
+    DatumCompression compression =
+        DatumCompression.negotiate(datumRequest.getAcceptedCompressionList(), settings.getCompression());
+    context.channel().attr(DatumCompression.CHANNEL_ATTRIBUTE).set(compression);
+    if (datumRequest.getKeepAlive()) {
+      ChannelReuse.keepAlive(context.channel());
+    }
+    if (datumRequest.getInitialCredit() > 0) {
+      CreditWindow.grant(context.channel(), datumRequest.getInitialCredit());
     }
+    admissionControl.admit(context.channel(), activeStreams, getMaxActiveStreams(), () -> {
+      try {
+        R request = requestDeserializer.deserialize(datumRequest.getParameterBody());
+        doRequest(context, request, datumRequest);
+      } catch (Throwable t) {
+        handleError(context.channel(), new RequestHandlerException("unable to deserialize request: " + datumRequest.getParameterBody()
+                                                    + " using " + requestDeserializer, t));
+      }
+    });
   }
 
-  private void handleError(Throwable cause) {
+  /**
+   * Ends the stream of a request that failed: the client is told so, and closing the channel lets go of the stream's
+   * admission, which would otherwise be held until the client disconnects.
+   */
+  private void handleError(Channel channel, Throwable cause) {
+    channel.writeAndFlush(DatumRequestFailedMessage.of()).addListener(ChannelFutureListener.CLOSE);
     callback.onError(cause);
   }
 
+  /**
+   * Number of items the server lets the client send ahead of its consumer, provided the client understands credit
+   * control frames at all.
+   */
+  protected int getCreditWindow(DatumRequestProto datumRequest) {
+    return datumRequest.hasInitialCredit() ? settings.getCreditWindow() : DatumChannelDownloadHandler.NO_CREDIT;
+  }
+
+  protected void sendInitialCredit(Channel channel, int creditWindow) {
+    if (creditWindow != DatumChannelDownloadHandler.NO_CREDIT) {
+      channel.write(DatumCreditMessage.of(creditWindow));
+    }
+  }
+
+  /**
+   * Streams of this handler the server serves at most at a time; zero for no limit.
+   */
+  protected int getMaxActiveStreams() {
+    return 0;
+  }
+
+  /**
+   * Bytes per second the server may write, summed over all streams of this handler; zero for no cap.
+   */
+  protected long getWriteBandwidthLimit() {
+    return 0;
+  }
+
+  /**
+   * Bytes per second the server may read, summed over all streams of this handler; zero for no cap.
+   */
+  protected long getReadBandwidthLimit() {
+    return 0;
+  }
+
   protected void prepareChannel(Channel channel, FutureListener listener) {
+    // request handlers may run on an executor of their own, the pipeline is only ever changed on the event loop
+    if (!channel.eventLoop().inEventLoop()) {
+      channel.eventLoop().execute(() -> prepareChannel(channel, listener));
+      return;
+    }
+
     // cleanup inbound channel handlers
     channel.pipeline()
            .remove(ChannelHandlers.requestDecoder())
            .remove(DatumServerHandler.class);
 
+    if (getWriteBandwidthLimit() > 0 || getReadBandwidthLimit() > 0) {
+      channel.pipeline().addFirst(getStreamShaper(channel));
+    }
+
+    // the codec is announced ahead of the stream start, which is still sent uncompressed
+    DatumCompression compression = channel.attr(DatumCompression.CHANNEL_ATTRIBUTE).get();
+    if (compression != DatumCompression.NONE) {
+      sendCompressionAnnouncement(channel, compression);
+    }
+
     // send message to indicate start of streaming
     sendStreamStartMessage(channel, listener);
   }
 
+  private GlobalTrafficShapingHandler getStreamShaper(Channel channel) {
+    GlobalTrafficShapingHandler shaper = streamShaper;
+    if (shaper == null) {
+      synchronized (this) {
+        shaper = streamShaper;
+        if (shaper == null) {
+          // a loop of no group of its own, as in tests, runs the counter by itself
+          EventLoopGroup group = channel.eventLoop().parent();
+          shaper = new GlobalTrafficShapingHandler(group != null ? group : channel.eventLoop(),
+                                                   getWriteBandwidthLimit(),
+                                                   getReadBandwidthLimit(),
+                                                   settings.getBandwidthCheckInterval(),
+                                                   settings.getBandwidthWaitDelay());
+          streamShaper = shaper;
+        }
+      }
+    }
+    return shaper;
+  }
+
+  private void sendCompressionAnnouncement(Channel channel, DatumCompression compression) {
+    ByteBuf announcement = channel.alloc().buffer();
+    ChannelMetadata.writeCompressionAnnouncement(compression.getCode(), announcement);
+    channel.write(announcement);
+  }
+
   @SuppressWarnings("unchecked")
   private void sendStreamStartMessage(Channel channel, FutureListener listener) {
     ChannelPromise promise = channel.newPromise().addListener(listener);
@@ -83,10 +198,15 @@ public abstract class AbstractRequestHandler<R, P> implements RequestHandler {
     return payloadClass;
   }
 
+  protected ConnectionSettings getSettings() {
+    return settings;
+  }
+
   protected DatumCallback getCallback() {
     return callback;
   }
 
-  protected abstract void doRequest(ChannelHandlerContext context, R request) throws RequestHandlerException;
+  protected abstract void doRequest(ChannelHandlerContext context, R request, DatumRequestProto datumRequest)
+      throws RequestHandlerException;
 
 }
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.channel.metadata.DatumOverloadMessage;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether a server takes on another stream, and where the handler of its request runs. A stream counts against
+ * the server-wide limit and the limit of its handler from its request until it ends, one way or another. A request
+ * over either limit, or one the request executor does not take, is turned down right away with a
+ * {@link DatumOverloadMessage} instead of being queued until the client gives up.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class AdmissionControl {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdmissionControl.class);
+
+  static final AdmissionControl UNLIMITED = new AdmissionControl(0, null);
+
+  private final int           maxActiveStreams;
+  private final Executor      requestExecutor;
+  private final AtomicInteger activeStreams = new AtomicInteger();
+
+  private AdmissionControl(int maxActiveStreams, Executor requestExecutor) {
+    this.maxActiveStreams = maxActiveStreams;
+    this.requestExecutor = requestExecutor;
+  }
+
+  /**
+   * @param maxActiveStreams streams the server serves at most at a time; zero for no limit
+   * @param requestExecutor runs request handlers; {@code null} to run them on the event loop
+   */
+  static AdmissionControl of(int maxActiveStreams, Executor requestExecutor) {
+    return new AdmissionControl(maxActiveStreams, requestExecutor);
+  }
+
+  /**
+   * Admits the stream of the channel against the server's limit and the given one of its handler, and runs the
+   * handler invocation. The stream is let go of once its handlers leave the pipeline, as they do when the stream ends.
+   */
+  void admit(Channel channel, AtomicInteger handlerStreams, int maxHandlerStreams, Runnable invocation) {
+    if (!tryAcquire(activeStreams, maxActiveStreams)) {
+      reject(channel, DatumOverloadMessage.Reason.SERVER_LIMIT);
+      return;
+    }
+    if (!tryAcquire(handlerStreams, maxHandlerStreams)) {
+      activeStreams.decrementAndGet();
+      reject(channel, DatumOverloadMessage.Reason.HANDLER_LIMIT);
+      return;
+    }
+    ChannelHandler ticket = StreamScope.onEnd(channel, () -> {
+      handlerStreams.decrementAndGet();
+      activeStreams.decrementAndGet();
+    });
+
+    if (requestExecutor == null) {
+      invocation.run();
+      return;
+    }
+    try {
+      requestExecutor.execute(invocation);
+    } catch (RejectedExecutionException e) {
+      channel.pipeline().remove(ticket);
+      reject(channel, DatumOverloadMessage.Reason.EXECUTOR_SATURATED);
+    }
+  }
+
+  private static boolean tryAcquire(AtomicInteger streams, int maxStreams) {
+    if (maxStreams <= 0) {
+      streams.incrementAndGet();
+      return true;
+    }
+    int active;
+    do {
+      active = streams.get();
+      if (active >= maxStreams) {
+        return false;
+      }
+    } while (!streams.compareAndSet(active, active + 1));
+    return true;
+  }
+
+  private static void reject(Channel channel, DatumOverloadMessage.Reason reason) {
+    LOG.info("turning down request on {}: {}", channel, reason);
+    channel.writeAndFlush(DatumOverloadMessage.of(reason)).addListener(ChannelFutureListener.CLOSE);
+  }
+}
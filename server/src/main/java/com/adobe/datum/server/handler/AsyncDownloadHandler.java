@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.function.AsyncDatumSupplier;
+import java.util.Optional;
+
+/**
+ * Same as {@link DownloadHandler} but hands out an {@link AsyncDatumSupplier}, for payloads that come from blocking
+ * sources and must not be read on the event loop.
+ *
+ * @author Adobe Systems Inc.
+ * @param <R> Request message type
+ * @param <P> Payload type
+ */
+public interface AsyncDownloadHandler<R, P> {
+
+  AsyncDatumSupplier<Optional<P>> handleRequest(R request) throws RequestHandlerException;
+
+  /**
+   * Bytes per second shared by all streams of this handler, on top of the server's budgets; zero for no cap.
+   */
+  default long getBandwidthLimit() {
+    return 0;
+  }
+
+  /**
+   * Streams of this handler the server serves at most at a time, on top of the server's limit; zero for no limit.
+   * Requests beyond it are turned down as overloaded.
+   */
+  default int getMaxActiveStreams() {
+    return 0;
+  }
+
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.function.DatumCheckpoints;
+import com.adobe.datum.common.function.DatumSupplier;
+import com.adobe.datum.common.function.ResumableDatumSupplier;
+import com.google.common.base.Preconditions;
+import java.util.Optional;
+
+/**
+ * Takes the position of the supplier of a {@link ResumableDownloadHandler} as a checkpoint every so many items, for
+ * the upload handler to mark in the stream.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class CheckpointingSupplier<R, P> implements DatumSupplier<Optional<P>>, DatumCheckpoints {
+
+  private final ResumableDownloadHandler<R, P> handler;
+  private final R                              request;
+  private final ResumableDatumSupplier<P>      supplier;
+  private final int                            interval;
+
+  private int    sinceCheckpoint;
+  private byte[] checkpoint;
+
+  CheckpointingSupplier(ResumableDownloadHandler<R, P> handler, R request, ResumableDatumSupplier<P> supplier) {
+    Preconditions.checkArgument(handler.getCheckpointInterval() > 0,
+                                "checkpoint interval must be positive: %s", handler.getCheckpointInterval());
+    this.handler = handler;
+    this.request = request;
+    this.supplier = Preconditions.checkNotNull(supplier, "supplier cannot be null");
+    this.interval = handler.getCheckpointInterval();
+  }
+
+  @Override
+  public Optional<P> get() throws Exception {
+    Optional<P> item = supplier.get();
+    if (item.isPresent() && ++sinceCheckpoint >= interval) {
+      sinceCheckpoint = 0;
+      checkpoint = supplier.getPosition();
+    }
+    return item;
+  }
+
+  @Override
+  public Optional<byte[]> takeCheckpoint() {
+    Optional<byte[]> taken = Optional.ofNullable(checkpoint);
+    checkpoint = null;
+    return taken;
+  }
+
+  @Override
+  public void onCheckpointAcknowledged(byte[] position) {
+    handler.onCheckpointAcknowledged(request, position);
+  }
+
+  @Override
+  public void onComplete() {
+    supplier.onComplete();
+  }
+
+  @Override
+  public void onError(Throwable cause) {
+    supplier.onError(cause);
+  }
+}
@@ -0,0 +1,523 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.function.AsyncDatumSupplier;
+import com.adobe.datum.common.function.WrappedRuntimeException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Download streams in flight for cacheable handlers, shared by every identical request that comes in while they can
+ * still be joined. A shared stream has a single producer of encoded frames, so the handler runs and the items are
+ * serialized once however many channels the frames fan out to. Each channel still writes at its own pace: frames a
+ * subscriber has not reached yet stay buffered for it.
+ *
+ * <p>
+ * The first subscriber to run out of frames asks the producer for the next one, on its own thread. Subscribers running
+ * out meanwhile are handed a future that completes along with it, rather than waiting on the producer, so a producer
+ * that blocks only ever blocks the one event loop it was asked on.
+ *
+ * <p>
+ * A stream can be joined as long as it holds every frame from the first on, up to {@code joinMaxBytes}. Past that the
+ * stream stops taking subscribers and lets go of each frame once every subscriber has gone by it, so that only the lag
+ * of the slowest one stays buffered. That lag is capped at {@code lagMaxBytes} too: subscribers falling further behind
+ * are detached, taking along the frames they have yet to write, and go on from a producer of their own, which skips
+ * the frames produced already.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class CoalescedStreams {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CoalescedStreams.class);
+
+  private final long joinMaxBytes;
+  private final long lagMaxBytes;
+
+  private final Map<EncodedStreamCache.Key, SharedStream> streams = new ConcurrentHashMap<>();
+
+  private CoalescedStreams(long joinMaxBytes, long lagMaxBytes) {
+    this.joinMaxBytes = joinMaxBytes;
+    this.lagMaxBytes = lagMaxBytes;
+  }
+
+  /**
+   * Streams that subscribers may fall twice as far behind as they can be joined.
+   */
+  static CoalescedStreams of(long joinMaxBytes) {
+    return of(joinMaxBytes, 2 * joinMaxBytes);
+  }
+
+  static CoalescedStreams of(long joinMaxBytes, long lagMaxBytes) {
+    Preconditions.checkArgument(lagMaxBytes >= joinMaxBytes,
+                                "lag cap %s is below the join cap %s", lagMaxBytes, joinMaxBytes);
+    return new CoalescedStreams(joinMaxBytes, lagMaxBytes);
+  }
+
+  /**
+   * Joins the stream in flight for the key if it can still be joined, or else shares the frames of a new producer
+   * with the identical requests that come in from now on. Of any number of identical requests coming in at once, only
+   * one calls the factory; the others are handed frames once its producer is there.
+   */
+  Subscriber subscribe(EncodedStreamCache.Key key, ProducerFactory factory) throws RequestHandlerException {
+    while (true) {
+      SharedStream created = new SharedStream(key, factory);
+      SharedStream stream = streams.putIfAbsent(key, created);
+      if (stream == null) {
+        Subscriber subscriber = created.subscribe().get();
+        try {
+          created.start();
+        } catch (RequestHandlerException | RuntimeException e) {
+          subscriber.leave();
+          throw e;
+        }
+        return subscriber;
+      }
+      Optional<Subscriber> subscriber = stream.subscribe();
+      if (subscriber.isPresent()) {
+        return subscriber.get();
+      }
+      // just stopped taking subscribers, on its way out of the map
+      streams.remove(key, stream);
+    }
+  }
+
+  private void unshare(EncodedStreamCache.Key key, SharedStream stream) {
+    streams.remove(key, stream);
+  }
+
+  private static Throwable unwrap(Throwable cause) {
+    Throwable unwrapped = cause;
+    while ((unwrapped instanceof CompletionException || unwrapped instanceof WrappedRuntimeException)
+           && unwrapped.getCause() != null) {
+      unwrapped = unwrapped.getCause();
+    }
+    return unwrapped;
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable cause) {
+    CompletableFuture<T> failed = new CompletableFuture<>();
+    failed.completeExceptionally(cause);
+    return failed;
+  }
+
+  /**
+   * Creates the producer of a shared stream. Every producer of a key yields the same frames, as the streams of
+   * cacheable handlers depend on nothing but their request.
+   */
+  interface ProducerFactory {
+    AsyncDatumSupplier<Optional<ByteBuf>> create() throws RequestHandlerException;
+  }
+
+  private final class SharedStream {
+
+    private final EncodedStreamCache.Key key;
+    private final ProducerFactory        factory;
+
+    // guarded by this; frames[i] is frame (trimmed + i) of the stream
+    private final List<ByteBuf>    frames      = Lists.newArrayList();
+    private final List<Subscriber> subscribers = Lists.newArrayList();
+    private AsyncDatumSupplier<Optional<ByteBuf>> producer;
+    private int       trimmed;
+    private int       skipped;
+    private long      bytes;
+    private long      bufferedBytes;
+    private boolean   joinable;
+    private boolean   starting;
+    private boolean   producing;
+    private boolean   exhausted;
+    private boolean   ended;
+    private Throwable failure;
+
+    /**
+     * A stream to be shared, whose producer its first subscriber starts right away.
+     */
+    private SharedStream(EncodedStreamCache.Key key, ProducerFactory factory) {
+      this.key = key;
+      this.factory = factory;
+      this.joinable = true;
+      this.starting = true;
+    }
+
+    /**
+     * A stream of the given laggards alone, handed the frames they have yet to write, whose producer starts once they
+     * got through them and skips as many frames as were produced.
+     */
+    private SharedStream(SharedStream shared, List<Subscriber> laggards, List<ByteBuf> pending) {
+      this.key = shared.key;
+      this.factory = shared.factory;
+      this.trimmed = shared.trimmed;
+      this.skipped = shared.trimmed + shared.frames.size();
+      this.frames.addAll(pending);
+      this.subscribers.addAll(laggards);
+      this.bufferedBytes = pending.stream().mapToLong(ByteBuf::readableBytes).sum();
+      this.bytes = this.bufferedBytes;
+    }
+
+    private void start() throws RequestHandlerException {
+      AsyncDatumSupplier<Optional<ByteBuf>> created;
+      try {
+        created = factory.create();
+      } catch (RequestHandlerException | RuntimeException e) {
+        // whoever joined meanwhile fails the same way
+        fail(e);
+        throw e;
+      }
+      started(created);
+    }
+
+    private void started(AsyncDatumSupplier<Optional<ByteBuf>> created) {
+      boolean over;
+      synchronized (this) {
+        producer = created;
+        starting = false;
+        over = ended;
+      }
+      if (over) {
+        // every subscriber left while the producer was created
+        finish(new ClosedChannelException());
+        return;
+      }
+      produce();
+    }
+
+    private synchronized Optional<Subscriber> subscribe() {
+      if (!joinable) {
+        return Optional.empty();
+      }
+      Subscriber subscriber = new Subscriber(this);
+      subscribers.add(subscriber);
+      if (subscribers.size() > 1) {
+        LOG.debug("request for {} joined a stream in flight with {} subscribers", key, subscribers.size() - 1);
+      }
+      return Optional.of(subscriber);
+    }
+
+    /**
+     * @return the next frame for the subscriber, empty at the end of the stream, or {@code null} if the subscriber
+     * was detached from this stream
+     */
+    private CompletableFuture<Optional<ByteBuf>> next(Subscriber subscriber) {
+      CompletableFuture<Optional<ByteBuf>> next = poll(subscriber);
+      if (next != null && !next.isDone()) {
+        produce();
+      }
+      return next;
+    }
+
+    /**
+     * @return the next frame buffered for the subscriber, or a future of the frame still to be produced
+     */
+    private synchronized CompletableFuture<Optional<ByteBuf>> poll(Subscriber subscriber) {
+      if (subscriber.stream != this) {
+        return null;
+      }
+      if (subscriber.next - trimmed < frames.size()) {
+        ByteBuf frame = frames.get(subscriber.next++ - trimmed).duplicate().retain();
+        // the slowest subscriber going by a frame lets go of it
+        trim();
+        return CompletableFuture.completedFuture(Optional.of(frame));
+      }
+      if (failure != null) {
+        return failed(failure);
+      }
+      if (exhausted) {
+        return CompletableFuture.completedFuture(Optional.empty());
+      }
+      subscriber.pending = new CompletableFuture<>();
+      return subscriber.pending;
+    }
+
+    /**
+     * Asks the producer for frames for as long as a subscriber waits for one. Only one caller at a time gets to, the
+     * others leave right away.
+     */
+    private void produce() {
+      if (claimStart()) {
+        AsyncDatumSupplier<Optional<ByteBuf>> created;
+        try {
+          created = factory.create();
+        } catch (RequestHandlerException | RuntimeException e) {
+          fail(e);
+          return;
+        }
+        started(created);
+        return;
+      }
+      while (claimProduction()) {
+        CompletableFuture<Optional<ByteBuf>> frame;
+        try {
+          frame = producer.get();
+        } catch (RuntimeException e) {
+          frame = failed(e);
+        }
+        if (!frame.isDone()) {
+          frame.whenComplete((item, cause) -> {
+            produced(item, cause);
+            produce();
+          });
+          return;
+        }
+        try {
+          produced(frame.join(), null);
+        } catch (CompletionException | CancellationException e) {
+          produced(null, e);
+        }
+      }
+    }
+
+    private synchronized boolean claimStart() {
+      if (producer != null || starting || ended || failure != null) {
+        return false;
+      }
+      starting = true;
+      return true;
+    }
+
+    private synchronized boolean claimProduction() {
+      if (producer == null || producing || ended || exhausted || failure != null
+          || subscribers.stream().noneMatch(subscriber -> subscriber.pending != null)) {
+        return false;
+      }
+      producing = true;
+      return true;
+    }
+
+    private void produced(Optional<ByteBuf> frame, Throwable cause) {
+      List<Runnable> completions = Lists.newArrayList();
+      Throwable outcome = null;
+      boolean over;
+      synchronized (this) {
+        producing = false;
+        over = ended;
+        if (cause != null) {
+          failure = unwrap(cause);
+          if (joinable) {
+            joinable = false;
+            unshare(key, this);
+          }
+          Throwable streamFailure = failure;
+          forEachPending(pending -> completions.add(() -> pending.completeExceptionally(streamFailure)));
+          outcome = failure;
+        } else if (!frame.isPresent()) {
+          exhausted = true;
+          forEachPending(pending -> completions.add(() -> pending.complete(Optional.empty())));
+        } else if (over) {
+          // every subscriber left while the frame was produced
+          frame.get().release();
+          outcome = new ClosedChannelException();
+        } else if (skipped > 0) {
+          // produced already by the stream this one was detached from, and handed over along with the laggards
+          skipped--;
+          frame.get().release();
+        } else {
+          append(frame.get(), completions);
+        }
+      }
+      completions.forEach(Runnable::run);
+      if (over) {
+        finish(outcome);
+      }
+    }
+
+    private void append(ByteBuf frame, List<Runnable> completions) {
+      // the stream keeps the reference the frame came with, each subscriber gets one of its own
+      frames.add(frame);
+      bytes += frame.readableBytes();
+      bufferedBytes += frame.readableBytes();
+      forEachPending(pending -> {
+        ByteBuf handed = frame.duplicate().retain();
+        completions.add(() -> pending.complete(Optional.of(handed)));
+      });
+      if (joinable && bytes > joinMaxBytes) {
+        joinable = false;
+        unshare(key, this);
+      }
+      trim();
+      detachLaggards();
+    }
+
+    /**
+     * Takes the future of every subscriber waiting for the next frame, which moves it past that frame.
+     */
+    private void forEachPending(Consumer<CompletableFuture<Optional<ByteBuf>>> action) {
+      for (Subscriber subscriber : subscribers) {
+        if (subscriber.pending != null) {
+          CompletableFuture<Optional<ByteBuf>> pending = subscriber.pending;
+          subscriber.pending = null;
+          subscriber.next++;
+          action.accept(pending);
+        }
+      }
+    }
+
+    private void fail(Throwable cause) {
+      List<Runnable> completions = Lists.newArrayList();
+      synchronized (this) {
+        // the other subscribers fail the same way instead of calling the producer again
+        failure = cause;
+        starting = false;
+        if (joinable) {
+          joinable = false;
+          unshare(key, this);
+        }
+        forEachPending(pending -> completions.add(() -> pending.completeExceptionally(cause)));
+      }
+      completions.forEach(Runnable::run);
+    }
+
+    /**
+     * @return whether the subscriber was part of this stream; if not, it was detached from it
+     */
+    private boolean leave(Subscriber subscriber) {
+      boolean finish;
+      Throwable outcome;
+      synchronized (this) {
+        if (subscriber.stream != this) {
+          return false;
+        }
+        subscriber.pending = null;
+        if (!subscribers.remove(subscriber) || !subscribers.isEmpty()) {
+          trim();
+          return true;
+        }
+        ended = true;
+        joinable = false;
+        frames.forEach(ByteBuf::release);
+        frames.clear();
+        bufferedBytes = 0;
+        unshare(key, this);
+        // a frame being produced, or a producer being created, ends the stream once it is there
+        finish = producer != null && !producing;
+        outcome = exhausted ? null : failure != null ? failure : new ClosedChannelException();
+      }
+      if (finish) {
+        finish(outcome);
+      }
+      return true;
+    }
+
+    private void finish(Throwable outcome) {
+      if (outcome == null) {
+        producer.onComplete();
+      } else {
+        producer.onError(outcome);
+      }
+    }
+
+    private void trim() {
+      if (joinable) {
+        return;
+      }
+      int slowest = subscribers.stream().mapToInt(subscriber -> subscriber.next).min().orElse(trimmed);
+      while (trimmed < slowest && !frames.isEmpty()) {
+        ByteBuf frame = frames.remove(0);
+        bufferedBytes -= frame.readableBytes();
+        frame.release();
+        trimmed++;
+      }
+    }
+
+    /**
+     * Detaches the slowest subscribers for as long as their lag, which is all that stays buffered, exceeds the cap.
+     */
+    private void detachLaggards() {
+      while (!joinable && bufferedBytes > lagMaxBytes) {
+        int slowest = trimmed;
+        List<Subscriber> laggards = subscribers.stream()
+                                               .filter(subscriber -> subscriber.next == slowest)
+                                               .collect(Collectors.toList());
+        if (laggards.size() == subscribers.size()) {
+          return;
+        }
+        List<ByteBuf> pending = frames.stream()
+                                      .map(frame -> frame.duplicate().retain())
+                                      .collect(Collectors.toList());
+        SharedStream detached = new SharedStream(this, laggards, pending);
+        laggards.forEach(subscriber -> subscriber.stream = detached);
+        subscribers.removeAll(laggards);
+        LOG.debug("detached {} subscribers more than {} bytes behind the stream for {}",
+                  laggards.size(), lagMaxBytes, key);
+        trim();
+      }
+    }
+  }
+
+  /**
+   * Supplies the frames of a shared stream to one channel.
+   */
+  static final class Subscriber implements AsyncDatumSupplier<Optional<ByteBuf>> {
+
+    // changes once the subscriber is detached, under the lock of the stream it is detached from
+    private volatile SharedStream stream;
+
+    // guarded by the stream
+    private int                                  next;
+    private CompletableFuture<Optional<ByteBuf>> pending;
+
+    private Subscriber(SharedStream stream) {
+      this.stream = stream;
+    }
+
+    @Override
+    public CompletableFuture<Optional<ByteBuf>> get() {
+      CompletableFuture<Optional<ByteBuf>> next;
+      // null once detached, the frame then comes from the stream it was detached to
+      do {
+        next = stream.next(this);
+      } while (next == null);
+      return next;
+    }
+
+    @Override
+    public void onComplete() {
+      leave();
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+      leave();
+    }
+
+    /**
+     * Leaves the stream, as when the channel closes before the stream is over. The last subscriber to leave ends it.
+     */
+    void leave() {
+      boolean left;
+      // false once detached, it then leaves the stream it was detached to
+      do {
+        left = stream.leave(this);
+      } while (!left);
+    }
+  }
+}
@@ -19,6 +19,7 @@
 
 package com.adobe.datum.server.handler;
 
+import com.adobe.datum.common.channel.ConnectionSettings;
 import com.adobe.datum.common.function.DatumCallback;
 import com.adobe.datum.common.serialize.DatumDeserializer;
 import com.adobe.datum.common.serialize.DatumSerializer;
@@ -27,6 +28,7 @@ import com.adobe.datum.common.serialize.SerializerProvider;
 import com.adobe.datum.common.util.ReflectionUtil;
 import com.google.common.collect.Lists;
 import java.util.List;
+import java.util.concurrent.Executor;
 import static com.adobe.datum.common.api.DatumProto.DatumRequestProto.RequestType;
 
 /**
@@ -39,6 +41,8 @@ public class DatumServerHandlerBuilder {
 
   private final DatumCallback callback;
 
+  private Executor requestExecutor;
+
   public DatumServerHandlerBuilder(DatumCallback callback) {
     this.callback = callback;
   }
@@ -53,6 +57,16 @@ public class DatumServerHandlerBuilder {
     downloadRequestHandlerBuilders.add(builder);
   }
 
+  public <R, P> void addDownloadHandler(AsyncDownloadHandler<R, P> downloadHandler, DatumCallback callback) {
+    Class<R> requestClass = ReflectionUtil.getFirstTypeParameter(downloadHandler.getClass());
+    Class<P> payloadClass = ReflectionUtil.getSecondTypeParameter(downloadHandler.getClass());
+    DownloadRequestHandlerBuilder<R, P> builder = new DownloadRequestHandlerBuilder<>(requestClass, payloadClass);
+    builder.asyncHandler(downloadHandler)
+           .callback(callback)
+           .requestType(RequestType.DOWNLOAD);
+    downloadRequestHandlerBuilders.add(builder);
+  }
+
   public <R, P> void addUploadHandler(UploadHandler<R, P> uploadHandler, DatumCallback callback) {
     Class<R> requestClass = ReflectionUtil.getFirstTypeParameter(uploadHandler.getClass());
     Class<P> payloadClass = ReflectionUtil.getSecondTypeParameter(uploadHandler.getClass());
@@ -63,17 +77,43 @@ public class DatumServerHandlerBuilder {
     uploadRequestHandlerBuilders.add(builder);
   }
 
-  @SuppressWarnings("unchecked")
+  /**
+   * Runs request handlers on the given executor instead of the event loop; a request the executor rejects is turned
+   * down as overloaded.
+   */
+  public void requestExecutor(Executor requestExecutor) {
+    this.requestExecutor = requestExecutor;
+  }
+
   public DatumServerHandler build(SerializationContext serializationContext) {
+    return build(serializationContext, ConnectionSettings.getDefaultSettings());
+  }
+
+  @SuppressWarnings("unchecked")
+  public DatumServerHandler build(SerializationContext serializationContext, ConnectionSettings settings) {
     SerializerProvider serializerProvider = new SerializerProvider(serializationContext);
     DatumServerHandler serverHandler = new DatumServerHandler(callback);
+    AdmissionControl admissionControl = AdmissionControl.of(settings.getMaxActiveStreams(), requestExecutor);
+    EncodedStreamCache streamCache = settings.getStreamCacheMaxBytes() > 0
+                                     ? EncodedStreamCache.of(settings.getStreamCacheMaxBytes(),
+                                                             settings.getStreamCacheTtlMillis())
+                                     : null;
+    CoalescedStreams coalescedStreams = settings.getCoalescingMaxBytes() > 0
+                                        ? CoalescedStreams.of(settings.getCoalescingMaxBytes())
+                                        : null;
     downloadRequestHandlerBuilders.forEach(builder -> {
       builder.payloadSerializer(serializerProvider.getSerializer(builder.getPayloadClass()))
+             .streamCache(streamCache)
+             .coalescedStreams(coalescedStreams)
+             .settings(settings)
+             .admissionControl(admissionControl)
              .requestDeserializer(serializerProvider.getDeserializer(builder.getRequestClass()));
       serverHandler.addRequestHandler(builder.buildRequestHandlerKey(), builder.buildRequestHandler());
     });
     uploadRequestHandlerBuilders.forEach(builder -> {
       builder.payloadDeserializer(serializerProvider.getDeserializer(builder.getPayloadClass()))
+             .settings(settings)
+             .admissionControl(admissionControl)
              .requestDeserializer(serializerProvider.getDeserializer(builder.getRequestClass()));
       serverHandler.addRequestHandler(builder.buildRequestHandlerKey(), builder.buildRequestHandler());
     });
@@ -88,6 +128,7 @@ public class DatumServerHandlerBuilder {
     DatumCallback        callback;
     RequestType          requestType;
     DatumDeserializer<R> requestDeserializer;
+    AdmissionControl     admissionControl = AdmissionControl.UNLIMITED;
 
     public RequestHandlerBuilder(Class<R> requestClass, Class<P> payloadClass) {
       this.requestClass = requestClass;
@@ -109,6 +150,11 @@ public class DatumServerHandlerBuilder {
       return this;
     }
 
+    public RequestHandlerBuilder<R, P> admissionControl(AdmissionControl admissionControl) {
+      this.admissionControl = admissionControl;
+      return this;
+    }
+
     public Class<R> getRequestClass() {
       return requestClass;
     }
@@ -124,8 +170,12 @@ public class DatumServerHandlerBuilder {
 
   private static final class DownloadRequestHandlerBuilder<R, P> extends RequestHandlerBuilder<R, P> {
 
-    private DownloadHandler<R, P> downloadHandler;
-    private DatumSerializer<P>    payloadSerializer;
+    private DownloadHandler<R, P>      downloadHandler;
+    private AsyncDownloadHandler<R, P> asyncDownloadHandler;
+    private DatumSerializer<P>         payloadSerializer;
+    private EncodedStreamCache         streamCache;
+    private CoalescedStreams           coalescedStreams;
+    private ConnectionSettings         settings;
 
     public DownloadRequestHandlerBuilder(Class<R> requestClass, Class<P> payloadClass) {
       super(requestClass, payloadClass);
@@ -136,17 +186,42 @@ public class DatumServerHandlerBuilder {
       return this;
     }
 
+    public DownloadRequestHandlerBuilder<R, P> asyncHandler(AsyncDownloadHandler<R, P> asyncDownloadHandler) {
+      this.asyncDownloadHandler = asyncDownloadHandler;
+      return this;
+    }
+
     public DownloadRequestHandlerBuilder<R, P> payloadSerializer(DatumSerializer<P> payloadSerializer) {
       this.payloadSerializer = payloadSerializer;
       return this;
     }
 
+    public DownloadRequestHandlerBuilder<R, P> streamCache(EncodedStreamCache streamCache) {
+      this.streamCache = streamCache;
+      return this;
+    }
+
+    public DownloadRequestHandlerBuilder<R, P> coalescedStreams(CoalescedStreams coalescedStreams) {
+      this.coalescedStreams = coalescedStreams;
+      return this;
+    }
+
+    public DownloadRequestHandlerBuilder<R, P> settings(ConnectionSettings settings) {
+      this.settings = settings;
+      return this;
+    }
+
     public DownloadRequestHandler<R, P> buildRequestHandler() {
       return new DownloadRequestHandler<>(payloadClass,
                                           downloadHandler,
+                                          asyncDownloadHandler,
                                           requestDeserializer,
                                           payloadSerializer,
-                                          callback);
+                                          streamCache,
+                                          coalescedStreams,
+                                          settings,
+                                          callback,
+                                          admissionControl);
     }
   }
 
@@ -154,6 +229,7 @@ public class DatumServerHandlerBuilder {
 
     private UploadHandler<R, P>  uploadHandler;
     private DatumDeserializer<P> payloadDeserializer;
+    private ConnectionSettings   settings;
 
     public UploadRequestHandlerBuilder(Class<R> requestClass, Class<P> payloadClass) {
       super(requestClass, payloadClass);
@@ -169,12 +245,19 @@ public class DatumServerHandlerBuilder {
       return this;
     }
 
+    public UploadRequestHandlerBuilder<R, P> settings(ConnectionSettings settings) {
+      this.settings = settings;
+      return this;
+    }
+
     public RequestHandler buildRequestHandler() {
       return new UploadRequestHandler<>(payloadClass,
                                         uploadHandler,
                                         requestDeserializer,
                                         payloadDeserializer,
-                                        callback);
+                                        settings,
+                                        callback,
+                                        admissionControl);
     }
   }
 }
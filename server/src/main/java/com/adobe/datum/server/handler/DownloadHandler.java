@@ -20,7 +20,9 @@
 package com.adobe.datum.server.handler;
 
 import com.adobe.datum.common.function.DatumSupplier;
+import com.adobe.datum.common.util.ExecutorUtil;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 /**
  * @author Adobe Systems Inc.
@@ -31,4 +33,40 @@ public interface DownloadHandler<R, P> {
 
   DatumSupplier<Optional<P>> handleRequest(R request) throws RequestHandlerException;
 
+  /**
+   * Number of items to read ahead of the network on {@link #getReadAheadExecutor()}. With the default of zero, the
+   * supplier is called on the event loop.
+   */
+  default int getReadAheadDepth() {
+    return 0;
+  }
+
+  default Executor getReadAheadExecutor() {
+    return ExecutorUtil.offloadExecutor();
+  }
+
+  /**
+   * Bytes per second shared by all streams of this handler, on top of the server's budgets; zero for no cap.
+   */
+  default long getBandwidthLimit() {
+    return 0;
+  }
+
+  /**
+   * Streams of this handler the server serves at most at a time, on top of the server's limit; zero for no limit.
+   * Requests beyond it are turned down as overloaded.
+   */
+  default int getMaxActiveStreams() {
+    return 0;
+  }
+
+  /**
+   * Whether the stream for a request only depends on the request, so that the server may answer identical requests
+   * from its stream cache without calling this handler, if the settings give it one, and share a stream in flight with
+   * the identical requests that come in meanwhile.
+   */
+  default boolean isCacheable() {
+    return false;
+  }
+
 }
@@ -19,43 +19,172 @@
 
 package com.adobe.datum.server.handler;
 
+import com.adobe.datum.common.channel.ConnectionSettings;
+import com.adobe.datum.common.function.AsyncDatumSupplier;
 import com.adobe.datum.common.function.DatumCallback;
 import com.adobe.datum.common.function.DatumSupplier;
+import com.adobe.datum.common.handler.ChannelHandlers;
 import com.adobe.datum.common.handler.DatumChannelUploadHandler;
-import com.adobe.datum.common.handler.DatumMessageEncoder;
+import com.adobe.datum.common.handler.DatumFrameEncoder;
 import com.adobe.datum.common.serialize.DatumDeserializer;
 import com.adobe.datum.common.serialize.DatumSerializer;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
 import io.netty.util.concurrent.FutureListener;
 import java.util.Optional;
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto;
 
 /**
  * @author Adobe Systems Inc.
  */
 final class DownloadRequestHandler<R, P> extends AbstractRequestHandler<R, P> {
 
-  private final DownloadHandler<R, P> downloadHandler;
-  private final DatumSerializer<P>    payloadSerializer;
+  private final DownloadHandler<R, P>          downloadHandler;
+  private final AsyncDownloadHandler<R, P>     asyncDownloadHandler;
+  private final ResumableDownloadHandler<R, P> resumableHandler;
+  private final DatumSerializer<P>             payloadSerializer;
+  private final EncodedStreamCache             streamCache;
+  private final CoalescedStreams               coalescedStreams;
+  private final DatumFrameEncoder<P>           cacheEncoder;
 
+  @SuppressWarnings("unchecked")
   DownloadRequestHandler(Class<P> payloadClass,
                          DownloadHandler<R, P> downloadHandler,
+                         AsyncDownloadHandler<R, P> asyncDownloadHandler,
                          DatumDeserializer<R> requestDeserializer,
                          DatumSerializer<P> payloadSerializer,
-                         DatumCallback callback) {
-    super(payloadClass, requestDeserializer, callback);
+                         EncodedStreamCache streamCache,
+                         CoalescedStreams coalescedStreams,
+                         ConnectionSettings settings,
+                         DatumCallback callback,
+                         AdmissionControl admissionControl) {
+    super(payloadClass, requestDeserializer, settings, callback, admissionControl);
     this.downloadHandler = downloadHandler;
+    this.asyncDownloadHandler = asyncDownloadHandler;
+    this.resumableHandler = downloadHandler instanceof ResumableDownloadHandler
+                            ? (ResumableDownloadHandler<R, P>) downloadHandler
+                            : null;
     this.payloadSerializer = payloadSerializer;
+    boolean cacheable = downloadHandler != null && downloadHandler.isCacheable();
+    this.streamCache = cacheable ? streamCache : null;
+    this.coalescedStreams = cacheable ? coalescedStreams : null;
+    this.cacheEncoder = DatumFrameEncoder.of(payloadClass,
+                                             payloadSerializer,
+                                             settings.getBatchMaxBytes(),
+                                             settings.getChunkSize());
   }
 
   @Override
-  protected void doRequest(ChannelHandlerContext context, R request) throws RequestHandlerException {
-    DatumSupplier<Optional<P>> supplier = downloadHandler.handleRequest(request);
-    ChannelHandler channelHandler = DatumChannelUploadHandler.of(supplier, getCallback());
-    FutureListener listener =
-        future -> context.pipeline()
-                         .addLast(DatumMessageEncoder.of(getPayloadClass(), payloadSerializer))
-                         .addLast(channelHandler);
+  protected void doRequest(ChannelHandlerContext context, R request, DatumRequestProto datumRequest)
+      throws RequestHandlerException {
+    ChannelHandler channelHandler = newUploadHandler(context.channel(), request, datumRequest);
+    FutureListener listener = future -> {
+      ChannelHandlers.addCompressionEncoder(context.pipeline(), getSettings());
+      context.pipeline()
+             .addLast(ChannelHandlers.frameEncoder(getPayloadClass(), payloadSerializer, getSettings()))
+             .addLast(channelHandler)
+             .addLast(ChannelHandlers.streamEndHandler());
+    };
     prepareChannel(context.channel(), listener);
   }
+
+  @Override
+  protected long getWriteBandwidthLimit() {
+    return asyncDownloadHandler != null
+           ? asyncDownloadHandler.getBandwidthLimit()
+           : downloadHandler.getBandwidthLimit();
+  }
+
+  @Override
+  protected int getMaxActiveStreams() {
+    return asyncDownloadHandler != null
+           ? asyncDownloadHandler.getMaxActiveStreams()
+           : downloadHandler.getMaxActiveStreams();
+  }
+
+  private ChannelHandler newUploadHandler(Channel channel, R request, DatumRequestProto datumRequest)
+      throws RequestHandlerException {
+    if (asyncDownloadHandler != null) {
+      AsyncDatumSupplier<Optional<P>> supplier = asyncDownloadHandler.handleRequest(request);
+      return DatumChannelUploadHandler.of(supplier, getCallback(), getSettings());
+    }
+    if (resumableHandler != null && datumRequest.hasResumeCheckpoint()) {
+      return newCheckpointedUploadHandler(request, datumRequest.getResumeCheckpoint());
+    }
+    if (streamCache == null && coalescedStreams == null) {
+      return newUploadHandler(downloadHandler.handleRequest(request));
+    }
+
+    EncodedStreamCache.Key key = EncodedStreamCache.key(new RequestHandlerKey(datumRequest.getParameterType(),
+                                                                              datumRequest.getPrototypeName(),
+                                                                              datumRequest.getType()),
+                                                        datumRequest.getParameterBody());
+    if (streamCache != null) {
+      Optional<EncodedStreamCache.ReplayingSupplier> replay = streamCache.replay(key);
+      if (replay.isPresent()) {
+        StreamScope.onEnd(channel, replay.get()::abandon);
+        return DatumChannelUploadHandler.of(replay.get(), getCallback(), getSettings());
+      }
+    }
+    if (coalescedStreams == null) {
+      EncodedStreamCache.RecordingSupplier<P> recording =
+          streamCache.record(key, downloadHandler.handleRequest(request), this::encode);
+      StreamScope.onEnd(channel, recording::abandon);
+      return newUploadHandler(recording);
+    }
+    // the shared stream ends the recording along with the last of its subscribers
+    CoalescedStreams.Subscriber subscriber = coalescedStreams.subscribe(key, () -> {
+      DatumSupplier<Optional<P>> supplier = downloadHandler.handleRequest(request);
+      return newSharedProducer(streamCache != null
+                               ? streamCache.record(key, supplier, this::encode)
+                               : supplier.transform(item -> item.map(this::encode)));
+    });
+    StreamScope.onEnd(channel, subscriber::leave);
+    return DatumChannelUploadHandler.of(subscriber, getCallback(), getSettings());
+  }
+
+  /**
+   * Reads ahead once for all subscribers of a shared stream; without read-ahead, the frames are produced on the event
+   * loop of whichever subscriber asks first.
+   */
+  private AsyncDatumSupplier<Optional<ByteBuf>> newSharedProducer(DatumSupplier<Optional<ByteBuf>> frames) {
+    if (downloadHandler.getReadAheadDepth() > 0) {
+      return DatumSupplier.readAhead(frames,
+                                     downloadHandler.getReadAheadDepth(),
+                                     downloadHandler.getReadAheadExecutor());
+    }
+    return frames.toAsync(Runnable::run);
+  }
+
+  private ChannelHandler newCheckpointedUploadHandler(R request, ByteString resumeCheckpoint)
+      throws RequestHandlerException {
+    Optional<byte[]> position = resumeCheckpoint.isEmpty()
+                                ? Optional.empty()
+                                : Optional.of(resumeCheckpoint.toByteArray());
+    CheckpointingSupplier<R, P> supplier =
+        new CheckpointingSupplier<>(resumableHandler, request, resumableHandler.handleRequest(request, position));
+    return DatumChannelUploadHandler.of(supplier, getCallback(), getSettings());
+  }
+
+  private <T> ChannelHandler newUploadHandler(DatumSupplier<Optional<T>> supplier) {
+    if (downloadHandler.getReadAheadDepth() > 0) {
+      AsyncDatumSupplier<Optional<T>> readAhead = DatumSupplier.readAhead(supplier,
+                                                                          downloadHandler.getReadAheadDepth(),
+                                                                          downloadHandler.getReadAheadExecutor());
+      return DatumChannelUploadHandler.of(readAhead, getCallback(), getSettings());
+    }
+    return DatumChannelUploadHandler.of(supplier, getCallback(), getSettings());
+  }
+
+  private ByteBuf encode(P payload) {
+    try {
+      return cacheEncoder.encodeToBuffer(payload);
+    } catch (Exception e) {
+      throw new EncoderException("unable to encode " + payload + " for the stream cache", e);
+    }
+  }
 }
@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.function.DatumSupplier;
+import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Download streams of cacheable handlers, kept as the frames they were encoded into, so that an identical request is
+ * answered without running the handler or serializing anything again. A stream is keyed by its handler and the bytes
+ * of its request, and is stored once it was supplied to the end. The least recently used streams are evicted to keep
+ * the cache within its size, and streams older than the time to live are not replayed.
+ *
+ * <p>
+ * Frames are pooled buffers owned by the cache. A replay holds a reference to every frame of its stream, so that
+ * eviction never releases a frame that is still to be written, and hands each one out as a duplicate.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class EncodedStreamCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EncodedStreamCache.class);
+
+  private final long         maxBytes;
+  private final long         ttlMillis;
+  private final LongSupplier clock;
+
+  // guarded by this
+  private final LinkedHashMap<Key, CachedStream> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long size;
+
+  private EncodedStreamCache(long maxBytes, long ttlMillis, LongSupplier clock) {
+    this.maxBytes = maxBytes;
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+  }
+
+  static EncodedStreamCache of(long maxBytes, long ttlMillis) {
+    return of(maxBytes, ttlMillis, System::currentTimeMillis);
+  }
+
+  /**
+   * @param clock current time in milliseconds, that the age of cached streams is measured with
+   */
+  static EncodedStreamCache of(long maxBytes, long ttlMillis, LongSupplier clock) {
+    return new EncodedStreamCache(maxBytes, ttlMillis, clock);
+  }
+
+  static Key key(RequestHandlerKey handlerKey, ByteString requestBody) {
+    return new Key(handlerKey, requestBody);
+  }
+
+  /**
+   * @return a supplier replaying the frames of the stream, if it is cached and still fresh
+   */
+  synchronized Optional<ReplayingSupplier> replay(Key key) {
+    CachedStream entry = entries.get(key);
+    if (entry == null) {
+      return Optional.empty();
+    }
+    if (clock.getAsLong() - entry.createdMillis > ttlMillis) {
+      remove(key);
+      return Optional.empty();
+    }
+    entry.frames.forEach(ByteBuf::retain);
+    return Optional.of(new ReplayingSupplier(entry.frames));
+  }
+
+  /**
+   * Encodes the items of a stream with the given encoder while they are supplied, and caches the frames once the
+   * supplier is exhausted. The frames are let go of if the stream is abandoned before, or outgrows the cache.
+   */
+  <P> RecordingSupplier<P> record(Key key, DatumSupplier<Optional<P>> supplier, Function<P, ByteBuf> encoder) {
+    return new RecordingSupplier<>(key, supplier, encoder);
+  }
+
+  synchronized long getSize() {
+    return size;
+  }
+
+  private synchronized void put(Key key, List<ByteBuf> frames, long bytes) {
+    if (entries.containsKey(key)) {
+      remove(key);
+    }
+    entries.put(key, new CachedStream(frames, bytes, clock.getAsLong()));
+    size += bytes;
+
+    Iterator<Map.Entry<Key, CachedStream>> eldest = entries.entrySet().iterator();
+    while (size > maxBytes && eldest.hasNext()) {
+      CachedStream evicted = eldest.next().getValue();
+      eldest.remove();
+      release(evicted);
+    }
+  }
+
+  private void remove(Key key) {
+    release(entries.remove(key));
+  }
+
+  private void release(CachedStream entry) {
+    size -= entry.bytes;
+    entry.frames.forEach(ByteBuf::release);
+  }
+
+  @EqualsAndHashCode
+  @ToString
+  static final class Key {
+
+    private final RequestHandlerKey handlerKey;
+    private final ByteString        requestBody;
+
+    private Key(RequestHandlerKey handlerKey, ByteString requestBody) {
+      this.handlerKey = handlerKey;
+      this.requestBody = requestBody;
+    }
+  }
+
+  private static final class CachedStream {
+
+    private final List<ByteBuf> frames;
+    private final long          bytes;
+    private final long          createdMillis;
+
+    private CachedStream(List<ByteBuf> frames, long bytes, long createdMillis) {
+      this.frames = frames;
+      this.bytes = bytes;
+      this.createdMillis = createdMillis;
+    }
+  }
+
+  /**
+   * Supplies the frames of a cached stream, each once.
+   */
+  static final class ReplayingSupplier implements DatumSupplier<Optional<ByteBuf>> {
+
+    private final List<ByteBuf> frames;
+    private int next;
+
+    private ReplayingSupplier(List<ByteBuf> frames) {
+      this.frames = frames;
+    }
+
+    @Override
+    public synchronized Optional<ByteBuf> get() {
+      // the reference taken for this frame goes along with the duplicate, to be released once it is written
+      return next < frames.size() ? Optional.of(frames.get(next++).duplicate()) : Optional.empty();
+    }
+
+    @Override
+    public void onComplete() {
+      abandon();
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+      abandon();
+    }
+
+    /**
+     * Lets go of the frames not handed out yet, as when the channel closes before the replay is over.
+     */
+    synchronized void abandon() {
+      while (next < frames.size()) {
+        frames.get(next++).release();
+      }
+    }
+  }
+
+  /**
+   * Supplies the frames of the items of the wrapped supplier and keeps a reference to each of them until the stream
+   * is cached or abandoned.
+   */
+  final class RecordingSupplier<P> implements DatumSupplier<Optional<ByteBuf>> {
+
+    private final Key                        key;
+    private final DatumSupplier<Optional<P>> supplier;
+    private final Function<P, ByteBuf>       encoder;
+
+    // null once the recording was cached or given up on
+    private List<ByteBuf> frames = Lists.newArrayList();
+    private long          bytes;
+
+    private RecordingSupplier(Key key, DatumSupplier<Optional<P>> supplier, Function<P, ByteBuf> encoder) {
+      this.key = key;
+      this.supplier = supplier;
+      this.encoder = encoder;
+    }
+
+    @Override
+    public Optional<ByteBuf> get() throws Exception {
+      Optional<P> item = supplier.get();
+      if (!item.isPresent()) {
+        commit();
+        return Optional.empty();
+      }
+      ByteBuf frame = encoder.apply(item.get());
+      record(frame);
+      return Optional.of(frame);
+    }
+
+    private synchronized void record(ByteBuf frame) {
+      if (frames == null) {
+        return;
+      }
+      bytes += frame.readableBytes();
+      if (bytes > maxBytes) {
+        LOG.debug("stream for {} outgrew the cache of {} bytes", key, maxBytes);
+        abandon();
+        return;
+      }
+      // the channel releases the frame once written, the cache keeps a view of its own
+      frames.add(frame.duplicate().retain());
+    }
+
+    private synchronized void commit() {
+      if (frames != null) {
+        put(key, frames, bytes);
+        frames = null;
+      }
+    }
+
+    /**
+     * Gives up on caching the stream, as when the channel closes before the supplier is exhausted.
+     */
+    synchronized void abandon() {
+      if (frames != null) {
+        frames.forEach(ByteBuf::release);
+        frames = null;
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      supplier.onComplete();
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+      abandon();
+      supplier.onError(cause);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.function.AsyncDatumSupplier;
+import com.adobe.datum.common.function.PublisherDatumSupplier;
+import org.reactivestreams.Publisher;
+import java.util.Optional;
+
+/**
+ * Same as {@link AsyncDownloadHandler} but hands out a {@link Publisher}. The publisher is asked for items only as
+ * fast as the channel takes them: demand follows channel writability and the credit granted by the client, and no
+ * more than {@link #getPrefetch()} items are ever buffered on the server.
+ *
+ * @author Adobe Systems Inc.
+ * @param <R> Request message type
+ * @param <P> Payload type
+ */
+public interface PublisherDownloadHandler<R, P> extends AsyncDownloadHandler<R, P> {
+
+  @Override
+  default AsyncDatumSupplier<Optional<P>> handleRequest(R request) throws RequestHandlerException {
+    return PublisherDatumSupplier.of(publish(request), getPrefetch());
+  }
+
+  Publisher<P> publish(R request) throws RequestHandlerException;
+
+  /**
+   * Number of items the publisher is asked for ahead of the channel.
+   */
+  default int getPrefetch() {
+    return PublisherDatumSupplier.DEFAULT_PREFETCH;
+  }
+
+}
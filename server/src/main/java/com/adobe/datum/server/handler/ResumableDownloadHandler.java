@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.function.DatumSupplier;
+import com.adobe.datum.common.function.ResumableDatumSupplier;
+import java.util.Optional;
+
+/**
+ * Same as {@link DownloadHandler} but for streams that can be picked up where an interrupted download left off. For
+ * clients that ask for it, the server marks a checkpoint every {@link #getCheckpointInterval()} items with the position
+ * of the supplier. A client that comes back with the last checkpoint it acknowledged gets a supplier started from that
+ * position, so only the rest of the stream is sent again.
+ *
+ * <p>
+ * Checkpointed streams are neither cached nor shared with identical requests, and their supplier is called on the
+ * event loop: each position is taken right after the item it follows.
+ *
+ * @author Adobe Systems Inc.
+ * @param <R> Request message type
+ * @param <P> Payload type
+ */
+public interface ResumableDownloadHandler<R, P> extends DownloadHandler<R, P> {
+
+  int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+
+  @Override
+  default DatumSupplier<Optional<P>> handleRequest(R request) throws RequestHandlerException {
+    return handleRequest(request, Optional.empty());
+  }
+
+  /**
+   * @param position of the checkpoint to resume the stream after, or empty to start it from the beginning
+   */
+  ResumableDatumSupplier<P> handleRequest(R request, Optional<byte[]> position) throws RequestHandlerException;
+
+  /**
+   * Number of items between two checkpoints.
+   */
+  default int getCheckpointInterval() {
+    return DEFAULT_CHECKPOINT_INTERVAL;
+  }
+
+  /**
+   * Called once the client is done with every item before the checkpoint at this position, and will not ask for them
+   * again.
+   */
+  default void onCheckpointAcknowledged(R request, byte[] position) { }
+
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import com.adobe.datum.common.function.DatumConsumer;
+
+/**
+ * Same as {@link UploadHandler} but for consumers that can pick up where an interrupted upload left off. For clients
+ * that ask for it, the server commits every {@link #getCommitInterval()} items the consumer took, so the client can
+ * let go of them. A client that comes back after a failure skips the items committed so far and sends only the rest,
+ * starting with the one at that offset.
+ *
+ * <p>
+ * Items are committed once the consumer returned from them, partial batches flushed first; a consumer that holds on
+ * to items past that must not be resumable.
+ *
+ * @author Adobe Systems Inc.
+ * @param <R> Request message type
+ * @param <P> Payload type
+ */
+public interface ResumableUploadHandler<R, P> extends UploadHandler<R, P> {
+
+  int DEFAULT_COMMIT_INTERVAL = 1024;
+
+  @Override
+  default DatumConsumer<P> handleRequest(R request) throws RequestHandlerException {
+    return handleRequest(request, 0);
+  }
+
+  /**
+   * @param offset number of items committed by earlier attempts at this upload, which the client does not send again
+   */
+  DatumConsumer<P> handleRequest(R request, long offset) throws RequestHandlerException;
+
+  /**
+   * Number of items between two commits.
+   */
+  default int getCommitInterval() {
+    return DEFAULT_COMMIT_INTERVAL;
+  }
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs an action once the stream of a channel is over, however it ends: a kept-alive channel drops the handlers of a
+ * stream when it resets for the next one, any other channel when it closes. Must be called after the channel was
+ * marked as kept alive, so that the stream is not taken for part of the baseline of the channel.
+ *
+ * @author Adobe Systems Inc.
+ */
+final class StreamScope extends ChannelHandlerAdapter {
+
+  private final Runnable      action;
+  private final AtomicBoolean ended = new AtomicBoolean();
+
+  private StreamScope(Runnable action) {
+    this.action = action;
+  }
+
+  /**
+   * @return the handler that runs the action when removed from the pipeline; removing it ends the scope early
+   */
+  static ChannelHandler onEnd(Channel channel, Runnable action) {
+    StreamScope scope = new StreamScope(action);
+    channel.pipeline().addLast(scope);
+    // a channel that closed before the scope made it into the pipeline never removes it
+    if (!channel.isOpen()) {
+      scope.end();
+    }
+    return scope;
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext context) {
+    end();
+  }
+
+  private void end() {
+    if (ended.compareAndSet(false, true)) {
+      action.run();
+    }
+  }
+}
@@ -20,6 +20,8 @@
 package com.adobe.datum.server.handler;
 
 import com.adobe.datum.common.function.DatumConsumer;
+import com.adobe.datum.common.util.ExecutorUtil;
+import java.util.concurrent.Executor;
 
 /**
  * @author Adobe Systems Inc.
@@ -30,4 +32,31 @@ public interface UploadHandler<R, P> {
 
   DatumConsumer<P> handleRequest(R request) throws RequestHandlerException;
 
+  /**
+   * Number of items that may queue up for the consumer on {@link #getConsumerExecutor()} before reading from the
+   * channel is suspended. With the default of zero, the consumer is called on the event loop.
+   */
+  default int getConsumerQueueDepth() {
+    return 0;
+  }
+
+  default Executor getConsumerExecutor() {
+    return ExecutorUtil.offloadExecutor();
+  }
+
+  /**
+   * Bytes per second shared by all streams of this handler, on top of the server's budgets; zero for no cap.
+   */
+  default long getBandwidthLimit() {
+    return 0;
+  }
+
+  /**
+   * Streams of this handler the server serves at most at a time, on top of the server's limit; zero for no limit.
+   * Requests beyond it are turned down as overloaded.
+   */
+  default int getMaxActiveStreams() {
+    return 0;
+  }
+
 }
@@ -19,13 +19,17 @@
 
 package com.adobe.datum.server.handler;
 
+import com.adobe.datum.common.channel.ConnectionSettings;
+import com.adobe.datum.common.channel.metadata.DatumCommitMessage;
 import com.adobe.datum.common.function.DatumCallback;
 import com.adobe.datum.common.function.DatumConsumer;
+import com.adobe.datum.common.handler.CommitPolicy;
 import com.adobe.datum.common.handler.DatumChannelDownloadHandler;
 import com.adobe.datum.common.serialize.DatumDeserializer;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.concurrent.FutureListener;
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto;
 import static com.adobe.datum.common.handler.ChannelHandlers.inboundHandlers;
 
 /**
@@ -33,26 +37,81 @@ import static com.adobe.datum.common.handler.ChannelHandlers.inboundHandlers;
  */
 final class UploadRequestHandler<R, P> extends AbstractRequestHandler<R, P> {
 
-  private final UploadHandler<R, P>  uploadHandler;
-  private final DatumDeserializer<P> payloadDeserializer;
+  private final UploadHandler<R, P>          uploadHandler;
+  private final ResumableUploadHandler<R, P> resumableHandler;
+  private final DatumDeserializer<P>         payloadDeserializer;
 
+  @SuppressWarnings("unchecked")
   UploadRequestHandler(Class<P> payloadClass,
                        UploadHandler<R, P> uploadHandler,
                        DatumDeserializer<R> requestDeserializer,
                        DatumDeserializer<P> payloadDeserializer,
-                       DatumCallback callback) {
-    super(payloadClass, requestDeserializer, callback);
+                       ConnectionSettings settings,
+                       DatumCallback callback,
+                       AdmissionControl admissionControl) {
+    super(payloadClass, requestDeserializer, settings, callback, admissionControl);
     this.uploadHandler = uploadHandler;
+    this.resumableHandler = uploadHandler instanceof ResumableUploadHandler
+                            ? (ResumableUploadHandler<R, P>) uploadHandler
+                            : null;
     this.payloadDeserializer = payloadDeserializer;
   }
 
   @Override
-  protected void doRequest(ChannelHandlerContext context, R request) throws RequestHandlerException {
-    DatumConsumer<P> consumer = uploadHandler.handleRequest(request);
+  protected void doRequest(ChannelHandlerContext context, R request, DatumRequestProto datumRequest)
+      throws RequestHandlerException {
+    CommitPolicy commitPolicy = getCommitPolicy(datumRequest);
+    DatumConsumer<P> consumer = commitPolicy.isEnabled()
+                                ? resumableHandler.handleRequest(request, commitPolicy.getOffset())
+                                : uploadHandler.handleRequest(request);
     Class<P> payloadClass = getPayloadClass();
-    ChannelHandler channelHandler = DatumChannelDownloadHandler.of(payloadClass, consumer, getCallback());
-    FutureListener listener =
-        future -> context.pipeline().addLast(inboundHandlers(payloadClass, payloadDeserializer, channelHandler));
+    int creditWindow = getCreditWindow(datumRequest);
+    ChannelHandler channelHandler = DatumChannelDownloadHandler.of(payloadClass,
+                                                                   consumer,
+                                                                   getCallback(),
+                                                                   creditWindow,
+                                                                   uploadHandler.getConsumerExecutor(),
+                                                                   uploadHandler.getConsumerQueueDepth(),
+                                                                   null,
+                                                                   commitPolicy);
+    FutureListener listener = future -> context.pipeline()
+                                               .addLast(inboundHandlers(payloadClass,
+                                                                        payloadDeserializer,
+                                                                        channelHandler,
+                                                                        getSettings()));
+    sendInitialCredit(context.channel(), creditWindow);
+    sendInitialCommit(context, commitPolicy);
     prepareChannel(context.channel(), listener);
   }
+
+  /**
+   * Commits are sent only to clients that keep the items not committed yet, which they show by asking for an offset.
+   */
+  private CommitPolicy getCommitPolicy(DatumRequestProto datumRequest) throws RequestHandlerException {
+    if (resumableHandler == null || !datumRequest.hasResumeOffset()) {
+      return CommitPolicy.NONE;
+    }
+    long offset = datumRequest.getResumeOffset();
+    if (offset < 0) {
+      throw new RequestHandlerException("resume offset cannot be negative: " + offset);
+    }
+    return CommitPolicy.of(resumableHandler.getCommitInterval(), offset);
+  }
+
+  // tells the client up front that commits will follow, and where the upload resumes
+  private void sendInitialCommit(ChannelHandlerContext context, CommitPolicy commitPolicy) {
+    if (commitPolicy.isEnabled()) {
+      context.channel().write(DatumCommitMessage.of(commitPolicy.getOffset()));
+    }
+  }
+
+  @Override
+  protected long getReadBandwidthLimit() {
+    return uploadHandler.getBandwidthLimit();
+  }
+
+  @Override
+  protected int getMaxActiveStreams() {
+    return uploadHandler.getMaxActiveStreams();
+  }
 }
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server
+
+import com.adobe.datum.common.channel.ConnectionSettings
+import io.netty.channel.ChannelInboundHandlerAdapter
+import io.netty.channel.embedded.EmbeddedChannel
+import io.netty.handler.traffic.GlobalTrafficShapingHandler
+import spock.lang.Specification
+import java.util.concurrent.Executors
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class BandwidthBudgetSpec extends Specification {
+
+  def executor = Executors.newSingleThreadScheduledExecutor()
+  def settings = ConnectionSettings.getDefaultSettings()
+  BandwidthBudget budget
+
+  def setup() {
+    settings.globalWriteBandwidth = 1_000_000
+    settings.clientWriteBandwidth = 100_000
+    budget = BandwidthBudget.of(executor, settings)
+  }
+
+  def cleanup() {
+    budget.release()
+    executor.shutdownNow()
+  }
+
+  def 'should share one shaper among the connections of a client host'() {
+    when:
+      def shapers = [connection('10.0.0.1', 4000), connection('10.0.0.1', 4001), connection('10.0.0.2', 4000)]
+          .collect { budget.shapersFor(it).toList() }
+
+    then:
+      shapers*.size() == [2, 2, 2]
+      shapers*.get(0).unique().size() == 1
+      shapers[0][1].is(shapers[1][1])
+      !shapers[0][1].is(shapers[2][1])
+      shapers*.get(1).every { GlobalTrafficShapingHandler shaper -> shaper.writeLimit == 100_000 }
+  }
+
+  def 'should release the shaper of a client once its last connection closes'() {
+    given:
+      def first = connection('10.0.0.1', 4000)
+      def second = connection('10.0.0.1', 4001)
+      def shaper = budget.shapersFor(first)[1]
+      budget.shapersFor(second)
+
+    when:
+      first.close()
+
+    then:
+      budget.clientShapers.size() == 1
+
+    when:
+      second.close()
+
+    then:
+      budget.clientShapers.isEmpty()
+      !budget.shapersFor(connection('10.0.0.1', 4002))[1].is(shaper)
+  }
+
+  def 'should leave clients uncapped unless the settings cap them'() {
+    given:
+      settings.clientWriteBandwidth = 0
+      def uncapped = BandwidthBudget.of(executor, settings)
+
+    expect:
+      uncapped.shapersFor(connection('10.0.0.1', 4000)).size() == 1
+
+    cleanup:
+      uncapped.release()
+  }
+
+  static EmbeddedChannel connection(String host, int port) {
+    new ClientChannel(new InetSocketAddress(InetAddress.getByName(host), port))
+  }
+
+  static class ClientChannel extends EmbeddedChannel {
+
+    final InetSocketAddress address
+
+    ClientChannel(InetSocketAddress address) {
+      super(new ChannelInboundHandlerAdapter())
+      this.address = address
+    }
+
+    @Override
+    SocketAddress remoteAddress() {
+      address
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server
+
+import com.adobe.datum.common.channel.ChannelUtil
+import com.adobe.datum.common.channel.ConnectionSettings
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.serialize.SerializationContext
+import com.adobe.datum.server.handler.DatumServerHandlerBuilder
+import io.netty.channel.EventLoopGroup
+import io.netty.channel.epoll.EpollChannelOption
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
+import java.util.function.IntFunction
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class DatumServerBootstrapSpec extends Specification {
+
+  def settings = ConnectionSettings.getDefaultSettings()
+  def groupSizes = []
+  def server
+
+  def cleanup() {
+    server?.shutdown()
+  }
+
+  @Unroll
+  def 'should ask for SO_REUSEPORT with #acceptors acceptors only if it is supported: #reusePortSupported'() {
+    given:
+      def bossGroup = Mock(EventLoopGroup)
+      def workerGroup = Mock(EventLoopGroup)
+      def serverHandler = new DatumServerHandlerBuilder(Mock(DatumCallback)).build(new SerializationContext())
+      settings.acceptors = acceptors
+
+    when:
+      def bootstrap = DatumServerBootstrap.getInstance()
+                                          .bootstrap(bossGroup, workerGroup, settings,
+                                                     new DatumServerInitializer(serverHandler, settings),
+                                                     reusePortSupported)
+
+    then:
+      bootstrap.group().is(bossGroup)
+      bootstrap.childGroup().is(workerGroup)
+      bootstrap.options().containsKey(EpollChannelOption.SO_REUSEPORT) == reusePort
+
+    where:
+      acceptors | reusePortSupported || reusePort
+      1         | true               || false
+      3         | true               || true
+      3         | false              || false
+  }
+
+  def 'should listen on a single socket when SO_REUSEPORT is not supported'() {
+    given:
+      settings.acceptors = 3
+      settings.bossThreads = 1
+      settings.workerThreads = 2
+
+    when:
+      server = start(false)
+
+    then:
+      groupSizes == [1, 2]
+      listening(1)
+  }
+
+  @Unroll
+  @Requires({ ChannelUtil.isReusePortSupported() })
+  def 'should bind #acceptors sockets to the port, each on a boss thread of its own'() {
+    given:
+      settings.acceptors = acceptors
+      settings.bossThreads = bossThreads
+      settings.workerThreads = 2
+
+    when:
+      server = start(true)
+
+    then:
+      groupSizes == [bossGroupSize, 2]
+      listening(acceptors)
+      (server.listeners*.eventLoop() as Set).size() == acceptors
+
+    where:
+      acceptors | bossThreads || bossGroupSize
+      1         | 1           || 1
+      3         | 1           || 3
+      3         | 4           || 4
+  }
+
+  private DatumServer start(boolean reusePortSupported) {
+    settings.port = new ServerSocket(0).withCloseable { it.localPort }
+    def eventLoopGroups = { int threads ->
+      groupSizes << threads
+      ChannelUtil.newEventLoopGroup(threads)
+    } as IntFunction<EventLoopGroup>
+    return new DatumServer(Mock(DatumCallback), eventLoopGroups, reusePortSupported).start(settings)
+  }
+
+  private boolean listening(int sockets) {
+    new PollingConditions(timeout: 5).eventually {
+      assert server.listeners.size() == sockets
+      assert server.listeners.every { it.active }
+    }
+    return true
+  }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server
+
+import com.adobe.datum.client.DatumClient
+import com.adobe.datum.common.channel.ConnectionSettings
+import com.adobe.datum.common.function.DatumSupplier
+import com.adobe.datum.server.handler.DownloadHandler
+import spock.lang.Specification
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class MultiplexingSpec extends Specification {
+
+  static final int ITEMS = 1000
+
+  def settings = ConnectionSettings.getDefaultSettings()
+  def server = new DatumServer()
+  def client
+
+  def setup() {
+    settings.port = new ServerSocket(0).withCloseable { it.localPort }
+    settings.multiplexing = true
+    settings.creditWindow = 64
+    server.addDownloadHandler(new CountingHandler()).start(settings)
+    client = new DatumClient(settings)
+  }
+
+  def cleanup() {
+    client.shutdown()
+    server.shutdown()
+  }
+
+  def 'should run concurrent downloads over a single multiplexed connection'() {
+    given:
+      def received = (1..8).collect { new ConcurrentLinkedQueue<Integer>() }
+
+    when:
+      def futures = received.withIndex().collect { queue, stream ->
+        client.sendDownloadRequestAsync("stream-$stream".toString(), Integer, queue.&add)
+      }
+      CompletableFuture.allOf(futures as CompletableFuture[]).get(10, TimeUnit.SECONDS)
+
+    then:
+      received.every { it as List == (0..<ITEMS) as List }
+      futures*.get()*.items == [ITEMS] * 8
+  }
+
+  static class CountingHandler implements DownloadHandler<String, Integer> {
+
+    @Override
+    DatumSupplier<Optional<Integer>> handleRequest(String request) {
+      def next = 0
+      return { next < ITEMS ? Optional.of(next++) : Optional.empty() } as DatumSupplier
+    }
+  }
+}
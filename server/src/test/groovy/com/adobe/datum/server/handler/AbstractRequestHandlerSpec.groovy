@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler
+
+import com.adobe.datum.common.channel.ConnectionSettings
+import com.adobe.datum.common.channel.metadata.DatumOverloadMessage
+import com.adobe.datum.common.channel.metadata.DatumRequestFailedMessage
+import com.adobe.datum.common.function.DatumCallback
+import com.adobe.datum.common.function.DatumSupplier
+import com.adobe.datum.common.handler.ChannelHandlers
+import com.adobe.datum.common.serialize.SerializableSerializer
+import com.adobe.datum.common.serialize.SerializationContext
+import com.google.protobuf.ByteString
+import io.netty.buffer.Unpooled
+import io.netty.channel.embedded.EmbeddedChannel
+import io.netty.handler.traffic.GlobalTrafficShapingHandler
+import spock.lang.Specification
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class AbstractRequestHandlerSpec extends Specification {
+
+  def 'should cap all streams of a handler together at its bandwidth limit'() {
+    given:
+      def builder = new DatumServerHandlerBuilder(Mock(DatumCallback))
+      builder.addDownloadHandler(new LimitedHandler(), Mock(DatumCallback))
+      def serverHandler = builder.build(new SerializationContext())
+      def channels = (0..<2).collect { new EmbeddedChannel(ChannelHandlers.requestDecoder(), serverHandler) }
+
+    when:
+      channels.each { it.writeInbound(request('numbers')) }
+      def shapers = channels.collect { it.pipeline().first() }
+
+    then:
+      shapers.every { it instanceof GlobalTrafficShapingHandler }
+      shapers[0].is(shapers[1])
+      shapers[0].writeLimit == LimitedHandler.LIMIT
+
+    cleanup:
+      shapers?.first()?.release()
+  }
+
+  def 'should fail a request it cannot deserialize and give back its stream slot'() {
+    given:
+      def callback = Mock(DatumCallback)
+      def settings = ConnectionSettings.getDefaultSettings()
+      settings.maxActiveStreams = 1
+      def builder = new DatumServerHandlerBuilder(Mock(DatumCallback))
+      builder.addDownloadHandler(new LimitedHandler(), callback)
+      def serverHandler = builder.build(new SerializationContext(), settings)
+      def channels = (0..<2).collect { new EmbeddedChannel(ChannelHandlers.requestDecoder(), serverHandler) }
+
+    when:
+      channels[0].writeInbound(request(ByteString.copyFromUtf8('not a serialized string')))
+      channels[0].runPendingTasks()
+
+    then:
+      1 * callback.onError(_ as RequestHandlerException)
+      channels[0].outboundMessages().toList() == [DatumRequestFailedMessage.of()]
+      !channels[0].open
+
+    when:
+      channels[1].writeInbound(request('numbers'))
+
+    then:
+      !channels[1].outboundMessages().any { it instanceof DatumOverloadMessage }
+
+    cleanup:
+      channels[1].pipeline().get(GlobalTrafficShapingHandler)?.release()
+  }
+
+  static DatumRequestProto request(String request) {
+    def body = Unpooled.buffer()
+    SerializableSerializer.instance.serialize(request, body)
+    request(ByteString.copyFrom(body.nioBuffer()))
+  }
+
+  static DatumRequestProto request(ByteString parameterBody) {
+    DatumRequestProto.newBuilder()
+                     .setType(DatumRequestProto.RequestType.DOWNLOAD)
+                     .setParameterType(String.name)
+                     .setParameterBody(parameterBody)
+                     .setPrototypeName(Integer.name)
+                     .build()
+  }
+
+  static class LimitedHandler implements DownloadHandler<String, Integer> {
+
+    static final long LIMIT = 64 * 1024
+
+    @Override
+    DatumSupplier<Optional<Integer>> handleRequest(String request) {
+      DatumSupplier.of(0..<10)
+    }
+
+    @Override
+    long getBandwidthLimit() {
+      LIMIT
+    }
+  }
+}
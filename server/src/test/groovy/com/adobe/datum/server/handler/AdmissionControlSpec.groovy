@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler
+
+import com.adobe.datum.common.channel.metadata.DatumOverloadMessage
+import io.netty.channel.embedded.EmbeddedChannel
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.adobe.datum.common.channel.metadata.DatumOverloadMessage.Reason
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class AdmissionControlSpec extends Specification {
+
+  def handlerStreams = new AtomicInteger()
+  def invocations = 0
+
+  def 'should turn down a stream over the server limit'() {
+    given:
+      def admissionControl = AdmissionControl.of(1, null)
+      def channels = [new EmbeddedChannel(), new EmbeddedChannel()]
+
+    when:
+      channels.each { admit(admissionControl, it, 0) }
+
+    then:
+      invocations == 1
+      channels[0].open
+      rejected(channels[1], Reason.SERVER_LIMIT)
+  }
+
+  def 'should turn down a stream over the limit of its handler and give back its server slot'() {
+    given:
+      def admissionControl = AdmissionControl.of(2, null)
+      def channels = [new EmbeddedChannel(), new EmbeddedChannel(), new EmbeddedChannel()]
+
+    when:
+      admit(admissionControl, channels[0], 1)
+      admit(admissionControl, channels[1], 1)
+      admissionControl.admit(channels[2], new AtomicInteger(), 1) { invocations++ }
+
+    then:
+      invocations == 2
+      rejected(channels[1], Reason.HANDLER_LIMIT)
+      channels[2].open
+      handlerStreams.get() == 1
+  }
+
+  def 'should turn down a stream the request executor does not take and give back its slots'() {
+    given:
+      def saturated = true
+      def executor = { Runnable task ->
+        if (saturated) {
+          throw new RejectedExecutionException()
+        }
+        task.run()
+      } as Executor
+      def admissionControl = AdmissionControl.of(1, executor)
+      def channels = [new EmbeddedChannel(), new EmbeddedChannel()]
+
+    when:
+      admit(admissionControl, channels[0], 1)
+
+    then:
+      invocations == 0
+      rejected(channels[0], Reason.EXECUTOR_SATURATED)
+      channels[0].pipeline().get(StreamScope) == null
+      handlerStreams.get() == 0
+
+    when:
+      saturated = false
+      admit(admissionControl, channels[1], 1)
+
+    then:
+      invocations == 1
+      channels[1].open
+  }
+
+  def 'should give back the slots of a stream once its channel is reset'() {
+    given:
+      def admissionControl = AdmissionControl.of(1, null)
+      def channels = [new EmbeddedChannel(), new EmbeddedChannel()]
+      admit(admissionControl, channels[0], 1)
+
+    when:
+      channels[0].pipeline().remove(StreamScope)
+      admit(admissionControl, channels[1], 1)
+
+    then:
+      invocations == 2
+      channels.every { it.open }
+      handlerStreams.get() == 1
+  }
+
+  def 'should give back the slots of a stream once its channel closes'() {
+    given:
+      def admissionControl = AdmissionControl.of(1, null)
+      def channels = [new EmbeddedChannel(), new EmbeddedChannel()]
+      admit(admissionControl, channels[0], 1)
+
+    when:
+      channels[0].close()
+      channels[0].runPendingTasks()
+      admit(admissionControl, channels[1], 1)
+
+    then:
+      invocations == 2
+      channels[1].open
+      handlerStreams.get() == 1
+  }
+
+  private void admit(AdmissionControl admissionControl, EmbeddedChannel channel, int maxHandlerStreams) {
+    admissionControl.admit(channel, handlerStreams, maxHandlerStreams) { invocations++ }
+  }
+
+  private static boolean rejected(EmbeddedChannel channel, Reason reason) {
+    channel.outboundMessages().toList() == [DatumOverloadMessage.of(reason)] && !channel.open
+  }
+}
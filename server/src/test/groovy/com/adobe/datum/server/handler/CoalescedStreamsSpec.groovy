@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler
+
+import com.adobe.datum.common.function.AsyncDatumSupplier
+import com.adobe.datum.common.function.DatumSupplier
+import com.google.protobuf.ByteString
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import spock.lang.Specification
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executor
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto.RequestType
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class CoalescedStreamsSpec extends Specification {
+
+  // every frame is 10 bytes long
+  static final List<String> FRAMES = (0..<5).collect { String.format('frame-%04d', it) }
+
+  def key = EncodedStreamCache.key(new RequestHandlerKey('request', 'payload', RequestType.DOWNLOAD),
+                                   ByteString.copyFromUtf8('body'))
+  def producer = new FrameProducer()
+
+  def 'should join a stream in flight from its first frame'() {
+    given:
+      def streams = CoalescedStreams.of(1000)
+      def first = subscribe(streams)
+      def firstFrames = take(first, 2)
+
+    when:
+      def second = streams.subscribe(key, PRODUCED_TWICE)
+
+    then:
+      drain(second) == FRAMES
+      firstFrames + drain(first) == FRAMES
+      producer.produced.size() == FRAMES.size()
+
+    when:
+      first.leave()
+      second.leave()
+
+    then:
+      producer.completed == 1
+      producer.produced*.refCnt() == [0] * FRAMES.size()
+  }
+
+  def 'should keep the stream going for the others when the first subscriber leaves'() {
+    given:
+      def streams = CoalescedStreams.of(1000)
+      def first = subscribe(streams)
+      def second = subscribe(streams)
+      take(first, 1)
+
+    when:
+      first.leave()
+
+    then:
+      producer.completed == 0
+      producer.errors.isEmpty()
+
+    when:
+      def frames = drain(second)
+      second.leave()
+
+    then:
+      frames == FRAMES
+      producer.completed == 1
+      producer.produced*.refCnt() == [0] * FRAMES.size()
+  }
+
+  def 'should fail every subscriber the way the producer failed'() {
+    given:
+      producer.failAt = 3
+      def streams = CoalescedStreams.of(1000)
+      def first = subscribe(streams)
+      def second = subscribe(streams)
+
+    when:
+      def firstFrames = take(first, 3)
+      def firstFailure = failure(first)
+      def secondFrames = take(second, 3)
+      def secondFailure = failure(second)
+      first.onError(firstFailure)
+      second.onError(secondFailure)
+
+    then:
+      firstFrames == FRAMES.take(3)
+      secondFrames == FRAMES.take(3)
+      firstFailure.message == 'broken'
+      secondFailure.is(firstFailure)
+      producer.errors == [firstFailure]
+      producer.produced*.refCnt() == [0] * 3
+  }
+
+  def 'should let go of the frames every subscriber went by once the stream stops taking subscribers'() {
+    given:
+      def streams = CoalescedStreams.of(25, 1000)
+      def first = subscribe(streams)
+      def second = subscribe(streams)
+      take(first, 3)
+      def otherProducer = new FrameProducer()
+
+    when:
+      def third = streams.subscribe(key, { async(otherProducer) } as CoalescedStreams.ProducerFactory)
+      drain(first)
+
+    then:
+      take(third, 1) == FRAMES.take(1)
+      otherProducer.produced.size() == 1
+      producer.produced*.refCnt() == [1] * FRAMES.size()
+
+    when:
+      take(second, 2)
+
+    then:
+      producer.produced*.refCnt() == [0, 0, 1, 1, 1]
+
+    when:
+      drain(second)
+      [first, second, third]*.leave()
+
+    then:
+      producer.completed == 1
+      otherProducer.errors.size() == 1
+      (producer.produced + otherProducer.produced)*.refCnt().every { it == 0 }
+  }
+
+  def 'should hand a frame being produced to every subscriber waiting for it'() {
+    given:
+      def frame = new CompletableFuture<Optional<ByteBuf>>()
+      def calls = 0
+      def slowProducer = { calls++; frame } as AsyncDatumSupplier<Optional<ByteBuf>>
+      def streams = CoalescedStreams.of(1000)
+      def first = streams.subscribe(key, { slowProducer } as CoalescedStreams.ProducerFactory)
+      def second = streams.subscribe(key, PRODUCED_TWICE)
+
+    when:
+      def frames = [first.get(), second.get()]
+
+    then:
+      calls == 1
+      frames.every { !it.done }
+
+    when:
+      frame.complete(Optional.of(Unpooled.copiedBuffer(FRAMES[0], StandardCharsets.US_ASCII)))
+
+    then:
+      frames.collect { read(it.join().get()) } == [FRAMES[0]] * 2
+      calls == 1
+
+    cleanup:
+      [first, second]*.leave()
+  }
+
+  def 'should detach a subscriber that falls too far behind onto a producer of its own'() {
+    given:
+      def producers = []
+      def factory = {
+        producers << new FrameProducer()
+        async(producers.last())
+      } as CoalescedStreams.ProducerFactory
+      def streams = CoalescedStreams.of(25, 40)
+      def first = streams.subscribe(key, factory)
+      def second = streams.subscribe(key, factory)
+
+    when:
+      def firstFrames = drain(first)
+      first.leave()
+
+    then:
+      firstFrames == FRAMES
+      producers.size() == 1
+      producers[0].completed == 1
+      producers[0].produced*.refCnt() == [1] * FRAMES.size()
+
+    when:
+      def secondFrames = drain(second)
+      second.leave()
+
+    then:
+      secondFrames == FRAMES
+      producers.size() == 2
+      producers[1].produced.size() == FRAMES.size()
+      producers[1].completed == 1
+      producers*.produced.flatten()*.refCnt().every { it == 0 }
+  }
+
+  static final CoalescedStreams.ProducerFactory PRODUCED_TWICE =
+      { throw new IllegalStateException('produced twice') } as CoalescedStreams.ProducerFactory
+
+  def subscribe(CoalescedStreams streams) {
+    streams.subscribe(key, { async(producer) } as CoalescedStreams.ProducerFactory)
+  }
+
+  // produces on the thread of the subscriber that asks, as a shared stream without read-ahead does
+  static AsyncDatumSupplier<Optional<ByteBuf>> async(DatumSupplier<Optional<ByteBuf>> producer) {
+    producer.toAsync({ it.run() } as Executor)
+  }
+
+  static List<String> take(CoalescedStreams.Subscriber subscriber, int count) {
+    (0..<count).collect { read(subscriber.get().join().get()) }
+  }
+
+  static List<String> drain(CoalescedStreams.Subscriber subscriber) {
+    def frames = []
+    Optional<ByteBuf> frame
+    while ((frame = subscriber.get().join()).isPresent()) {
+      frames << read(frame.get())
+    }
+    frames
+  }
+
+  static Throwable failure(CoalescedStreams.Subscriber subscriber) {
+    try {
+      subscriber.get().join()
+      null
+    } catch (CompletionException e) {
+      e.cause
+    }
+  }
+
+  static String read(ByteBuf frame) {
+    def text = frame.toString(StandardCharsets.US_ASCII)
+    frame.release()
+    text
+  }
+
+  static class FrameProducer implements DatumSupplier<Optional<ByteBuf>> {
+
+    List<ByteBuf> produced = []
+    List<Throwable> errors = []
+    int completed
+    int failAt = -1
+
+    @Override
+    Optional<ByteBuf> get() {
+      if (produced.size() == failAt) {
+        throw new IOException('broken')
+      }
+      if (produced.size() == FRAMES.size()) {
+        return Optional.empty()
+      }
+      def frame = Unpooled.copiedBuffer(FRAMES[produced.size()], StandardCharsets.US_ASCII)
+      produced << frame
+      Optional.of(frame)
+    }
+
+    @Override
+    void onComplete() {
+      completed++
+    }
+
+    @Override
+    void onError(Throwable cause) {
+      errors << cause
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright 2016 Adobe Systems Incorporated.
+ *
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * <p>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.adobe.datum.server.handler
+
+import com.adobe.datum.common.function.DatumSupplier
+import com.google.protobuf.ByteString
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import spock.lang.Specification
+import java.nio.charset.StandardCharsets
+import java.util.function.Function
+import java.util.function.LongSupplier
+import static com.adobe.datum.common.api.DatumProto.DatumRequestProto.RequestType
+
+/**
+ * @author Adobe Systems Inc.
+ */
+class EncodedStreamCacheSpec extends Specification {
+
+  static final long TTL_MILLIS = 1000
+
+  // every item is encoded into 10 bytes
+  static final List<String> ITEMS = (0..<3).collect { String.format('item-%05d', it) }
+
+  long now = 0
+  List<ByteBuf> encoded = []
+  def encoder = { String item ->
+    def frame = Unpooled.copiedBuffer(item, StandardCharsets.US_ASCII)
+    encoded << frame
+    frame
+  } as Function
+
+  def 'should replay the bytes of a recorded stream without calling its supplier again'() {
+    given:
+      def cache = newCache(100)
+      def supplier = new CountingSupplier()
+      def recorded = drain(cache.record(key('a'), supplier, encoder))
+
+    when:
+      def replay = cache.replay(key('a')).get()
+      def replayed = drain(replay)
+
+    then:
+      replayed == recorded
+      replayed == ITEMS
+      supplier.calls == ITEMS.size() + 1
+      cache.size == 30
+
+    when:
+      replay.onComplete()
+
+    then:
+      encoded*.refCnt() == [1] * ITEMS.size()
+  }
+
+  def 'should evict the least recently used streams to stay within its size'() {
+    given:
+      def cache = newCache(70)
+      record(cache, 'a')
+      record(cache, 'b')
+      cache.replay(key('a')).get().abandon()
+
+    when:
+      record(cache, 'c')
+      def replays = ['a', 'b', 'c'].collect { cache.replay(key(it)) }
+      replays.findAll { it.isPresent() }*.get()*.abandon()
+
+    then:
+      cache.size == 60
+      replays*.isPresent() == [true, false, true]
+      encoded[3..5]*.refCnt() == [0] * 3
+  }
+
+  def 'should not replay streams older than the time to live'() {
+    given:
+      def cache = newCache(100)
+      record(cache, 'a')
+
+    when:
+      now += TTL_MILLIS
+      def fresh = cache.replay(key('a'))
+      fresh.get().abandon()
+
+    then:
+      fresh.isPresent()
+
+    when:
+      now += 1
+      def stale = cache.replay(key('a'))
+
+    then:
+      !stale.isPresent()
+      cache.size == 0
+      encoded*.refCnt() == [0] * ITEMS.size()
+  }
+
+  def 'should pass a stream through once it outgrows the cache'() {
+    given:
+      def cache = newCache(25)
+
+    when:
+      def passed = record(cache, 'a')
+
+    then:
+      passed == ITEMS
+      !cache.replay(key('a')).isPresent()
+      cache.size == 0
+      encoded*.refCnt() == [0] * ITEMS.size()
+  }
+
+  def 'should let go of every frame once it is no longer needed'() {
+    given:
+      def cache = newCache(30)
+
+    when: 'a recording is abandoned halfway'
+      def recording = cache.record(key('a'), DatumSupplier.of(ITEMS), encoder)
+      read(recording.get().get())
+      recording.abandon()
+
+    then:
+      encoded*.refCnt() == [0]
+      !cache.replay(key('a')).isPresent()
+
+    when: 'a replay is abandoned halfway, and another one completes'
+      encoded.clear()
+      record(cache, 'a')
+      def abandoned = cache.replay(key('a')).get()
+      read(abandoned.get().get())
+      abandoned.abandon()
+      def completed = cache.replay(key('a')).get()
+      drain(completed)
+      completed.onComplete()
+
+    then: 'the cache still holds a reference'
+      encoded*.refCnt() == [1] * ITEMS.size()
+
+    when: 'the stream is evicted'
+      record(cache, 'b')
+
+    then:
+      encoded.take(ITEMS.size())*.refCnt() == [0] * ITEMS.size()
+      cache.size == 30
+  }
+
+  def newCache(long maxBytes) {
+    EncodedStreamCache.of(maxBytes, TTL_MILLIS, { now } as LongSupplier)
+  }
+
+  List<String> record(EncodedStreamCache cache, String request) {
+    def recording = cache.record(key(request), DatumSupplier.of(ITEMS), encoder)
+    def items = drain(recording)
+    recording.onComplete()
+    items
+  }
+
+  static EncodedStreamCache.Key key(String request) {
+    EncodedStreamCache.key(new RequestHandlerKey('request', 'payload', RequestType.DOWNLOAD),
+                           ByteString.copyFromUtf8(request))
+  }
+
+  static List<String> drain(DatumSupplier<Optional<ByteBuf>> supplier) {
+    def items = []
+    Optional<ByteBuf> frame
+    while ((frame = supplier.get()).isPresent()) {
+      items << read(frame.get())
+    }
+    items
+  }
+
+  // the channel releases each frame once written
+  static String read(ByteBuf frame) {
+    def text = frame.toString(StandardCharsets.US_ASCII)
+    frame.release()
+    text
+  }
+
+  static class CountingSupplier implements DatumSupplier<Optional<String>> {
+
+    int calls
+
+    @Override
+    Optional<String> get() {
+      calls++
+      calls <= ITEMS.size() ? Optional.of(ITEMS[calls - 1]) : Optional.<String> empty()
+    }
+  }
+}